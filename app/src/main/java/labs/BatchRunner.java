@@ -0,0 +1,530 @@
+package labs;
+
+import java.io.BufferedWriter;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Runs the analysis of {@link Main} without user interaction. The parameters come from
+ * {@code key=value} arguments (a leading {@code --} is allowed) and, optionally,
+ * from a properties file given as {@code config=path}; arguments override the file.
+ *
+ * <pre>
+ * entity    survey, clothing, car, creature or the variant number 0-3 (required)
+ * filter    the value of field A (required)
+ * skip      the number of matching objects to skip, 0 by default
+ * limit     the number of matching objects to analyze, 500 by default
+ * minB      the minimum value of field B, unbounded by default
+ * maxB      the maximum value of field B, unbounded by default
+ * seed      the seed of the generated data, random by default
+ * output    the report file, or - for the standard output (default)
+ * quantiles exact (default), sketch for bounded memory on large limits, or offheap
+ *           for exact quantiles of more values than fit in the heap
+ * values    summary (default) or full, to also list every G value
+ * bins      the number of histogram bins, 20 by default
+ * dataset   a file to analyze instead of generated data: a dataset file written by save,
+ *           which sets the default entity, or a .csv, .jsonl or .json file of entities
+ *           of the given entity, read by a {@link TextDatasetSource}
+ * save      a dataset file to write the first {@code count} generated entities to,
+ *           instead of running the analysis (filter is then not needed)
+ * count     the number of entities to save
+ * producers the number of threads generating entities while the analysis runs,
+ *           0 (default) to generate them on the analyzing thread
+ * queries   a file of queries to run one after another, one line each with {@code key=value}
+ *           pairs that override the other parameters; the reports go to one output, and
+ *           repeated queries are answered by a {@link QueryCache}
+ * cache     the maximum size of the cache of the queries file in MiB, 64 by default
+ * workers   the number of worker processes of a {@link ShardCoordinator} to run the query in,
+ *           0 (default) to run it in this process; not with offheap quantiles or queries
+ * workerOptions the options of the worker JVMs separated by spaces, for example -Xmx256m
+ * top       the number of objects with the largest G values to list for every value of
+ *           field V, none by default
+ * hitters   the number of counters for the most frequent values of the extra field,
+ *           none by default
+ * index     true to build a {@link DatasetIndex} of the dataset once and answer the queries
+ *           from it, false by default; needs a dataset file and no workers
+ * </pre>
+ */
+public class BatchRunner {
+
+  /** The size of the output buffer. */
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  /**
+   * Runs the batch mode.
+   *
+   * @param args the {@code key=value} arguments
+   * @return the exit code: 0 on success, 1 on an I/O error, 2 on invalid parameters
+   */
+  public static int run(String[] args) {
+    Properties parameters;
+    QuerySpec spec;
+    int bins;
+    int producers;
+    int workers;
+    DatasetReader dataset = null;
+    DatasetIndex index = null;
+    Path text = null;
+    try {
+      parameters = parse(args);
+      if (parameters.containsKey("save")) {
+        return save(parameters);
+      }
+      if (parameters.containsKey("dataset")) {
+        Path path = Paths.get(parameters.getProperty("dataset"));
+        if (isText(path)) {
+          // текстовий файл не знає типу об'єктів; відкривається, щоб перевірити заголовок
+          TextDatasetSource.open(path, EntityType.parse(required(parameters, "entity")))
+              .close();
+          text = path;
+        } else {
+          dataset = new DatasetReader(path);
+          parameters.putIfAbsent("entity", dataset.getEntityType().name());
+        }
+      }
+      bins = Integer.parseInt(parameters.getProperty("bins", "20"));
+      if (bins <= 0) {
+        throw new IllegalArgumentException("bins must be positive: " + bins);
+      }
+      producers = Integer.parseInt(parameters.getProperty("producers", "0"));
+      if (producers < 0) {
+        throw new IllegalArgumentException("producers must not be negative: " + producers);
+      }
+      workers = Integer.parseInt(parameters.getProperty("workers", "0"));
+      if (workers < 0) {
+        throw new IllegalArgumentException("workers must not be negative: " + workers);
+      }
+      if (workers > 0 && (parameters.containsKey("queries")
+          || "offheap".equalsIgnoreCase(parameters.getProperty("quantiles"))
+          || parameters.containsKey("top") || parameters.containsKey("hitters")
+          || parameters.containsKey("index"))) {
+        throw new IllegalArgumentException(
+            "workers cannot run queries, offheap quantiles, top, hitters or index");
+      }
+      if (workers > 0 && text != null) {
+        throw new IllegalArgumentException("workers read only dataset files, not " + text);
+      }
+      index = index(parameters, dataset);
+      if (parameters.containsKey("queries")) {
+        try {
+          return runQueries(parameters, dataset, index, text, producers, bins);
+        } finally {
+          closeQuietly(dataset);
+        }
+      }
+      spec = toSpec(parameters);
+      checkDataset(spec, dataset, text);
+    } catch (IllegalArgumentException | IOException | UncheckedIOException e) {
+      System.err.println("Помилка: " + e.getMessage());
+      closeQuietly(dataset);
+      return 2;
+    }
+
+    String quantiles = parameters.getProperty("quantiles", "exact");
+    boolean fullValues = "full".equalsIgnoreCase(parameters.getProperty("values", "summary"));
+
+    if (workers > 0) {
+      closeQuietly(dataset);
+      return runSharded(parameters, spec, workers, fullValues, bins);
+    }
+    Query<HasGField> query;
+    DatasetReader source = dataset;
+    DatasetIndex sourceIndex = index;
+    Path sourceText = text;
+    QuerySpec querySpec = spec;
+    try {
+      query = extras(() -> newQuery(querySpec, source, sourceIndex, sourceText, producers),
+          spec, parameters);
+    } catch (IllegalArgumentException e) {
+      System.err.println("Помилка: " + e.getMessage());
+      closeQuietly(dataset);
+      return 2;
+    }
+    if ("offheap".equalsIgnoreCase(quantiles)) {
+      query.offHeapQuantiles();
+    } else if (!"sketch".equalsIgnoreCase(quantiles)) {
+      query.exactQuantiles();
+    }
+    Query.Result<HasGField> result;
+    try {
+      result = query.run();
+    } catch (IllegalArgumentException e) {
+      // рядок текстового файлу не розбирається
+      System.err.println("Помилка: " + e.getMessage());
+      return 2;
+    } catch (UncheckedIOException e) {
+      System.err.println("Помилка читання набору даних: " + e.getCause().getMessage());
+      return 1;
+    } finally {
+      closeQuietly(dataset);
+    }
+
+    String output = parameters.getProperty("output", "-");
+    try (result; Writer writer = openWriter(output)) {
+      new ReportWriter(writer).write(spec, result, fullValues, bins);
+    } catch (IOException e) {
+      System.err.println("Помилка запису звіту: " + e.getMessage());
+      return 1;
+    }
+    if (Metrics.ENABLED) {
+      System.err.print(Metrics.report());
+    }
+    return 0;
+  }
+
+  /**
+   * Runs the query in worker processes and writes its report.
+   *
+   * @param parameters the parameters
+   * @param spec the description of the run
+   * @param workers the number of worker processes
+   * @param fullValues whether to list every G value
+   * @param bins the number of histogram bins
+   * @return the exit code
+   */
+  private static int runSharded(Properties parameters, QuerySpec spec, int workers,
+      boolean fullValues, int bins) {
+    boolean exactQuantiles =
+        !"sketch".equalsIgnoreCase(parameters.getProperty("quantiles", "exact"));
+    Path dataset = parameters.containsKey("dataset")
+        ? Paths.get(parameters.getProperty("dataset"))
+        : null;
+    String options = parameters.getProperty("workerOptions", "").trim();
+    List<String> jvmOptions = options.isEmpty() ? List.of() : List.of(options.split("\\s+"));
+    Query.Result<HasGField> result;
+    try (ShardCoordinator coordinator = new ShardCoordinator(workers, jvmOptions)) {
+      result = coordinator.run(spec, exactQuantiles, dataset);
+    } catch (IOException e) {
+      System.err.println("Помилка обробників: " + e.getMessage());
+      return 1;
+    }
+
+    String output = parameters.getProperty("output", "-");
+    try (Writer writer = openWriter(output)) {
+      new ReportWriter(writer).write(spec, result, fullValues, bins);
+    } catch (IOException e) {
+      System.err.println("Помилка запису звіту: " + e.getMessage());
+      return 1;
+    }
+    if (Metrics.ENABLED) {
+      System.err.print(Metrics.report());
+    }
+    return 0;
+  }
+
+  /**
+   * Runs the queries of the queries file through a cache and writes their reports.
+   * Queries without a seed use one common seed, so that they can be found in the cache.
+   *
+   * @param base the parameters shared by all the queries
+   * @param dataset the dataset to analyze, or {@code null} for generated data
+   * @param index the indexes of the dataset, or {@code null} to scan it
+   * @param text the text file to analyze, or {@code null}
+   * @param producers the number of producer threads, 0 for none
+   * @param bins the default number of histogram bins
+   * @return the exit code
+   */
+  private static int runQueries(Properties base, DatasetReader dataset, DatasetIndex index,
+      Path text, int producers, int bins) {
+    List<String> lines;
+    QueryCache cache;
+    try {
+      lines = Files.readAllLines(Paths.get(base.getProperty("queries")), StandardCharsets.UTF_8);
+      long cacheMb = Long.parseLong(base.getProperty("cache", "64"));
+      cache = QueryCache.withMaxWeight(cacheMb << 20)
+          .source(spec -> newQuery(spec, dataset, index, text, producers));
+    } catch (IOException e) {
+      System.err.println("Помилка читання запитів: " + e.getMessage());
+      return 1;
+    } catch (IllegalArgumentException e) {
+      System.err.println("Помилка: " + e.getMessage());
+      return 2;
+    }
+    base.putIfAbsent("seed", String.valueOf(ThreadLocalRandom.current().nextLong()));
+
+    String output = base.getProperty("output", "-");
+    try (Writer writer = openWriter(output)) {
+      for (String line : lines) {
+        if (line.isBlank() || line.trim().startsWith("#")) {
+          continue;
+        }
+        Properties parameters = new Properties();
+        parameters.putAll(base);
+        parameters.putAll(parse(line.trim().split("\\s+")));
+        QuerySpec spec = toSpec(parameters);
+        checkDataset(spec, dataset, text);
+        String quantiles = parameters.getProperty("quantiles", "exact");
+        boolean fullValues = "full".equalsIgnoreCase(parameters.getProperty("values", "summary"));
+        int queryBins = Integer.parseInt(parameters.getProperty("bins", String.valueOf(bins)));
+        if ("offheap".equalsIgnoreCase(quantiles)) {
+          // значення поза купою звільняються після звіту, тож такий результат не кешується
+          try (Query.Result<HasGField> result =
+              extras(() -> newQuery(spec, dataset, index, text, producers), spec, parameters)
+                  .offHeapQuantiles().run()) {
+            new ReportWriter(writer).write(spec, result, fullValues, queryBins);
+          }
+        } else if (parameters.containsKey("top") || parameters.containsKey("hitters")) {
+          // кеш зберігає лише звичайні частини результату
+          Query<HasGField> query =
+              extras(() -> newQuery(spec, dataset, index, text, producers), spec, parameters);
+          if (!"sketch".equalsIgnoreCase(quantiles)) {
+            query.exactQuantiles();
+          }
+          new ReportWriter(writer).write(spec, query.run(), fullValues, queryBins);
+        } else {
+          Query.Result<HasGField> result =
+              cache.getResult(spec, !"sketch".equalsIgnoreCase(quantiles));
+          new ReportWriter(writer).write(spec, result, fullValues, queryBins);
+        }
+        writer.write(System.lineSeparator());
+      }
+    } catch (IOException e) {
+      System.err.println("Помилка запису звіту: " + e.getMessage());
+      return 1;
+    } catch (UncheckedIOException e) {
+      System.err.println("Помилка читання набору даних: " + e.getCause().getMessage());
+      return 1;
+    } catch (IllegalArgumentException e) {
+      System.err.println("Помилка: " + e.getMessage());
+      return 2;
+    }
+    System.err.println("Кеш запитів: " + cache.getStats());
+    if (Metrics.ENABLED) {
+      System.err.print(Metrics.report());
+    }
+    return 0;
+  }
+
+  private static void checkDataset(QuerySpec spec, DatasetReader dataset, Path text) {
+    if (dataset != null && spec.getEntityType() != dataset.getEntityType()) {
+      throw new IllegalArgumentException("The dataset holds " + dataset.getEntityType()
+          + ", not " + spec.getEntityType());
+    }
+    CategoryDictionary values = spec.getEntityType().getADictionary();
+    if (dataset == null && text == null && values.codeOf(spec.getFieldValueToFilter()) < 0) {
+      // згенеровані дані мають лише значення словника, інакше запит нічого б не знайшов
+      StringBuilder known = new StringBuilder();
+      for (int code = 0; code < values.size(); code++) {
+        known.append(code == 0 ? "" : ", ").append(values.decode(code));
+      }
+      throw new IllegalArgumentException("Unknown value of field A: "
+          + spec.getFieldValueToFilter() + "; expected one of " + known);
+    }
+  }
+
+  /**
+   * Builds the index of the dataset if the parameters ask for it.
+   *
+   * @return the index, or {@code null} if it is not asked for
+   */
+  private static DatasetIndex index(Properties parameters, DatasetReader dataset) {
+    if (!Boolean.parseBoolean(parameters.getProperty("index", "false"))) {
+      return null;
+    }
+    if (dataset == null) {
+      throw new IllegalArgumentException("index needs a dataset file written by save");
+    }
+    return new DatasetIndex(dataset);
+  }
+
+  /**
+   * Builds the query of the description over the indexes of the dataset, over the dataset,
+   * over a text file, over a pipeline of producers, or over entities generated on the calling
+   * thread.
+   *
+   * @throws UncheckedIOException if the text file cannot be opened
+   */
+  private static Query<HasGField> newQuery(QuerySpec spec, DatasetReader dataset,
+      DatasetIndex index, Path text, int producers) {
+    if (index != null) {
+      return spec.getEntityType().query(spec, index);
+    }
+    if (dataset != null) {
+      return spec.getEntityType().query(spec, dataset);
+    }
+    if (text != null) {
+      try {
+        return spec.getEntityType().query(spec,
+            TextDatasetSource.<HasGField>open(text, spec.getEntityType()));
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+    if (producers > 0) {
+      return spec.getEntityType().pipelinedQuery(spec, producers);
+    }
+    return spec.getEntityType().query(spec);
+  }
+
+  /**
+   * Adds to the query the top objects of the groups and the most frequent values
+   * of the extra field, if the parameters ask for them.
+   */
+  private static Query<HasGField> extras(Supplier<Query<HasGField>> newQuery, QuerySpec spec,
+      Properties parameters) {
+    // параметри перевіряються до створення запиту, який може запустити потоки-виробники
+    int top = Integer.parseInt(parameters.getProperty("top", "0"));
+    if (parameters.containsKey("top") && top <= 0) {
+      throw new IllegalArgumentException("top must be positive: " + top);
+    }
+    int hitters = Integer.parseInt(parameters.getProperty("hitters", "0"));
+    if (parameters.containsKey("hitters") && hitters <= 0) {
+      throw new IllegalArgumentException("hitters must be positive: " + hitters);
+    }
+    Function<HasGField, String> extra = spec.getEntityType().getSchema().getExtra();
+    if (hitters > 0 && extra == null) {
+      throw new IllegalArgumentException(spec.getEntityType() + " has no extra field");
+    }
+    Query<HasGField> query = newQuery.get();
+    if (top > 0) {
+      query.topK(top);
+    }
+    if (hitters > 0) {
+      query.heavyHitters(extra, hitters);
+    }
+    return query;
+  }
+
+  /**
+   * Writes generated entities to a dataset file.
+   *
+   * @param parameters the parameters: entity, count, seed and save
+   * @return the exit code
+   */
+  private static int save(Properties parameters) {
+    EntityType entityType = EntityType.parse(required(parameters, "entity"));
+    long count;
+    long seed;
+    try {
+      count = Long.parseLong(required(parameters, "count"));
+      seed = parameters.containsKey("seed")
+          ? Long.parseLong(parameters.getProperty("seed"))
+          : ThreadLocalRandom.current().nextLong();
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Invalid number: " + e.getMessage(), e);
+    }
+    if (count < 0) {
+      throw new IllegalArgumentException("count must not be negative: " + count);
+    }
+    Path path = Paths.get(parameters.getProperty("save"));
+    try (DatasetWriter writer = new DatasetWriter(path, entityType)) {
+      writer.writeAll(entityType.generator(seed).stream(count));
+    } catch (IOException e) {
+      System.err.println("Помилка запису набору даних: " + e.getMessage());
+      return 1;
+    }
+    System.err.println("Записано " + count + " записів у " + path + " (seed=" + seed + ")");
+    return 0;
+  }
+
+  /** Tells whether a dataset is a text file by its extension, as {@link TextDatasetSource}. */
+  private static boolean isText(Path path) {
+    String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+    return name.endsWith(".csv") || name.endsWith(".jsonl") || name.endsWith(".json");
+  }
+
+  private static void closeQuietly(DatasetReader dataset) {
+    if (dataset == null) {
+      return;
+    }
+    try {
+      dataset.close();
+    } catch (IOException e) {
+      // файл лише читався, помилка закриття не впливає на звіт
+    }
+  }
+
+  /**
+   * Collects the parameters from the arguments and the optional properties file.
+   *
+   * @param args the {@code key=value} arguments
+   * @return the parameters
+   * @throws IOException if the properties file cannot be read
+   */
+  static Properties parse(String[] args) throws IOException {
+    Properties fromArgs = new Properties();
+    for (String arg : args) {
+      String option = arg.startsWith("--") ? arg.substring(2) : arg;
+      int separator = option.indexOf('=');
+      if (separator <= 0) {
+        throw new IllegalArgumentException("Expected key=value, got: " + arg);
+      }
+      fromArgs.setProperty(option.substring(0, separator), option.substring(separator + 1));
+    }
+
+    Properties parameters = new Properties();
+    String config = fromArgs.getProperty("config");
+    if (config != null) {
+      try (Reader reader = Files.newBufferedReader(Paths.get(config), StandardCharsets.UTF_8)) {
+        parameters.load(reader);
+      }
+    }
+    parameters.putAll(fromArgs);
+    return parameters;
+  }
+
+  /**
+   * Builds the description of the run from the parameters.
+   *
+   * @param parameters the parameters
+   * @return the description of the run
+   */
+  static QuerySpec toSpec(Properties parameters) {
+    String entity = required(parameters, "entity");
+    String filter = required(parameters, "filter");
+    try {
+      return new QuerySpec(
+          EntityType.parse(entity),
+          filter,
+          Long.parseLong(parameters.getProperty("skip", "0")),
+          Long.parseLong(parameters.getProperty("limit", String.valueOf(QuerySpec.DEFAULT_LIMIT))),
+          Double.parseDouble(parameters.getProperty("minB", "-Infinity")),
+          Double.parseDouble(parameters.getProperty("maxB", "Infinity")),
+          parameters.containsKey("seed")
+              ? Long.parseLong(parameters.getProperty("seed"))
+              : ThreadLocalRandom.current().nextLong());
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Invalid number: " + e.getMessage(), e);
+    }
+  }
+
+  private static String required(Properties parameters, String key) {
+    String value = parameters.getProperty(key);
+    if (value == null || value.isEmpty()) {
+      throw new IllegalArgumentException("Missing parameter: " + key);
+    }
+    return value;
+  }
+
+  /**
+   * Opens a buffered writer over a file channel, or over the channel of the standard output.
+   *
+   * @param output the file name, or {@code -} for the standard output
+   * @return the writer
+   * @throws IOException if the file cannot be opened
+   */
+  private static Writer openWriter(String output) throws IOException {
+    if ("-".equals(output)) {
+      return new BufferedWriter(Channels.newWriter(
+          Channels.newChannel(new FileOutputStream(FileDescriptor.out)),
+          StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+    Path path = Paths.get(output);
+    return Files.newBufferedWriter(path, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,168 @@
+package labs;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
+
+/**
+ * Represents a car with its brand, production age, class, and price.
+ * Implements the {@link HasGField} interface to provide a method
+ * for retrieving a value associated with the car.
+ */
+class Car implements HasGField {
+
+  /** The brands a random car can have. */
+  static final String[] BRANDS = {"Toyota", "Honda", "Ford", "BMW", "Audi"};
+
+  /** The classes a random car can have. */
+  static final String[] CATEGORIES = {"A", "B", "C", "D", "E"};
+
+  /**
+   * Codes of the brands; the brands of random cars get the codes of their index. The dictionary
+   * is never extended: another brand has the code -1 here, and a batch or a dataset that stores
+   * it gives it a code of its own.
+   */
+  static final CategoryDictionary BRAND_DICTIONARY = new CategoryDictionary(BRANDS);
+
+  /** The brand of the car. */
+  String brand;
+
+  /** The code of the brand in {@link #BRAND_DICTIONARY}, or -1 if it is not there. */
+  int brandCode;
+
+  /** The number of months since the car was produced. */
+  int monthsSinceProduction;
+
+  /** The class of the car (e.g., A, B, C, D, E). */
+  String carClass;
+
+  /** The price of the car. */
+  double price;
+
+  /**
+   * Constructs a new {@code Car} with the specified brand, months since production,
+   * class, and price.
+   *
+   * @param brand the brand of the car
+   * @param monthsSinceProduction the number of months since the car was produced
+   * @param carClass the class of the car
+   * @param price the price of the car
+   */
+  public Car(String brand, int monthsSinceProduction, String carClass, double price) {
+    this(brand, BRAND_DICTIONARY.codeOf(brand), monthsSinceProduction, carClass, price);
+  }
+
+  /**
+   * Constructs a new {@code Car} whose brand code is already known.
+   *
+   * @param brand the brand of the car
+   * @param brandCode the code of the brand in {@link #BRAND_DICTIONARY}, or -1
+   * @param monthsSinceProduction the number of months since the car was produced
+   * @param carClass the class of the car
+   * @param price the price of the car
+   */
+  Car(String brand, int brandCode, int monthsSinceProduction, String carClass, double price) {
+    this.brand = brand;
+    this.brandCode = brandCode;
+    this.monthsSinceProduction = monthsSinceProduction;
+    this.carClass = carClass;
+    this.price = price;
+  }
+
+  /**
+   * Returns the price of the car, which is used as the G-field value.
+   *
+   * @return the price of the car
+   */
+  @Override
+  public double getGField() {
+    return this.price; // або інше поле, яке треба використовувати
+  }
+
+  /**
+   * Returns a string representation of the car, including its brand,
+   * months since production, class, and price.
+   *
+   * @return a string representation of the car
+   */
+  @Override
+  public String toString() {
+    return "Car{" +
+        "brand='" + brand + '\'' +
+        ", monthsSinceProduction=" + monthsSinceProduction +
+        ", carClass='" + carClass + '\'' +
+        ", price=" + price +
+        '}';
+  }
+
+  /**
+   * Returns the brand of the car.
+   *
+   * @return the brand of the car
+   */
+  public String getBrand() {
+    return brand;
+  }
+
+  /**
+   * Returns the code of the brand in {@link #BRAND_DICTIONARY}.
+   *
+   * @return the code of the brand, or -1 for a brand outside the dictionary
+   */
+  public int getBrandCode() {
+    return brandCode;
+  }
+
+  /**
+   * Returns the number of months since the car was produced.
+   *
+   * @return the number of months since production
+   */
+  public int getMonthsSinceProduction() {
+    return monthsSinceProduction;
+  }
+
+  /**
+   * Returns the class of the car.
+   *
+   * @return the class of the car
+   */
+  public String getCarClass() {
+    return carClass;
+  }
+
+  /**
+   * Generates a random car with random brand, age, category, and price.
+   *
+   * @return a randomly generated {@code Car} object
+   */
+  public static Car generateRandomCar() {
+    return generateRandomCar(ThreadLocalRandom.current());
+  }
+
+  /**
+   * Generates a random car drawing all values from the given generator.
+   *
+   * @param random the source of random values
+   * @return a randomly generated {@code Car} object
+   */
+  public static Car generateRandomCar(RandomGenerator random) {
+    int brandCode = random.nextInt(BRANDS.length);
+    int age = random.nextInt(15); // Вік до 15 років
+    String category = CATEGORIES[random.nextInt(CATEGORIES.length)];
+    double price = 10000 + random.nextDouble() * 40000; // Ціна від 10k до 50k
+
+    return new Car(BRANDS[brandCode], brandCode, age, category, price);
+  }
+
+  /**
+   * Draws only the brand and age of a random car, which are
+   * the first values {@link #generateRandomCar(RandomGenerator)} draws.
+   *
+   * @param random the source of random values
+   * @param keys receives the code of the brand and the months since production
+   */
+  static void drawKeys(RandomGenerator random, EntityGenerator.Keys keys) {
+    keys.aCode = random.nextInt(BRANDS.length);
+    keys.b = random.nextInt(15);
+  }
+}
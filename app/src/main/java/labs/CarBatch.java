@@ -0,0 +1,36 @@
+package labs;
+
+/**
+ * A columnar batch of {@link Car} records. The brand is field A and also field V, the months
+ * since production are field B and the price is field G; the class of the car is kept as
+ * the extra field.
+ */
+class CarBatch extends EntityBatch<Car> {
+
+  /**
+   * Constructs an empty batch with the default capacity.
+   */
+  public CarBatch() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Constructs an empty batch.
+   *
+   * @param capacity the number of records to allocate space for
+   */
+  public CarBatch(int capacity) {
+    super(capacity, new CategoryDictionary(Car.BRANDS), new CategoryDictionary(Car.CATEGORIES));
+  }
+
+  @Override
+  public void add(Car item) {
+    append(item.getBrand(), item.getBrandCode(), item.getMonthsSinceProduction(),
+        item.getCarClass(), item.getGField());
+  }
+
+  @Override
+  public Car get(int row) {
+    return new Car(getA(row), getEntityCode(row), getB(row), getExtra(row), getG(row));
+  }
+}
@@ -0,0 +1,102 @@
+package labs;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps the values of a categorical field, such as a brand or a city, to small integer codes.
+ * A dictionary starts with a known vocabulary and grows when a new value is met,
+ * up to {@value #MAX_SIZE} values so that every code fits into one byte.
+ * A dictionary is safe to share between threads: lookups take no lock,
+ * and only adding a new value is synchronized.
+ */
+public class CategoryDictionary {
+
+  /** The maximum number of distinct values. */
+  public static final int MAX_SIZE = 256;
+
+  /** The value of every code, by code. */
+  private volatile String[] values;
+
+  /** The number of known values. */
+  private volatile int size;
+
+  /** The code of every known value. */
+  private final Map<String, Integer> codes = new ConcurrentHashMap<>();
+
+  /**
+   * Constructs a new {@code CategoryDictionary} that already knows the given values.
+   * The values get codes in the order they are listed.
+   *
+   * @param vocabulary the initially known values
+   */
+  public CategoryDictionary(String... vocabulary) {
+    values = new String[Math.max(vocabulary.length, 4)];
+    for (String value : vocabulary) {
+      encode(value);
+    }
+  }
+
+  /**
+   * Returns the code of the value, assigning a new code to an unknown value.
+   *
+   * @param value the value to encode
+   * @return the code of the value
+   * @throws IllegalStateException if the dictionary already holds {@value #MAX_SIZE} values
+   */
+  public int encode(String value) {
+    Integer code = codes.get(value);
+    return code != null ? code : add(value);
+  }
+
+  private synchronized int add(String value) {
+    Integer code = codes.get(value);
+    if (code != null) {
+      return code;
+    }
+    int newCode = size;
+    if (newCode == MAX_SIZE) {
+      throw new IllegalStateException("Too many distinct values, cannot encode: " + value);
+    }
+    String[] current = values;
+    if (newCode == current.length) {
+      current = Arrays.copyOf(current, Math.min(newCode * 2, MAX_SIZE));
+    }
+    current[newCode] = value;
+    values = current;
+    size = newCode + 1;
+    codes.put(value, newCode);
+    return newCode;
+  }
+
+  /**
+   * Returns the code of the value without assigning new codes.
+   *
+   * @param value the value to look up
+   * @return the code of the value, or -1 if the value is unknown
+   */
+  public int codeOf(String value) {
+    Integer code = codes.get(value);
+    return code == null ? -1 : code;
+  }
+
+  /**
+   * Returns the value with the given code.
+   *
+   * @param code the code of the value
+   * @return the value
+   */
+  public String decode(int code) {
+    return values[code];
+  }
+
+  /**
+   * Returns the number of known values.
+   *
+   * @return the number of known values
+   */
+  public int size() {
+    return size;
+  }
+}
@@ -0,0 +1,168 @@
+package labs;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
+
+/**
+ * Represents a clothing item with its city of production, age, fabric type, and price.
+ * Implements the {@link HasGField} interface to provide a method
+ * for retrieving a value associated with the clothing item.
+ */
+class ClothingItem implements HasGField {
+
+  /** The cities a random clothing item can be produced in. */
+  static final String[] CITIES = {"Kyiv", "Lviv", "Odesa", "Kharkiv"};
+
+  /** The fabrics a random clothing item can be made of. */
+  static final String[] FABRICS = {"Cotton", "Wool", "Silk", "Polyester"};
+
+  /**
+   * Codes of the cities; the cities of random items get the codes of their index. No city is
+   * ever added, so that the codes stay small: an unlisted city has the code -1.
+   */
+  static final CategoryDictionary CITY_DICTIONARY = new CategoryDictionary(CITIES);
+
+  /** The city where the clothing item was produced. */
+  String city;
+
+  /** The code of the city in {@link #CITY_DICTIONARY}, or -1 if it is not there. */
+  int cityCode;
+
+  /** The number of months since the clothing item was produced. */
+  int monthsSinceProduction;
+
+  /** The type of fabric used in the clothing item. */
+  String fabricType;
+
+  /** The price of the clothing item. */
+  double price;
+
+  /**
+   * Constructs a new {@code ClothingItem} with the specified city, months since production,
+   * fabric type, and price.
+   *
+   * @param city the city where the clothing item was produced
+   * @param monthsSinceProduction the number of months since the clothing item was produced
+   * @param fabricType the type of fabric used in the clothing item
+   * @param price the price of the clothing item
+   */
+  public ClothingItem(String city, int monthsSinceProduction, String fabricType, double price) {
+    this(city, CITY_DICTIONARY.codeOf(city), monthsSinceProduction, fabricType, price);
+  }
+
+  /**
+   * Constructs a new {@code ClothingItem} whose city code is already known.
+   *
+   * @param city the city where the clothing item was produced
+   * @param cityCode the code of the city in {@link #CITY_DICTIONARY}, or -1
+   * @param monthsSinceProduction the number of months since the clothing item was produced
+   * @param fabricType the type of fabric used in the clothing item
+   * @param price the price of the clothing item
+   */
+  ClothingItem(String city, int cityCode, int monthsSinceProduction, String fabricType,
+      double price) {
+    this.city = city;
+    this.cityCode = cityCode;
+    this.monthsSinceProduction = monthsSinceProduction;
+    this.fabricType = fabricType;
+    this.price = price;
+  }
+
+  /**
+   * Returns the price of the clothing item, which is used as the G-field value.
+   *
+   * @return the price of the clothing item
+   */
+  @Override
+  public double getGField() {
+    return this.price; // або інше поле, яке треба використовувати
+  }
+
+  /**
+   * Returns a string representation of the clothing item, including its city,
+   * months since production, fabric type, and price.
+   *
+   * @return a string representation of the clothing item
+   */
+  @Override
+  public String toString() {
+    return "ClothingItem{" +
+        "city='" + city + '\'' +
+        ", monthsSinceProduction=" + monthsSinceProduction +
+        ", fabricType='" + fabricType + '\'' +
+        ", price=" + price +
+        '}';
+  }
+
+  /**
+   * Returns the city where the clothing item was produced.
+   *
+   * @return the city of production
+   */
+  public String getCity() {
+    return city;
+  }
+
+  /**
+   * Returns the code of the city in {@link #CITY_DICTIONARY}.
+   *
+   * @return the code of the city, or -1 for a city outside the dictionary
+   */
+  public int getCityCode() {
+    return cityCode;
+  }
+
+  /**
+   * Returns the number of months since the clothing item was produced.
+   *
+   * @return the number of months since production
+   */
+  public int getMonthsSinceProduction() {
+    return monthsSinceProduction;
+  }
+
+  /**
+   * Returns the type of fabric used in the clothing item.
+   *
+   * @return the fabric type
+   */
+  public String getFabricType() {
+    return fabricType;
+  }
+
+  /**
+   * Generates a random clothing item with random city, age, fabric type, and price.
+   *
+   * @return a randomly generated {@code ClothingItem} object
+   */
+  public static ClothingItem generateRandomClothingItem() {
+    return generateRandomClothingItem(ThreadLocalRandom.current());
+  }
+
+  /**
+   * Generates a random clothing item drawing all values from the given generator.
+   *
+   * @param random the source of random values
+   * @return a randomly generated {@code ClothingItem} object
+   */
+  public static ClothingItem generateRandomClothingItem(RandomGenerator random) {
+    int cityCode = random.nextInt(CITIES.length);
+    int monthsSinceProduced = random.nextInt(24); // до 2 років
+    String fabricType = FABRICS[random.nextInt(FABRICS.length)];
+    double price = 50 + (random.nextDouble() * 150); // Випадкова ціна між 50 та 200
+
+    return new ClothingItem(CITIES[cityCode], cityCode, monthsSinceProduced, fabricType, price);
+  }
+
+  /**
+   * Draws only the city and age of a random clothing item, which are
+   * the first values {@link #generateRandomClothingItem(RandomGenerator)} draws.
+   *
+   * @param random the source of random values
+   * @param keys receives the code of the city and the months since production
+   */
+  static void drawKeys(RandomGenerator random, EntityGenerator.Keys keys) {
+    keys.aCode = random.nextInt(CITIES.length);
+    keys.b = random.nextInt(24);
+  }
+}
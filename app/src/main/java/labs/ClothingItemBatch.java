@@ -0,0 +1,38 @@
+package labs;
+
+/**
+ * Stores {@link ClothingItem} records column by column: the city of production as field A,
+ * which also groups the items, the months since production as field B, the price as field G
+ * and the fabric as the extra categorical field.
+ */
+class ClothingItemBatch extends EntityBatch<ClothingItem> {
+
+  /**
+   * Constructs an empty batch with the default capacity.
+   */
+  public ClothingItemBatch() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Constructs an empty batch.
+   *
+   * @param capacity the number of records to allocate space for
+   */
+  public ClothingItemBatch(int capacity) {
+    super(capacity, new CategoryDictionary(ClothingItem.CITIES),
+        new CategoryDictionary(ClothingItem.FABRICS));
+  }
+
+  @Override
+  public void add(ClothingItem item) {
+    append(item.getCity(), item.getCityCode(), item.getMonthsSinceProduction(),
+        item.getFabricType(), item.getGField());
+  }
+
+  @Override
+  public ClothingItem get(int row) {
+    return new ClothingItem(getA(row), getEntityCode(row), getB(row), getExtra(row),
+        getG(row));
+  }
+}
@@ -0,0 +1,243 @@
+package labs;
+
+import java.util.Arrays;
+
+/**
+ * Loops over primitive columns that the analysis runs most often: the range filter on
+ * field B, the statistics of field G and the count of the IQR outliers. They are written
+ * with the Vector API ({@code jdk.incubator.vector}), which compiles them to SIMD
+ * instructions, several values per instruction. The API is an incubator module, so it is
+ * used only when the JVM is started with it:
+ *
+ * <pre>
+ * java --add-modules jdk.incubator.vector -jar app/target/app-1.0.jar ...
+ * </pre>
+ *
+ * <p>Otherwise, or with {@code -Dlabs.vector=false}, the same kernels run as scalar loops,
+ * with the same results up to the rounding of the sums, which are added in another order.
+ */
+public final class ColumnKernels {
+
+  /** The scalar kernels, always available. */
+  static final Kernels SCALAR = new Scalar();
+
+  /** The kernels in use: the vector ones if the module is present, else the scalar ones. */
+  private static final Kernels KERNELS = load();
+
+  private ColumnKernels() {
+  }
+
+  /**
+   * Tells whether the kernels run on the Vector API.
+   *
+   * @return {@code true} if the vector kernels are in use
+   */
+  public static boolean isVectorized() {
+    return KERNELS != SCALAR;
+  }
+
+  /**
+   * Returns the kernels in use.
+   *
+   * @return the vector kernels if the module is present, else the scalar ones
+   */
+  static Kernels kernels() {
+    return KERNELS;
+  }
+
+  /**
+   * Keeps the rows whose value lies in the range, like {@link Main#filterByParameterB}.
+   *
+   * @param values the column, for example field B
+   * @param rows the selected rows, indices into the column
+   * @param min the minimum value
+   * @param max the maximum value
+   * @return a new array of the rows that passed, in the order of {@code rows}
+   */
+  public static int[] selectInRange(int[] values, int[] rows, double min, double max) {
+    return selectInRange(KERNELS, values, rows, min, max);
+  }
+
+  /**
+   * Selects the indices of the values of the column that lie in the range.
+   *
+   * @param values the column, for example field B
+   * @param size the number of values of the column
+   * @param min the minimum value
+   * @param max the maximum value
+   * @return a new array of the indices that passed, in increasing order
+   */
+  public static int[] selectInRange(int[] values, int size, double min, double max) {
+    return selectInRange(KERNELS, values, size, min, max);
+  }
+
+  /**
+   * Collects the statistics of the values of an array, like
+   * {@link StatisticsCollector#of(double[])}, in two passes: the sum, minimum and maximum,
+   * then the central moments from the mean.
+   *
+   * @param values the values
+   * @return the statistical data of the values
+   */
+  public static StatisticsCollector.StatisticsData statistics(double[] values) {
+    return KERNELS.statistics(values, null, values.length);
+  }
+
+  /**
+   * Collects the statistics of the values of the selected rows of a column.
+   *
+   * @param values the column, for example field G
+   * @param rows the selected rows, indices into the column
+   * @return the statistical data of the values
+   */
+  public static StatisticsCollector.StatisticsData statistics(double[] values, int[] rows) {
+    return KERNELS.statistics(values, rows, rows.length);
+  }
+
+  /**
+   * Counts the values outside of {@code [lower, upper]}, for example the IQR outliers.
+   *
+   * @param values the values
+   * @param lower the smallest regular value
+   * @param upper the largest regular value
+   * @return the number of values below {@code lower} or above {@code upper}
+   */
+  public static long countOutside(double[] values, double lower, double upper) {
+    return KERNELS.countOutside(values, lower, upper);
+  }
+
+  static int[] selectInRange(Kernels kernels, int[] values, int[] rows, double min,
+      double max) {
+    int[] out = new int[rows.length];
+    int count = isEmpty(min, max) ? 0 : kernels.selectInRange(values, rows, rows.length,
+        lowerBound(min), upperBound(max), out);
+    return Arrays.copyOf(out, count);
+  }
+
+  static int[] selectInRange(Kernels kernels, int[] values, int size, double min,
+      double max) {
+    int[] out = new int[size];
+    int count = isEmpty(min, max) ? 0
+        : kernels.selectInRange(values, null, size, lowerBound(min), upperBound(max), out);
+    return Arrays.copyOf(out, count);
+  }
+
+  /** Tells whether no {@code int} lies in {@code [min, max]}. */
+  private static boolean isEmpty(double min, double max) {
+    return !(min <= Integer.MAX_VALUE && max >= Integer.MIN_VALUE
+        && Math.ceil(min) <= Math.floor(max));
+  }
+
+  /** The smallest {@code int} not below a bound that is not above the largest int. */
+  private static int lowerBound(double min) {
+    return min <= Integer.MIN_VALUE ? Integer.MIN_VALUE : (int) Math.ceil(min);
+  }
+
+  /** The largest {@code int} not above a bound that is not below the smallest int. */
+  private static int upperBound(double max) {
+    return max >= Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) Math.floor(max);
+  }
+
+  private static Kernels load() {
+    if (!Boolean.parseBoolean(System.getProperty("labs.vector", "true"))
+        || ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+      return SCALAR;
+    }
+    try {
+      return (Kernels) Class.forName("labs.VectorKernels").getDeclaredConstructor()
+          .newInstance();
+    } catch (ReflectiveOperationException | LinkageError e) {
+      // модуль є, але векторні ядра не завантажились: лишаються скалярні
+      return SCALAR;
+    }
+  }
+
+  /** The operations of the kernels on the columns. */
+  interface Kernels {
+
+    /**
+     * Selects the rows whose value lies in {@code [lo, hi]}.
+     *
+     * @param values the column
+     * @param rows the rows to test, or {@code null} for the rows {@code 0..count-1}
+     * @param count the number of rows to test
+     * @param lo the smallest value to keep
+     * @param hi the largest value to keep
+     * @param out receives the rows that passed, in order
+     * @return the number of rows that passed
+     */
+    int selectInRange(int[] values, int[] rows, int count, int lo, int hi, int[] out);
+
+    /**
+     * Collects the statistics of the values of the rows.
+     *
+     * @param values the column
+     * @param rows the rows, or {@code null} for the rows {@code 0..count-1}
+     * @param count the number of rows
+     * @return the statistical data of the values
+     */
+    StatisticsCollector.StatisticsData statistics(double[] values, int[] rows, int count);
+
+    /**
+     * Counts the values outside of {@code [lower, upper]}.
+     *
+     * @param values the values
+     * @param lower the smallest regular value
+     * @param upper the largest regular value
+     * @return the number of values outside of the range
+     */
+    long countOutside(double[] values, double lower, double upper);
+  }
+
+  /** The kernels as plain loops. */
+  private static final class Scalar implements Kernels {
+
+    @Override
+    public int selectInRange(int[] values, int[] rows, int count, int lo, int hi, int[] out) {
+      int n = 0;
+      for (int i = 0; i < count; i++) {
+        int row = rows == null ? i : rows[i];
+        int value = values[row];
+        // запис без розгалуження: рядок пишеться завжди, а лічильник росте лише для збігів
+        out[n] = row;
+        n += value >= lo && value <= hi ? 1 : 0;
+      }
+      return n;
+    }
+
+    @Override
+    public StatisticsCollector.StatisticsData statistics(double[] values, int[] rows,
+        int count) {
+      double sum = 0;
+      double min = Double.POSITIVE_INFINITY;
+      double max = Double.NEGATIVE_INFINITY;
+      for (int i = 0; i < count; i++) {
+        double value = values[rows == null ? i : rows[i]];
+        sum += value;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+      }
+      double mean = count == 0 ? 0 : sum / count;
+      double m2 = 0;
+      double m3 = 0;
+      double m4 = 0;
+      for (int i = 0; i < count; i++) {
+        double d = values[rows == null ? i : rows[i]] - mean;
+        double d2 = d * d;
+        m2 += d2;
+        m3 += d2 * d;
+        m4 += d2 * d2;
+      }
+      return StatisticsCollector.StatisticsData.of(count, min, max, mean, m2, m3, m4);
+    }
+
+    @Override
+    public long countOutside(double[] values, double lower, double upper) {
+      long outside = 0;
+      for (double value : values) {
+        outside += value < lower || value > upper ? 1 : 0;
+      }
+      return outside;
+    }
+  }
+}
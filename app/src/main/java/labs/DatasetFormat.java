@@ -0,0 +1,48 @@
+package labs;
+
+import java.nio.ByteOrder;
+
+/**
+ * The layout of a binary dataset file of generated entities.
+ *
+ * <pre>
+ * header (32 bytes):  magic, version, entity type, reserved (int each),
+ *                     record count, offset of the dictionaries (long each)
+ * records:            fixed-width, {@value #RECORD_SIZE} bytes each:
+ *                     code of field A (byte), code of the extra field (byte),
+ *                     field B (int), field G (double)
+ * dictionaries:       field A, then the extra field: the number of values (int),
+ *                     then each value as its UTF-8 length (short) and bytes
+ * </pre>
+ *
+ * All numbers are little-endian.
+ */
+final class DatasetFormat {
+
+  /** The first four bytes of every dataset file: {@code "LABS"}. */
+  static final int MAGIC = 0x4C414253;
+
+  /** The version of the layout. */
+  static final int VERSION = 1;
+
+  /** The byte order of all numbers in the file. */
+  static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+
+  /** The size of the header. */
+  static final int HEADER_SIZE = 32;
+
+  /** The size of one record. */
+  static final int RECORD_SIZE = 14;
+
+  /** The offsets of the fields inside a record. */
+  static final int A_OFFSET = 0;
+  static final int EXTRA_OFFSET = 1;
+  static final int B_OFFSET = 2;
+  static final int G_OFFSET = 6;
+
+  /** The position of the record count in the header. */
+  static final int COUNT_POSITION = 16;
+
+  private DatasetFormat() {
+  }
+}
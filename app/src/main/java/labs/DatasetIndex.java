@@ -0,0 +1,407 @@
+package labs;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+/**
+ * The secondary indexes of a dataset file, built in one pass over the records and shared
+ * by all the queries over the file: a {@link RowBitmap} of the records of every value of
+ * field A and of the extra field, and the records sorted by field B with the position of the
+ * first record of every value of B.
+ *
+ * <p>{@link #plan(QuerySpec)} answers the steps of {@link Main} from the indexes. The matches
+ * of the filter are a bitmap, so the records of the window of skipping and limiting are found
+ * by their numbers among the matches, and the skipped records are never read. The range
+ * of field B is then checked in one of two ways, whichever reads fewer records: the records
+ * of the B range are looked up in the bitmap of the matches, or the B values of the records
+ * of the window are read from the file. Only the records of the result are built as entities.
+ *
+ * <pre>
+ * DatasetIndex index = new DatasetIndex(dataset);
+ * for (QuerySpec spec : specs) {
+ *   Query.Result&lt;HasGField&gt; result = spec.getEntityType().query(spec, index).run();
+ * }
+ * </pre>
+ *
+ * <p>An index holds up to {@link Integer#MAX_VALUE} records: four bytes of the B index per
+ * record, and in the bitmaps of a field from one bit per record for frequent values to two
+ * bytes for rare ones. It is immutable and can be used by many threads.
+ */
+public final class DatasetIndex {
+
+  private static final Metrics.Stage BUILD = Metrics.stage("index.build");
+  private static final Metrics.Stage PLAN = Metrics.stage("index.plan");
+
+  /** The widest range of field B sorted by counting; wider ones are sorted by comparison. */
+  private static final long COUNTING_RANGE = 1 << 20;
+
+  private static final RowBitmap EMPTY = new RowBitmap();
+
+  private final DatasetReader dataset;
+
+  /** The records by the code of field A the dataset reads, see {@link DatasetReader#codeOf}. */
+  private final RowBitmap[] byA = new RowBitmap[DatasetReader.A_CODE_LIMIT];
+
+  /** The values of the extra field and their records, by the codes of the file. */
+  private final String[] extraValues;
+  private final RowBitmap[] byExtra;
+
+  /**
+   * The records sorted by field B and, for the distinct values of B in ascending order,
+   * the position of their first record; {@code bStarts} ends with the number of records.
+   */
+  private final int[] rowsByB;
+  private final int[] bValues;
+  private final int[] bStarts;
+
+  /**
+   * Reads the whole dataset and builds its indexes.
+   *
+   * @param dataset the dataset to index; it must stay open while the index is used
+   * @throws IllegalArgumentException if the dataset holds more than
+   *     {@link Integer#MAX_VALUE} records
+   */
+  public DatasetIndex(DatasetReader dataset) {
+    if (dataset.size() > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Too many records to index: " + dataset.size());
+    }
+    this.dataset = dataset;
+    int records = (int) dataset.size();
+    try (Metrics.Span span = BUILD.start()) {
+      span.items(records);
+      extraValues = dataset.getExtraValues();
+      byExtra = new RowBitmap[extraValues.length];
+      for (int code = 0; code < byExtra.length; code++) {
+        byExtra[code] = new RowBitmap();
+      }
+      int minB = Integer.MAX_VALUE;
+      int maxB = Integer.MIN_VALUE;
+      for (int row = 0; row < records; row++) {
+        int aCode = dataset.getACode(row);
+        if (byA[aCode] == null) {
+          byA[aCode] = new RowBitmap();
+        }
+        byA[aCode].add(row);
+        int extraCode = dataset.getExtraCode(row);
+        if (extraCode < byExtra.length) {
+          byExtra[extraCode].add(row);
+        }
+        int b = dataset.getB(row);
+        minB = Math.min(minB, b);
+        maxB = Math.max(maxB, b);
+      }
+
+      rowsByB = new int[records];
+      if (records == 0) {
+        bValues = new int[0];
+        bStarts = new int[] {0};
+      } else if ((long) maxB - minB < COUNTING_RANGE) {
+        // поле Б зазвичай має вузький діапазон (вік, місяці, роки), тож сортуємо підрахунком
+        int[] counts = new int[maxB - minB + 1];
+        int distinct = 0;
+        for (int row = 0; row < records; row++) {
+          if (counts[dataset.getB(row) - minB]++ == 0) {
+            distinct++;
+          }
+        }
+        bValues = new int[distinct];
+        bStarts = new int[distinct + 1];
+        int[] next = new int[counts.length];
+        int position = 0;
+        for (int value = 0, i = 0; value < counts.length; value++) {
+          next[value] = position;
+          if (counts[value] > 0) {
+            bValues[i] = minB + value;
+            bStarts[i++] = position;
+            position += counts[value];
+          }
+        }
+        bStarts[distinct] = records;
+        for (int row = 0; row < records; row++) {
+          rowsByB[next[dataset.getB(row) - minB]++] = row;
+        }
+      } else {
+        long[] keys = new long[records];
+        for (int row = 0; row < records; row++) {
+          keys[row] = (long) dataset.getB(row) << 32 | row;
+        }
+        Arrays.parallelSort(keys);
+        int[] values = new int[records];
+        int[] starts = new int[records + 1];
+        int distinct = 0;
+        for (int i = 0; i < records; i++) {
+          int b = (int) (keys[i] >> 32);
+          rowsByB[i] = (int) keys[i];
+          if (distinct == 0 || values[distinct - 1] != b) {
+            values[distinct] = b;
+            starts[distinct++] = i;
+          }
+        }
+        starts[distinct] = records;
+        bValues = Arrays.copyOf(values, distinct);
+        bStarts = Arrays.copyOf(starts, distinct + 1);
+      }
+    }
+  }
+
+  /**
+   * Returns the indexed dataset.
+   *
+   * @return the dataset
+   */
+  public DatasetReader getDataset() {
+    return dataset;
+  }
+
+  /**
+   * Returns the records whose field A has a value.
+   *
+   * @param value the value of field A
+   * @return the records, empty if there are none
+   */
+  public RowBitmap rowsWithA(String value) {
+    int code = dataset.codeOf(value);
+    return code >= 0 && byA[code] != null ? byA[code] : EMPTY;
+  }
+
+  /**
+   * Returns the records whose extra field has a value.
+   *
+   * @param value the value of the extra field
+   * @return the records, empty if there are none
+   */
+  public RowBitmap rowsWithExtra(String value) {
+    for (int code = 0; code < extraValues.length; code++) {
+      if (extraValues[code].equals(value)) {
+        return byExtra[code];
+      }
+    }
+    return EMPTY;
+  }
+
+  /**
+   * Returns the number of records whose field B lies in a range, from the B index alone.
+   *
+   * @param minB the minimum value of field B
+   * @param maxB the maximum value of field B
+   * @return the number of records
+   */
+  public long countB(double minB, double maxB) {
+    int from = firstAtLeast(minB);
+    return bStarts[Math.max(firstAbove(maxB), from)] - bStarts[from];
+  }
+
+  /**
+   * Plans the steps of {@link Main} for the description over the indexes.
+   *
+   * @param spec the description of the run; the seed is not used
+   * @return the records that pass the steps
+   * @throws IllegalArgumentException if the dataset holds another entity type
+   */
+  public Plan plan(QuerySpec spec) {
+    return plan(spec, null);
+  }
+
+  /**
+   * Plans the steps of {@link Main} for the records whose field A and extra field both have
+   * the given values: skipping and limiting count the records that match both.
+   *
+   * @param spec the description of the run; the seed is not used
+   * @param extraValue the value of the extra field, or {@code null} not to filter by it
+   * @return the records that pass the steps
+   * @throws IllegalArgumentException if the dataset holds another entity type
+   */
+  public Plan plan(QuerySpec spec, String extraValue) {
+    if (spec.getEntityType() != dataset.getEntityType()) {
+      throw new IllegalArgumentException("The dataset holds " + dataset.getEntityType()
+          + ", not " + spec.getEntityType());
+    }
+    try (Metrics.Span span = PLAN.start()) {
+      RowBitmap matches = rowsWithA(spec.getFieldValueToFilter());
+      if (extraValue != null) {
+        matches = matches.and(rowsWithExtra(extraValue));
+      }
+      Plan plan = plan(matches, Math.max(spec.getSkipN(), 0), spec.getLimit(),
+          spec.getMinB(), spec.getMaxB());
+      span.items(plan.size());
+      return plan;
+    }
+  }
+
+  private Plan plan(RowBitmap matches, long skipN, long limit, double minB, double maxB) {
+    long total = matches.cardinality();
+    long window = Math.min(total - Math.min(skipN, total), limit);
+    if (window <= 0) {
+      return new Plan(new int[0], total, Access.NONE);
+    }
+    int first = matches.select(skipN);
+    int last = matches.select(skipN + window - 1);
+    int from = firstAtLeast(minB);
+    int to = Math.max(firstAbove(maxB), from);
+    if (from == 0 && to == bValues.length) {
+      return new Plan(matches.toArray(first, last + 1), total, Access.BITMAP);
+    }
+    if (bStarts[to] - bStarts[from] < window) {
+      // у діапазоні Б менше записів, ніж у вікні: шукаємо їх у бітовій мапі збігів
+      int[] rows = new int[bStarts[to] - bStarts[from]];
+      int n = 0;
+      for (int i = bStarts[from]; i < bStarts[to]; i++) {
+        int row = rowsByB[i];
+        if (row >= first && row <= last && matches.contains(row)) {
+          rows[n++] = row;
+        }
+      }
+      rows = Arrays.copyOf(rows, n);
+      Arrays.sort(rows);
+      return new Plan(rows, total, Access.B_INDEX);
+    }
+    int[] rows = matches.toArray(first, last + 1);
+    int n = 0;
+    for (int row : rows) {
+      int b = dataset.getB(row);
+      if (b >= minB && b <= maxB) {
+        rows[n++] = row;
+      }
+    }
+    return new Plan(Arrays.copyOf(rows, n), total, Access.B_VALUES);
+  }
+
+  /** Returns the position of the first distinct value of B not smaller than the bound. */
+  private int firstAtLeast(double bound) {
+    int lo = 0;
+    int hi = bValues.length;
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (bValues[mid] >= bound) {
+        hi = mid;
+      } else {
+        lo = mid + 1;
+      }
+    }
+    return lo;
+  }
+
+  /** Returns the position of the first distinct value of B larger than the bound. */
+  private int firstAbove(double bound) {
+    int lo = 0;
+    int hi = bValues.length;
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (bValues[mid] > bound) {
+        hi = mid;
+      } else {
+        lo = mid + 1;
+      }
+    }
+    return lo;
+  }
+
+  /**
+   * Returns an estimate of the memory the indexes take.
+   *
+   * @return the size of the indexes in bytes
+   */
+  public long sizeInBytes() {
+    long bytes = rowsByB.length * 4L + bValues.length * 8L;
+    for (RowBitmap rows : byA) {
+      bytes += rows == null ? 0 : rows.sizeInBytes();
+    }
+    for (RowBitmap rows : byExtra) {
+      bytes += rows.sizeInBytes();
+    }
+    return bytes;
+  }
+
+  @Override
+  public String toString() {
+    return String.format(Locale.ROOT, "DatasetIndex{records=%d, bValues=%d, bytes=%d}",
+        rowsByB.length, bValues.length, sizeInBytes());
+  }
+
+  /** How a plan found the records of field B in range. */
+  public enum Access {
+
+    /** The window of skipping and limiting is empty; nothing was read. */
+    NONE,
+
+    /** The range of B holds all the records; the window was taken from the bitmap. */
+    BITMAP,
+
+    /** The records of the B range were looked up in the bitmap of the matches. */
+    B_INDEX,
+
+    /** The B values of the records of the window were read from the file. */
+    B_VALUES
+  }
+
+  /**
+   * The records that pass the steps of {@link Main}, in the order of the file, found from
+   * the indexes. The entities are built only by {@link #stream()}.
+   */
+  public final class Plan {
+
+    private final int[] rows;
+    private final long matches;
+    private final Access access;
+
+    private Plan(int[] rows, long matches, Access access) {
+      this.rows = rows;
+      this.matches = matches;
+      this.access = access;
+    }
+
+    /**
+     * Returns the number of records that pass.
+     *
+     * @return the number of records that pass
+     */
+    public int size() {
+      return rows.length;
+    }
+
+    /**
+     * Returns the number of records that match the filter.
+     *
+     * @return the number of records that match the filter, before skipping and limiting
+     */
+    public long getMatches() {
+      return matches;
+    }
+
+    /**
+     * Tells how the range of field B was checked.
+     *
+     * @return how the range of field B was checked
+     */
+    public Access getAccess() {
+      return access;
+    }
+
+    /**
+     * Returns the indices of the records that pass.
+     *
+     * @return a new array of the indices in ascending order
+     */
+    public int[] getRows() {
+      return rows.clone();
+    }
+
+    /**
+     * Returns the ordered stream of the entities of the records that pass,
+     * built from the file as the stream asks for them.
+     *
+     * @param <T> the class of the entities of the type of the dataset
+     * @return a sequential stream of the entities
+     */
+    public <T extends HasGField> Stream<T> stream() {
+      return Arrays.stream(rows).mapToObj(row -> dataset.<T>get(row));
+    }
+
+    @Override
+    public String toString() {
+      return String.format(Locale.ROOT, "Plan{rows=%d, matches=%d, access=%s}",
+          rows.length, matches, access);
+    }
+  }
+}
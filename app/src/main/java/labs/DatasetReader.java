@@ -0,0 +1,459 @@
+package labs;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Reads a binary dataset file written by a {@link DatasetWriter}. The records are memory-mapped
+ * and read in place: an entity is built only when the stream asks for it, and
+ * {@link #select(IntPredicate, long, long, double, double)} reads only fields A and B of the
+ * records that do not pass. The stream of {@link #stream()} splits by regions of the file,
+ * so a parallel {@link Gatherer} query reads different parts of the file in different threads.
+ *
+ * <p>The mappings stay valid until they are garbage collected, also after {@link #close()}.
+ */
+public class DatasetReader implements Closeable {
+
+  /** Each mapping holds {@code 2^CHUNK_SHIFT} records, well below the 2 GiB limit of a buffer. */
+  private static final int CHUNK_SHIFT = 26;
+  private static final long CHUNK_MASK = (1L << CHUNK_SHIFT) - 1;
+
+  /** The smallest region a spliterator is split into. */
+  private static final long MIN_SPLIT = 1 << 14;
+
+  /** The codes of field A a reader returns are below this. */
+  static final int A_CODE_LIMIT = 2 * CategoryDictionary.MAX_SIZE;
+
+  private final FileChannel channel;
+  private final EntityType entityType;
+  private final long recordCount;
+  private final MappedByteBuffer[] chunks;
+
+  /**
+   * The values of field A and their codes, by file code: the code in the dictionary of the
+   * entity type, or {@link CategoryDictionary#MAX_SIZE} plus the file code for a value that
+   * is not there. The entity dictionary is only read, so a file may hold any values.
+   */
+  private final String[] aValues;
+  private final int[] aCodes;
+
+  /** The values of the extra field, by file code. */
+  private final String[] extraValues;
+
+  /**
+   * Opens and maps a dataset file.
+   *
+   * @param path the file to read
+   * @throws IOException if the file cannot be read or is not a dataset file
+   */
+  public DatasetReader(Path path) throws IOException {
+    channel = FileChannel.open(path, StandardOpenOption.READ);
+    try {
+      ByteBuffer header = readFully(0, DatasetFormat.HEADER_SIZE);
+      if (header.getInt() != DatasetFormat.MAGIC) {
+        throw new IOException("Not a dataset file: " + path);
+      }
+      int version = header.getInt();
+      if (version != DatasetFormat.VERSION) {
+        throw new IOException("Unsupported dataset version " + version + ": " + path);
+      }
+      int type = header.getInt();
+      if (type < 0 || type >= EntityType.values().length) {
+        throw new IOException("Unknown entity type " + type + ": " + path);
+      }
+      entityType = EntityType.values()[type];
+      header.getInt();
+      recordCount = header.getLong();
+      long dictionaryOffset = header.getLong();
+      if (recordCount < 0
+          || dictionaryOffset != DatasetFormat.HEADER_SIZE + recordCount * DatasetFormat.RECORD_SIZE
+          || dictionaryOffset > channel.size()) {
+        throw new IOException("Corrupt dataset header: " + path);
+      }
+
+      ByteBuffer dictionaries = readFully(dictionaryOffset, channel.size() - dictionaryOffset);
+      aValues = readDictionary(dictionaries);
+      extraValues = readDictionary(dictionaries);
+      aCodes = new int[aValues.length];
+      for (int code = 0; code < aValues.length; code++) {
+        int entityCode = entityType.getADictionary().codeOf(aValues[code]);
+        aCodes[code] = entityCode >= 0 ? entityCode : CategoryDictionary.MAX_SIZE + code;
+      }
+
+      int chunkCount = (int) ((recordCount + CHUNK_MASK) >>> CHUNK_SHIFT);
+      chunks = new MappedByteBuffer[chunkCount];
+      for (int i = 0; i < chunkCount; i++) {
+        long first = (long) i << CHUNK_SHIFT;
+        long records = Math.min(recordCount - first, 1L << CHUNK_SHIFT);
+        chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY,
+            DatasetFormat.HEADER_SIZE + first * DatasetFormat.RECORD_SIZE,
+            records * DatasetFormat.RECORD_SIZE);
+        chunks[i].order(DatasetFormat.BYTE_ORDER);
+      }
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Returns the type of the stored entities.
+   *
+   * @return the entity type
+   */
+  public EntityType getEntityType() {
+    return entityType;
+  }
+
+  /**
+   * Returns the number of stored records.
+   *
+   * @return the number of records
+   */
+  public long size() {
+    return recordCount;
+  }
+
+  /**
+   * Returns the code of field A of a record, as {@link #codeOf(String)} gives it.
+   *
+   * @param index the index of the record
+   * @return the code of field A, below {@link #A_CODE_LIMIT}
+   */
+  public int getACode(long index) {
+    return aCodes[chunk(index).get(offset(index) + DatasetFormat.A_OFFSET) & 0xFF];
+  }
+
+  /**
+   * Returns the code of a value of field A in this file: its code in the dictionary of the
+   * entity type if it is there, so that the codes of the generated entities keep working,
+   * and a code of this reader from {@link CategoryDictionary#MAX_SIZE} up otherwise.
+   *
+   * @param value the value of field A
+   * @return the code, or -1 if no record has the value
+   */
+  public int codeOf(String value) {
+    int code = entityType.getADictionary().codeOf(value);
+    if (code >= 0) {
+      return code;
+    }
+    for (int fileCode = 0; fileCode < aValues.length; fileCode++) {
+      if (aValues[fileCode].equals(value)) {
+        return aCodes[fileCode];
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Returns the value of field B of a record.
+   *
+   * @param index the index of the record
+   * @return the value of field B
+   */
+  public int getB(long index) {
+    return chunk(index).getInt(offset(index) + DatasetFormat.B_OFFSET);
+  }
+
+  /**
+   * Returns the code of the extra field of a record in the dictionary of this file.
+   *
+   * @param index the index of the record
+   * @return the code, or a code without a value if the entity type has no extra field
+   */
+  int getExtraCode(long index) {
+    return chunk(index).get(offset(index) + DatasetFormat.EXTRA_OFFSET) & 0xFF;
+  }
+
+  /**
+   * Returns the values of the extra field by their codes in this file.
+   *
+   * @return a new array of the values
+   */
+  String[] getExtraValues() {
+    return extraValues.clone();
+  }
+
+  /**
+   * Returns the value of field G of a record.
+   *
+   * @param index the index of the record
+   * @return the value of field G
+   */
+  public double getG(long index) {
+    return chunk(index).getDouble(offset(index) + DatasetFormat.G_OFFSET);
+  }
+
+  /**
+   * Builds the entity stored in a record.
+   *
+   * @param index the index of the record
+   * @param <T> the class of the entities of the type of this file
+   * @return a new entity with the values of the record
+   */
+  @SuppressWarnings("unchecked")
+  public <T extends HasGField> T get(long index) {
+    ByteBuffer chunk = chunk(index);
+    int offset = offset(index);
+    int aCode = chunk.get(offset + DatasetFormat.A_OFFSET) & 0xFF;
+    int extraCode = chunk.get(offset + DatasetFormat.EXTRA_OFFSET) & 0xFF;
+    int entityCode = aCodes[aCode] < CategoryDictionary.MAX_SIZE ? aCodes[aCode] : -1;
+    return (T) entityType.decode(aValues[aCode], entityCode,
+        chunk.getInt(offset + DatasetFormat.B_OFFSET),
+        extraCode < extraValues.length ? extraValues[extraCode] : null,
+        chunk.getDouble(offset + DatasetFormat.G_OFFSET));
+  }
+
+  /**
+   * Returns an ordered stream of all stored entities. The stream may be made parallel;
+   * it then splits by regions of the file.
+   *
+   * @param <T> the class of the entities of the type of this file
+   * @return a stream of the stored entities
+   */
+  public <T extends HasGField> Stream<T> stream() {
+    return StreamSupport.stream(new RegionSpliterator<>(0, recordCount), false);
+  }
+
+  /**
+   * Returns the ordered stream of entities that pass the steps of {@link Main}, like
+   * {@link EntityGenerator#select}: only fields A and B are read for every candidate,
+   * and an entity is built only for the records that pass.
+   *
+   * @param filterA the test of the code of field A, see {@link #codeOf(String)}
+   * @param skipN the number of matching records to skip
+   * @param limit the maximum number of matching records to consider after the skip
+   * @param minB the minimum value of field B
+   * @param maxB the maximum value of field B
+   * @param <T> the class of the entities of the type of this file
+   * @return a sequential stream of the entities that passed
+   */
+  public <T extends HasGField> Stream<T> select(IntPredicate filterA, long skipN, long limit,
+      double minB, double maxB) {
+    return StreamSupport.stream(
+        new SelectingSpliterator<>(filterA, skipN, limit, minB, maxB), false);
+  }
+
+  /**
+   * Returns a cursor over all the records, which reads fields A and B in place
+   * and builds an entity only on {@link EntityCursor#materialize()}.
+   *
+   * @param <T> the class of the entities of the type of this file
+   * @return a cursor before the first record, for the calling thread only
+   */
+  public <T extends HasGField> EntityCursor<T> cursor() {
+    return new EntityCursor<T>() {
+      private ByteBuffer region;
+      private int position;
+
+      @Override
+      public int aCode() {
+        return aCodes[region.get(position + DatasetFormat.A_OFFSET) & 0xFF];
+      }
+
+      @Override
+      public int b() {
+        return region.getInt(position + DatasetFormat.B_OFFSET);
+      }
+
+      @Override
+      public T materialize() {
+        return get(index);
+      }
+
+      @Override
+      protected long limit() {
+        return recordCount;
+      }
+
+      @Override
+      protected void moveTo(long index) {
+        region = chunk(index);
+        position = offset(index);
+      }
+    }.reset(0, recordCount);
+  }
+
+  /**
+   * Closes the file.
+   *
+   * @throws IOException if closing fails
+   */
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  private ByteBuffer chunk(long index) {
+    return chunks[(int) (index >>> CHUNK_SHIFT)];
+  }
+
+  private static int offset(long index) {
+    return (int) (index & CHUNK_MASK) * DatasetFormat.RECORD_SIZE;
+  }
+
+  private ByteBuffer readFully(long position, long length) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate((int) length).order(DatasetFormat.BYTE_ORDER);
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position()) < 0) {
+        throw new IOException("Unexpected end of the dataset file");
+      }
+    }
+    return buffer.flip();
+  }
+
+  private static String[] readDictionary(ByteBuffer buffer) throws IOException {
+    try {
+      int size = buffer.getInt();
+      if (size < 0 || size > CategoryDictionary.MAX_SIZE) {
+        throw new IOException("Corrupt dataset dictionary of size " + size);
+      }
+      String[] values = new String[size];
+      for (int code = 0; code < size; code++) {
+        byte[] value = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(value);
+        values[code] = new String(value, StandardCharsets.UTF_8);
+      }
+      return values;
+    } catch (BufferUnderflowException e) {
+      throw new IOException("Truncated dataset dictionary", e);
+    }
+  }
+
+  /**
+   * Builds one entity from the values of a record.
+   *
+   * @param <T> the type of the entity
+   */
+  @FunctionalInterface
+  interface RecordDecoder<T> {
+
+    /**
+     * Creates an entity.
+     *
+     * @param a the value of field A
+     * @param aCode the code of field A in the dictionary of the entity type, or -1
+     * @param b the value of field B
+     * @param extra the value of the extra field, or {@code null} if there is none
+     * @param g the value of field G
+     * @return the created entity
+     */
+    T decode(String a, int aCode, int b, String extra, double g);
+  }
+
+  /** Reads a range of records; splits it in halves, that is, by regions of the file. */
+  private final class RegionSpliterator<T extends HasGField> implements Spliterator<T> {
+
+    private long from;
+    private final long to;
+
+    RegionSpliterator(long from, long to) {
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+      if (from >= to) {
+        return false;
+      }
+      action.accept(get(from++));
+      return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super T> action) {
+      for (long i = from; i < to; i++) {
+        action.accept(get(i));
+      }
+      from = to;
+    }
+
+    @Override
+    public Spliterator<T> trySplit() {
+      long mid = from + (to - from) / 2;
+      if (mid - from < MIN_SPLIT) {
+        return null;
+      }
+      Spliterator<T> prefix = new RegionSpliterator<>(from, mid);
+      from = mid;
+      return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+      return to - from;
+    }
+
+    @Override
+    public int characteristics() {
+      return ORDERED | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+    }
+  }
+
+  /** Walks the records in order and builds only the entities that pass the steps. */
+  private final class SelectingSpliterator<T extends HasGField> implements Spliterator<T> {
+
+    private final IntPredicate filterA;
+    private final long skipN;
+    private final long limit;
+    private final double minB;
+    private final double maxB;
+    private long index;
+    private long passedA;
+    private long taken;
+
+    SelectingSpliterator(IntPredicate filterA, long skipN, long limit, double minB,
+        double maxB) {
+      this.filterA = filterA;
+      this.skipN = skipN;
+      this.limit = limit;
+      this.minB = minB;
+      this.maxB = maxB;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+      while (taken < limit && index < recordCount) {
+        long current = index++;
+        if (!filterA.test(getACode(current)) || passedA++ < skipN) {
+          continue;
+        }
+        taken++;
+        int b = getB(current);
+        if (b >= minB && b <= maxB) {
+          action.accept(get(current));
+          return true;
+        }
+      }
+      return false;
+    }
+
+    @Override
+    public Spliterator<T> trySplit() {
+      return null;
+    }
+
+    @Override
+    public long estimateSize() {
+      return Math.min(limit - taken, recordCount - index);
+    }
+
+    @Override
+    public int characteristics() {
+      return ORDERED | NONNULL | IMMUTABLE;
+    }
+  }
+}
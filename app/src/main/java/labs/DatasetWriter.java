@@ -0,0 +1,175 @@
+package labs;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Writes entities of one type to a binary dataset file in the layout of {@link DatasetFormat},
+ * so that a large generated population can be analyzed again by a {@link DatasetReader}
+ * without generating it. Records go through a direct buffer to a {@link FileChannel};
+ * the header and the dictionaries are written on {@link #close()}.
+ */
+public class DatasetWriter implements Closeable {
+
+  /** The number of records encoded between writes to the channel. */
+  private static final int BATCH_SIZE = 1 << 16;
+
+  private final FileChannel channel;
+  private final EntityType entityType;
+  private final ByteBuffer buffer;
+
+  /** The dictionaries of the file; the codes of the batches are translated into them. */
+  private final CategoryDictionary aDictionary = new CategoryDictionary();
+  private final CategoryDictionary extraDictionary = new CategoryDictionary();
+
+  private long recordCount;
+  private boolean closed;
+
+  /**
+   * Creates the file, replacing an existing one.
+   *
+   * @param path the file to write
+   * @param entityType the type of the entities to write
+   * @throws IOException if the file cannot be created
+   */
+  public DatasetWriter(Path path, EntityType entityType) throws IOException {
+    this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING);
+    this.entityType = entityType;
+    this.buffer = ByteBuffer.allocateDirect(BATCH_SIZE * DatasetFormat.RECORD_SIZE)
+        .order(DatasetFormat.BYTE_ORDER);
+    channel.position(DatasetFormat.HEADER_SIZE);
+  }
+
+  /**
+   * Writes all records of a columnar batch.
+   *
+   * @param batch the records to write; must hold entities of the type of this file
+   * @throws IOException if writing fails
+   */
+  public void write(EntityBatch<?> batch) throws IOException {
+    ensureOpen();
+    int[] aCodes = translation(batch.aDictionary, aDictionary);
+    int[] extraCodes = batch.extraDictionary == null
+        ? null : translation(batch.extraDictionary, extraDictionary);
+    for (int row = 0; row < batch.size; row++) {
+      if (buffer.remaining() < DatasetFormat.RECORD_SIZE) {
+        flush();
+      }
+      buffer.put((byte) aCodes[batch.aCodes[row] & 0xFF]);
+      buffer.put(extraCodes == null ? 0 : (byte) extraCodes[batch.extraCodes[row] & 0xFF]);
+      buffer.putInt(batch.bValues[row]);
+      buffer.putDouble(batch.gValues[row]);
+    }
+    recordCount += batch.size;
+  }
+
+  /**
+   * Writes all entities of the stream, which may be infinite only if it is limited.
+   *
+   * @param items the entities to write; must be of the type of this file
+   * @throws IOException if writing fails
+   */
+  @SuppressWarnings("unchecked")
+  public void writeAll(Stream<? extends HasGField> items) throws IOException {
+    EntityBatch<HasGField> batch = (EntityBatch<HasGField>) entityType.newBatch(BATCH_SIZE);
+    Iterator<? extends HasGField> iterator = items.iterator();
+    while (iterator.hasNext()) {
+      batch.add(iterator.next());
+      if (batch.size() == BATCH_SIZE) {
+        write(batch);
+        batch.clear();
+      }
+    }
+    write(batch);
+  }
+
+  /**
+   * Returns the number of records written so far.
+   *
+   * @return the number of records
+   */
+  public long getRecordCount() {
+    return recordCount;
+  }
+
+  /**
+   * Writes the remaining records, the dictionaries and the header, and closes the file.
+   *
+   * @throws IOException if writing fails
+   */
+  @Override
+  public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    try (channel) {
+      flush();
+      long dictionaryOffset = channel.position();
+      writeDictionary(aDictionary);
+      writeDictionary(extraDictionary);
+
+      ByteBuffer header = ByteBuffer.allocate(DatasetFormat.HEADER_SIZE)
+          .order(DatasetFormat.BYTE_ORDER);
+      header.putInt(DatasetFormat.MAGIC)
+          .putInt(DatasetFormat.VERSION)
+          .putInt(entityType.ordinal())
+          .putInt(0)
+          .putLong(recordCount)
+          .putLong(dictionaryOffset)
+          .flip();
+      channel.position(0);
+      writeFully(header);
+    }
+  }
+
+  /**
+   * Maps every code of a batch dictionary to the code of the same value in a file dictionary.
+   */
+  private static int[] translation(CategoryDictionary from, CategoryDictionary to) {
+    int[] codes = new int[from.size()];
+    for (int code = 0; code < codes.length; code++) {
+      codes[code] = to.encode(from.decode(code));
+    }
+    return codes;
+  }
+
+  private void writeDictionary(CategoryDictionary dictionary) throws IOException {
+    int size = dictionary.size();
+    buffer.putInt(size);
+    for (int code = 0; code < size; code++) {
+      byte[] value = dictionary.decode(code).getBytes(StandardCharsets.UTF_8);
+      if (buffer.remaining() < Short.BYTES + value.length) {
+        flush();
+      }
+      buffer.putShort((short) value.length).put(value);
+    }
+    flush();
+  }
+
+  private void flush() throws IOException {
+    buffer.flip();
+    writeFully(buffer);
+    buffer.clear();
+  }
+
+  private void writeFully(ByteBuffer source) throws IOException {
+    while (source.hasRemaining()) {
+      channel.write(source);
+    }
+  }
+
+  private void ensureOpen() throws IOException {
+    if (closed) {
+      throw new IOException("The dataset is closed");
+    }
+  }
+}
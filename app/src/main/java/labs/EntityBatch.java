@@ -0,0 +1,404 @@
+package labs;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * A columnar (struct-of-arrays) batch of entities. Instead of one object per record,
+ * each field is stored in its own primitive array: field A as a one-byte dictionary code,
+ * field B as an {@code int}, field G as a {@code double}, and the remaining categorical
+ * field, if any, as another one-byte code. A record takes about 14 bytes.
+ *
+ * <p>The query steps of {@link Main} run directly on the columns and exchange
+ * selections: arrays of row numbers in increasing order.
+ *
+ * @param <T> the type of entities stored in the batch
+ */
+public abstract class EntityBatch<T extends HasGField> {
+
+  /** The initial capacity of a batch created without one. */
+  protected static final int DEFAULT_CAPACITY = 1024;
+
+  /**
+   * The dictionary of field A, which is also field V. Every batch has its own; it starts with
+   * the vocabulary of the entity dictionary, so the codes of those values are the same.
+   */
+  protected final CategoryDictionary aDictionary;
+
+  /** The dictionary of the extra categorical field, or {@code null} if there is none. */
+  protected final CategoryDictionary extraDictionary;
+
+  /** The codes of field A below this are also codes in the dictionary of the entities. */
+  private final int entityCodes;
+
+  /** Codes of field A. */
+  protected byte[] aCodes;
+
+  /** Values of field B. */
+  protected int[] bValues;
+
+  /** Values of field G. */
+  protected double[] gValues;
+
+  /** Codes of the extra categorical field, or {@code null} if there is none. */
+  protected byte[] extraCodes;
+
+  /** The number of records in the batch. */
+  protected int size;
+
+  /**
+   * Constructs an empty batch.
+   *
+   * @param capacity the number of records to allocate space for
+   * @param aDictionary the dictionary of field A
+   * @param extraDictionary the dictionary of the extra field, or {@code null} if there is none
+   */
+  protected EntityBatch(int capacity, CategoryDictionary aDictionary,
+      CategoryDictionary extraDictionary) {
+    capacity = Math.max(capacity, 1);
+    this.aDictionary = aDictionary;
+    this.extraDictionary = extraDictionary;
+    this.entityCodes = aDictionary.size();
+    this.aCodes = new byte[capacity];
+    this.bValues = new int[capacity];
+    this.gValues = new double[capacity];
+    this.extraCodes = extraDictionary == null ? null : new byte[capacity];
+  }
+
+  /**
+   * Appends an entity to the batch.
+   *
+   * @param item the entity to append
+   */
+  public abstract void add(T item);
+
+  /**
+   * Builds the entity stored in the given row.
+   *
+   * @param row the row number
+   * @return a new entity with the values of the row
+   */
+  public abstract T get(int row);
+
+  /**
+   * Returns a cursor over the rows of the batch, which reads fields A and B from the columns
+   * and builds an entity only on {@link EntityCursor#materialize()}. The batch must not
+   * change while the cursor is used.
+   *
+   * @return a cursor before the first row, for the calling thread only
+   */
+  public EntityCursor<T> cursor() {
+    return new EntityCursor<T>() {
+      @Override
+      public int aCode() {
+        return aCodes[(int) index] & 0xFF;
+      }
+
+      @Override
+      public int b() {
+        return bValues[(int) index];
+      }
+
+      @Override
+      public T materialize() {
+        return get((int) index);
+      }
+
+      @Override
+      protected long limit() {
+        return size;
+      }
+
+      @Override
+      protected void moveTo(long index) {
+        // колонки читаються напряму за номером рядка
+      }
+    }.reset(0, size);
+  }
+
+  /**
+   * Appends all entities of the stream to the batch.
+   *
+   * @param items the entities to append
+   * @return this batch
+   */
+  public EntityBatch<T> addAll(Stream<? extends T> items) {
+    items.forEachOrdered(this::add);
+    return this;
+  }
+
+  /**
+   * Appends one record given by its column values.
+   *
+   * @param a the value of field A
+   * @param aCode the code of field A in the dictionary of the entities, or -1 if it is not
+   *     there; the value is then encoded into the dictionary of the batch
+   * @param b the value of field B
+   * @param extra the value of the extra field, ignored if there is none
+   * @param g the value of field G
+   */
+  protected void append(String a, int aCode, int b, String extra, double g) {
+    if (size == aCodes.length) {
+      grow();
+    }
+    aCodes[size] = (byte) (aCode >= 0 ? aCode : aDictionary.encode(a));
+    bValues[size] = b;
+    gValues[size] = g;
+    if (extraCodes != null) {
+      extraCodes[size] = (byte) extraDictionary.encode(extra);
+    }
+    size++;
+  }
+
+  private void grow() {
+    int capacity = aCodes.length * 2;
+    aCodes = Arrays.copyOf(aCodes, capacity);
+    bValues = Arrays.copyOf(bValues, capacity);
+    gValues = Arrays.copyOf(gValues, capacity);
+    if (extraCodes != null) {
+      extraCodes = Arrays.copyOf(extraCodes, capacity);
+    }
+  }
+
+  /**
+   * Removes all records, keeping the allocated space and the dictionaries.
+   */
+  public void clear() {
+    size = 0;
+  }
+
+  /**
+   * Returns the number of records in the batch.
+   *
+   * @return the number of records
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns the value of field A in the given row.
+   *
+   * @param row the row number
+   * @return the value of field A
+   */
+  public String getA(int row) {
+    return aDictionary.decode(aCodes[row] & 0xFF);
+  }
+
+  /**
+   * Returns the code of field A in the given row in the dictionary of the entities.
+   *
+   * @param row the row number
+   * @return the code, or -1 if the value was added to the dictionary of the batch
+   */
+  protected int getEntityCode(int row) {
+    int code = aCodes[row] & 0xFF;
+    return code < entityCodes ? code : -1;
+  }
+
+  /**
+   * Returns the value of field B in the given row.
+   *
+   * @param row the row number
+   * @return the value of field B
+   */
+  public int getB(int row) {
+    return bValues[row];
+  }
+
+  /**
+   * Returns the value of field G in the given row.
+   *
+   * @param row the row number
+   * @return the value of field G
+   */
+  public double getG(int row) {
+    return gValues[row];
+  }
+
+  /**
+   * Returns the value of the extra categorical field in the given row.
+   *
+   * @param row the row number
+   * @return the value of the extra field, or {@code null} if there is none
+   */
+  public String getExtra(int row) {
+    return extraCodes == null ? null : extraDictionary.decode(extraCodes[row] & 0xFF);
+  }
+
+  /**
+   * Selects the rows whose field A equals the value, skipping the first {@code skipN}
+   * matches and keeping at most {@code limit}, like {@link Gatherer#gather}.
+   *
+   * @param value the value of field A to keep
+   * @param skipN the number of matching rows to skip
+   * @param limit the maximum number of rows to select
+   * @return the selected rows
+   */
+  public int[] selectByA(String value, int skipN, int limit) {
+    int code = aDictionary.codeOf(value);
+    if (code < 0 || limit <= 0) {
+      return new int[0];
+    }
+    byte target = (byte) code;
+    int[] rows = new int[Math.min(limit, size)];
+    int count = 0;
+    int skipped = 0;
+    for (int row = 0; row < size && count < limit; row++) {
+      if (aCodes[row] == target) {
+        if (skipped < skipN) {
+          skipped++;
+        } else {
+          rows[count++] = row;
+        }
+      }
+    }
+    return Arrays.copyOf(rows, count);
+  }
+
+  /**
+   * Keeps the selected rows whose field B lies in the range, like
+   * {@link Main#filterByParameterB}, with the kernel of {@link ColumnKernels}.
+   *
+   * @param rows the selected rows
+   * @param minB the minimum value of field B
+   * @param maxB the maximum value of field B
+   * @return the rows that passed the filter
+   */
+  public int[] selectByB(int[] rows, double minB, double maxB) {
+    return ColumnKernels.selectInRange(bValues, rows, minB, maxB);
+  }
+
+  /**
+   * Counts the selected rows by the value of field V, like {@link Main#groupByFieldV}.
+   *
+   * @param rows the selected rows
+   * @return a map from each value of field V to the number of rows with that value
+   */
+  public Map<String, Long> countByV(int[] rows) {
+    long[] counts = new long[CategoryDictionary.MAX_SIZE];
+    for (int row : rows) {
+      counts[aCodes[row] & 0xFF]++;
+    }
+    Map<String, Long> result = new LinkedHashMap<>();
+    for (int code = 0; code < aDictionary.size(); code++) {
+      if (counts[code] > 0) {
+        result.put(aDictionary.decode(code), counts[code]);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Groups the selected rows by field A, or by field A and the extra field, and aggregates
+   * field G and the ranges of field B in every group.
+   *
+   * @param rows the selected rows
+   * @param bBounds the bounds of the ranges of field B, see {@link GroupAggregator}
+   * @param byExtra whether to group by the extra field as well; ignored if there is none
+   * @return the table of groups
+   */
+  public GroupAggregator aggregate(int[] rows, double[] bBounds, boolean byExtra) {
+    return aggregate(rows, 0, rows.length, bBounds, byExtra);
+  }
+
+  /**
+   * Aggregates the selected rows like {@link #aggregate(int[], double[], boolean)}, splitting
+   * them into chunks that are aggregated in parallel and merged.
+   *
+   * @param rows the selected rows
+   * @param bBounds the bounds of the ranges of field B
+   * @param byExtra whether to group by the extra field as well
+   * @param chunkSize the number of rows in one chunk
+   * @return the table of groups
+   */
+  public GroupAggregator aggregateParallel(int[] rows, double[] bBounds, boolean byExtra,
+      int chunkSize) {
+    if (chunkSize <= 0) {
+      throw new IllegalArgumentException("chunkSize must be positive");
+    }
+    int chunks = (rows.length + chunkSize - 1) / chunkSize;
+    return IntStream.range(0, chunks).parallel()
+        .mapToObj(chunk -> aggregate(rows, chunk * chunkSize,
+            Math.min(rows.length, (chunk + 1) * chunkSize), bBounds, byExtra))
+        .reduce(GroupAggregator::merge)
+        .orElseGet(() -> newAggregator(bBounds, byExtra));
+  }
+
+  private GroupAggregator aggregate(int[] rows, int from, int to, double[] bBounds,
+      boolean byExtra) {
+    GroupAggregator table = newAggregator(bBounds, byExtra);
+    if (byExtra && extraCodes != null) {
+      for (int i = from; i < to; i++) {
+        int row = rows[i];
+        table.accept(GroupAggregator.key(aCodes[row], extraCodes[row]), bValues[row],
+            gValues[row]);
+      }
+    } else {
+      for (int i = from; i < to; i++) {
+        int row = rows[i];
+        table.accept(GroupAggregator.key(aCodes[row]), bValues[row], gValues[row]);
+      }
+    }
+    return table;
+  }
+
+  private GroupAggregator newAggregator(double[] bBounds, boolean byExtra) {
+    return byExtra && extraDictionary != null
+        ? new GroupAggregator(bBounds, aDictionary, extraDictionary)
+        : new GroupAggregator(bBounds, aDictionary);
+  }
+
+  /**
+   * Copies the field G values of the selected rows.
+   *
+   * @param rows the selected rows
+   * @return the values of field G, in the order of the rows
+   */
+  public double[] gValues(int[] rows) {
+    double[] result = new double[rows.length];
+    for (int i = 0; i < rows.length; i++) {
+      result[i] = gValues[rows[i]];
+    }
+    return result;
+  }
+
+  /**
+   * Collects the statistics of field G over the selected rows with {@link ColumnKernels}.
+   *
+   * @param rows the selected rows
+   * @return the statistical data of field G
+   */
+  public StatisticsCollector.StatisticsData statistics(int[] rows) {
+    return ColumnKernels.statistics(gValues, rows);
+  }
+
+  /**
+   * Splits the field G values of the selected rows into regular values and outliers
+   * outside of {@code [Q1 - 1.5 IQR, Q3 + 1.5 IQR]}, as the analysis in {@link Main} does.
+   * The quartiles are selected with {@link QuantileSelector}, without sorting the values.
+   *
+   * @param rows the selected rows
+   * @return the number of {@code "data"} and {@code "outliers"} values
+   */
+  public Map<String, Long> splitOutliers(int[] rows) {
+    return QuantileSelector.splitOutliers(gValues(rows));
+  }
+
+  /**
+   * Returns all rows of the batch as a selection.
+   *
+   * @return the numbers of all rows
+   */
+  public int[] allRows() {
+    int[] rows = new int[size];
+    for (int i = 0; i < size; i++) {
+      rows[i] = i;
+    }
+    return rows;
+  }
+}
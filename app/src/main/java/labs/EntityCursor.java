@@ -0,0 +1,203 @@
+package labs;
+
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A mutable view of one record at a time, moved over the records of a source: generated
+ * entities, the rows of an {@link EntityBatch} or the records of a dataset file. The cursor
+ * exposes the fields the filters need, the code of field A and field B, without building
+ * an entity; {@link #materialize()} builds the immutable entity of the current record only
+ * for the records that pass. A filter loop over a cursor allocates nothing per candidate.
+ *
+ * <pre>
+ * EntityCursor&lt;Car&gt; cursor = EntityGenerator.cars(42).cursor(0, 1_000_000);
+ * while (cursor.next()) {
+ *   if (cursor.aCode() == bmw &amp;&amp; cursor.b() &lt; 12) {
+ *     cars.add(cursor.materialize());
+ *   }
+ * }
+ * </pre>
+ *
+ * <p>A cursor is not thread-safe: every thread uses its own, and can reuse it for another
+ * range with {@link #reset}.
+ *
+ * @param <T> the type of entities
+ */
+public abstract class EntityCursor<T> {
+
+  /**
+   * The index of the current record: {@code from - 1} before the first call of next,
+   * the last record after the range ends.
+   */
+  protected long index;
+
+  /** The index after the last record. */
+  protected long end;
+
+  /** Constructs a cursor over no records; {@link #reset} gives it a range. */
+  protected EntityCursor() {
+  }
+
+  /**
+   * Moves the cursor before the first record of another range.
+   *
+   * @param from the index of the first record
+   * @param to the index after the last record
+   * @return this cursor
+   * @throws IllegalArgumentException if the range is outside of the records of the source
+   */
+  public EntityCursor<T> reset(long from, long to) {
+    if (from < 0 || from > to || to > limit()) {
+      throw new IllegalArgumentException("Invalid range [" + from + ", " + to + ") of "
+          + limit() + " records");
+    }
+    this.index = from - 1;
+    this.end = to;
+    return this;
+  }
+
+  /**
+   * Moves to the next record.
+   *
+   * @return {@code false} if there are no more records in the range
+   */
+  public boolean next() {
+    if (index + 1 >= end) {
+      return false;
+    }
+    moveTo(++index);
+    return true;
+  }
+
+  /**
+   * Returns the index of the current record.
+   *
+   * @return the index
+   */
+  public long index() {
+    return index;
+  }
+
+  /**
+   * Returns the code of field A of the current record.
+   *
+   * @return the code, as assigned by the dictionary of field A of the source: of the entity
+   *     type for generated entities, of the batch or of the dataset file otherwise
+   */
+  public abstract int aCode();
+
+  /**
+   * Returns field B of the current record.
+   *
+   * @return the value of field B
+   */
+  public abstract int b();
+
+  /**
+   * Builds the entity of the current record.
+   *
+   * @return a new entity
+   */
+  public abstract T materialize();
+
+  /**
+   * Returns the number of records of the source, the upper bound of a range.
+   *
+   * @return the number of records
+   */
+  protected abstract long limit();
+
+  /**
+   * Reads the fields of the record with the given index.
+   *
+   * @param index the index of the record, inside the range
+   */
+  protected abstract void moveTo(long index);
+
+  /**
+   * Applies the steps of {@link Main} to the rest of the range: of the records whose code
+   * of field A passes the test, skips the first {@code skipN}, considers at most
+   * {@code limit}, and builds those whose field B lies in the range.
+   *
+   * @param filterA the test of the code of field A
+   * @param skipN the number of matching records to skip
+   * @param limit the maximum number of matching records to consider after the skip
+   * @param minB the minimum value of field B
+   * @param maxB the maximum value of field B
+   * @param sink receives the entities that passed, in index order
+   * @return the number of records whose field A matched, skipped ones included
+   */
+  public long select(IntPredicate filterA, long skipN, long limit, double minB, double maxB,
+      Consumer<? super T> sink) {
+    long passedA = 0;
+    while (passedA - skipN < limit && next()) {
+      if (!filterA.test(aCode()) || passedA++ < skipN) {
+        continue;
+      }
+      int b = b();
+      if (b >= minB && b <= maxB) {
+        sink.accept(materialize());
+      }
+    }
+    return passedA;
+  }
+
+  /**
+   * Tests the rest of the range against a predicate of the cursor, skips the first
+   * {@code skipN} matching records, and builds at most {@code limit} of the others.
+   *
+   * @param filter the test of the current record; it must not keep the cursor
+   * @param skipN the number of matching records to skip
+   * @param limit the maximum number of entities to build
+   * @param sink receives the entities, in index order
+   * @return the number of records that matched, skipped ones included
+   */
+  public long forEachMatching(Predicate<? super EntityCursor<T>> filter, long skipN,
+      long limit, Consumer<? super T> sink) {
+    long matched = 0;
+    while (matched - skipN < limit && next()) {
+      if (filter.test(this) && matched++ >= skipN) {
+        sink.accept(materialize());
+      }
+    }
+    return matched;
+  }
+
+  /**
+   * Returns the stream of the entities of the rest of the range, all of them built.
+   *
+   * @return an ordered sequential stream that moves this cursor
+   */
+  public Stream<T> stream() {
+    return StreamSupport.stream(new Spliterator<T>() {
+      @Override
+      public boolean tryAdvance(Consumer<? super T> action) {
+        if (!next()) {
+          return false;
+        }
+        action.accept(materialize());
+        return true;
+      }
+
+      @Override
+      public Spliterator<T> trySplit() {
+        return null;
+      }
+
+      @Override
+      public long estimateSize() {
+        return Math.max(end - index - 1, 0);
+      }
+
+      @Override
+      public int characteristics() {
+        return ORDERED | SIZED | NONNULL | IMMUTABLE;
+      }
+    }, false);
+  }
+}
@@ -0,0 +1,546 @@
+package labs;
+
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
+import java.util.function.Supplier;
+import java.util.random.RandomGenerator;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A reproducible source of random objects. The object with a given index is always built
+ * from the same random values, derived only from the seed and the index, so sequential
+ * and parallel runs with the same seed produce the same data no matter how the work is split.
+ * No {@code Random} is created per object: every thread or stream split reuses its own
+ * re-seedable generator.
+ *
+ * @param <T> the type of generated objects
+ */
+public class EntityGenerator<T> {
+
+  /** How many indices a thread claims at once in {@link #supplier()}. */
+  private static final int CLAIM_SIZE = 1024;
+
+  private static final Metrics.Counter GENERATED = Metrics.counter("generator.generated");
+  private static final Metrics.Counter DRAWN = Metrics.counter("generator.keysDrawn");
+  private static final Metrics.Counter MATERIALIZED = Metrics.counter("generator.materialized");
+
+  /** The seed all the generated data is derived from. */
+  private final long seed;
+
+  /** Builds one object from the random values. */
+  private final RecordFactory<T> factory;
+
+  /** Draws only fields A and B from the random values, or {@code null} if unknown. */
+  private final KeyDrawer keyDrawer;
+
+  /**
+   * Constructs a new {@code EntityGenerator}.
+   *
+   * @param seed the seed all the generated data is derived from
+   * @param factory builds one object from the random values, e.g. {@code Car::generateRandomCar}
+   */
+  public EntityGenerator(long seed, RecordFactory<T> factory) {
+    this(seed, factory, null);
+  }
+
+  /**
+   * Constructs a new {@code EntityGenerator} that supports late materialization
+   * in {@link #select(IntPredicate, long, long, double, double)}.
+   *
+   * @param seed the seed all the generated data is derived from
+   * @param factory builds one object from the random values, e.g. {@code Car::generateRandomCar}
+   * @param keyDrawer draws only the code of field A and field B from the same random values
+   *     the factory uses, e.g. {@code Car::drawKeys}
+   */
+  public EntityGenerator(long seed, RecordFactory<T> factory, KeyDrawer keyDrawer) {
+    this.seed = seed;
+    this.factory = factory;
+    this.keyDrawer = keyDrawer;
+  }
+
+  /**
+   * Returns a generator of random survey participants.
+   *
+   * @param seed the seed of the generated data
+   * @return a generator of survey participants
+   */
+  public static EntityGenerator<SurveyParticipant> participants(long seed) {
+    return new EntityGenerator<>(seed, SurveyParticipant::generateRandomPerson,
+        SurveyParticipant::drawKeys);
+  }
+
+  /**
+   * Returns a generator of random clothing items.
+   *
+   * @param seed the seed of the generated data
+   * @return a generator of clothing items
+   */
+  public static EntityGenerator<ClothingItem> clothingItems(long seed) {
+    return new EntityGenerator<>(seed, ClothingItem::generateRandomClothingItem,
+        ClothingItem::drawKeys);
+  }
+
+  /**
+   * Returns a generator of random cars.
+   *
+   * @param seed the seed of the generated data
+   * @return a generator of cars
+   */
+  public static EntityGenerator<Car> cars(long seed) {
+    return new EntityGenerator<>(seed, Car::generateRandomCar, Car::drawKeys);
+  }
+
+  /**
+   * Returns a generator of random mythical creatures.
+   *
+   * @param seed the seed of the generated data
+   * @return a generator of mythical creatures
+   */
+  public static EntityGenerator<MythicalCreature> creatures(long seed) {
+    return new EntityGenerator<>(seed, MythicalCreature::generateRandomCreature,
+        MythicalCreature::drawKeys);
+  }
+
+  /**
+   * Returns the seed of this generator.
+   *
+   * @return the seed
+   */
+  public long getSeed() {
+    return seed;
+  }
+
+  /**
+   * Generates the object with the given index.
+   *
+   * @param index the index of the object
+   * @return the generated object
+   */
+  public T generate(long index) {
+    return generate(index, new IndexedRandom());
+  }
+
+  /**
+   * Generates the object with the given index, reusing the given random generator.
+   *
+   * @param index the index of the object
+   * @param random the generator to re-seed for this index
+   * @return the generated object
+   */
+  T generate(long index, IndexedRandom random) {
+    random.moveTo(seed, index);
+    return factory.create(random);
+  }
+
+  /**
+   * Draws, in index order, the keys of the objects with indices from {@code from} to
+   * {@code to}, and hands on those whose code of field A passes the test and whose field B
+   * lies in the range, each with its number among the matches of field A in the range.
+   * The objects are built only if {@code materialize} is set; otherwise the sink gets
+   * {@code null} and the caller builds the ones it keeps with {@link #materialize}.
+   *
+   * @param from the first index
+   * @param to the index after the last one
+   * @param filterA the test of the code of field A
+   * @param minB the minimum value of field B
+   * @param maxB the maximum value of field B
+   * @param materialize whether to build the objects that passed
+   * @param random the generator to re-seed for each index
+   * @param keys receives the drawn keys
+   * @param sink receives the objects that passed
+   * @return the number of objects whose field A passed, in or out of the range of field B
+   * @throws IllegalStateException if this generator has no key drawer
+   */
+  int generateMatching(long from, long to, IntPredicate filterA, double minB, double maxB,
+      boolean materialize, IndexedRandom random, Keys keys, MatchSink<? super T> sink) {
+    if (keyDrawer == null) {
+      throw new IllegalStateException("Late materialization needs a key drawer");
+    }
+    int passedA = 0;
+    long materialized = 0;
+    for (long index = from; index < to; index++) {
+      random.moveTo(seed, index);
+      keyDrawer.draw(random, keys);
+      if (!filterA.test(keys.aCode)) {
+        continue;
+      }
+      if (keys.b >= minB && keys.b <= maxB) {
+        T item = null;
+        if (materialize) {
+          item = generate(index, random);
+          materialized++;
+        }
+        sink.accept(index, passedA, item);
+      }
+      passedA++;
+    }
+    DRAWN.add(to - from);
+    MATERIALIZED.add(materialized);
+    return passedA;
+  }
+
+  /**
+   * Builds an object whose keys were drawn by {@link #generateMatching}.
+   *
+   * @param index the index of the object
+   * @param random the generator to re-seed for this index
+   * @return the generated object
+   */
+  T materialize(long index, IndexedRandom random) {
+    MATERIALIZED.increment();
+    return generate(index, random);
+  }
+
+  /**
+   * Fills the array with the objects starting from the given index,
+   * so that {@code batch[i]} is the object with index {@code firstIndex + i}.
+   *
+   * @param batch the array to fill
+   * @param firstIndex the index of the first object
+   */
+  public void fill(T[] batch, long firstIndex) {
+    IndexedRandom random = new IndexedRandom();
+    for (int i = 0; i < batch.length; i++) {
+      batch[i] = generate(firstIndex + i, random);
+    }
+  }
+
+  /**
+   * Returns an infinite ordered stream of objects with indices 0, 1, 2, ...
+   * The stream may be made parallel; it still holds the same objects in the same order.
+   *
+   * @return an infinite stream of generated objects
+   */
+  public Stream<T> stream() {
+    return stream(Long.MAX_VALUE);
+  }
+
+  /**
+   * Returns an ordered stream of the first {@code count} objects.
+   * The stream may be made parallel; it still holds the same objects in the same order.
+   *
+   * @param count the number of objects
+   * @return a stream of generated objects
+   */
+  public Stream<T> stream(long count) {
+    return StreamSupport.stream(new IndexSpliterator(0, count), false);
+  }
+
+  /**
+   * Returns the ordered stream of objects that pass the steps of {@link Main}: the filter
+   * on the code of field A, skipping {@code skipN} and keeping at most {@code limit} of the
+   * matching objects, and the range filter on field B. Only fields A and B are drawn
+   * for every candidate; a full object is built only for the objects that pass,
+   * from the same random values, so the result equals filtering {@link #stream()}.
+   *
+   * @param filterA the test of the code of field A
+   * @param skipN the number of matching objects to skip
+   * @param limit the maximum number of matching objects to consider after the skip
+   * @param minB the minimum value of field B
+   * @param maxB the maximum value of field B
+   * @return a sequential stream of the objects that passed
+   * @throws IllegalStateException if this generator has no key drawer
+   */
+  public Stream<T> select(IntPredicate filterA, long skipN, long limit, double minB,
+      double maxB) {
+    if (keyDrawer == null) {
+      throw new IllegalStateException("Late materialization needs a key drawer");
+    }
+    return StreamSupport.stream(
+        new SelectingSpliterator(filterA, skipN, limit, minB, maxB), false);
+  }
+
+  /**
+   * Returns a cursor over the objects with indices from {@code from} to {@code to}.
+   * Moving the cursor draws only the code of field A and field B of each object;
+   * {@link EntityCursor#materialize()} builds the object from the same random values.
+   *
+   * @param from the first index
+   * @param to the index after the last one
+   * @return a cursor before the first object, for the calling thread only
+   * @throws IllegalStateException if this generator has no key drawer
+   */
+  public EntityCursor<T> cursor(long from, long to) {
+    if (keyDrawer == null) {
+      throw new IllegalStateException("Late materialization needs a key drawer");
+    }
+    return new KeyCursor().reset(from, to);
+  }
+
+  /**
+   * Returns a thread-safe supplier of objects for unordered consumers such as
+   * {@link Gatherer#gatherParallel(int, Gatherer.FieldExtractor)}. Each thread claims
+   * ranges of indices from a shared counter, so every object is generated at most once,
+   * but which thread gets which object depends on scheduling.
+   *
+   * @return a supplier of generated objects
+   */
+  public Supplier<T> supplier() {
+    AtomicLong nextClaim = new AtomicLong();
+    ThreadLocal<Cursor> cursors = ThreadLocal.withInitial(Cursor::new);
+    return () -> {
+      Cursor cursor = cursors.get();
+      if (cursor.next == cursor.end) {
+        cursor.next = nextClaim.getAndAdd(CLAIM_SIZE);
+        cursor.end = cursor.next + CLAIM_SIZE;
+      }
+      return generate(cursor.next++, cursor.random);
+    };
+  }
+
+  /**
+   * Builds one object from the values of a random generator.
+   *
+   * @param <T> the type of the object
+   */
+  @FunctionalInterface
+  public interface RecordFactory<T> {
+
+    /**
+     * Creates an object.
+     *
+     * @param random the source of random values
+     * @return the created object
+     */
+    T create(RandomGenerator random);
+  }
+
+  /**
+   * Draws the code of field A and field B of one object.
+   */
+  @FunctionalInterface
+  public interface KeyDrawer {
+
+    /**
+     * Draws the keys in the same order the record factory draws them.
+     *
+     * @param random the source of random values
+     * @param keys receives the drawn values
+     */
+    void draw(RandomGenerator random, Keys keys);
+  }
+
+  /**
+   * Receives the objects selected by {@link #generateMatching}.
+   *
+   * @param <T> the type of the objects
+   */
+  @FunctionalInterface
+  interface MatchSink<T> {
+
+    /**
+     * Accepts one object whose fields A and B passed.
+     *
+     * @param index the index of the object
+     * @param matchA the number of the earlier objects of the range whose field A passed
+     * @param item the object, or {@code null} if it was not built
+     */
+    void accept(long index, int matchA, T item);
+  }
+
+  /** A reusable holder of the code of field A and the value of field B. */
+  public static final class Keys {
+
+    /** The code of field A. */
+    public int aCode;
+
+    /** The value of field B. */
+    public int b;
+  }
+
+  /**
+   * A SplitMix64 generator that can be moved to the start of the random sequence
+   * of any object index without allocating.
+   */
+  static final class IndexedRandom implements RandomGenerator {
+
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private long state;
+
+    /**
+     * Re-seeds the generator for the object with the given index.
+     *
+     * @param seed the seed of the data
+     * @param index the index of the object
+     */
+    void moveTo(long seed, long index) {
+      state = mix64(seed + mix64(index * GOLDEN_GAMMA));
+    }
+
+    @Override
+    public long nextLong() {
+      return mix64(state += GOLDEN_GAMMA);
+    }
+
+    private static long mix64(long z) {
+      z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+      z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+      return z ^ (z >>> 31);
+    }
+  }
+
+  /** A range of indices claimed by one thread, with its own generator. */
+  private static final class Cursor {
+    long next;
+    long end;
+    final IndexedRandom random = new IndexedRandom();
+  }
+
+  /** A cursor that holds the drawn keys of the current object. */
+  private final class KeyCursor extends EntityCursor<T> {
+
+    private final IndexedRandom random = new IndexedRandom();
+    private final Keys keys = new Keys();
+
+    @Override
+    public int aCode() {
+      return keys.aCode;
+    }
+
+    @Override
+    public int b() {
+      return keys.b;
+    }
+
+    @Override
+    public T materialize() {
+      MATERIALIZED.increment();
+      return generate(index, random);
+    }
+
+    @Override
+    protected long limit() {
+      return Long.MAX_VALUE;
+    }
+
+    @Override
+    protected void moveTo(long index) {
+      random.moveTo(seed, index);
+      keyDrawer.draw(random, keys);
+    }
+  }
+
+  /**
+   * Walks the indices in order, draws the keys of each candidate,
+   * and builds only the objects that pass the steps.
+   */
+  private final class SelectingSpliterator implements Spliterator<T> {
+
+    private final IntPredicate filterA;
+    private final long skipN;
+    private final long limit;
+    private final double minB;
+    private final double maxB;
+    private final IndexedRandom random = new IndexedRandom();
+    private final Keys keys = new Keys();
+    private long index;
+    private long passedA;
+    private long taken;
+
+    SelectingSpliterator(IntPredicate filterA, long skipN, long limit, double minB,
+        double maxB) {
+      this.filterA = filterA;
+      this.skipN = skipN;
+      this.limit = limit;
+      this.minB = minB;
+      this.maxB = maxB;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+      long first = index;
+      while (taken < limit) {
+        long current = index++;
+        random.moveTo(seed, current);
+        keyDrawer.draw(random, keys);
+        if (!filterA.test(keys.aCode) || passedA++ < skipN) {
+          continue;
+        }
+        taken++;
+        if (keys.b >= minB && keys.b <= maxB) {
+          DRAWN.add(index - first);
+          MATERIALIZED.increment();
+          action.accept(generate(current, random));
+          return true;
+        }
+      }
+      DRAWN.add(index - first);
+      return false;
+    }
+
+    @Override
+    public Spliterator<T> trySplit() {
+      return null;
+    }
+
+    @Override
+    public long estimateSize() {
+      return limit - taken;
+    }
+
+    @Override
+    public int characteristics() {
+      return ORDERED | NONNULL | IMMUTABLE;
+    }
+  }
+
+  /**
+   * Splits a range of indices in halves; each split generates its objects with its own
+   * {@link IndexedRandom}.
+   */
+  private final class IndexSpliterator implements Spliterator<T> {
+
+    private long from;
+    private final long to;
+    private final IndexedRandom random = new IndexedRandom();
+
+    IndexSpliterator(long from, long to) {
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+      if (from >= to) {
+        return false;
+      }
+      GENERATED.increment();
+      action.accept(generate(from++, random));
+      return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super T> action) {
+      for (long i = from; i < to; i++) {
+        action.accept(generate(i, random));
+      }
+      GENERATED.add(to - from);
+      from = to;
+    }
+
+    @Override
+    public Spliterator<T> trySplit() {
+      long mid = from + (to - from) / 2;
+      if (mid - from < CLAIM_SIZE) {
+        return null;
+      }
+      Spliterator<T> prefix = new IndexSpliterator(from, mid);
+      from = mid;
+      return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+      return to - from;
+    }
+
+    @Override
+    public int characteristics() {
+      return ORDERED | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+    }
+  }
+}
@@ -0,0 +1,401 @@
+package labs;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaConversionException;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.stream.Stream;
+
+/**
+ * Declares which getters of an entity class play the roles of the fields of the analysis:
+ * A to filter by, B to filter by range, V to group by, G to aggregate, and the extra
+ * categorical field. For every getter the schema generates an accessor with
+ * {@link LambdaMetafactory}: a class that calls exactly that method of exactly that class,
+ * so a query over one entity type runs through monomorphic calls the JIT can inline,
+ * instead of the interface call {@link HasGField#getGField()} shared by all the types.
+ *
+ * <pre>
+ * EntitySchema&lt;Car&gt; schema = EntitySchema.of(MethodHandles.lookup(), Car.class)
+ *     .a("brand", "getBrand").aCode("getBrandCode")
+ *     .b("monthsSinceProduction", "getMonthsSinceProduction")
+ *     .extra("carClass", "getCarClass")
+ *     .g("price", "getGField");
+ * </pre>
+ *
+ * <p>A new entity type needs only a schema to be analyzed with {@link #query}; field V
+ * is field A unless declared otherwise.
+ *
+ * @param <T> the type of entities
+ */
+public final class EntitySchema<T> {
+
+  /** The roles of the fields. */
+  public enum Role {
+    /** The categorical field to filter by, a {@code String}. */
+    A(String.class),
+    /** The dictionary code of field A, an {@code int}. */
+    A_CODE(int.class),
+    /** The field to filter by range, an {@code int}. */
+    B(int.class),
+    /** The categorical field to group by, a {@code String}. */
+    V(String.class),
+    /** The field to aggregate, a {@code double}. */
+    G(double.class),
+    /** The other categorical field, a {@code String}. */
+    EXTRA(String.class);
+
+    private final Class<?> type;
+
+    Role(Class<?> type) {
+      this.type = type;
+    }
+
+    /**
+     * Returns the type the getter of a field in this role returns.
+     *
+     * @return the type of the field
+     */
+    public Class<?> getType() {
+      return type;
+    }
+  }
+
+  private final MethodHandles.Lookup lookup;
+  private final Class<T> type;
+  private final Map<Role, Field> fields = new EnumMap<>(Role.class);
+
+  private Gatherer.FieldExtractor<T> fieldA;
+  private Gatherer.OrdinalFieldExtractor<T> fieldACode;
+  private ToIntFunction<T> fieldB;
+  private ToDoubleFunction<T> fieldBAsDouble;
+  private Function<T, String> fieldV;
+  private Function<T, String> extra;
+  private ToDoubleFunction<T> fieldG;
+
+  private EntitySchema(MethodHandles.Lookup lookup, Class<T> type) {
+    this.lookup = lookup;
+    this.type = type;
+  }
+
+  /**
+   * Starts a schema of an entity class.
+   *
+   * @param lookup a lookup with full access to the getters, usually
+   *     {@code MethodHandles.lookup()} in the class that declares the schema
+   * @param type the entity class
+   * @param <T> the type of entities
+   * @return a schema without fields
+   */
+  public static <T> EntitySchema<T> of(MethodHandles.Lookup lookup, Class<T> type) {
+    return new EntitySchema<>(lookup, type);
+  }
+
+  /**
+   * Declares field A.
+   *
+   * @param name the name of the field in text files
+   * @param getter the name of the getter, returning a {@code String}
+   * @return this schema
+   */
+  public EntitySchema<T> a(String name, String getter) {
+    MethodHandle handle = declare(Role.A, name, getter);
+    fieldA = accessor(handle, Gatherer.FieldExtractor.class, "extractField", String.class);
+    if (!fields.containsKey(Role.V)) {
+      fieldV = accessor(handle, Function.class, "apply", Object.class);
+    }
+    return this;
+  }
+
+  /**
+   * Declares the getter of the dictionary code of field A.
+   *
+   * @param getter the name of the getter, returning an {@code int}
+   * @return this schema
+   */
+  public EntitySchema<T> aCode(String getter) {
+    MethodHandle handle = declare(Role.A_CODE, null, getter);
+    fieldACode = accessor(handle, Gatherer.OrdinalFieldExtractor.class, "extractOrdinal",
+        int.class);
+    return this;
+  }
+
+  /**
+   * Declares field B.
+   *
+   * @param name the name of the field in text files
+   * @param getter the name of the getter, returning an {@code int}
+   * @return this schema
+   */
+  public EntitySchema<T> b(String name, String getter) {
+    MethodHandle handle = declare(Role.B, name, getter);
+    fieldB = accessor(handle, ToIntFunction.class, "applyAsInt", int.class);
+    fieldBAsDouble = accessor(handle, ToDoubleFunction.class, "applyAsDouble", double.class);
+    return this;
+  }
+
+  /**
+   * Declares field V, if it is not field A.
+   *
+   * @param name the name of the field in text files
+   * @param getter the name of the getter, returning a {@code String}
+   * @return this schema
+   */
+  public EntitySchema<T> v(String name, String getter) {
+    fieldV = accessor(declare(Role.V, name, getter), Function.class, "apply", Object.class);
+    return this;
+  }
+
+  /**
+   * Declares field G.
+   *
+   * @param name the name of the field in text files
+   * @param getter the name of the getter, returning a {@code double}
+   * @return this schema
+   */
+  public EntitySchema<T> g(String name, String getter) {
+    MethodHandle handle = declare(Role.G, name, getter);
+    fieldG = accessor(handle, ToDoubleFunction.class, "applyAsDouble", double.class);
+    return this;
+  }
+
+  /**
+   * Declares the extra categorical field.
+   *
+   * @param name the name of the field in text files
+   * @param getter the name of the getter, returning a {@code String}
+   * @return this schema
+   */
+  public EntitySchema<T> extra(String name, String getter) {
+    extra = accessor(declare(Role.EXTRA, name, getter), Function.class, "apply", Object.class);
+    return this;
+  }
+
+  /**
+   * Returns the entity class.
+   *
+   * @return the entity class
+   */
+  public Class<T> getType() {
+    return type;
+  }
+
+  /**
+   * Returns the declared fields, in the order of the roles.
+   *
+   * @return the unmodifiable list of fields
+   */
+  public List<Field> getFields() {
+    return Collections.unmodifiableList(new ArrayList<>(fields.values()));
+  }
+
+  /**
+   * Returns the field in the role.
+   *
+   * @param role the role
+   * @return the field, or {@code null} if none was declared
+   */
+  public Field getField(Role role) {
+    return fields.get(role);
+  }
+
+  /**
+   * Returns the name of the field in the role in text files.
+   *
+   * @param role the role
+   * @return the name, or {@code null} if no field was declared
+   */
+  public String getName(Role role) {
+    Field field = fields.get(role);
+    return field == null ? null : field.getName();
+  }
+
+  /**
+   * Returns the accessor of field A.
+   *
+   * @return the accessor of field A
+   */
+  public Gatherer.FieldExtractor<T> getFieldA() {
+    return require(fieldA, Role.A);
+  }
+
+  /**
+   * Returns the accessor of the code of field A.
+   *
+   * @return the accessor of the code of field A
+   */
+  public Gatherer.OrdinalFieldExtractor<T> getFieldACode() {
+    return require(fieldACode, Role.A_CODE);
+  }
+
+  /**
+   * Returns the accessor of field B.
+   *
+   * @return the accessor of field B
+   */
+  public ToIntFunction<T> getFieldB() {
+    return require(fieldB, Role.B);
+  }
+
+  /**
+   * Returns the accessor of field B.
+   *
+   * @return the accessor of field B, widened to {@code double}
+   */
+  public ToDoubleFunction<T> getFieldBAsDouble() {
+    return require(fieldBAsDouble, Role.B);
+  }
+
+  /**
+   * Returns the accessor of field V.
+   *
+   * @return the accessor of field V
+   */
+  public Function<T, String> getFieldV() {
+    return require(fieldV, Role.V);
+  }
+
+  /**
+   * Returns the accessor of field G.
+   *
+   * @return the accessor of field G
+   */
+  public ToDoubleFunction<T> getFieldG() {
+    return require(fieldG, Role.G);
+  }
+
+  /**
+   * Returns the accessor of the extra field.
+   *
+   * @return the accessor of the extra field, or {@code null} if there is none
+   */
+  public Function<T, String> getExtra() {
+    return extra;
+  }
+
+  /**
+   * Builds the query of {@link Main} over entities of this schema: the filter on field A,
+   * the skip and the limit, the range filter on field B, the counts by field V and the
+   * aggregation of field G.
+   *
+   * @param source the entities to query
+   * @param valueA the value of field A to keep
+   * @param skipN the number of matching entities to skip
+   * @param limit the maximum number of matching entities to consider after the skip
+   * @param minB the minimum value of field B
+   * @param maxB the maximum value of field B
+   * @return the query, not yet run
+   */
+  public Query<T> query(Stream<T> source, String valueA, long skipN, long limit,
+      double minB, double maxB) {
+    return Query.from(source)
+        .filterA(getFieldA(), valueA)
+        .skip(skipN)
+        .limit(limit)
+        .filterB(getFieldBAsDouble(), minB, maxB)
+        .groupBy(getFieldV())
+        .aggregate(getFieldG());
+  }
+
+  private <F> F require(F accessor, Role role) {
+    if (accessor == null) {
+      throw new IllegalStateException("No field " + role + " in the schema of "
+          + type.getSimpleName());
+    }
+    return accessor;
+  }
+
+  /** Finds the getter of the field and records the field. */
+  private MethodHandle declare(Role role, String name, String getter) {
+    MethodHandle handle;
+    try {
+      handle = lookup.findVirtual(type, getter, MethodType.methodType(role.getType()));
+    } catch (NoSuchMethodException | IllegalAccessException e) {
+      throw new IllegalArgumentException("No accessible " + role.getType().getSimpleName()
+          + " " + type.getSimpleName() + "." + getter + "() for field " + role, e);
+    }
+    fields.put(role, new Field(role, name, getter));
+    return handle;
+  }
+
+  /**
+   * Spins a class that implements the functional interface by calling the getter.
+   *
+   * @param getter the handle of the getter
+   * @param functionalInterface the interface to implement
+   * @param method the name of its single abstract method
+   * @param erasedReturn the return type of the method after erasure
+   */
+  @SuppressWarnings("unchecked")
+  private <F> F accessor(MethodHandle getter, Class<?> functionalInterface, String method,
+      Class<?> erasedReturn) {
+    MethodType instantiated = MethodType.methodType(
+        erasedReturn.isPrimitive() ? erasedReturn : getter.type().returnType(), type);
+    try {
+      CallSite site = LambdaMetafactory.metafactory(lookup, method,
+          MethodType.methodType(functionalInterface),
+          MethodType.methodType(erasedReturn, Object.class), getter, instantiated);
+      return (F) site.getTarget().invoke();
+    } catch (LambdaConversionException e) {
+      throw new IllegalArgumentException("Cannot implement " + functionalInterface.getSimpleName()
+          + " with " + getter, e);
+    } catch (Throwable e) {
+      throw new IllegalStateException("Cannot create the accessor " + getter, e);
+    }
+  }
+
+  /** One declared field: its role, its name in text files and its getter. */
+  public static final class Field {
+
+    private final Role role;
+    private final String name;
+    private final String getter;
+
+    Field(Role role, String name, String getter) {
+      this.role = role;
+      this.name = name;
+      this.getter = getter;
+    }
+
+    /**
+     * Returns the role of the field.
+     *
+     * @return the role of the field
+     */
+    public Role getRole() {
+      return role;
+    }
+
+    /**
+     * Returns the name of the field in text files.
+     *
+     * @return the name of the field in text files, {@code null} for the code of field A
+     */
+    public String getName() {
+      return name;
+    }
+
+    /**
+     * Returns the name of the getter.
+     *
+     * @return the name of the getter
+     */
+    public String getGetter() {
+      return getter;
+    }
+
+    @Override
+    public String toString() {
+      return role + " " + name + " (" + getter + "(): " + role.getType().getSimpleName() + ")";
+    }
+  }
+}
@@ -0,0 +1,262 @@
+package labs;
+
+import java.lang.invoke.MethodHandles;
+import java.util.function.IntFunction;
+import java.util.function.LongFunction;
+import java.util.stream.Stream;
+
+/**
+ * The types of entities the program can generate and analyze, in the order of
+ * the variant number {@code C4} of {@link Main}. Each type knows its generator
+ * and its {@link EntitySchema}: which getters play the roles of fields A, B, V and G.
+ */
+public enum EntityType {
+
+  SURVEY("учасників опитування", EntityGenerator::participants,
+      SurveyParticipant.CITY_DICTIONARY,
+      EntitySchema.of(MethodHandles.lookup(), SurveyParticipant.class)
+          .a("city", "getCity").aCode("getCityCode")
+          .b("age", "getAge")
+          .extra("name", "getName")
+          .g("monthlyIncome", "getGField"),
+      SurveyParticipantBatch::new, SurveyParticipant::new),
+
+  CLOTHING("одягу", EntityGenerator::clothingItems,
+      ClothingItem.CITY_DICTIONARY,
+      EntitySchema.of(MethodHandles.lookup(), ClothingItem.class)
+          .a("city", "getCity").aCode("getCityCode")
+          .b("monthsSinceProduction", "getMonthsSinceProduction")
+          .extra("fabricType", "getFabricType")
+          .g("price", "getGField"),
+      ClothingItemBatch::new, ClothingItem::new),
+
+  CAR("автомобілів", EntityGenerator::cars,
+      Car.BRAND_DICTIONARY,
+      EntitySchema.of(MethodHandles.lookup(), Car.class)
+          .a("brand", "getBrand").aCode("getBrandCode")
+          .b("monthsSinceProduction", "getMonthsSinceProduction")
+          .extra("carClass", "getCarClass")
+          .g("price", "getGField"),
+      CarBatch::new, Car::new),
+
+  CREATURE("міфічних істот", EntityGenerator::creatures,
+      MythicalCreature.TYPE_DICTIONARY,
+      EntitySchema.of(MethodHandles.lookup(), MythicalCreature.class)
+          .a("type", "getType").aCode("getTypeCode")
+          .b("yearsSinceFirstAppearance", "getYearsSinceFirstAppearance")
+          .g("attackPower", "getGField"),
+      MythicalCreatureBatch::new,
+      (type, typeCode, years, extra, power) -> new MythicalCreature(type, typeCode, years, power));
+
+  /** The number of generated indices in one batch of a pipelined query. */
+  private static final int PIPELINE_BATCH_SIZE = 4096;
+
+  /** The number of batches in flight in a pipelined query. */
+  private static final int PIPELINE_CAPACITY = 16;
+
+  /** The name of the entities in the headings of the report. */
+  private final String title;
+
+  /** Creates a seeded generator of entities of this type. */
+  private final LongFunction<EntityGenerator<HasGField>> generators;
+
+  /** The dictionary of field A. */
+  private final CategoryDictionary aDictionary;
+
+  /** The roles of the fields and their generated accessors. */
+  private final EntitySchema<HasGField> schema;
+
+  /** Creates an empty columnar batch of the given capacity. */
+  private final IntFunction<EntityBatch<?>> batches;
+
+  /** Builds an entity from a record of a dataset file. */
+  private final DatasetReader.RecordDecoder<?> decoder;
+
+  @SuppressWarnings("unchecked")
+  <T extends HasGField> EntityType(String title, LongFunction<EntityGenerator<T>> generators,
+      CategoryDictionary aDictionary, EntitySchema<T> schema,
+      IntFunction<EntityBatch<T>> batches, DatasetReader.RecordDecoder<T> decoder) {
+    this.title = title;
+    this.generators = seed -> (EntityGenerator<HasGField>) generators.apply(seed);
+    this.aDictionary = aDictionary;
+    this.schema = (EntitySchema<HasGField>) (EntitySchema<?>) schema;
+    this.batches = batches::apply;
+    this.decoder = decoder;
+  }
+
+  /**
+   * Returns the type with the given name or variant number, ignoring case.
+   *
+   * @param nameOrVariant a name such as {@code car}, or a variant number from 0 to 3
+   * @return the entity type
+   * @throws IllegalArgumentException if there is no such type
+   */
+  public static EntityType parse(String nameOrVariant) {
+    String value = nameOrVariant.trim();
+    EntityType[] types = values();
+    for (EntityType type : types) {
+      if (type.name().equalsIgnoreCase(value) || String.valueOf(type.ordinal()).equals(value)) {
+        return type;
+      }
+    }
+    throw new IllegalArgumentException("Unknown entity type: " + nameOrVariant);
+  }
+
+  /**
+   * Returns the name of the entities in the headings of the report.
+   *
+   * @return the title, in Ukrainian
+   */
+  public String getTitle() {
+    return title;
+  }
+
+  /**
+   * Returns the dictionary of field A.
+   *
+   * @return the dictionary of field A
+   */
+  public CategoryDictionary getADictionary() {
+    return aDictionary;
+  }
+
+  /**
+   * Returns a generator of entities of this type.
+   *
+   * @param seed the seed of the generated data
+   * @return a generator of entities
+   */
+  public EntityGenerator<HasGField> generator(long seed) {
+    return generators.apply(seed);
+  }
+
+  /**
+   * Creates an empty columnar batch for entities of this type.
+   *
+   * @param capacity the number of records to allocate space for
+   * @return a new batch
+   */
+  public EntityBatch<?> newBatch(int capacity) {
+    return batches.apply(capacity);
+  }
+
+  /**
+   * Returns the names of the columns of a CSV file, or of the keys of a JSON-lines file,
+   * that hold the fields of entities of this type.
+   *
+   * @return the names of fields A, B, the extra field ({@code null} if there is none) and G
+   */
+  public String[] getColumnNames() {
+    return new String[] {
+        schema.getName(EntitySchema.Role.A),
+        schema.getName(EntitySchema.Role.B),
+        schema.getName(EntitySchema.Role.EXTRA),
+        schema.getName(EntitySchema.Role.G)};
+  }
+
+  /**
+   * Returns the schema of the entities: which getters play the roles of the fields.
+   *
+   * @return the schema
+   */
+  public EntitySchema<HasGField> getSchema() {
+    return schema;
+  }
+
+  /**
+   * Builds an entity of this type from the values of a stored record.
+   */
+  HasGField decode(String a, int aCode, int b, String extra, double g) {
+    return (HasGField) decoder.decode(a, aCode, b, extra, g);
+  }
+
+  /**
+   * Builds the query that {@link Main} runs for the description: the entities that pass the
+   * filters on fields A and B, generated with late materialization, grouped by field V,
+   * with field G aggregated. The caller chooses whether the quantiles are exact.
+   * A value of field A that is not in {@link #getADictionary()} matches no entity, so its
+   * query is empty.
+   *
+   * @param spec the description of the run; its entity type must be this one
+   * @return the query, not yet run
+   */
+  public Query<HasGField> query(QuerySpec spec) {
+    int code = aDictionary.codeOf(spec.getFieldValueToFilter());
+    if (code < 0) {
+      // генератор не видає невідомих значень, тож пошук збігів ніколи б не скінчився
+      return query(Stream.empty());
+    }
+    return query(generator(spec.getSeed())
+        .select(c -> c == code, spec.getSkipN(), spec.getLimit(), spec.getMinB(), spec.getMaxB()));
+  }
+
+  /**
+   * Builds the same query as {@link #query(QuerySpec)} over the records of a dataset file
+   * instead of generated entities; the seed of the description is not used.
+   *
+   * @param spec the description of the run; its entity type must be this one
+   * @param dataset the stored entities of this type
+   * @return the query, not yet run
+   */
+  public Query<HasGField> query(QuerySpec spec, DatasetReader dataset) {
+    int code = dataset.codeOf(spec.getFieldValueToFilter());
+    return query(dataset.<HasGField>select(
+        c -> c == code, spec.getSkipN(), spec.getLimit(), spec.getMinB(), spec.getMaxB()));
+  }
+
+  /**
+   * Builds the same query as {@link #query(QuerySpec, DatasetReader)} from the indexes
+   * of the dataset: only the records that pass are read and built.
+   *
+   * @param spec the description of the run; its entity type must be this one
+   * @param index the indexes of a dataset of this type
+   * @return the query, not yet run
+   */
+  public Query<HasGField> query(QuerySpec spec, DatasetIndex index) {
+    return query(index.plan(spec).<HasGField>stream());
+  }
+
+  /**
+   * Builds the same query as {@link #query(QuerySpec)} over stored entities, for example
+   * the stream of a {@link TextDatasetSource}. Field A is compared as a string, so values
+   * outside {@link #getADictionary()} match too.
+   *
+   * @param spec the description of the run; its entity type must be this one
+   * @param items the entities of this type; running the query closes the stream
+   * @return the query, not yet run
+   */
+  public Query<HasGField> query(QuerySpec spec, Stream<HasGField> items) {
+    return query(items)
+        .filterA(schema.getFieldA(), spec.getFieldValueToFilter())
+        .skip(spec.getSkipN())
+        .limit(spec.getLimit())
+        .filterB(schema.getFieldBAsDouble(), spec.getMinB(), spec.getMaxB());
+  }
+
+  /**
+   * Builds the same query as {@link #query(QuerySpec)}, but generates the entities on
+   * producer threads of a {@link Pipeline} while the query consumes them. The producers draw
+   * the keys and apply the filters on fields A and B; the calling thread skips and limits
+   * the matches, and no entity is built for a skipped or rejected one.
+   *
+   * @param spec the description of the run; its entity type must be this one
+   * @param producers the number of producer threads
+   * @return the query, not yet run; running it stops the producers
+   */
+  public Query<HasGField> pipelinedQuery(QuerySpec spec, int producers) {
+    int code = aDictionary.codeOf(spec.getFieldValueToFilter());
+    if (code < 0) {
+      return query(Stream.empty());
+    }
+    Pipeline<HasGField> pipeline = new Pipeline<>(generator(spec.getSeed()), c -> c == code,
+        spec.getSkipN(), spec.getLimit(), spec.getMinB(), spec.getMaxB(), producers,
+        PIPELINE_BATCH_SIZE, PIPELINE_CAPACITY);
+    return query(pipeline.stream());
+  }
+
+  private Query<HasGField> query(Stream<HasGField> selected) {
+    return Query.from(selected)
+        .groupBy(schema.getFieldV())
+        .aggregate(schema.getFieldG());
+  }
+}
@@ -0,0 +1,41 @@
+package labs;
+
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.util.function.Supplier;
+import jdk.incubator.foreign.MemorySegment;
+import jdk.incubator.foreign.ResourceScope;
+
+/**
+ * The chunks of an {@link OffHeapDoubleColumn} in native segments of the Foreign Memory API,
+ * all of them in one resource scope: closing the scope frees the memory of the column at
+ * once, and the buffers of the segments fail on any later access. The class is loaded only
+ * if the module {@code jdk.incubator.foreign} is present; nothing else refers to it.
+ */
+final class ForeignArena implements OffHeapDoubleColumn.Arena {
+
+  // спільна область: стовпець може заповнювати один потік, а читати інший
+  private final ResourceScope scope = ResourceScope.newSharedScope();
+
+  @Override
+  public DoubleBuffer allocate(int values) {
+    return MemorySegment.allocateNative((long) values * Double.BYTES, Double.BYTES, scope)
+        .asByteBuffer()
+        .order(ByteOrder.nativeOrder())
+        .asDoubleBuffer();
+  }
+
+  @Override
+  public void close() {
+    scope.close();
+  }
+
+  /** Opens a new arena for every column. */
+  static final class Factory implements Supplier<OffHeapDoubleColumn.Arena> {
+
+    @Override
+    public OffHeapDoubleColumn.Arena get() {
+      return new ForeignArena();
+    }
+  }
+}
@@ -0,0 +1,483 @@
+package labs;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A generic class that collects objects from a stream based on specific field values.
+ *
+ * @param <T> the type of objects to be gathered
+ */
+public class Gatherer<T> {
+
+  private static final Metrics.Stage GATHER = Metrics.stage("gather");
+  private static final Metrics.Counter EXAMINED = Metrics.counter("gatherer.examined");
+  private static final Metrics.Counter MATCHED = Metrics.counter("gatherer.matched");
+  private static final Metrics.Counter SKIPPED = Metrics.counter("gatherer.skipped");
+  private static final Metrics.Counter ACCEPTED = Metrics.counter("gatherer.accepted");
+
+  /** The stream of objects to gather from. */
+  private final Stream<T> generator;
+
+  /** The source the stream is generated from, or {@code null} if only the stream is known. */
+  private final Supplier<T> source;
+
+  /** The cursor the stream is built from, or {@code null} if there is none. */
+  private final EntityCursor<T> cursor;
+
+  /** The values of the field used for filtering the objects; an object matches any of them. */
+  private final Set<String> valuesToFilter;
+
+  /** The number of objects to skip before gathering. */
+  private final int skipN;
+
+  /**
+   * Constructs a new {@code Gatherer} with the specified parameters.
+   *
+   * @param generator the stream of objects to gather from
+   * @param fieldValueToFilter the value of the field to filter objects
+   * @param skipN the number of objects to skip
+   */
+  public Gatherer(Stream<T> generator, String fieldValueToFilter, int skipN) {
+    this(generator, null, Collections.singleton(fieldValueToFilter), skipN);
+  }
+
+  /**
+   * Constructs a new {@code Gatherer} that keeps objects whose field has any of the values.
+   *
+   * @param generator the stream of objects to gather from
+   * @param valuesToFilter the values of the field to filter objects (an IN-list)
+   * @param skipN the number of objects to skip
+   */
+  public Gatherer(Stream<T> generator, Collection<String> valuesToFilter, int skipN) {
+    this(generator, null, new HashSet<>(valuesToFilter), skipN);
+  }
+
+  /**
+   * Constructs a new {@code Gatherer} over an infinite source of objects.
+   * Only a gatherer built this way can split generation across threads
+   * in {@link #gatherParallel(int, FieldExtractor, ForkJoinPool)}.
+   *
+   * @param source the thread-safe supplier of objects to gather from
+   * @param fieldValueToFilter the value of the field to filter objects
+   * @param skipN the number of objects to skip
+   */
+  public Gatherer(Supplier<T> source, String fieldValueToFilter, int skipN) {
+    this(Stream.generate(source), source, Collections.singleton(fieldValueToFilter), skipN);
+  }
+
+  /**
+   * Constructs a new {@code Gatherer} over an infinite source of objects that keeps objects
+   * whose field has any of the values.
+   *
+   * @param source the thread-safe supplier of objects to gather from
+   * @param valuesToFilter the values of the field to filter objects (an IN-list)
+   * @param skipN the number of objects to skip
+   */
+  public Gatherer(Supplier<T> source, Collection<String> valuesToFilter, int skipN) {
+    this(Stream.generate(source), source, new HashSet<>(valuesToFilter), skipN);
+  }
+
+  /**
+   * Constructs a new {@code Gatherer} over a cursor.
+   *
+   * @param cursor the cursor over the objects to gather from, not shared with other threads
+   * @param fieldValueToFilter the value of field A to filter objects
+   * @param skipN the number of objects to skip
+   * @see #Gatherer(EntityCursor, Collection, int)
+   */
+  public Gatherer(EntityCursor<T> cursor, String fieldValueToFilter, int skipN) {
+    this(cursor.stream(), null, cursor, Collections.singleton(fieldValueToFilter), skipN);
+  }
+
+  /**
+   * Constructs a new {@code Gatherer} over a cursor that keeps objects whose field A has any
+   * of the values. Only a gatherer built this way can
+   * filter without building the candidates, in {@link #gather(int, CategoryDictionary)};
+   * the other methods build every candidate.
+   *
+   * @param cursor the cursor over the objects to gather from, not shared with other threads
+   * @param valuesToFilter the values of field A to filter objects (an IN-list)
+   * @param skipN the number of objects to skip
+   */
+  public Gatherer(EntityCursor<T> cursor, Collection<String> valuesToFilter, int skipN) {
+    this(cursor.stream(), null, cursor, new HashSet<>(valuesToFilter), skipN);
+  }
+
+  private Gatherer(Stream<T> generator, Supplier<T> source, Set<String> valuesToFilter,
+      int skipN) {
+    this(generator, source, null, valuesToFilter, skipN);
+  }
+
+  private Gatherer(Stream<T> generator, Supplier<T> source, EntityCursor<T> cursor,
+      Set<String> valuesToFilter, int skipN) {
+    this.generator = generator;
+    this.source = source;
+    this.cursor = cursor;
+    this.valuesToFilter = valuesToFilter;
+    this.skipN = skipN;
+  }
+
+  /**
+   * Gathers a list of objects from the stream, filtering by the specified field value.
+   *
+   * @param limit the maximum number of objects to gather
+   * @param extractor the function to extract the field value from the objects
+   * @return a list of gathered objects
+   */
+  public List<T> gather(int limit, FieldExtractor<T> extractor) {
+    return gatherMatching(limit, matcher(extractor));
+  }
+
+  /**
+   * Gathers a list of objects from the stream, filtering by the code of a categorical field.
+   * The filter values are resolved to codes once, so each object costs an integer compare
+   * (or a bitset lookup for an IN-list) instead of a String comparison.
+   *
+   * @param limit the maximum number of objects to gather
+   * @param extractor the function to extract the code of the field from the objects
+   * @param dictionary the dictionary the codes of the field come from
+   * @return a list of gathered objects, empty if no filter value is in the dictionary
+   */
+  public List<T> gather(int limit, OrdinalFieldExtractor<T> extractor,
+      CategoryDictionary dictionary) {
+    if (matchesNothing(dictionary)) {
+      return new ArrayList<>();
+    }
+    return gatherMatching(limit, matcher(extractor, dictionary));
+  }
+
+  /**
+   * Gathers a list of objects from the cursor, filtering by the code of field A the cursor
+   * reads. The filter runs on the cursor, so only the gathered objects are built and
+   * the candidates cost no allocation.
+   *
+   * @param limit the maximum number of objects to gather
+   * @param dictionary the dictionary the codes of field A come from
+   * @return a list of gathered objects
+   * @throws IllegalStateException if this gatherer was not built over a cursor
+   */
+  public List<T> gather(int limit, CategoryDictionary dictionary) {
+    if (cursor == null) {
+      throw new IllegalStateException("Only a gatherer over a cursor can filter in place");
+    }
+    IntPredicate codes = codeMatcher(dictionary);
+    try (Metrics.Span span = GATHER.start()) {
+      List<T> gathered = new ArrayList<>();
+      long first = cursor.index();
+      long matched = cursor.forEachMatching(c -> codes.test(c.aCode()), skipN, limit,
+          gathered::add);
+      EXAMINED.add(cursor.index() - first);
+      MATCHED.add(matched);
+      SKIPPED.add(Math.min(matched, skipN));
+      ACCEPTED.add(gathered.size());
+      span.items(gathered.size());
+      return gathered;
+    }
+  }
+
+  private List<T> gatherMatching(int limit, Predicate<T> matcher) {
+    try (Metrics.Span span = GATHER.start()) {
+      RunCounters counters = Metrics.ENABLED ? new RunCounters() : null;
+      List<T> gathered = generator
+          .filter(counters == null ? matcher : counters.counting(matcher)) // Фільтрація за полем A
+          .skip(skipN) // Відкидаємо перші N об'єктів
+          .limit(limit) // Обмежуємо список до 500
+          .collect(Collectors.toList());
+      if (counters != null) {
+        counters.publish(gathered.size());
+      }
+      span.items(gathered.size());
+      return gathered;
+    }
+  }
+
+  /**
+   * Gathers objects in parallel on the common {@link ForkJoinPool}.
+   *
+   * @param limit the maximum number of objects to gather
+   * @param extractor the function to extract the field value from the objects
+   * @return a list of gathered objects, in no particular order
+   * @see #gatherParallel(int, FieldExtractor, ForkJoinPool)
+   */
+  public List<T> gatherParallel(int limit, FieldExtractor<T> extractor) {
+    return gatherParallel(limit, extractor, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Gathers objects in parallel: every worker of the pool generates and filters objects
+   * on its own, and the matching objects draw tickets from a shared lock-free counter.
+   * The first {@code skipN} tickets are dropped, the next {@code limit} are gathered,
+   * and the workers stop as soon as the budget is used up.
+   *
+   * <p>The result is unordered: it holds {@code skipN + 1}-th to {@code skipN + limit}-th
+   * matching objects by ticket, grouped by the worker that drew them, which is not the order
+   * of any sequential run. The source must be safe to call from several threads, and must
+   * hold matching objects: a String value cannot be checked in advance, so the workers would
+   * search for one forever; the overload with a dictionary returns nothing for unknown values.
+   * A gatherer built from a {@link Stream} falls back to a parallel unordered stream.
+   *
+   * @param limit the maximum number of objects to gather
+   * @param extractor the function to extract the field value from the objects
+   * @param pool the pool to run the workers on
+   * @return a list of gathered objects, in no particular order
+   */
+  public List<T> gatherParallel(int limit, FieldExtractor<T> extractor, ForkJoinPool pool) {
+    return gatherParallelMatching(limit, matcher(extractor), pool);
+  }
+
+  /**
+   * Gathers objects in parallel on the common {@link ForkJoinPool}, filtering by the code
+   * of a categorical field.
+   *
+   * @param limit the maximum number of objects to gather
+   * @param extractor the function to extract the code of the field from the objects
+   * @param dictionary the dictionary the codes of the field come from
+   * @return a list of gathered objects, in no particular order, empty if no filter value
+   *     is in the dictionary
+   * @see #gatherParallel(int, FieldExtractor, ForkJoinPool)
+   */
+  public List<T> gatherParallel(int limit, OrdinalFieldExtractor<T> extractor,
+      CategoryDictionary dictionary) {
+    if (matchesNothing(dictionary)) {
+      // жоден об'єкт не має коду фільтра, тож робітники шукали б збіги вічно
+      return new ArrayList<>();
+    }
+    return gatherParallelMatching(limit, matcher(extractor, dictionary),
+        ForkJoinPool.commonPool());
+  }
+
+  private List<T> gatherParallelMatching(int limit, Predicate<T> matcher, ForkJoinPool pool) {
+    try (Metrics.Span span = GATHER.start()) {
+      List<T> gathered = source == null
+          ? gatherParallelFromStream(limit, matcher, pool)
+          : gatherParallelFromSource(limit, matcher, pool);
+      span.items(gathered.size());
+      return gathered;
+    }
+  }
+
+  private List<T> gatherParallelFromStream(int limit, Predicate<T> matcher, ForkJoinPool pool) {
+    RunCounters counters = Metrics.ENABLED ? new RunCounters() : null;
+    List<T> gathered = pool.submit(() -> generator
+        .parallel()
+        .unordered()
+        .filter(counters == null ? matcher : counters.counting(matcher))
+        .skip(skipN)
+        .limit(limit)
+        .collect(Collectors.toList())).join();
+    if (counters != null) {
+      counters.publish(gathered.size());
+    }
+    return gathered;
+  }
+
+  private List<T> gatherParallelFromSource(int limit, Predicate<T> matcher, ForkJoinPool pool) {
+    if (limit <= 0) {
+      return new ArrayList<>();
+    }
+
+    long budget = (long) skipN + limit;
+    AtomicLong matched = new AtomicLong();
+
+    // кожен робітник збирає свої об'єкти, тож пам'ять росте з кількістю зібраних, а не з ліміту
+    Callable<List<T>> worker = () -> {
+      List<T> gathered = new ArrayList<>();
+      long examined = 0;
+      while (matched.get() < budget) {
+        T obj = source.get();
+        examined++;
+        if (!matcher.test(obj)) {
+          continue;
+        }
+        long ticket = matched.getAndIncrement();
+        if (ticket >= budget) {
+          break;
+        }
+        if (ticket >= skipN) {
+          gathered.add(obj);
+        }
+      }
+      EXAMINED.add(examined);
+      return gathered;
+    };
+
+    List<Callable<List<T>>> workers = new ArrayList<>();
+    for (int i = 0; i < pool.getParallelism(); i++) {
+      workers.add(worker);
+    }
+    List<T> gathered = new ArrayList<>();
+    for (List<T> part : awaitAll(pool.invokeAll(workers))) {
+      gathered.addAll(part);
+    }
+    long used = Math.min(matched.get(), budget);
+    MATCHED.add(used);
+    SKIPPED.add(Math.min(used, skipN));
+    ACCEPTED.add(Math.max(used - skipN, 0));
+    return gathered;
+  }
+
+  /**
+   * Builds the test of an object against the filter values.
+   *
+   * @param extractor the function to extract the field value from the objects
+   * @return the test
+   */
+  private Predicate<T> matcher(FieldExtractor<T> extractor) {
+    if (valuesToFilter.size() == 1) {
+      String fieldValueToFilter = valuesToFilter.iterator().next();
+      return obj -> extractor.extractField(obj).equals(fieldValueToFilter);
+    }
+    return obj -> valuesToFilter.contains(extractor.extractField(obj));
+  }
+
+  /**
+   * Builds the test of an object against the codes of the filter values.
+   * Values unknown to the dictionary match nothing.
+   *
+   * @param extractor the function to extract the code of the field from the objects
+   * @param dictionary the dictionary the codes of the field come from
+   * @return the test
+   */
+  private Predicate<T> matcher(OrdinalFieldExtractor<T> extractor,
+      CategoryDictionary dictionary) {
+    IntPredicate codes = codeMatcher(dictionary);
+    return obj -> codes.test(extractor.extractOrdinal(obj));
+  }
+
+  /**
+   * Builds the test of a code against the codes of the filter values.
+   * Values unknown to the dictionary match nothing.
+   *
+   * @param dictionary the dictionary the codes of the field come from
+   * @return the test
+   */
+  private IntPredicate codeMatcher(CategoryDictionary dictionary) {
+    if (valuesToFilter.size() == 1) {
+      int code = dictionary.codeOf(valuesToFilter.iterator().next());
+      // об'єкти з невідомим значенням теж мають код -1, але фільтру вони не відповідають
+      return code < 0 ? c -> false : c -> c == code;
+    }
+    BitSet codes = new BitSet();
+    for (String value : valuesToFilter) {
+      int code = dictionary.codeOf(value);
+      if (code >= 0) {
+        codes.set(code);
+      }
+    }
+    return codes::get;
+  }
+
+  /**
+   * Tells whether none of the filter values is in the dictionary, so no object can match.
+   *
+   * @param dictionary the dictionary the codes of the field come from
+   * @return {@code true} if every filter value is unknown to the dictionary
+   */
+  private boolean matchesNothing(CategoryDictionary dictionary) {
+    for (String value : valuesToFilter) {
+      if (dictionary.codeOf(value) >= 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Waits for the given tasks and rethrows the first failure.
+   *
+   * @param futures the tasks to wait for
+   * @param <R> the type of the results of the tasks
+   * @return the results of the tasks, in the order of the futures
+   */
+  private static <R> List<R> awaitAll(List<? extends Future<R>> futures) {
+    List<R> results = new ArrayList<>(futures.size());
+    try {
+      for (Future<R> future : futures) {
+        results.add(future.get());
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while gathering", e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Gathering failed", e.getCause());
+    }
+    return results;
+  }
+
+  /** Counts the objects a run examined and matched, and adds them to the metrics at the end. */
+  private final class RunCounters {
+
+    final LongAdder examined = new LongAdder();
+    final LongAdder matched = new LongAdder();
+
+    Predicate<T> counting(Predicate<T> matcher) {
+      return obj -> {
+        examined.increment();
+        boolean matches = matcher.test(obj);
+        if (matches) {
+          matched.increment();
+        }
+        return matches;
+      };
+    }
+
+    void publish(long accepted) {
+      EXAMINED.add(examined.sum());
+      MATCHED.add(matched.sum());
+      SKIPPED.add(Math.min(matched.sum(), skipN));
+      ACCEPTED.add(accepted);
+    }
+  }
+
+  /**
+   * A functional interface for extracting a field from an object.
+   *
+   * @param <T> the type of object to extract the field from
+   */
+  @FunctionalInterface
+  public interface FieldExtractor<T> {
+
+    /**
+     * Extracts the field value from the given object.
+     *
+     * @param object the object to extract the field from
+     * @return the extracted field value
+     */
+    String extractField(T object);
+  }
+
+  /**
+   * A functional interface for extracting the code of a categorical field from an object,
+   * as assigned by a {@link CategoryDictionary}.
+   *
+   * @param <T> the type of object to extract the code from
+   */
+  @FunctionalInterface
+  public interface OrdinalFieldExtractor<T> {
+
+    /**
+     * Extracts the code of the field value from the given object.
+     *
+     * @param object the object to extract the code from
+     * @return the code of the field value
+     */
+    int extractOrdinal(T object);
+  }
+}
@@ -0,0 +1,379 @@
+package labs;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collector;
+
+/**
+ * Groups records by a composite key of dictionary codes, such as brand × car class, and keeps
+ * several aggregates per group: the count, the sum, minimum and maximum of field G, and the
+ * counts of field B in ranges. The groups live in an open-addressing hash table of primitive
+ * arrays, so adding a record does not allocate.
+ *
+ * <p>Partial tables built by different threads are combined with {@link #merge}; the
+ * {@link #collector} does so for parallel streams.
+ */
+public class GroupAggregator {
+
+  /** The maximum number of codes in a key; the eighth byte is kept free for {@link #EMPTY}. */
+  public static final int MAX_KEY_PARTS = 7;
+
+  /** Marks a free slot; no key of at most seven one-byte codes has all bits set. */
+  private static final long EMPTY = -1L;
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  /** The dictionaries of the parts of the key, used to name the groups. */
+  private final CategoryDictionary[] dictionaries;
+
+  /** The bounds of the ranges of field B: range {@code i} is {@code [bounds[i], bounds[i+1])}. */
+  private final double[] bBounds;
+  private final int ranges;
+
+  private long[] keys;
+  private long[] counts;
+  private double[] sums;
+  private double[] mins;
+  private double[] maxs;
+  private long[] rangeCounts;
+  private int size;
+
+  /**
+   * Constructs an empty table.
+   *
+   * @param bBounds the increasing bounds of the ranges of field B; {@code n} bounds make
+   *     {@code n - 1} ranges, and no ranges are counted for fewer than two bounds
+   * @param dictionaries the dictionaries of the parts of the key, from the first code
+   */
+  public GroupAggregator(double[] bBounds, CategoryDictionary... dictionaries) {
+    if (dictionaries.length == 0 || dictionaries.length > MAX_KEY_PARTS) {
+      throw new IllegalArgumentException("A key has 1 to " + MAX_KEY_PARTS + " parts");
+    }
+    for (int i = 1; i < bBounds.length; i++) {
+      if (!(bBounds[i - 1] < bBounds[i])) {
+        throw new IllegalArgumentException("The bounds of B must increase");
+      }
+    }
+    this.dictionaries = dictionaries.clone();
+    this.bBounds = bBounds.clone();
+    this.ranges = Math.max(bBounds.length - 1, 0);
+    allocate(INITIAL_CAPACITY);
+  }
+
+  /**
+   * Packs one code into a key.
+   *
+   * @param code the code of the first part
+   * @return the key
+   */
+  public static long key(int code) {
+    return code & 0xFF;
+  }
+
+  /**
+   * Packs two codes into a key.
+   *
+   * @param first the code of the first part
+   * @param second the code of the second part
+   * @return the key
+   */
+  public static long key(int first, int second) {
+    return (first & 0xFF) | (second & 0xFF) << 8;
+  }
+
+  /**
+   * Packs three codes into a key.
+   *
+   * @param first the code of the first part
+   * @param second the code of the second part
+   * @param third the code of the third part
+   * @return the key
+   */
+  public static long key(int first, int second, int third) {
+    return (first & 0xFF) | (second & 0xFF) << 8 | (long) (third & 0xFF) << 16;
+  }
+
+  /**
+   * Returns a collector that aggregates objects into a table, building partial tables
+   * in parallel and merging them.
+   *
+   * @param key the function to build the key of an object, e.g. with {@link #key(int, int)}
+   * @param fieldB the function to extract field B
+   * @param fieldG the function to extract field G
+   * @param bBounds the bounds of the ranges of field B
+   * @param dictionaries the dictionaries of the parts of the key
+   * @param <T> the type of the objects
+   * @return the collector
+   */
+  public static <T> Collector<T, GroupAggregator, GroupAggregator> collector(
+      ToLongFunction<T> key, ToIntFunction<T> fieldB, ToDoubleFunction<T> fieldG,
+      double[] bBounds, CategoryDictionary... dictionaries) {
+    return Collector.of(
+        () -> new GroupAggregator(bBounds, dictionaries),
+        (table, item) -> table.accept(key.applyAsLong(item), fieldB.applyAsInt(item),
+            fieldG.applyAsDouble(item)),
+        GroupAggregator::merge,
+        Collector.Characteristics.UNORDERED,
+        Collector.Characteristics.IDENTITY_FINISH);
+  }
+
+  /**
+   * Adds one record to its group.
+   *
+   * @param key the key of the group
+   * @param b the value of field B
+   * @param g the value of field G
+   */
+  public void accept(long key, int b, double g) {
+    int slot = slotOf(key);
+    counts[slot]++;
+    sums[slot] += g;
+    mins[slot] = Math.min(mins[slot], g);
+    maxs[slot] = Math.max(maxs[slot], g);
+    if (ranges > 0 && b >= bBounds[0] && b < bBounds[ranges]) {
+      int range = Arrays.binarySearch(bBounds, b);
+      range = range >= 0 ? range : -range - 2;
+      rangeCounts[slot * ranges + range]++;
+    }
+  }
+
+  /**
+   * Adds the groups of another table with the same key parts and ranges to this one.
+   *
+   * @param other the other table
+   * @return this table
+   */
+  public GroupAggregator merge(GroupAggregator other) {
+    if (other.ranges != ranges || !Arrays.equals(other.bBounds, bBounds)) {
+      throw new IllegalArgumentException("The tables have different ranges of B");
+    }
+    for (int from = 0; from < other.keys.length; from++) {
+      if (other.keys[from] == EMPTY) {
+        continue;
+      }
+      int slot = slotOf(other.keys[from]);
+      counts[slot] += other.counts[from];
+      sums[slot] += other.sums[from];
+      mins[slot] = Math.min(mins[slot], other.mins[from]);
+      maxs[slot] = Math.max(maxs[slot], other.maxs[from]);
+      for (int range = 0; range < ranges; range++) {
+        rangeCounts[slot * ranges + range] += other.rangeCounts[from * ranges + range];
+      }
+    }
+    return this;
+  }
+
+  /**
+   * Returns the number of groups.
+   *
+   * @return the number of groups
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns the groups, sorted by their codes.
+   *
+   * @return a snapshot of the groups
+   */
+  public List<Group> groups() {
+    List<Group> groups = new ArrayList<>(size);
+    for (int slot = 0; slot < keys.length; slot++) {
+      if (keys[slot] != EMPTY) {
+        groups.add(new Group(keys[slot], counts[slot], sums[slot], mins[slot], maxs[slot],
+            Arrays.copyOfRange(rangeCounts, slot * ranges, (slot + 1) * ranges)));
+      }
+    }
+    groups.sort((a, b) -> Long.compare(reverse(a.key), reverse(b.key)));
+    return Collections.unmodifiableList(groups);
+  }
+
+  /** Orders keys by the first code, then the second, and so on. */
+  private long reverse(long key) {
+    long ordered = 0;
+    for (int part = 0; part < dictionaries.length; part++) {
+      ordered = ordered << 8 | (key >>> (8 * part) & 0xFF);
+    }
+    return ordered;
+  }
+
+  /** Finds the slot of the key, adding an empty group if it is new. */
+  private int slotOf(long key) {
+    int mask = keys.length - 1;
+    int slot = hash(key) & mask;
+    while (true) {
+      long current = keys[slot];
+      if (current == key) {
+        return slot;
+      }
+      if (current == EMPTY) {
+        if (2 * (size + 1) > keys.length) {
+          grow();
+          return slotOf(key);
+        }
+        keys[slot] = key;
+        mins[slot] = Double.POSITIVE_INFINITY;
+        maxs[slot] = Double.NEGATIVE_INFINITY;
+        size++;
+        return slot;
+      }
+      slot = (slot + 1) & mask;
+    }
+  }
+
+  private static int hash(long key) {
+    long h = key * 0x9E3779B97F4A7C15L;
+    return (int) (h ^ h >>> 32);
+  }
+
+  private void grow() {
+    long[] oldKeys = keys;
+    long[] oldCounts = counts;
+    double[] oldSums = sums;
+    double[] oldMins = mins;
+    double[] oldMaxs = maxs;
+    long[] oldRangeCounts = rangeCounts;
+    allocate(oldKeys.length * 2);
+    for (int from = 0; from < oldKeys.length; from++) {
+      if (oldKeys[from] == EMPTY) {
+        continue;
+      }
+      int slot = hash(oldKeys[from]) & (keys.length - 1);
+      while (keys[slot] != EMPTY) {
+        slot = (slot + 1) & (keys.length - 1);
+      }
+      keys[slot] = oldKeys[from];
+      counts[slot] = oldCounts[from];
+      sums[slot] = oldSums[from];
+      mins[slot] = oldMins[from];
+      maxs[slot] = oldMaxs[from];
+      System.arraycopy(oldRangeCounts, from * ranges, rangeCounts, slot * ranges, ranges);
+      size++;
+    }
+  }
+
+  private void allocate(int capacity) {
+    keys = new long[capacity];
+    Arrays.fill(keys, EMPTY);
+    counts = new long[capacity];
+    sums = new double[capacity];
+    mins = new double[capacity];
+    maxs = new double[capacity];
+    rangeCounts = new long[capacity * ranges];
+    size = 0;
+  }
+
+  /** One group and its aggregates. */
+  public final class Group {
+
+    private final long key;
+    private final long count;
+    private final double sum;
+    private final double min;
+    private final double max;
+    private final long[] rangeCounts;
+
+    private Group(long key, long count, double sum, double min, double max,
+        long[] rangeCounts) {
+      this.key = key;
+      this.count = count;
+      this.sum = sum;
+      this.min = min;
+      this.max = max;
+      this.rangeCounts = rangeCounts;
+    }
+
+    /**
+     * Returns the code of one part of the key.
+     *
+     * @param part the index of the part
+     * @return the code
+     */
+    public int getCode(int part) {
+      return (int) (key >>> (8 * part) & 0xFF);
+    }
+
+    /**
+     * Returns the values of the parts of the key, joined with {@code " × "}.
+     *
+     * @return the name of the group, e.g. {@code BMW × SUV}
+     */
+    public String getLabel() {
+      StringBuilder label = new StringBuilder();
+      for (int part = 0; part < dictionaries.length; part++) {
+        if (part > 0) {
+          label.append(" × ");
+        }
+        label.append(dictionaries[part].decode(getCode(part)));
+      }
+      return label.toString();
+    }
+
+    /**
+     * Returns the number of records.
+     *
+     * @return the number of records
+     */
+    public long getCount() {
+      return count;
+    }
+
+    /**
+     * Returns the sum of field G.
+     *
+     * @return the sum of field G
+     */
+    public double getSum() {
+      return sum;
+    }
+
+    /**
+     * Returns the minimum of field G.
+     *
+     * @return the minimum of field G
+     */
+    public double getMin() {
+      return min;
+    }
+
+    /**
+     * Returns the maximum of field G.
+     *
+     * @return the maximum of field G
+     */
+    public double getMax() {
+      return max;
+    }
+
+    /**
+     * Returns the mean of field G.
+     *
+     * @return the mean of field G
+     */
+    public double getAverage() {
+      return count == 0 ? 0 : sum / count;
+    }
+
+    /**
+     * Returns the number of records in each range of field B.
+     *
+     * @return the counts, one per range
+     */
+    public long[] getRangeCounts() {
+      return rangeCounts.clone();
+    }
+
+    @Override
+    public String toString() {
+      return String.format(java.util.Locale.ROOT,
+          "%s: Count: %d, Sum: %.2f, Min: %.2f, Max: %.2f, Avg: %.2f, B ranges: %s",
+          getLabel(), count, sum, min, max, getAverage(), Arrays.toString(rangeCounts));
+    }
+  }
+}
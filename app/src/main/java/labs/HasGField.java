@@ -1,3 +1,5 @@
+package labs;
+
 /**
  * An interface that represents an object with a G-field value.
  * Implementing classes must provide a way to retrieve the G-field value.
@@ -0,0 +1,484 @@
+package labs;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collector;
+
+/**
+ * Provides a custom collector that finds the most frequent values of a categorical field
+ * in a stream of any length with bounded memory. Candidates are tracked by a
+ * {@link SpaceSaving} summary of {@code m} counters, which keeps every value whose frequency
+ * exceeds {@code n / m}; a {@link CountMinSketch} beside it tightens the estimated counts.
+ * Both summaries are mergeable, so the collector works on parallel streams.
+ */
+public class HeavyHitterCollector {
+
+  /** The number of counters used when none is given. */
+  public static final int DEFAULT_CAPACITY = 64;
+
+  /**
+   * Returns a Collector that finds the most frequent values with the default number of counters.
+   *
+   * @param key the function to extract the categorical field
+   * @param <T> the type of objects
+   * @return a custom collector for heavy hitters
+   */
+  public static <T> Collector<T, ?, HeavyHitters> getHeavyHitterCollector(
+      Function<? super T, String> key) {
+    return getHeavyHitterCollector(key, DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Returns a Collector that finds the most frequent values.
+   *
+   * @param key the function to extract the categorical field
+   * @param capacity the number of counters of the Space-Saving summary
+   * @param <T> the type of objects
+   * @return a custom collector for heavy hitters
+   */
+  public static <T> Collector<T, ?, HeavyHitters> getHeavyHitterCollector(
+      Function<? super T, String> key, int capacity) {
+    return Collector.of(
+        () -> new HeavyHitters(capacity),                 // Supplier
+        (hitters, item) -> hitters.accept(key.apply(item)), // Accumulator
+        HeavyHitters::merge,                              // Combiner
+        Collector.Characteristics.UNORDERED,
+        Collector.Characteristics.IDENTITY_FINISH
+    );
+  }
+
+  /**
+   * A Space-Saving summary joined with a Count-Min sketch. The estimated count of a value
+   * is the smaller of the two upper bounds; the Space-Saving error gives the lower bound.
+   */
+  public static class HeavyHitters {
+
+    /** The largest number of counters in a row of the Count-Min sketch. */
+    private static final int MAX_SKETCH_WIDTH = 1 << 16;
+
+    /** The number of rows of the Count-Min sketch: the estimate fails with probability e^-4. */
+    private static final int SKETCH_DEPTH = 4;
+
+    private final SpaceSaving counters;
+    private final CountMinSketch sketch;
+
+    /**
+     * Constructs an empty summary.
+     *
+     * @param capacity the number of counters of the Space-Saving summary
+     * @throws IllegalArgumentException if the capacity is not positive
+     */
+    public HeavyHitters(int capacity) {
+      this.counters = new SpaceSaving(capacity);
+      // у 128 разів ширший за кількість лічильників, щоб похибка Count-Min була значно меншою
+      int width = Integer.highestOneBit(
+          Math.min(Math.max(capacity, 8), MAX_SKETCH_WIDTH / 128) * 128);
+      this.sketch = new CountMinSketch(width, SKETCH_DEPTH);
+    }
+
+    /**
+     * Counts one occurrence of a value.
+     *
+     * @param value the value
+     */
+    public void accept(String value) {
+      counters.add(value, 1);
+      sketch.add(value, 1);
+    }
+
+    /**
+     * Adds the counts of another summary with the same capacity to this one.
+     *
+     * @param other the summary of another part of the stream
+     * @return this summary
+     */
+    public HeavyHitters merge(HeavyHitters other) {
+      counters.merge(other.counters);
+      sketch.merge(other.sketch);
+      return this;
+    }
+
+    /**
+     * Returns the number of occurrences counted.
+     *
+     * @return the number of occurrences counted
+     */
+    public long getTotal() {
+      return counters.getTotal();
+    }
+
+    /**
+     * Estimates the number of occurrences of a value, never below the true number.
+     *
+     * @param value the value
+     * @return the estimated count
+     */
+    public long estimate(String value) {
+      return Math.min(counters.estimate(value), sketch.estimate(value));
+    }
+
+    /**
+     * Returns the most frequent values.
+     *
+     * @param n the maximum number of values
+     * @return the values from the most frequent, with their estimated counts
+     */
+    public List<HeavyHitter> getTop(int n) {
+      List<HeavyHitter> top = new ArrayList<>();
+      for (HeavyHitter candidate : counters.getTop(counters.size())) {
+        long count = Math.min(candidate.getCount(), sketch.estimate(candidate.getValue()));
+        top.add(new HeavyHitter(candidate.getValue(), count, candidate.getLowerBound()));
+      }
+      top.sort((a, b) -> Long.compare(b.getCount(), a.getCount()));
+      return top.subList(0, Math.min(n, top.size()));
+    }
+
+    @Override
+    public String toString() {
+      return getTop(10).toString();
+    }
+  }
+
+  /**
+   * The Space-Saving summary of Metwally et al.: {@code m} counters in a min-heap. A tracked
+   * value increments its counter; a new value takes over the smallest counter and inherits
+   * its count as the error. Every value more frequent than {@code n / m} stays tracked,
+   * and a count overestimates the true one by at most its error.
+   */
+  public static class SpaceSaving {
+
+    private final int capacity;
+    private final String[] values;
+    private final long[] counts;
+    private final long[] errors;
+    private final Map<String, Integer> positions = new HashMap<>();
+    private int size;
+    private long total;
+
+    /**
+     * Constructs an empty summary.
+     *
+     * @param capacity the number of counters
+     * @throws IllegalArgumentException if the capacity is not positive
+     */
+    public SpaceSaving(int capacity) {
+      if (capacity <= 0) {
+        throw new IllegalArgumentException("capacity must be positive: " + capacity);
+      }
+      this.capacity = capacity;
+      this.values = new String[capacity];
+      this.counts = new long[capacity];
+      this.errors = new long[capacity];
+    }
+
+    /**
+     * Counts occurrences of a value.
+     *
+     * @param value the value
+     * @param weight the number of occurrences
+     */
+    public void add(String value, long weight) {
+      total += weight;
+      Integer position = positions.get(value);
+      if (position != null) {
+        counts[position] += weight;
+        siftDown(position);
+      } else if (size < capacity) {
+        put(size, value, weight, 0);
+        siftUp(size++);
+      } else {
+        positions.remove(values[0]);
+        put(0, value, counts[0] + weight, counts[0]);
+        siftDown(0);
+      }
+    }
+
+    /**
+     * Adds the counters of another summary to this one, as in the mergeable summaries of
+     * Agarwal et al.: a value missing from one summary gets that summary's smallest count,
+     * and the largest {@code m} of the combined counters stay.
+     *
+     * @param other the summary of another part of the stream
+     * @return this summary
+     * @throws IllegalArgumentException if the capacities differ
+     */
+    public SpaceSaving merge(SpaceSaving other) {
+      if (other.capacity != capacity) {
+        throw new IllegalArgumentException("Cannot merge summaries of " + capacity + " and "
+            + other.capacity + " counters");
+      }
+      long thisMin = size == capacity ? counts[0] : 0;
+      long otherMin = other.size == other.capacity ? other.counts[0] : 0;
+      Map<String, long[]> combined = new HashMap<>();
+      for (int i = 0; i < size; i++) {
+        Integer j = other.positions.get(values[i]);
+        combined.put(values[i], j == null
+            ? new long[] {counts[i] + otherMin, errors[i] + otherMin}
+            : new long[] {counts[i] + other.counts[j], errors[i] + other.errors[j]});
+      }
+      for (int j = 0; j < other.size; j++) {
+        combined.putIfAbsent(other.values[j],
+            new long[] {other.counts[j] + thisMin, other.errors[j] + thisMin});
+      }
+      List<Map.Entry<String, long[]>> entries = new ArrayList<>(combined.entrySet());
+      entries.sort((a, b) -> Long.compare(b.getValue()[0], a.getValue()[0]));
+
+      positions.clear();
+      size = Math.min(capacity, entries.size());
+      for (int i = 0; i < size; i++) {
+        Map.Entry<String, long[]> entry = entries.get(i);
+        put(i, entry.getKey(), entry.getValue()[0], entry.getValue()[1]);
+      }
+      // за спаданням лічильників масив — купа з максимумом у корені, тож будуємо її заново
+      for (int i = size / 2 - 1; i >= 0; i--) {
+        siftDown(i);
+      }
+      total += other.total;
+      return this;
+    }
+
+    /**
+     * Returns the number of occurrences counted.
+     *
+     * @return the number of occurrences counted
+     */
+    public long getTotal() {
+      return total;
+    }
+
+    /**
+     * Returns the number of counters in use.
+     *
+     * @return the number of counters in use
+     */
+    public int size() {
+      return size;
+    }
+
+    /**
+     * Estimates the number of occurrences of a value, never below the true number.
+     *
+     * @param value the value
+     * @return the count of a tracked value, or the smallest count for another one
+     */
+    public long estimate(String value) {
+      Integer position = positions.get(value);
+      if (position != null) {
+        return counts[position];
+      }
+      return size == capacity ? counts[0] : 0;
+    }
+
+    /**
+     * Returns the tracked values with the largest counts.
+     *
+     * @param n the maximum number of values
+     * @return the values from the largest count, with their counts and errors
+     */
+    public List<HeavyHitter> getTop(int n) {
+      Integer[] order = new Integer[size];
+      for (int i = 0; i < size; i++) {
+        order[i] = i;
+      }
+      Arrays.sort(order, (a, b) -> Long.compare(counts[b], counts[a]));
+      List<HeavyHitter> top = new ArrayList<>();
+      for (int i = 0; i < Math.min(n, size); i++) {
+        int j = order[i];
+        top.add(new HeavyHitter(values[j], counts[j], counts[j] - errors[j]));
+      }
+      return top;
+    }
+
+    private void put(int i, String value, long count, long error) {
+      values[i] = value;
+      counts[i] = count;
+      errors[i] = error;
+      positions.put(value, i);
+    }
+
+    private void siftUp(int i) {
+      while (i > 0) {
+        int parent = (i - 1) >>> 1;
+        if (counts[parent] <= counts[i]) {
+          return;
+        }
+        swap(i, parent);
+        i = parent;
+      }
+    }
+
+    private void siftDown(int i) {
+      while (true) {
+        int smallest = i;
+        int left = 2 * i + 1;
+        int right = left + 1;
+        if (left < size && counts[left] < counts[smallest]) {
+          smallest = left;
+        }
+        if (right < size && counts[right] < counts[smallest]) {
+          smallest = right;
+        }
+        if (smallest == i) {
+          return;
+        }
+        swap(i, smallest);
+        i = smallest;
+      }
+    }
+
+    private void swap(int i, int j) {
+      String value = values[i];
+      long count = counts[i];
+      long error = errors[i];
+      put(i, values[j], counts[j], errors[j]);
+      put(j, value, count, error);
+    }
+  }
+
+  /**
+   * The Count-Min sketch of Cormode and Muthukrishnan: {@code d} rows of {@code w} counters,
+   * each value incrementing one counter per row. The smallest of its counters overestimates
+   * the count of a value by at most {@code e n / w} with probability {@code 1 - e^-d}.
+   */
+  public static class CountMinSketch {
+
+    private final int width;
+    private final int depth;
+    private final long[] table;
+    private long total;
+
+    /**
+     * Constructs an empty sketch.
+     *
+     * @param width the number of counters in a row, a power of two
+     * @param depth the number of rows
+     * @throws IllegalArgumentException if the width is not a power of two or the depth
+     *     is not positive
+     */
+    public CountMinSketch(int width, int depth) {
+      if (width <= 0 || Integer.bitCount(width) != 1 || depth <= 0) {
+        throw new IllegalArgumentException("Invalid Count-Min sketch " + width + " × " + depth);
+      }
+      this.width = width;
+      this.depth = depth;
+      this.table = new long[width * depth];
+    }
+
+    /**
+     * Counts occurrences of a value.
+     *
+     * @param value the value
+     * @param weight the number of occurrences
+     */
+    public void add(String value, long weight) {
+      long h1 = mix64(value.hashCode());
+      long h2 = mix64(h1) | 1;
+      for (int row = 0; row < depth; row++) {
+        table[row * width + (int) ((h1 + row * h2) & (width - 1))] += weight;
+      }
+      total += weight;
+    }
+
+    /**
+     * Estimates the number of occurrences of a value, never below the true number.
+     *
+     * @param value the value
+     * @return the estimated count
+     */
+    public long estimate(String value) {
+      long h1 = mix64(value.hashCode());
+      long h2 = mix64(h1) | 1;
+      long estimate = Long.MAX_VALUE;
+      for (int row = 0; row < depth; row++) {
+        estimate = Math.min(estimate, table[row * width + (int) ((h1 + row * h2) & (width - 1))]);
+      }
+      return estimate;
+    }
+
+    /**
+     * Adds the counters of another sketch of the same size to this one.
+     *
+     * @param other the sketch of another part of the stream
+     * @return this sketch
+     * @throws IllegalArgumentException if the sizes differ
+     */
+    public CountMinSketch merge(CountMinSketch other) {
+      if (other.width != width || other.depth != depth) {
+        throw new IllegalArgumentException("Cannot merge Count-Min sketches of different sizes");
+      }
+      for (int i = 0; i < table.length; i++) {
+        table[i] += other.table[i];
+      }
+      total += other.total;
+      return this;
+    }
+
+    /**
+     * Returns the number of occurrences counted.
+     *
+     * @return the number of occurrences counted
+     */
+    public long getTotal() {
+      return total;
+    }
+
+    private static long mix64(long z) {
+      z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+      z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+      return z ^ (z >>> 31);
+    }
+  }
+
+  /** A frequent value with bounds on its count. */
+  public static final class HeavyHitter {
+
+    private final String value;
+    private final long count;
+    private final long lowerBound;
+
+    HeavyHitter(String value, long count, long lowerBound) {
+      this.value = value;
+      this.count = count;
+      this.lowerBound = lowerBound;
+    }
+
+    /**
+     * Returns the value.
+     *
+     * @return the value
+     */
+    public String getValue() {
+      return value;
+    }
+
+    /**
+     * Returns the estimated count.
+     *
+     * @return the estimated count, never below the true one
+     */
+    public long getCount() {
+      return count;
+    }
+
+    /**
+     * Returns the guaranteed count.
+     *
+     * @return the guaranteed count, never above the true one
+     */
+    public long getLowerBound() {
+      return lowerBound;
+    }
+
+    @Override
+    public String toString() {
+      return count == lowerBound
+          ? value + ": " + count
+          : String.format(Locale.ROOT, "%s: %d (≥ %d)", value, count, lowerBound);
+    }
+  }
+}
@@ -0,0 +1,163 @@
+package labs;
+
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Collectors;
+
+/**
+ * The Main class that generates and filters various types of objects based on user input.
+ * It can generate and filter survey participants, clothing items, cars, or mythical creatures.
+ */
+public class Main {
+
+  /**
+   * The main method that serves as the entry point for the program.
+   * Without arguments the parameters are read interactively; with arguments
+   * the program runs in batch mode, see {@link BatchRunner}.
+   *
+   * @param args command line arguments for the batch mode
+   */
+  public static void main(String[] args) {
+    if (args.length > 0) {
+      System.exit(BatchRunner.run(args));
+    }
+
+    Scanner scanner = new Scanner(System.in);
+
+    System.out.print("Введіть номер залікової книжки: ");
+    int studentID = scanner.nextInt();
+
+    int C4 = studentID % 4;
+    System.out.println("C4: " + C4);
+
+    System.out.print("Введіть кількість об'єктів, які потрібно пропустити (N): ");
+    int N = scanner.nextInt();
+
+    System.out.print("Введіть значення для фільтрації за полем A: ");
+    scanner.nextLine();  // очищення буфера
+    String fieldValueToFilter = scanner.nextLine();
+
+    System.out.print("Введіть мінімальне значення для фільтрації за параметром Б: ");
+    double minB = scanner.nextDouble();
+
+    System.out.print("Введіть максимальне значення для фільтрації за параметром Б: ");
+    double maxB = scanner.nextDouble();
+
+    if (C4 < 0 || C4 >= EntityType.values().length) {
+      System.out.println("Неправильний варіант.");
+      return;
+    }
+    EntityType entityType = EntityType.values()[C4];
+    QuerySpec spec = new QuerySpec(entityType, fieldValueToFilter, N, QuerySpec.DEFAULT_LIMIT,
+        minB, maxB, ThreadLocalRandom.current().nextLong());
+
+    System.out.println("\nГенерація і фільтрація " + entityType.getTitle() + ":");
+    // Генеруються лише поля А і Б, повні об'єкти будуються тільки для тих, що пройшли фільтри
+    Query.Result<?> result = entityType.query(spec).exactQuantiles().run();
+
+    printResults(result);
+    if (Metrics.ENABLED) {
+      System.err.print(Metrics.report());
+    }
+  }
+
+  /**
+   * Prints the groups by field V and the analysis of field G of a query result.
+   *
+   * @param result the result of a query with grouping and exact quantiles
+   */
+  static void printResults(Query.Result<?> result) {
+    System.out.println("\nГрупування результатів за Полем В:");
+    result.getGroups().forEach((key, count) -> System.out.println(key + ": " + count));
+
+    // Аналіз за полем Г (оригінальна частина)
+    System.out.println("\nДослідження значень поля Г:");
+    System.out.println(Arrays.toString(result.getSortedGValues()));
+    System.out.println(result.getOutlierSplit());
+  }
+
+  /**
+   * Filters a list based on a specified range for a given parameter B.
+   *
+   * @param list        the list to filter
+   * @param getBField   a function that extracts the parameter B from the list items
+   * @param minB       the minimum value for filtering
+   * @param maxB       the maximum value for filtering
+   * @param <T>        the type of the items in the list
+   * @return a filtered list containing only items within the specified range
+   */
+  static <T> List<T> filterByParameterB(List<T> list, ToDoubleFunction<T> getBField,
+      double minB, double maxB) {
+    return list.stream()
+        .filter(item -> {
+          double bValue = getBField.applyAsDouble(item);
+          return bValue >= minB && bValue <= maxB;
+        })
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Groups the items by a specified field and counts the items in each group.
+   *
+   * @param list        the list to group
+   * @param getVField   a function that extracts the field V from the list items
+   * @param <T>        the type of the items in the list
+   * @return a map from each value of field V to the number of items with that value
+   */
+  static <T> Map<String, Long> groupByFieldV(List<T> list, Function<T, String> getVField) {
+    return list.stream()
+        .collect(Collectors.groupingBy(getVField, Collectors.counting()));
+  }
+
+  /**
+   * Calculates the specified percentile from a sorted list of values.
+   *
+   * @param sortedValues a sorted list of double values
+   * @param percentile   the desired percentile to calculate (e.g., 25 for Q1)
+   * @return the calculated percentile value
+   */
+  static double getPercentile(List<Double> sortedValues, double percentile) {
+    int index = (int) Math.ceil(percentile / 100.0 * sortedValues.size()) - 1;
+    return sortedValues.get(index);
+  }
+
+  /**
+   * Calculates the specified percentile from a sorted array of values.
+   *
+   * @param sortedValues a sorted array of double values
+   * @param percentile   the desired percentile to calculate (e.g., 25 for Q1)
+   * @return the calculated percentile value
+   */
+  static double getPercentile(double[] sortedValues, double percentile) {
+    int index = (int) Math.ceil(percentile / 100.0 * sortedValues.length) - 1;
+    return sortedValues[index];
+  }
+
+  /**
+   * Splits sorted values into regular values and outliers outside of
+   * {@code [Q1 - 1.5 IQR, Q3 + 1.5 IQR]}.
+   *
+   * @param sortedValues a sorted array of double values
+   * @return the number of {@code "data"} and {@code "outliers"} values, empty for no values
+   */
+  static Map<String, Long> splitOutliers(double[] sortedValues) {
+    Map<String, Long> groupedData = new HashMap<>();
+    if (sortedValues.length == 0) {
+      return groupedData;
+    }
+    double Q1 = getPercentile(sortedValues, 25);
+    double Q3 = getPercentile(sortedValues, 75);
+    double IQR = Q3 - Q1;
+
+    double lowerBound = Q1 - 1.5 * IQR;
+    double upperBound = Q3 + 1.5 * IQR;
+
+    for (double value : sortedValues) {
+      String group = (value < lowerBound || value > upperBound) ? "outliers" : "data";
+      groupedData.merge(group, 1L, Long::sum);
+    }
+    return groupedData;
+  }
+}
@@ -0,0 +1,461 @@
+package labs;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * The in-process registry of the counters and stage latencies of the pipeline: how many
+ * objects were examined, matched, skipped and accepted, and how long each stage of the
+ * analysis took. The registry is also published as JMX MBeans under the domain {@code labs},
+ * and every timed stage is recorded as a {@code labs.Stage} JFR event.
+ *
+ * <p>Metrics are switched on with {@code -Dlabs.metrics=true}. The switch is a constant,
+ * so when it is off the JIT removes the instrumentation: counters do nothing, and timing
+ * a stage returns a shared no-op span.
+ */
+public final class Metrics {
+
+  /** Whether metrics are collected; read once at startup from {@code labs.metrics}. */
+  public static final boolean ENABLED = Boolean.getBoolean("labs.metrics");
+
+  /** The domain of the JMX names. */
+  private static final String DOMAIN = "labs";
+
+  private static final Map<String, Counter> COUNTERS = new ConcurrentHashMap<>();
+  private static final Map<String, Stage> STAGES = new ConcurrentHashMap<>();
+
+  /** The span returned when metrics are off. */
+  private static final Span NO_SPAN = new Span(null);
+
+  static {
+    if (ENABLED) {
+      register(DOMAIN + ":type=Counters", new CountersBean());
+    }
+  }
+
+  private Metrics() {
+  }
+
+  /**
+   * Returns the counter with the given name, creating it on first use.
+   *
+   * @param name the name of the counter, e.g. {@code gatherer.examined}
+   * @return the counter
+   */
+  public static Counter counter(String name) {
+    return COUNTERS.computeIfAbsent(name, Counter::new);
+  }
+
+  /**
+   * Returns the stage with the given name, creating it on first use.
+   *
+   * @param name the name of the stage, e.g. {@code gather}
+   * @return the stage
+   */
+  public static Stage stage(String name) {
+    return STAGES.computeIfAbsent(name, key -> {
+      Stage stage = new Stage(key);
+      if (ENABLED) {
+        register(DOMAIN + ":type=Stage,name=" + ObjectName.quote(key), stage);
+      }
+      return stage;
+    });
+  }
+
+  /**
+   * Returns the current values of all counters.
+   *
+   * @return the values by counter name, sorted by name
+   */
+  public static Map<String, Long> counters() {
+    Map<String, Long> values = new TreeMap<>();
+    COUNTERS.forEach((name, counter) -> values.put(name, counter.get()));
+    return values;
+  }
+
+  /**
+   * Returns all stages.
+   *
+   * @return the stages by name, sorted by name
+   */
+  public static Map<String, Stage> stages() {
+    return Collections.unmodifiableMap(new TreeMap<>(STAGES));
+  }
+
+  /**
+   * Resets all counters and stages.
+   */
+  public static void reset() {
+    COUNTERS.values().forEach(Counter::reset);
+    STAGES.values().forEach(Stage::reset);
+  }
+
+  /**
+   * Describes all counters and the stages that ran, one per line.
+   *
+   * @return a text report of the metrics
+   */
+  public static String report() {
+    StringBuilder report = new StringBuilder();
+    counters().forEach((name, value) ->
+        report.append(name).append(": ").append(value).append('\n'));
+    for (Stage stage : stages().values()) {
+      if (stage.getCount() > 0) {
+        report.append(stage).append('\n');
+      }
+    }
+    return report.toString();
+  }
+
+  private static void register(String name, Object bean) {
+    try {
+      ManagementFactory.getPlatformMBeanServer().registerMBean(bean, new ObjectName(name));
+    } catch (JMException e) {
+      // метрики доступні й без JMX, наприклад якщо ім'я вже зареєстроване
+    }
+  }
+
+  /** A monotonic counter backed by a {@link LongAdder}. */
+  public static final class Counter {
+
+    private final String name;
+    private final LongAdder adder = new LongAdder();
+
+    private Counter(String name) {
+      this.name = name;
+    }
+
+    /**
+     * Adds to the counter, if metrics are on.
+     *
+     * @param delta the amount to add
+     */
+    public void add(long delta) {
+      if (ENABLED) {
+        adder.add(delta);
+      }
+    }
+
+    /**
+     * Adds one to the counter, if metrics are on.
+     */
+    public void increment() {
+      if (ENABLED) {
+        adder.increment();
+      }
+    }
+
+    /**
+     * Returns the current value.
+     *
+     * @return the sum of all additions since the last reset
+     */
+    public long get() {
+      return adder.sum();
+    }
+
+    private void reset() {
+      adder.reset();
+    }
+
+    @Override
+    public String toString() {
+      return name + ": " + get();
+    }
+  }
+
+  /** The attributes of a stage in JMX. */
+  public interface StageMXBean {
+
+    /**
+     * Returns the number of timed runs of the stage.
+     *
+     * @return the number of timed runs of the stage
+     */
+    long getCount();
+
+    /**
+     * Returns the number of items processed by all runs.
+     *
+     * @return the number of items processed by all runs
+     */
+    long getItems();
+
+    /**
+     * Returns the total time of all runs.
+     *
+     * @return the total time of all runs, in milliseconds
+     */
+    double getTotalMillis();
+
+    /**
+     * Returns the mean time of a run.
+     *
+     * @return the mean time of a run, in microseconds
+     */
+    double getMeanMicros();
+
+    /**
+     * Returns the median time of a run.
+     *
+     * @return the median time of a run, in microseconds, with a factor of 2 of precision
+     */
+    double getP50Micros();
+
+    /**
+     * Returns the 99th percentile of the time of a run.
+     *
+     * @return the 99th percentile of the time of a run, in microseconds
+     */
+    double getP99Micros();
+
+    /**
+     * Returns the longest run.
+     *
+     * @return the longest run, in microseconds
+     */
+    double getMaxMicros();
+  }
+
+  /** The counters in JMX. */
+  public interface CountersMXBean {
+
+    /**
+     * Returns the values by counter name.
+     *
+     * @return the values by counter name
+     */
+    Map<String, Long> getCounters();
+
+    /** Resets all counters and stages. */
+    void reset();
+  }
+
+  private static final class CountersBean implements CountersMXBean {
+
+    @Override
+    public Map<String, Long> getCounters() {
+      return counters();
+    }
+
+    @Override
+    public void reset() {
+      Metrics.reset();
+    }
+  }
+
+  /**
+   * A stage of the pipeline with a histogram of its latencies. The histogram has one bucket
+   * per power of two of nanoseconds, so percentiles are exact to a factor of two.
+   */
+  public static final class Stage implements StageMXBean {
+
+    private static final int BUCKETS = 64;
+
+    private final String name;
+    private final LongAdder count = new LongAdder();
+    private final LongAdder items = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+
+    private Stage(String name) {
+      this.name = name;
+      for (int i = 0; i < BUCKETS; i++) {
+        buckets[i] = new LongAdder();
+      }
+    }
+
+    /**
+     * Starts timing a run of the stage; close the span when the run ends.
+     *
+     * @return the span of the run, or a no-op span if metrics are off
+     */
+    public Span start() {
+      return ENABLED ? new Span(this) : NO_SPAN;
+    }
+
+    /**
+     * Records a run of the stage, if metrics are on.
+     *
+     * @param nanos the time of the run
+     * @param processed the number of items processed by the run
+     */
+    public void record(long nanos, long processed) {
+      if (!ENABLED) {
+        return;
+      }
+      count.increment();
+      items.add(processed);
+      totalNanos.add(nanos);
+      maxNanos.accumulate(nanos);
+      buckets[BUCKETS - 1 - Long.numberOfLeadingZeros(Math.max(nanos, 1))].increment();
+    }
+
+    /**
+     * Returns the name of the stage.
+     *
+     * @return the name
+     */
+    public String getName() {
+      return name;
+    }
+
+    @Override
+    public long getCount() {
+      return count.sum();
+    }
+
+    @Override
+    public long getItems() {
+      return items.sum();
+    }
+
+    @Override
+    public double getTotalMillis() {
+      return totalNanos.sum() / 1e6;
+    }
+
+    @Override
+    public double getMeanMicros() {
+      long runs = getCount();
+      return runs == 0 ? 0 : totalNanos.sum() / 1e3 / runs;
+    }
+
+    @Override
+    public double getP50Micros() {
+      return getPercentileMicros(50);
+    }
+
+    @Override
+    public double getP99Micros() {
+      return getPercentileMicros(99);
+    }
+
+    @Override
+    public double getMaxMicros() {
+      return maxNanos.get() / 1e3;
+    }
+
+    /**
+     * Returns the upper bound of the bucket that holds the given percentile of the latencies.
+     *
+     * @param percentile the desired percentile (e.g., 99)
+     * @return the percentile of the latencies in microseconds, or 0 if there were no runs
+     */
+    public double getPercentileMicros(double percentile) {
+      long[] counts = new long[BUCKETS];
+      long total = 0;
+      for (int i = 0; i < BUCKETS; i++) {
+        counts[i] = buckets[i].sum();
+        total += counts[i];
+      }
+      long rank = (long) Math.ceil(percentile / 100.0 * total);
+      long seen = 0;
+      for (int i = 0; i < BUCKETS; i++) {
+        seen += counts[i];
+        if (seen >= rank && counts[i] > 0) {
+          return Math.min(Math.pow(2, i + 1), maxNanos.get()) / 1e3;
+        }
+      }
+      return 0;
+    }
+
+    private void reset() {
+      count.reset();
+      items.reset();
+      totalNanos.reset();
+      maxNanos.reset();
+      for (LongAdder bucket : buckets) {
+        bucket.reset();
+      }
+    }
+
+    @Override
+    public String toString() {
+      return String.format(Locale.ROOT,
+          "%s: runs %d, items %d, total %.2f ms, mean %.1f us, p50 %.1f us, p99 %.1f us,"
+              + " max %.1f us",
+          name, getCount(), getItems(), getTotalMillis(), getMeanMicros(), getP50Micros(),
+          getP99Micros(), getMaxMicros());
+    }
+  }
+
+  /** One timed run of a stage, also recorded as a JFR event. */
+  public static final class Span implements AutoCloseable {
+
+    private final Stage stage;
+    private final StageEvent event;
+    private final long start;
+    private long items;
+
+    private Span(Stage stage) {
+      this.stage = stage;
+      if (stage == null) {
+        this.event = null;
+        this.start = 0;
+      } else {
+        this.event = new StageEvent();
+        event.begin();
+        this.start = System.nanoTime();
+      }
+    }
+
+    /**
+     * Sets the number of items processed by the run.
+     *
+     * @param processed the number of items
+     * @return this span
+     */
+    public Span items(long processed) {
+      if (stage != null) {
+        this.items = processed;
+      }
+      return this;
+    }
+
+    /**
+     * Ends the run and records it.
+     */
+    @Override
+    public void close() {
+      if (stage == null) {
+        return;
+      }
+      stage.record(System.nanoTime() - start, items);
+      event.end();
+      if (event.shouldCommit()) {
+        event.stage = stage.getName();
+        event.items = items;
+        event.commit();
+      }
+    }
+  }
+
+  /** The JFR event of one run of a stage. */
+  @Name("labs.Stage")
+  @Label("Pipeline Stage")
+  @Category("Labs")
+  @Description("One run of a stage of the gather and analysis pipeline")
+  static class StageEvent extends Event {
+
+    @Label("Stage")
+    String stage;
+
+    @Label("Items")
+    long items;
+  }
+}
@@ -1,4 +1,7 @@
-import java.util.Random;
+package labs;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
 
 /**
  * Represents a mythical creature with attributes such as type, age, and attack power.
@@ -6,7 +9,14 @@ import java.util.Random;
  */
 class MythicalCreature implements HasGField {
 
+  /** The species a random creature can belong to. */
+  static final String[] SPECIES = {"Dragon", "Unicorn", "Phoenix", "Goblin", "Griffin"};
+
+  /** Codes of the types of random creatures, by index; other types are not added (-1). */
+  static final CategoryDictionary TYPE_DICTIONARY = new CategoryDictionary(SPECIES);
+
   private String type; // The type of the mythical creature
+  private int typeCode; // The code of the type in TYPE_DICTIONARY, or -1
   private int yearsSinceFirstAppearance; // The number of years since the creature first appeared
   private double attackPower; // The attack power of the creature
 
@@ -18,7 +28,20 @@ class MythicalCreature implements HasGField {
    * @param attackPower              the attack power of the creature
    */
   public MythicalCreature(String type, int yearsSinceFirstAppearance, double attackPower) {
+    this(type, TYPE_DICTIONARY.codeOf(type), yearsSinceFirstAppearance, attackPower);
+  }
+
+  /**
+   * Constructs a MythicalCreature whose type code is already known.
+   *
+   * @param type                     the type of the creature
+   * @param typeCode                 the code of the type in {@link #TYPE_DICTIONARY}, or -1
+   * @param yearsSinceFirstAppearance the number of years since the creature's first appearance
+   * @param attackPower              the attack power of the creature
+   */
+  MythicalCreature(String type, int typeCode, int yearsSinceFirstAppearance, double attackPower) {
     this.type = type;
+    this.typeCode = typeCode;
     this.yearsSinceFirstAppearance = yearsSinceFirstAppearance;
     this.attackPower = attackPower;
   }
@@ -56,6 +79,15 @@ class MythicalCreature implements HasGField {
     return type;
   }
 
+  /**
+   * Returns the code of the type in {@link #TYPE_DICTIONARY}.
+   *
+   * @return the code of the type, or -1 for a type outside the dictionary
+   */
+  public int getTypeCode() {
+    return typeCode;
+  }
+
   /**
    * Returns the number of years since the mythical creature's first appearance.
    *
@@ -71,15 +103,32 @@ class MythicalCreature implements HasGField {
    * @return a randomly generated MythicalCreature
    */
   public static MythicalCreature generateRandomCreature() {
-    Random random = new Random();
-    String[] speciesArray = {"Dragon", "Unicorn", "Phoenix", "Goblin", "Griffin"};
-    String[] rarities = {"Common", "Rare", "Legendary"};
+    return generateRandomCreature(ThreadLocalRandom.current());
+  }
 
-    String species = speciesArray[random.nextInt(speciesArray.length)];
+  /**
+   * Generates a random mythical creature drawing all values from the given generator.
+   *
+   * @param random the source of random values
+   * @return a randomly generated MythicalCreature
+   */
+  public static MythicalCreature generateRandomCreature(RandomGenerator random) {
+    int typeCode = random.nextInt(SPECIES.length);
     int age = random.nextInt(1000); // Age up to 1000 years
-    String rarity = rarities[random.nextInt(rarities.length)];
     double strength = random.nextDouble() * 10000; // Strength up to 10k
 
-    return new MythicalCreature(species, age, strength);
+    return new MythicalCreature(SPECIES[typeCode], typeCode, age, strength);
+  }
+
+  /**
+   * Draws only the type and age of a random creature, which are
+   * the first values {@link #generateRandomCreature(RandomGenerator)} draws.
+   *
+   * @param random the source of random values
+   * @param keys receives the code of the type and the years since first appearance
+   */
+  static void drawKeys(RandomGenerator random, EntityGenerator.Keys keys) {
+    keys.aCode = random.nextInt(SPECIES.length);
+    keys.b = random.nextInt(1000);
   }
 }
@@ -0,0 +1,36 @@
+package labs;
+
+/**
+ * Columns of {@link MythicalCreature} records. A creature has no extra categorical field, so
+ * the batch keeps only the type (fields A and V), the years since the first appearance
+ * (field B) and the attack power (field G).
+ */
+class MythicalCreatureBatch extends EntityBatch<MythicalCreature> {
+
+  /**
+   * Constructs an empty batch with the default capacity.
+   */
+  public MythicalCreatureBatch() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Constructs an empty batch.
+   *
+   * @param capacity the number of records to allocate space for
+   */
+  public MythicalCreatureBatch(int capacity) {
+    super(capacity, new CategoryDictionary(MythicalCreature.SPECIES), null);
+  }
+
+  @Override
+  public void add(MythicalCreature item) {
+    append(item.getType(), item.getTypeCode(), item.getYearsSinceFirstAppearance(), null,
+        item.getGField());
+  }
+
+  @Override
+  public MythicalCreature get(int row) {
+    return new MythicalCreature(getA(row), getEntityCode(row), getB(row), getG(row));
+  }
+}
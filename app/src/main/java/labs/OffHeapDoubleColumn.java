@@ -0,0 +1,397 @@
+package labs;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * A column of doubles stored outside of the heap, so that billions of G values can be
+ * collected, sorted and analyzed with a small heap and without long GC pauses. The values
+ * live in chunks of {@value #CHUNK_SIZE} values each, allocated as the column grows from an
+ * arena that the column owns; the heap holds only the table of chunks.
+ *
+ * <p>If the JVM is started with the Foreign Memory API,
+ *
+ * <pre>
+ * java --add-modules jdk.incubator.foreign -jar app/target/app-1.0.jar ...
+ * </pre>
+ *
+ * <p>the chunks are native segments of one resource scope, and {@link #close()} frees all of
+ * them at once, whatever the state of the heap. Otherwise, or with
+ * {@code -Dlabs.foreign=false}, they are direct buffers, which {@link #close()} only drops:
+ * their memory comes back when the garbage collector finds them unreachable.
+ *
+ * <p>Both kinds of memory are limited by {@code -XX:MaxDirectMemorySize}, which defaults to
+ * the maximum heap size; raise it to collect more values than fit in the heap.
+ * The column is not thread-safe, and must not be used after it is closed.
+ */
+public final class OffHeapDoubleColumn implements AutoCloseable {
+
+  private static final int CHUNK_SHIFT = 17;
+
+  /** The number of values in one chunk: 1 MiB of memory. */
+  static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+
+  private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+  /** Below this length a range is sorted by insertion. */
+  private static final int INSERTION_SORT_THRESHOLD = 32;
+
+  /** The arenas of direct buffers, always available. */
+  static final Supplier<Arena> DIRECT = DirectArena::new;
+
+  /** The arenas in use: the foreign ones if the module is present, else the direct ones. */
+  private static final Supplier<Arena> ARENAS = load();
+
+  private final Arena arena;
+  private DoubleBuffer[] chunks = new DoubleBuffer[4];
+  private int chunkCount;
+  private long size;
+  private boolean sorted = true;
+  private boolean closed;
+
+  /**
+   * Creates an empty column in an arena of the kind in use.
+   */
+  public OffHeapDoubleColumn() {
+    this(ARENAS);
+  }
+
+  OffHeapDoubleColumn(Supplier<Arena> arenas) {
+    arena = arenas.get();
+  }
+
+  /**
+   * Tells whether the columns free their memory on {@link #close()}, through the Foreign
+   * Memory API.
+   *
+   * @return {@code true} if the foreign arenas are in use
+   */
+  public static boolean isForeign() {
+    return ARENAS != DIRECT;
+  }
+
+  /**
+   * Returns the number of values.
+   *
+   * @return the number of values
+   */
+  public long size() {
+    return size;
+  }
+
+  /**
+   * Appends a value.
+   *
+   * @param value the value to append
+   */
+  public void append(double value) {
+    ensureOpen();
+    int chunk = (int) (size >>> CHUNK_SHIFT);
+    if (chunk == chunkCount) {
+      addChunk();
+    }
+    if (sorted && size > 0 && get(size - 1) > value) {
+      sorted = false;
+    }
+    chunks[chunk].put((int) (size & CHUNK_MASK), value);
+    size++;
+  }
+
+  /**
+   * Returns the value at the index.
+   *
+   * @param index the index of the value
+   * @return the value
+   */
+  public double get(long index) {
+    return chunks[(int) (index >>> CHUNK_SHIFT)].get((int) (index & CHUNK_MASK));
+  }
+
+  private void set(long index, double value) {
+    chunks[(int) (index >>> CHUNK_SHIFT)].put((int) (index & CHUNK_MASK), value);
+  }
+
+  /**
+   * Sorts the values in place, in ascending order; does nothing if they already are.
+   */
+  public void sort() {
+    ensureOpen();
+    if (sorted) {
+      return;
+    }
+    introSort(0, size - 1, 2 * (64 - Long.numberOfLeadingZeros(size)));
+    sorted = true;
+  }
+
+  /**
+   * Returns the specified percentile of the values, with the rule of
+   * {@link Main#getPercentile(double[], double)}. Sorts the values first if needed.
+   *
+   * @param percentile the desired percentile (e.g., 25 for Q1)
+   * @return the percentile value
+   * @throws IllegalStateException if the column is empty
+   */
+  public double getPercentile(double percentile) {
+    if (size == 0) {
+      throw new IllegalStateException("The column is empty");
+    }
+    sort();
+    long index = (long) Math.ceil(percentile / 100.0 * size) - 1;
+    return get(Math.min(Math.max(index, 0), size - 1));
+  }
+
+  /**
+   * Splits the values into regular values and outliers outside of
+   * {@code [Q1 - 1.5 IQR, Q3 + 1.5 IQR]}, like {@link Main#splitOutliers}.
+   * The outliers are counted by binary search in the sorted values.
+   *
+   * @return the number of {@code "data"} and {@code "outliers"} values, empty for no values
+   */
+  public Map<String, Long> splitOutliers() {
+    Map<String, Long> groupedData = new HashMap<>();
+    if (size == 0) {
+      return groupedData;
+    }
+    double q1 = getPercentile(25);
+    double q3 = getPercentile(75);
+    double iqr = q3 - q1;
+    long below = countBelow(q1 - 1.5 * iqr);
+    long above = size - countAtMost(q3 + 1.5 * iqr);
+    if (size - below - above > 0) {
+      groupedData.put("data", size - below - above);
+    }
+    if (below + above > 0) {
+      groupedData.put("outliers", below + above);
+    }
+    return groupedData;
+  }
+
+  /**
+   * Counts the values less than the bound. Sorts the values first if needed.
+   *
+   * @param bound the bound
+   * @return the number of values less than the bound
+   */
+  public long countBelow(double bound) {
+    sort();
+    long low = 0;
+    long high = size;
+    while (low < high) {
+      long mid = (low + high) >>> 1;
+      if (get(mid) < bound) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  private long countAtMost(double bound) {
+    long low = 0;
+    long high = size;
+    while (low < high) {
+      long mid = (low + high) >>> 1;
+      if (get(mid) <= bound) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Collects the statistics of the values.
+   *
+   * @return the statistical data of the values
+   */
+  public StatisticsCollector.StatisticsData statistics() {
+    StatisticsCollector.StatisticsData data = new StatisticsCollector.StatisticsData();
+    for (int chunk = 0; chunk < chunkCount; chunk++) {
+      int length = (int) Math.min(CHUNK_SIZE, size - ((long) chunk << CHUNK_SHIFT));
+      DoubleBuffer values = chunks[chunk];
+      for (int i = 0; i < length; i++) {
+        data.accept(values.get(i));
+      }
+    }
+    return data;
+  }
+
+  /**
+   * Frees the memory of the column, at once in a foreign arena.
+   */
+  @Override
+  public void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    for (int i = 0; i < chunkCount; i++) {
+      chunks[i] = null;
+    }
+    chunkCount = 0;
+    size = 0;
+    arena.close();
+  }
+
+  private void addChunk() {
+    if (chunkCount == chunks.length) {
+      chunks = Arrays.copyOf(chunks, chunkCount * 2);
+    }
+    chunks[chunkCount] = arena.allocate(CHUNK_SIZE);
+    chunkCount++;
+  }
+
+  private void ensureOpen() {
+    if (closed) {
+      throw new IllegalStateException("The column is closed");
+    }
+  }
+
+  /**
+   * Sorts the range from {@code low} to {@code high} inclusive: quicksort with the median
+   * of three as the pivot, insertion sort for short ranges, and heapsort when the
+   * recursion gets too deep. Works on the chunks directly, without copying to the heap.
+   */
+  private void introSort(long low, long high, int depth) {
+    while (high - low >= INSERTION_SORT_THRESHOLD) {
+      if (depth-- == 0) {
+        heapSort(low, high);
+        return;
+      }
+      long mid = (low + high) >>> 1;
+      if (Double.compare(get(mid), get(low)) < 0) {
+        swap(mid, low);
+      }
+      if (Double.compare(get(high), get(low)) < 0) {
+        swap(high, low);
+      }
+      if (Double.compare(get(high), get(mid)) < 0) {
+        swap(high, mid);
+      }
+      double pivot = get(mid);
+      long i = low;
+      long j = high;
+      while (i <= j) {
+        while (Double.compare(get(i), pivot) < 0) {
+          i++;
+        }
+        while (Double.compare(get(j), pivot) > 0) {
+          j--;
+        }
+        if (i <= j) {
+          swap(i++, j--);
+        }
+      }
+      // рекурсія лише для меншої частини, щоб глибина стеку була логарифмічною
+      if (j - low < high - i) {
+        introSort(low, j, depth);
+        low = i;
+      } else {
+        introSort(i, high, depth);
+        high = j;
+      }
+    }
+    insertionSort(low, high);
+  }
+
+  private void insertionSort(long low, long high) {
+    for (long i = low + 1; i <= high; i++) {
+      double value = get(i);
+      long j = i - 1;
+      while (j >= low && Double.compare(get(j), value) > 0) {
+        set(j + 1, get(j));
+        j--;
+      }
+      set(j + 1, value);
+    }
+  }
+
+  private void heapSort(long low, long high) {
+    long n = high - low + 1;
+    for (long i = n / 2 - 1; i >= 0; i--) {
+      siftDown(low, i, n);
+    }
+    for (long end = n - 1; end > 0; end--) {
+      swap(low, low + end);
+      siftDown(low, 0, end);
+    }
+  }
+
+  private void siftDown(long base, long node, long n) {
+    while (true) {
+      long child = 2 * node + 1;
+      if (child >= n) {
+        return;
+      }
+      if (child + 1 < n && Double.compare(get(base + child + 1), get(base + child)) > 0) {
+        child++;
+      }
+      if (Double.compare(get(base + node), get(base + child)) >= 0) {
+        return;
+      }
+      swap(base + node, base + child);
+      node = child;
+    }
+  }
+
+  private void swap(long a, long b) {
+    double value = get(a);
+    set(a, get(b));
+    set(b, value);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Supplier<Arena> load() {
+    if (!Boolean.parseBoolean(System.getProperty("labs.foreign", "true"))
+        || ModuleLayer.boot().findModule("jdk.incubator.foreign").isEmpty()) {
+      return DIRECT;
+    }
+    try {
+      return (Supplier<Arena>) Class.forName("labs.ForeignArena$Factory")
+          .getDeclaredConstructor().newInstance();
+    } catch (ReflectiveOperationException | LinkageError e) {
+      // модуль є, але клас не завантажився: лишаються прямі буфери
+      return DIRECT;
+    }
+  }
+
+  /** The memory of the chunks of one column, freed all at once. */
+  interface Arena {
+
+    /**
+     * Allocates a chunk.
+     *
+     * @param values the number of values of the chunk
+     * @return a buffer of zeros, in the native byte order
+     */
+    DoubleBuffer allocate(int values);
+
+    /**
+     * Frees or releases all the chunks allocated by the arena.
+     */
+    void close();
+  }
+
+  /** Chunks in direct buffers, freed by the garbage collector. */
+  private static final class DirectArena implements Arena {
+
+    @Override
+    public DoubleBuffer allocate(int values) {
+      return ByteBuffer.allocateDirect(values * Double.BYTES)
+          .order(ByteOrder.nativeOrder())
+          .asDoubleBuffer();
+    }
+
+    @Override
+    public void close() {
+      // буфери звільнить збирач сміття, коли на них не лишиться посилань
+    }
+  }
+}
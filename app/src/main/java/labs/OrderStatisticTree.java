@@ -0,0 +1,223 @@
+package labs;
+
+import java.util.Arrays;
+
+/**
+ * A multiset of doubles that finds the {@code k}-th smallest value in {@code O(log n)}:
+ * a treap whose nodes keep the sizes of their subtrees. Equal values are told apart by
+ * a sequence number given on insertion, so one particular occurrence can be removed.
+ * The nodes live in primitive arrays and are reused, so a window of stable size
+ * does not allocate.
+ */
+final class OrderStatisticTree {
+
+  /** The index of the missing node; its size is always 0. */
+  private static final int NIL = 0;
+
+  private double[] keys = new double[16];
+  private long[] sequences = new long[16];
+  private int[] priorities = new int[16];
+  private int[] left = new int[16];
+  private int[] right = new int[16];
+  private int[] sizes = new int[16];
+
+  private int root = NIL;
+
+  /** The first never used node; freed nodes are chained through {@link #left}. */
+  private int unused = 1;
+  private int freeList = NIL;
+
+  /** The results of {@link #split}: the values below the key and the rest. */
+  private int splitLeft;
+  private int splitRight;
+
+  /** The state of the xorshift generator of priorities. */
+  private int seed = 0x2545F491;
+
+  /**
+   * Returns the number of values.
+   *
+   * @return the number of values
+   */
+  int size() {
+    return sizes[root];
+  }
+
+  /**
+   * Removes all values.
+   */
+  void clear() {
+    root = NIL;
+    unused = 1;
+    freeList = NIL;
+  }
+
+  /**
+   * Adds a value.
+   *
+   * @param key the value
+   * @param sequence the number that tells this occurrence apart from equal values
+   */
+  void insert(double key, long sequence) {
+    int node = allocate();
+    keys[node] = key;
+    sequences[node] = sequence;
+    priorities[node] = nextPriority();
+    left[node] = NIL;
+    right[node] = NIL;
+    sizes[node] = 1;
+    root = insert(root, node);
+  }
+
+  /**
+   * Removes one occurrence of a value.
+   *
+   * @param key the value
+   * @param sequence the number given when the occurrence was inserted
+   * @return whether the occurrence was found
+   */
+  boolean remove(double key, long sequence) {
+    int before = size();
+    root = remove(root, key, sequence);
+    return size() < before;
+  }
+
+  /**
+   * Returns the {@code k}-th smallest value.
+   *
+   * @param k the rank, from 0 to {@code size() - 1}
+   * @return the value with the rank
+   * @throws IndexOutOfBoundsException if there is no such rank
+   */
+  double select(int k) {
+    if (k < 0 || k >= size()) {
+      throw new IndexOutOfBoundsException("Rank " + k + " of " + size());
+    }
+    int node = root;
+    while (true) {
+      int leftSize = sizes[left[node]];
+      if (k < leftSize) {
+        node = left[node];
+      } else if (k == leftSize) {
+        return keys[node];
+      } else {
+        k -= leftSize + 1;
+        node = right[node];
+      }
+    }
+  }
+
+  private int insert(int tree, int node) {
+    if (tree == NIL) {
+      return node;
+    }
+    if (priorities[node] > priorities[tree]) {
+      split(tree, keys[node], sequences[node]);
+      left[node] = splitLeft;
+      right[node] = splitRight;
+      update(node);
+      return node;
+    }
+    if (compare(keys[node], sequences[node], tree) < 0) {
+      left[tree] = insert(left[tree], node);
+    } else {
+      right[tree] = insert(right[tree], node);
+    }
+    update(tree);
+    return tree;
+  }
+
+  private int remove(int tree, double key, long sequence) {
+    if (tree == NIL) {
+      return NIL;
+    }
+    int order = compare(key, sequence, tree);
+    if (order == 0) {
+      int merged = merge(left[tree], right[tree]);
+      release(tree);
+      return merged;
+    }
+    if (order < 0) {
+      left[tree] = remove(left[tree], key, sequence);
+    } else {
+      right[tree] = remove(right[tree], key, sequence);
+    }
+    update(tree);
+    return tree;
+  }
+
+  private void split(int tree, double key, long sequence) {
+    if (tree == NIL) {
+      splitLeft = NIL;
+      splitRight = NIL;
+      return;
+    }
+    if (compare(key, sequence, tree) > 0) {
+      split(right[tree], key, sequence);
+      right[tree] = splitLeft;
+      update(tree);
+      splitLeft = tree;
+    } else {
+      split(left[tree], key, sequence);
+      left[tree] = splitRight;
+      update(tree);
+      splitRight = tree;
+    }
+  }
+
+  private int merge(int a, int b) {
+    if (a == NIL) {
+      return b;
+    }
+    if (b == NIL) {
+      return a;
+    }
+    if (priorities[a] > priorities[b]) {
+      right[a] = merge(right[a], b);
+      update(a);
+      return a;
+    }
+    left[b] = merge(a, left[b]);
+    update(b);
+    return b;
+  }
+
+  private int compare(double key, long sequence, int node) {
+    int order = Double.compare(key, keys[node]);
+    return order != 0 ? order : Long.compare(sequence, sequences[node]);
+  }
+
+  private void update(int node) {
+    sizes[node] = sizes[left[node]] + sizes[right[node]] + 1;
+  }
+
+  private int allocate() {
+    if (freeList != NIL) {
+      int node = freeList;
+      freeList = left[node];
+      return node;
+    }
+    if (unused == keys.length) {
+      int capacity = keys.length * 2;
+      keys = Arrays.copyOf(keys, capacity);
+      sequences = Arrays.copyOf(sequences, capacity);
+      priorities = Arrays.copyOf(priorities, capacity);
+      left = Arrays.copyOf(left, capacity);
+      right = Arrays.copyOf(right, capacity);
+      sizes = Arrays.copyOf(sizes, capacity);
+    }
+    return unused++;
+  }
+
+  private void release(int node) {
+    left[node] = freeList;
+    freeList = node;
+  }
+
+  private int nextPriority() {
+    seed ^= seed << 13;
+    seed ^= seed >>> 17;
+    seed ^= seed << 5;
+    return seed;
+  }
+}
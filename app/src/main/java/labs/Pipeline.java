@@ -0,0 +1,284 @@
+package labs;
+
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Generates objects on producer threads while the consumer analyzes the ones already made,
+ * with the steps of {@link EntityGenerator#select}. The producers claim consecutive ranges of
+ * indices, draw only the keys of each object, keep the ones whose field A passes the filter
+ * and whose field B lies in the range, and hand them over as batches. At most
+ * {@code capacity} batches are in flight: a producer waits for a free slot before claiming
+ * the next range, so a slow consumer slows the producers down instead of filling the memory.
+ *
+ * <p>The consumer reads the batches through {@link #stream()} in index order and counts the
+ * matches of field A, which decides what is skipped and where the limit ends. Until the
+ * skipped matches are behind it, the producers hand over only the indices, and the consumer
+ * builds the objects it keeps; after that, the producers build them in parallel. So no object
+ * is built for a skipped match or a rejected value of field B, and the stream holds the same
+ * objects as {@link EntityGenerator#select}. Closing the pipeline, or the stream, stops the
+ * producers; the stream does so itself when the limit is reached.
+ *
+ * @param <T> the type of generated objects
+ */
+public class Pipeline<T> implements AutoCloseable {
+
+  private static final Metrics.Stage PRODUCE = Metrics.stage("pipeline.produce");
+  private static final Metrics.Counter CONSUMER_WAITS = Metrics.counter("pipeline.consumerWaits");
+
+  private final EntityGenerator<T> generator;
+  private final IntPredicate filterA;
+  private final long skipN;
+  private final long limit;
+  private final double minB;
+  private final double maxB;
+  private final int batchSize;
+
+  /** The batches in flight, by sequence number modulo the capacity. */
+  private final Object[] slots;
+
+  /** Free slots; a producer takes one before claiming a range, the consumer returns it. */
+  private final Semaphore freeSlots;
+
+  /** The sequence number of the next range to claim. */
+  private final AtomicLong nextSequence = new AtomicLong();
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition published = lock.newCondition();
+  private final Thread[] producers;
+
+  private volatile boolean cancelled;
+  private volatile Throwable failure;
+
+  /** Set by the consumer once the skipped matches are behind it: producers may build objects. */
+  private volatile boolean skipped;
+
+  /**
+   * Starts the producers.
+   *
+   * @param generator the generator of objects; must support late materialization
+   * @param filterA the test of the code of field A
+   * @param skipN the number of matching objects to skip
+   * @param limit the maximum number of matching objects to consider after the skip
+   * @param minB the minimum value of field B
+   * @param maxB the maximum value of field B
+   * @param producers the number of producer threads
+   * @param batchSize the number of indices in one batch
+   * @param capacity the maximum number of batches in flight
+   */
+  public Pipeline(EntityGenerator<T> generator, IntPredicate filterA, long skipN, long limit,
+      double minB, double maxB, int producers, int batchSize, int capacity) {
+    if (producers <= 0 || batchSize <= 0 || capacity <= 0) {
+      throw new IllegalArgumentException("producers, batchSize and capacity must be positive");
+    }
+    this.generator = generator;
+    this.filterA = filterA;
+    this.skipN = skipN;
+    this.limit = limit;
+    this.minB = minB;
+    this.maxB = maxB;
+    this.skipped = skipN <= 0;
+    this.batchSize = batchSize;
+    this.slots = new Object[capacity];
+    this.freeSlots = new Semaphore(capacity);
+    this.producers = new Thread[producers];
+    for (int i = 0; i < producers; i++) {
+      Thread producer = new Thread(this::produce, "pipeline-producer-" + i);
+      producer.setDaemon(true);
+      this.producers[i] = producer;
+    }
+    for (Thread producer : this.producers) {
+      producer.start();
+    }
+  }
+
+  /**
+   * Returns the objects that passed the steps, in index order. The stream is sequential;
+   * it can be consumed only once.
+   *
+   * @return the stream of objects; closing it closes the pipeline
+   */
+  public Stream<T> stream() {
+    return StreamSupport.stream(new OrderedSpliterator(), false).onClose(this::close);
+  }
+
+  /**
+   * Stops the producers and waits for them to finish.
+   */
+  @Override
+  public void close() {
+    cancelled = true;
+    for (Thread producer : producers) {
+      producer.interrupt();
+    }
+    for (Thread producer : producers) {
+      try {
+        producer.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+    }
+  }
+
+  private void produce() {
+    EntityGenerator.IndexedRandom random = new EntityGenerator.IndexedRandom();
+    EntityGenerator.Keys keys = new EntityGenerator.Keys();
+    try {
+      while (!cancelled) {
+        freeSlots.acquire();
+        long sequence = nextSequence.getAndIncrement();
+        Batch batch = new Batch();
+        try (Metrics.Span span = PRODUCE.start()) {
+          long from = sequence * batchSize;
+          batch.matchesA = generator.generateMatching(from, from + batchSize, filterA, minB,
+              maxB, skipped, random, keys, batch::add);
+          span.items(batchSize);
+        }
+        lock.lock();
+        try {
+          slots[(int) (sequence % slots.length)] = batch;
+          published.signalAll();
+        } finally {
+          lock.unlock();
+        }
+      }
+    } catch (InterruptedException e) {
+      // конвеєр закрито
+    } catch (RuntimeException | Error e) {
+      failure = e;
+      lock.lock();
+      try {
+        published.signalAll();
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+
+  /** The matches of one range of indices, in index order. */
+  private static final class Batch {
+
+    /** The number of objects of the range whose field A passed. */
+    int matchesA;
+
+    /** The objects whose field B passed too: index, number among the matches of A, object. */
+    long[] indices = new long[16];
+    int[] matchNumbers = new int[16];
+    Object[] items = new Object[16];
+    int size;
+
+    void add(long index, int matchA, Object item) {
+      if (size == indices.length) {
+        indices = Arrays.copyOf(indices, size * 2);
+        matchNumbers = Arrays.copyOf(matchNumbers, size * 2);
+        items = Arrays.copyOf(items, size * 2);
+      }
+      indices[size] = index;
+      matchNumbers[size] = matchA;
+      items[size] = item;
+      size++;
+    }
+  }
+
+  /**
+   * Takes the batches in sequence order, skips and limits the matches of field A,
+   * and hands out the objects, building the ones the producers did not.
+   */
+  private final class OrderedSpliterator implements Spliterator<T> {
+
+    private final EntityGenerator.IndexedRandom random = new EntityGenerator.IndexedRandom();
+    private long sequence;
+    private Batch batch = new Batch();
+    private int position;
+
+    /** The number of matches of field A in the batches before the current one. */
+    private long matchesBefore;
+    private boolean finished = limit <= 0;
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean tryAdvance(Consumer<? super T> action) {
+      while (!finished) {
+        if (position == batch.size) {
+          matchesBefore += batch.matchesA;
+          if (!skipped && matchesBefore >= skipN) {
+            skipped = true;
+          }
+          if (matchesBefore - skipN >= limit) {
+            break;
+          }
+          batch = take();
+          position = 0;
+          continue;
+        }
+        long match = matchesBefore + batch.matchNumbers[position];
+        if (match - skipN >= limit) {
+          break;
+        }
+        int i = position++;
+        if (match < skipN) {
+          continue;
+        }
+        T item = (T) batch.items[i];
+        action.accept(item != null ? item : generator.materialize(batch.indices[i], random));
+        return true;
+      }
+      if (!finished) {
+        finished = true;
+        close();
+      }
+      return false;
+    }
+
+    private Batch take() {
+      int slot = (int) (sequence % slots.length);
+      Batch taken;
+      lock.lock();
+      try {
+        if (slots[slot] == null) {
+          CONSUMER_WAITS.increment();
+        }
+        while (slots[slot] == null) {
+          if (failure != null) {
+            throw new IllegalStateException("Producer failed", failure);
+          }
+          if (cancelled) {
+            throw new IllegalStateException("The pipeline is closed");
+          }
+          published.awaitUninterruptibly();
+        }
+        taken = (Batch) slots[slot];
+        slots[slot] = null;
+      } finally {
+        lock.unlock();
+      }
+      sequence++;
+      freeSlots.release();
+      return taken;
+    }
+
+    @Override
+    public Spliterator<T> trySplit() {
+      return null;
+    }
+
+    @Override
+    public long estimateSize() {
+      return finished ? 0 : Long.MAX_VALUE;
+    }
+
+    @Override
+    public int characteristics() {
+      return ORDERED | NONNULL;
+    }
+  }
+}
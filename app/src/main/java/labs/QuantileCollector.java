@@ -0,0 +1,458 @@
+package labs;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.Collector;
+import java.util.stream.DoubleStream;
+
+/**
+ * Provides a custom collector that summarizes a stream of Double values in a mergeable
+ * quantile sketch, so Q1, Q3 and the IQR outlier bounds can be found in one pass with
+ * bounded memory instead of sorting all the values.
+ */
+public class QuantileCollector {
+
+  /** The accuracy parameter used when none is given; the rank error is about 1%. */
+  public static final int DEFAULT_K = 200;
+
+  /**
+   * Returns a Collector that summarizes a stream of Double values in a sketch
+   * with the default accuracy.
+   *
+   * @return a custom collector for quantiles
+   */
+  public static Collector<Double, ?, QuantileSketch> getQuantileCollector() {
+    return getQuantileCollector(DEFAULT_K);
+  }
+
+  /**
+   * Returns a Collector that summarizes a stream of Double values in a sketch
+   * with the given accuracy parameter.
+   *
+   * @param k the accuracy parameter, see {@link QuantileSketch#QuantileSketch(int)}
+   * @return a custom collector for quantiles
+   */
+  public static Collector<Double, ?, QuantileSketch> getQuantileCollector(int k) {
+    return Collector.of(
+        () -> new QuantileSketch(k),      // Supplier
+        QuantileSketch::accept,           // Accumulator
+        QuantileSketch::merge,            // Combiner
+        Collector.Characteristics.UNORDERED,
+        Collector.Characteristics.IDENTITY_FINISH
+    );
+  }
+
+  /**
+   * Summarizes a primitive stream in a sketch with the default accuracy, without boxing.
+   * The stream may be parallel.
+   *
+   * @param values the values to summarize
+   * @return the sketch of the values
+   */
+  public static QuantileSketch sketch(DoubleStream values) {
+    return values.collect(() -> new QuantileSketch(DEFAULT_K),
+        QuantileSketch::accept, QuantileSketch::merge);
+  }
+
+  /**
+   * Splits the values into regular values and outliers outside of
+   * {@code [Q1 - 1.5 IQR, Q3 + 1.5 IQR]}. The quartiles come from a sketch built
+   * in the first pass, and the second pass counts the outliers exactly against them.
+   * Both passes run in parallel if the streams are parallel.
+   *
+   * @param values supplies the same values for each of the two passes
+   * @return the number of {@code "data"} and {@code "outliers"} values
+   */
+  public static Map<String, Long> splitOutliers(Supplier<DoubleStream> values) {
+    QuantileSketch sketch = sketch(values.get());
+    if (sketch.getCount() == 0) {
+      return new LinkedHashMap<>();
+    }
+    double lowerBound = sketch.getLowerOutlierBound();
+    double upperBound = sketch.getUpperOutlierBound();
+    long outliers = values.get()
+        .filter(value -> value < lowerBound || value > upperBound)
+        .count();
+    return QuantileSketch.toSplit(sketch.getCount() - outliers, outliers);
+  }
+
+  /**
+   * A KLL quantile sketch: a hierarchy of compactors, where level {@code h} holds values
+   * that each stand for {@code 2^h} original values. When a level fills up it is sorted
+   * and every second value is promoted to the next level. Memory stays
+   * {@code O(k log(n / k))} and the rank error of any quantile is about {@code 2 / k};
+   * sketches built on different parts of a stream can be merged.
+   */
+  public static class QuantileSketch {
+
+    /** How fast the capacity shrinks on lower levels. */
+    private static final double CAPACITY_DECAY = 2.0 / 3.0;
+
+    /** The accuracy parameter: the capacity of the top level. */
+    private final int k;
+
+    /** The values kept on each level. */
+    private double[][] levels = new double[0][];
+
+    /** The number of values on each level. */
+    private int[] levelSizes = new int[0];
+
+    /** The number of values kept on all levels. */
+    private int retained;
+
+    /** The number of values kept that triggers a compaction. */
+    private int maxRetained;
+
+    /** The number of values seen. */
+    private long count;
+
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    /** The state of the coin that picks which half a compaction keeps. */
+    private long coin = 0x9e3779b97f4a7c15L;
+
+    /**
+     * Constructs an empty sketch.
+     *
+     * @param k the accuracy parameter, at least 8; the rank error is about {@code 2 / k}
+     */
+    public QuantileSketch(int k) {
+      if (k < 8) {
+        throw new IllegalArgumentException("k must be at least 8: " + k);
+      }
+      this.k = k;
+      addLevel();
+    }
+
+    /**
+     * Constructs an empty sketch with a rank error of about {@code epsilon}.
+     *
+     * @param epsilon the acceptable rank error, e.g. 0.01
+     * @return an empty sketch
+     */
+    public static QuantileSketch withError(double epsilon) {
+      return new QuantileSketch(Math.max(8, (int) Math.ceil(2.0 / epsilon)));
+    }
+
+    /**
+     * Accepts a new value.
+     *
+     * @param value the value to be added to the sketch
+     */
+    public void accept(double value) {
+      append(0, value);
+      retained++;
+      count++;
+      min = Math.min(min, value);
+      max = Math.max(max, value);
+      if (retained >= maxRetained) {
+        compress();
+      }
+    }
+
+    /**
+     * Merges another sketch into this one.
+     *
+     * @param other the other sketch
+     * @return this sketch
+     */
+    public QuantileSketch merge(QuantileSketch other) {
+      while (levels.length < other.levels.length) {
+        addLevel();
+      }
+      for (int h = 0; h < other.levels.length; h++) {
+        for (int i = 0; i < other.levelSizes[h]; i++) {
+          append(h, other.levels[h][i]);
+        }
+      }
+      retained += other.retained;
+      count += other.count;
+      min = Math.min(min, other.min);
+      max = Math.max(max, other.max);
+      while (retained >= maxRetained) {
+        compress();
+      }
+      return this;
+    }
+
+    /**
+     * Returns the number of values seen.
+     *
+     * @return the number of values
+     */
+    public long getCount() {
+      return count;
+    }
+
+    /**
+     * Returns the smallest value seen, exactly.
+     *
+     * @return the minimum
+     */
+    public double getMin() {
+      return min;
+    }
+
+    /**
+     * Returns the largest value seen, exactly.
+     *
+     * @return the maximum
+     */
+    public double getMax() {
+      return max;
+    }
+
+    /**
+     * Estimates the specified percentile with the same rule as {@link Main#getPercentile}:
+     * the smallest value such that at least {@code percentile}% of the values are not greater.
+     *
+     * @param percentile the desired percentile (e.g., 25 for Q1)
+     * @return the estimated percentile value
+     * @throws IllegalStateException if the sketch is empty
+     */
+    public double getPercentile(double percentile) {
+      if (count == 0) {
+        throw new IllegalStateException("The sketch is empty");
+      }
+      if (percentile <= 0) {
+        return min;
+      }
+      if (percentile >= 100) {
+        return max;
+      }
+      double[] values = new double[retained];
+      long[] weights = new long[retained];
+      sortedSamples(values, weights);
+      long totalWeight = 0;
+      for (long weight : weights) {
+        totalWeight += weight;
+      }
+      double target = percentile / 100.0 * totalWeight;
+      long cumulative = 0;
+      for (int i = 0; i < values.length; i++) {
+        cumulative += weights[i];
+        if (cumulative >= target) {
+          return values[i];
+        }
+      }
+      return max;
+    }
+
+    /**
+     * Estimates the fraction of values strictly less than the given one.
+     *
+     * @param value the value
+     * @return the estimated rank, from 0 to 1
+     */
+    public double getRank(double value) {
+      long below = 0;
+      long total = 0;
+      for (int h = 0; h < levels.length; h++) {
+        long weight = 1L << h;
+        for (int i = 0; i < levelSizes[h]; i++) {
+          total += weight;
+          if (levels[h][i] < value) {
+            below += weight;
+          }
+        }
+      }
+      return total == 0 ? 0 : (double) below / total;
+    }
+
+    /**
+     * Returns the lower IQR outlier bound {@code Q1 - 1.5 IQR}.
+     *
+     * @return the lower bound
+     */
+    public double getLowerOutlierBound() {
+      double q1 = getPercentile(25);
+      return q1 - 1.5 * (getPercentile(75) - q1);
+    }
+
+    /**
+     * Returns the upper IQR outlier bound {@code Q3 + 1.5 IQR}.
+     *
+     * @return the upper bound
+     */
+    public double getUpperOutlierBound() {
+      double q3 = getPercentile(75);
+      return q3 + 1.5 * (q3 - getPercentile(25));
+    }
+
+    /**
+     * Estimates the split into regular values and outliers from the sketch alone,
+     * for streams that cannot be read twice.
+     *
+     * @return the estimated number of {@code "data"} and {@code "outliers"} values
+     */
+    public Map<String, Long> estimateOutlierSplit() {
+      if (count == 0) {
+        return new LinkedHashMap<>();
+      }
+      double lowerBound = getLowerOutlierBound();
+      double upperBound = getUpperOutlierBound();
+      double outsideRank = getRank(lowerBound) + (1 - getRank(Math.nextUp(upperBound)));
+      long outliers = Math.round(outsideRank * count);
+      return toSplit(count - outliers, outliers);
+    }
+
+    /**
+     * Returns the quartiles and bounds of the sketch.
+     *
+     * @return a formatted string of the sketch results
+     */
+    @Override
+    public String toString() {
+      if (count == 0) {
+        return "Count: 0";
+      }
+      return String.format("Count: %d, Q1: %.2f, Median: %.2f, Q3: %.2f, Retained: %d",
+          count, getPercentile(25), getPercentile(50), getPercentile(75), retained);
+    }
+
+    /**
+     * Writes the sketch in a binary form, for {@link #readFrom}.
+     *
+     * @param out the output
+     * @throws IOException if the output fails
+     */
+    void writeTo(DataOutput out) throws IOException {
+      out.writeInt(k);
+      out.writeLong(count);
+      out.writeDouble(min);
+      out.writeDouble(max);
+      out.writeLong(coin);
+      out.writeInt(levels.length);
+      for (int h = 0; h < levels.length; h++) {
+        out.writeInt(levelSizes[h]);
+        for (int i = 0; i < levelSizes[h]; i++) {
+          out.writeDouble(levels[h][i]);
+        }
+      }
+    }
+
+    /**
+     * Reads a sketch written by {@link #writeTo}.
+     *
+     * @param in the input
+     * @return the sketch, ready to be merged with others
+     * @throws IOException if the input fails
+     */
+    static QuantileSketch readFrom(DataInput in) throws IOException {
+      QuantileSketch sketch = new QuantileSketch(in.readInt());
+      sketch.count = in.readLong();
+      sketch.min = in.readDouble();
+      sketch.max = in.readDouble();
+      sketch.coin = in.readLong();
+      int levelCount = in.readInt();
+      while (sketch.levels.length < levelCount) {
+        sketch.addLevel();
+      }
+      for (int h = 0; h < levelCount; h++) {
+        int size = in.readInt();
+        for (int i = 0; i < size; i++) {
+          sketch.append(h, in.readDouble());
+        }
+        sketch.retained += size;
+      }
+      return sketch;
+    }
+
+    static Map<String, Long> toSplit(long data, long outliers) {
+      Map<String, Long> result = new LinkedHashMap<>();
+      if (data > 0) {
+        result.put("data", data);
+      }
+      if (outliers > 0) {
+        result.put("outliers", outliers);
+      }
+      return result;
+    }
+
+    /** Merges the sorted levels into one list of values with their weights. */
+    private void sortedSamples(double[] values, long[] weights) {
+      int[] cursors = new int[levels.length];
+      for (int h = 0; h < levels.length; h++) {
+        Arrays.sort(levels[h], 0, levelSizes[h]);
+      }
+      for (int n = 0; n < values.length; n++) {
+        int best = -1;
+        for (int h = 0; h < levels.length; h++) {
+          if (cursors[h] < levelSizes[h]
+              && (best < 0 || levels[h][cursors[h]] < levels[best][cursors[best]])) {
+            best = h;
+          }
+        }
+        values[n] = levels[best][cursors[best]++];
+        weights[n] = 1L << best;
+      }
+    }
+
+    private int capacity(int level) {
+      int depth = levels.length - level - 1;
+      return (int) Math.ceil(Math.pow(CAPACITY_DECAY, depth) * k) + 1;
+    }
+
+    private void addLevel() {
+      levels = Arrays.copyOf(levels, levels.length + 1);
+      levelSizes = Arrays.copyOf(levelSizes, levelSizes.length + 1);
+      levels[levels.length - 1] = new double[8];
+      maxRetained = 0;
+      for (int h = 0; h < levels.length; h++) {
+        maxRetained += capacity(h);
+      }
+    }
+
+    private void append(int level, double value) {
+      if (levelSizes[level] == levels[level].length) {
+        levels[level] = Arrays.copyOf(levels[level], levels[level].length * 2);
+      }
+      levels[level][levelSizes[level]++] = value;
+    }
+
+    /** Compacts the lowest level that is over its capacity. */
+    private void compress() {
+      for (int h = 0; h < levels.length; h++) {
+        if (levelSizes[h] >= capacity(h)) {
+          if (h + 1 == levels.length) {
+            addLevel();
+          }
+          compact(h);
+          return;
+        }
+      }
+    }
+
+    private void compact(int level) {
+      double[] values = levels[level];
+      int size = levelSizes[level];
+      Arrays.sort(values, 0, size);
+      // При непарній кількості останнє значення лишається на цьому рівні
+      int pairs = size / 2;
+      int offset = flipCoin();
+      for (int i = 0; i < pairs; i++) {
+        append(level + 1, values[2 * i + offset]);
+      }
+      if (size % 2 == 1) {
+        values[0] = values[size - 1];
+        levelSizes[level] = 1;
+      } else {
+        levelSizes[level] = 0;
+      }
+      retained -= pairs;
+    }
+
+    private int flipCoin() {
+      coin ^= coin << 13;
+      coin ^= coin >>> 7;
+      coin ^= coin << 17;
+      return (int) (coin >>> 63);
+    }
+  }
+}
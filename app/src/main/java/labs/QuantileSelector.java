@@ -0,0 +1,348 @@
+package labs;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Finds exact quantiles of an array of doubles without sorting it. All the requested
+ * order statistics are found in one multi-selection: the array is partitioned around a pivot,
+ * and only the parts that still hold a requested rank are partitioned further, which takes
+ * expected {@code O(n log m)} time for {@code m} quantiles instead of {@code O(n log n)}.
+ * Large arrays are sorted with {@link Arrays#parallelSort} instead when several
+ * processors are available.
+ *
+ * <p>The methods reorder the given array; pass a copy to keep the order. The values must not
+ * be {@code NaN}. An empty array has no quantiles: they are returned as {@code NaN}.
+ */
+public final class QuantileSelector {
+
+  /** From this length the array is sorted in parallel instead of selected on one thread. */
+  static final int PARALLEL_SORT_THRESHOLD = 1 << 22;
+
+  /** Below this length a range is sorted by insertion. */
+  private static final int INSERTION_SORT_THRESHOLD = 32;
+
+  /**
+   * How a percentile between two values is taken. For {@code n} values and the percentile
+   * {@code p}, all the modes but {@link #NEAREST_RANK} look at the position
+   * {@code h = (n - 1) p / 100} of the sorted values.
+   */
+  public enum Interpolation {
+    /** The value at index {@code ceil(p / 100 n) - 1}, the rule of {@link Main#getPercentile}. */
+    NEAREST_RANK,
+    /** The value at {@code floor(h)}. */
+    LOWER,
+    /** The value at {@code ceil(h)}. */
+    HIGHER,
+    /** The value at the nearest index to {@code h}, the even one for a tie. */
+    NEAREST,
+    /** The linear interpolation between {@code floor(h)} and {@code ceil(h)}. */
+    LINEAR,
+    /** The mean of the values at {@code floor(h)} and {@code ceil(h)}. */
+    MIDPOINT
+  }
+
+  private QuantileSelector() {
+  }
+
+  /**
+   * Finds one percentile of the values.
+   *
+   * @param values the values; they are reordered
+   * @param percentile the percentile, from 0 to 100
+   * @param mode how to take a percentile between two values
+   * @return the percentile, or {@code NaN} if there are no values
+   */
+  public static double percentile(double[] values, double percentile, Interpolation mode) {
+    return percentiles(values, mode, percentile)[0];
+  }
+
+  /**
+   * Finds several percentiles of the values at once.
+   *
+   * @param values the values; they are reordered
+   * @param mode how to take a percentile between two values
+   * @param percentiles the percentiles, from 0 to 100, in any order
+   * @return the values of the percentiles in the given order, {@code NaN} if there are no values
+   * @throws IllegalArgumentException if a percentile is outside of {@code [0, 100]}
+   */
+  public static double[] percentiles(double[] values, Interpolation mode,
+      double... percentiles) {
+    int n = values.length;
+    int[] lower = new int[percentiles.length];
+    int[] upper = new int[percentiles.length];
+    for (int i = 0; i < percentiles.length; i++) {
+      double p = percentiles[i];
+      if (!(p >= 0 && p <= 100)) {
+        throw new IllegalArgumentException("A percentile must be in [0, 100]: " + p);
+      }
+      double h = (n - 1) * p / 100.0;
+      switch (mode) {
+        case NEAREST_RANK:
+          lower[i] = (int) Math.min(Math.max(Math.ceil(p / 100.0 * n) - 1, 0), n - 1);
+          upper[i] = lower[i];
+          break;
+        case NEAREST:
+          lower[i] = (int) Math.rint(h);
+          upper[i] = lower[i];
+          break;
+        default:
+          lower[i] = (int) Math.floor(h);
+          upper[i] = (int) Math.ceil(h);
+      }
+    }
+    double[] result = new double[percentiles.length];
+    if (n == 0) {
+      Arrays.fill(result, Double.NaN);
+      return result;
+    }
+    int[] ranks = new int[2 * percentiles.length];
+    System.arraycopy(lower, 0, ranks, 0, lower.length);
+    System.arraycopy(upper, 0, ranks, lower.length, upper.length);
+    selectRanks(values, ranks);
+
+    for (int i = 0; i < percentiles.length; i++) {
+      double low = values[lower[i]];
+      double high = values[upper[i]];
+      switch (mode) {
+        case HIGHER:
+          result[i] = high;
+          break;
+        case LINEAR:
+          double fraction = (n - 1) * percentiles[i] / 100.0 - lower[i];
+          result[i] = low + fraction * (high - low);
+          break;
+        case MIDPOINT:
+          result[i] = (low + high) / 2;
+          break;
+        default:
+          result[i] = low;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Finds the minimum, the quartiles and the maximum of the values, with the rule of
+   * {@link Main#getPercentile}.
+   *
+   * @param values the values; they are reordered
+   * @return the five-number summary
+   */
+  public static Summary summarize(double[] values) {
+    double[] quantiles = percentiles(values, Interpolation.NEAREST_RANK, 0, 25, 50, 75, 100);
+    return new Summary(values.length, quantiles);
+  }
+
+  /**
+   * Splits the values into regular values and outliers outside of
+   * {@code [Q1 - 1.5 IQR, Q3 + 1.5 IQR]}, like {@link Main#splitOutliers}, without sorting.
+   *
+   * @param values the values; they are reordered
+   * @return the number of {@code "data"} and {@code "outliers"} values, empty for no values
+   */
+  public static Map<String, Long> splitOutliers(double[] values) {
+    Map<String, Long> groupedData = new HashMap<>();
+    if (values.length == 0) {
+      return groupedData;
+    }
+    double[] quartiles = percentiles(values, Interpolation.NEAREST_RANK, 25, 75);
+    double iqr = quartiles[1] - quartiles[0];
+    double lowerBound = quartiles[0] - 1.5 * iqr;
+    double upperBound = quartiles[1] + 1.5 * iqr;
+    long outliers = ColumnKernels.countOutside(values, lowerBound, upperBound);
+    if (values.length - outliers > 0) {
+      groupedData.put("data", values.length - outliers);
+    }
+    if (outliers > 0) {
+      groupedData.put("outliers", outliers);
+    }
+    return groupedData;
+  }
+
+  /**
+   * Reorders the values so that every given rank holds the value it would hold
+   * in the sorted array.
+   *
+   * @param values the values
+   * @param ranks the ranks, from 0 to {@code values.length - 1}, in any order
+   */
+  static void selectRanks(double[] values, int[] ranks) {
+    if (values.length >= PARALLEL_SORT_THRESHOLD
+        && ForkJoinPool.getCommonPoolParallelism() > 1) {
+      Arrays.parallelSort(values);
+      return;
+    }
+    int[] sorted = Arrays.stream(ranks).sorted().distinct().toArray();
+    int depth = 2 * (32 - Integer.numberOfLeadingZeros(values.length));
+    select(values, 0, values.length - 1, sorted, 0, sorted.length, depth);
+  }
+
+  /**
+   * Selects the ranks {@code ranks[rFrom..rTo)}, all inside the range from {@code low} to
+   * {@code high} inclusive: partitions the range in three around the median of three,
+   * and goes on only with the parts that hold ranks. Falls back to sorting a range
+   * when the partitioning gets too deep.
+   */
+  private static void select(double[] a, int low, int high, int[] ranks, int rFrom, int rTo,
+      int depth) {
+    while (rFrom < rTo) {
+      if (high - low < INSERTION_SORT_THRESHOLD) {
+        insertionSort(a, low, high);
+        return;
+      }
+      if (depth-- == 0) {
+        Arrays.sort(a, low, high + 1);
+        return;
+      }
+      double pivot = medianOfThree(a[low], a[(low + high) >>> 1], a[high]);
+      // [low, lt) < pivot, [lt, gt] == pivot, (gt, high] > pivot
+      int lt = low;
+      int gt = high;
+      int i = low;
+      while (i <= gt) {
+        double value = a[i];
+        if (value < pivot) {
+          a[i++] = a[lt];
+          a[lt++] = value;
+        } else if (value > pivot) {
+          a[i] = a[gt];
+          a[gt--] = value;
+        } else {
+          i++;
+        }
+      }
+      int leftEnd = lowerBound(ranks, rFrom, rTo, lt);
+      int rightStart = lowerBound(ranks, leftEnd, rTo, gt + 1);
+      select(a, low, lt - 1, ranks, rFrom, leftEnd, depth);
+      // ранги між lt і gt уже на місці: там лише значення, рівні опорному
+      low = gt + 1;
+      rFrom = rightStart;
+    }
+  }
+
+  /** Returns the first index in {@code [from, to)} whose rank is at least the bound. */
+  private static int lowerBound(int[] ranks, int from, int to, int bound) {
+    while (from < to) {
+      int mid = (from + to) >>> 1;
+      if (ranks[mid] < bound) {
+        from = mid + 1;
+      } else {
+        to = mid;
+      }
+    }
+    return from;
+  }
+
+  private static double medianOfThree(double a, double b, double c) {
+    if (a < b) {
+      return b < c ? b : Math.max(a, c);
+    }
+    return a < c ? a : Math.max(b, c);
+  }
+
+  private static void insertionSort(double[] a, int low, int high) {
+    for (int i = low + 1; i <= high; i++) {
+      double value = a[i];
+      int j = i - 1;
+      while (j >= low && a[j] > value) {
+        a[j + 1] = a[j];
+        j--;
+      }
+      a[j + 1] = value;
+    }
+  }
+
+  /** The minimum, the quartiles and the maximum of some values. */
+  public static final class Summary {
+
+    private final long count;
+    private final double min;
+    private final double q1;
+    private final double median;
+    private final double q3;
+    private final double max;
+
+    Summary(long count, double[] quantiles) {
+      this.count = count;
+      this.min = quantiles[0];
+      this.q1 = quantiles[1];
+      this.median = quantiles[2];
+      this.q3 = quantiles[3];
+      this.max = quantiles[4];
+    }
+
+    /**
+     * Returns the number of values.
+     *
+     * @return the number of values
+     */
+    public long getCount() {
+      return count;
+    }
+
+    /**
+     * Returns the smallest value.
+     *
+     * @return the smallest value, {@code NaN} if there are none
+     */
+    public double getMin() {
+      return min;
+    }
+
+    /**
+     * Returns the first quartile.
+     *
+     * @return the first quartile, {@code NaN} if there are no values
+     */
+    public double getQ1() {
+      return q1;
+    }
+
+    /**
+     * Returns the median.
+     *
+     * @return the median, {@code NaN} if there are no values
+     */
+    public double getMedian() {
+      return median;
+    }
+
+    /**
+     * Returns the third quartile.
+     *
+     * @return the third quartile, {@code NaN} if there are no values
+     */
+    public double getQ3() {
+      return q3;
+    }
+
+    /**
+     * Returns the largest value.
+     *
+     * @return the largest value, {@code NaN} if there are none
+     */
+    public double getMax() {
+      return max;
+    }
+
+    /**
+     * Returns the interquartile range.
+     *
+     * @return the interquartile range
+     */
+    public double getIqr() {
+      return q3 - q1;
+    }
+
+    @Override
+    public String toString() {
+      return String.format(Locale.ROOT,
+          "Count: %d, Min: %.2f, Q1: %.2f, Median: %.2f, Q3: %.2f, Max: %.2f",
+          count, min, q1, median, q3, max);
+    }
+  }
+}
@@ -0,0 +1,497 @@
+package labs;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Stream;
+
+/**
+ * A query over a stream of objects that runs all the steps of {@link Main} in one pass:
+ * the filter on field A, skipping and limiting, the range filter on field B, the counts
+ * grouped by field V and the aggregation of field G. Nothing is collected into
+ * intermediate lists; the G values are kept only when exact quantiles are asked for,
+ * otherwise the quartiles come from a {@link QuantileCollector.QuantileSketch}.
+ *
+ * <p>The steps apply in the same order as in {@link Main}: skip and limit count
+ * the objects that passed the filter on A, before the filter on B.
+ *
+ * @param <T> the type of queried objects
+ */
+public class Query<T> {
+
+  private static final Metrics.Stage SCAN = Metrics.stage("query.scan");
+  private static final Metrics.Stage SORT = Metrics.stage("sort");
+  private static final Metrics.Stage QUANTILE = Metrics.stage("quantile");
+  private static final Metrics.Counter EXAMINED = Metrics.counter("query.examined");
+  private static final Metrics.Counter PASSED_A = Metrics.counter("query.passedA");
+  private static final Metrics.Counter SKIPPED = Metrics.counter("query.skipped");
+  private static final Metrics.Counter PASSED_B = Metrics.counter("query.passedB");
+
+  /** The objects to query. */
+  private final Stream<T> source;
+
+  private Predicate<T> filterA = obj -> true;
+  private long skipN;
+  private long limit = Long.MAX_VALUE;
+  private ToDoubleFunction<T> fieldB;
+  private double minB;
+  private double maxB;
+  private Function<T, String> fieldV;
+  private ToDoubleFunction<T> fieldG;
+  private boolean exactQuantiles;
+  private boolean offHeap;
+  private boolean collectItems;
+  private int topK;
+  private Function<T, String> heavyHitterField;
+  private int heavyHitterCapacity;
+
+  private Query(Stream<T> source) {
+    this.source = source;
+  }
+
+  /**
+   * Starts a query over a stream of objects. A query over an infinite stream
+   * must be given a {@link #limit(long)}.
+   *
+   * @param source the objects to query
+   * @param <T> the type of the objects
+   * @return a new query that keeps all the objects
+   */
+  public static <T> Query<T> from(Stream<T> source) {
+    return new Query<>(source);
+  }
+
+  /**
+   * Keeps the objects whose field A equals the value.
+   *
+   * @param extractor the function to extract field A
+   * @param value the value of field A to keep
+   * @return this query
+   */
+  public Query<T> filterA(Gatherer.FieldExtractor<T> extractor, String value) {
+    filterA = obj -> extractor.extractField(obj).equals(value);
+    return this;
+  }
+
+  /**
+   * Keeps the objects whose field A has the value, comparing dictionary codes.
+   * A value outside the dictionary, like the objects with the code -1, matches nothing.
+   *
+   * @param extractor the function to extract the code of field A
+   * @param dictionary the dictionary the codes come from
+   * @param value the value of field A to keep
+   * @return this query
+   */
+  public Query<T> filterA(Gatherer.OrdinalFieldExtractor<T> extractor,
+      CategoryDictionary dictionary, String value) {
+    int code = dictionary.codeOf(value);
+    filterA = code < 0 ? obj -> false : obj -> extractor.extractOrdinal(obj) == code;
+    return this;
+  }
+
+  /**
+   * Skips the first objects that passed the filter on field A.
+   *
+   * @param skipN the number of objects to skip
+   * @return this query
+   */
+  public Query<T> skip(long skipN) {
+    this.skipN = skipN;
+    return this;
+  }
+
+  /**
+   * Stops after the given number of objects passed the filter on field A and the skip.
+   *
+   * @param limit the maximum number of objects
+   * @return this query
+   */
+  public Query<T> limit(long limit) {
+    this.limit = limit;
+    return this;
+  }
+
+  /**
+   * Keeps the objects whose field B lies in the range.
+   *
+   * @param extractor the function to extract field B
+   * @param minB the minimum value of field B
+   * @param maxB the maximum value of field B
+   * @return this query
+   */
+  public Query<T> filterB(ToDoubleFunction<T> extractor, double minB, double maxB) {
+    this.fieldB = extractor;
+    this.minB = minB;
+    this.maxB = maxB;
+    return this;
+  }
+
+  /**
+   * Counts the resulting objects by field V.
+   *
+   * @param extractor the function to extract field V
+   * @return this query
+   */
+  public Query<T> groupBy(Function<T, String> extractor) {
+    this.fieldV = extractor;
+    return this;
+  }
+
+  /**
+   * Aggregates field G of the resulting objects: statistics and quartiles.
+   *
+   * @param extractor the function to extract field G
+   * @return this query
+   */
+  public Query<T> aggregate(ToDoubleFunction<T> extractor) {
+    this.fieldG = extractor;
+    return this;
+  }
+
+  /**
+   * Keeps all the G values, so the quartiles and outliers are exact
+   * and the sorted values are available.
+   *
+   * @return this query
+   */
+  public Query<T> exactQuantiles() {
+    this.exactQuantiles = true;
+    return this;
+  }
+
+  /**
+   * Keeps all the G values outside of the heap, in an {@link OffHeapDoubleColumn}, so the
+   * quartiles and outliers are exact for any number of values; the sorted values are then
+   * available through {@link Result#getGColumn()}. Close the result to free the memory.
+   *
+   * @return this query
+   */
+  public Query<T> offHeapQuantiles() {
+    this.exactQuantiles = true;
+    this.offHeap = true;
+    return this;
+  }
+
+  /**
+   * Keeps, for every value of field V, the {@code k} resulting objects with the largest
+   * values of field G, in bounded heaps. Needs {@link #groupBy} and {@link #aggregate}.
+   *
+   * @param k the number of objects to keep in every group
+   * @return this query
+   * @throws IllegalArgumentException if {@code k} is not positive
+   */
+  public Query<T> topK(int k) {
+    if (k <= 0) {
+      throw new IllegalArgumentException("k must be positive: " + k);
+    }
+    this.topK = k;
+    return this;
+  }
+
+  /**
+   * Finds the most frequent values of a categorical field of the resulting objects with
+   * bounded memory, see {@link HeavyHitterCollector}.
+   *
+   * @param extractor the function to extract the field
+   * @param capacity the number of counters
+   * @return this query
+   */
+  public Query<T> heavyHitters(Function<T, String> extractor, int capacity) {
+    this.heavyHitterField = extractor;
+    this.heavyHitterCapacity = capacity;
+    return this;
+  }
+
+  /**
+   * Keeps the resulting objects themselves.
+   *
+   * @return this query
+   */
+  public Query<T> collectItems() {
+    this.collectItems = true;
+    return this;
+  }
+
+  /**
+   * Runs the query in one pass over the source and closes the source, which stops
+   * a source that produces objects in the background, such as a {@link Pipeline}.
+   *
+   * @return the result of the query
+   */
+  public Result<T> run() {
+    Accumulator acc = new Accumulator();
+    try (source; Metrics.Span span = SCAN.start()) {
+      Spliterator<T> spliterator = source.spliterator();
+      while (!acc.done && spliterator.tryAdvance(acc::accept)) {
+        // вся робота виконується в acc.accept
+      }
+      span.items(acc.examined);
+    }
+    return acc.finish();
+  }
+
+  /** The state of one run: counters and the aggregates built so far. */
+  private final class Accumulator {
+
+    boolean done = limit <= 0;
+    long examined;
+    long passedA;
+    long passedB;
+    long taken;
+    final List<T> items = collectItems ? new ArrayList<>() : null;
+    final Map<String, long[]> counts = fieldV != null ? new HashMap<>() : null;
+    final StatisticsCollector.StatisticsData statistics =
+        fieldG != null ? new StatisticsCollector.StatisticsData() : null;
+    final QuantileCollector.QuantileSketch sketch =
+        fieldG != null && !exactQuantiles
+            ? new QuantileCollector.QuantileSketch(QuantileCollector.DEFAULT_K) : null;
+    double[] gValues = fieldG != null && exactQuantiles && !offHeap ? new double[64] : null;
+    final OffHeapDoubleColumn gColumn =
+        fieldG != null && offHeap ? new OffHeapDoubleColumn() : null;
+    int gCount;
+    final Map<String, TopKCollector.TopK<T>> tops =
+        topK > 0 && fieldV != null && fieldG != null ? new HashMap<>() : null;
+    final HeavyHitterCollector.HeavyHitters hitters = heavyHitterField != null
+        ? new HeavyHitterCollector.HeavyHitters(heavyHitterCapacity) : null;
+
+    void accept(T obj) {
+      examined++;
+      if (!filterA.test(obj)) {
+        return;
+      }
+      if (passedA++ < skipN) {
+        return;
+      }
+      if (++taken >= limit) {
+        done = true;
+      }
+      if (fieldB != null) {
+        double b = fieldB.applyAsDouble(obj);
+        if (b < minB || b > maxB) {
+          return;
+        }
+      }
+      passedB++;
+      if (items != null) {
+        items.add(obj);
+      }
+      String v = null;
+      if (counts != null) {
+        v = fieldV.apply(obj);
+        counts.computeIfAbsent(v, key -> new long[1])[0]++;
+      }
+      if (hitters != null) {
+        hitters.accept(heavyHitterField.apply(obj));
+      }
+      if (fieldG != null) {
+        double g = fieldG.applyAsDouble(obj);
+        statistics.accept(g);
+        if (tops != null) {
+          TopKCollector.top(tops, v, topK).accept(obj, g);
+        }
+        if (sketch != null) {
+          sketch.accept(g);
+        } else if (gColumn != null) {
+          gColumn.append(g);
+        } else {
+          if (gCount == gValues.length) {
+            gValues = Arrays.copyOf(gValues, gCount * 2);
+          }
+          gValues[gCount++] = g;
+        }
+      }
+    }
+
+    Result<T> finish() {
+      EXAMINED.add(examined);
+      PASSED_A.add(passedA);
+      SKIPPED.add(Math.min(passedA, skipN));
+      PASSED_B.add(passedB);
+      Map<String, Long> groups = null;
+      if (counts != null) {
+        groups = new HashMap<>();
+        for (Map.Entry<String, long[]> entry : counts.entrySet()) {
+          groups.put(entry.getKey(), entry.getValue()[0]);
+        }
+      }
+      double[] sorted = null;
+      if (gValues != null) {
+        try (Metrics.Span span = SORT.start()) {
+          sorted = Arrays.copyOf(gValues, gCount);
+          Arrays.sort(sorted);
+          span.items(sorted.length);
+        }
+      }
+      if (gColumn != null) {
+        try (Metrics.Span span = SORT.start()) {
+          gColumn.sort();
+          span.items(gColumn.size());
+        }
+      }
+      return new Result<>(items, groups, statistics, sketch, sorted, gColumn, tops, hitters);
+    }
+  }
+
+  /**
+   * The result of a query. Parts that the query did not ask for are {@code null}.
+   * A result that keeps the G values off the heap must be closed.
+   *
+   * @param <T> the type of queried objects
+   */
+  public static class Result<T> implements AutoCloseable {
+
+    private final List<T> items;
+    private final Map<String, Long> groups;
+    private final StatisticsCollector.StatisticsData statistics;
+    private final QuantileCollector.QuantileSketch sketch;
+    private final double[] sortedGValues;
+    private final OffHeapDoubleColumn gColumn;
+    private final Map<String, TopKCollector.TopK<T>> topK;
+    private final HeavyHitterCollector.HeavyHitters heavyHitters;
+
+    Result(List<T> items, Map<String, Long> groups,
+        StatisticsCollector.StatisticsData statistics, QuantileCollector.QuantileSketch sketch,
+        double[] sortedGValues, OffHeapDoubleColumn gColumn) {
+      this(items, groups, statistics, sketch, sortedGValues, gColumn, null, null);
+    }
+
+    Result(List<T> items, Map<String, Long> groups,
+        StatisticsCollector.StatisticsData statistics, QuantileCollector.QuantileSketch sketch,
+        double[] sortedGValues, OffHeapDoubleColumn gColumn,
+        Map<String, TopKCollector.TopK<T>> topK,
+        HeavyHitterCollector.HeavyHitters heavyHitters) {
+      this.items = items;
+      this.groups = groups;
+      this.statistics = statistics;
+      this.sketch = sketch;
+      this.sortedGValues = sortedGValues;
+      this.gColumn = gColumn;
+      this.topK = topK;
+      this.heavyHitters = heavyHitters;
+    }
+
+    /**
+     * Returns the resulting objects, if the query collected them.
+     *
+     * @return the resulting objects
+     */
+    public List<T> getItems() {
+      return items;
+    }
+
+    /**
+     * Returns the number of resulting objects for each value of field V.
+     *
+     * @return the counts by field V
+     */
+    public Map<String, Long> getGroups() {
+      return groups;
+    }
+
+    /**
+     * Returns the statistics of field G.
+     *
+     * @return the statistical data of field G
+     */
+    public StatisticsCollector.StatisticsData getStatistics() {
+      return statistics;
+    }
+
+    /**
+     * Returns the sketch of the G values, if the query did not ask for exact quantiles.
+     *
+     * @return the sketch of the G values
+     */
+    public QuantileCollector.QuantileSketch getSketch() {
+      return sketch;
+    }
+
+    /**
+     * Returns the sorted G values, if the query asked for exact quantiles.
+     *
+     * @return the sorted G values
+     */
+    public double[] getSortedGValues() {
+      return sortedGValues;
+    }
+
+    /**
+     * Returns the sorted G values kept off the heap, if the query asked for that.
+     *
+     * @return the column of sorted G values
+     */
+    public OffHeapDoubleColumn getGColumn() {
+      return gColumn;
+    }
+
+    /**
+     * Returns the objects with the largest values of field G in every group,
+     * if the query asked for them.
+     *
+     * @return the top objects by field V
+     */
+    public Map<String, TopKCollector.TopK<T>> getTopK() {
+      return topK;
+    }
+
+    /**
+     * Returns the most frequent values of the field the query tracked, if any.
+     *
+     * @return the summary of the frequent values
+     */
+    public HeavyHitterCollector.HeavyHitters getHeavyHitters() {
+      return heavyHitters;
+    }
+
+    /**
+     * Returns the specified percentile of field G, exact or estimated by the sketch.
+     *
+     * @param percentile the desired percentile (e.g., 25 for Q1)
+     * @return the percentile value
+     */
+    public double getPercentile(double percentile) {
+      try (Metrics.Span span = QUANTILE.start()) {
+        span.items(statistics.getCount());
+        if (gColumn != null) {
+          return gColumn.getPercentile(percentile);
+        }
+        return sortedGValues != null
+            ? Main.getPercentile(sortedGValues, percentile)
+            : sketch.getPercentile(percentile);
+      }
+    }
+
+    /**
+     * Splits the G values into regular values and outliers by the IQR rule.
+     *
+     * @return the number of {@code "data"} and {@code "outliers"} values
+     */
+    public Map<String, Long> getOutlierSplit() {
+      try (Metrics.Span span = QUANTILE.start()) {
+        span.items(statistics.getCount());
+        if (gColumn != null) {
+          return gColumn.splitOutliers();
+        }
+        return sortedGValues != null
+            ? Main.splitOutliers(sortedGValues)
+            : sketch.estimateOutlierSplit();
+      }
+    }
+
+    /**
+     * Frees the G values kept off the heap, if any.
+     */
+    @Override
+    public void close() {
+      if (gColumn != null) {
+        gColumn.close();
+      }
+    }
+  }
+}
@@ -0,0 +1,359 @@
+package labs;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Keeps the results of recent queries, so that a repeated {@link QuerySpec} is answered
+ * without generating and analyzing the entities again. Besides whole results, the cache keeps
+ * their parts, the counts by field V and the statistics of field G, so a request for a part is
+ * answered from any cached result of the same description.
+ *
+ * <p>The entries are weighed by their approximate size in bytes; when the total weight exceeds
+ * the maximum, the least recently used entries are evicted. Entries also expire after the time
+ * to live. Only descriptions with a fixed seed can ever be found again.
+ *
+ * <pre>
+ * QueryCache cache = QueryCache.withMaxWeight(64 &lt;&lt; 20)
+ *     .expireAfterWrite(Duration.ofMinutes(5));
+ * Query.Result&lt;HasGField&gt; result = cache.getResult(spec, true);
+ * </pre>
+ *
+ * <p>The cache is safe to share between threads. A missing entry is computed outside of the
+ * lock, so two threads that miss the same description at once may both compute it.
+ * The cached values are shared and must not be modified.
+ */
+public final class QueryCache {
+
+  private static final Metrics.Counter HITS = Metrics.counter("cache.hits");
+  private static final Metrics.Counter MISSES = Metrics.counter("cache.misses");
+  private static final Metrics.Counter EVICTIONS = Metrics.counter("cache.evictions");
+
+  /** The approximate weight of an entry itself, of a group, and of a statistics object. */
+  private static final long ENTRY_WEIGHT = 128;
+  private static final long GROUP_WEIGHT = 64;
+  private static final long STATISTICS_WEIGHT = 96;
+
+  /** The weight of a sketch: {@link QuantileCollector#DEFAULT_K} values in a few levels. */
+  private static final long SKETCH_WEIGHT = 8L * 4 * QuantileCollector.DEFAULT_K;
+
+  /** The parts of the results kept under one description. */
+  private enum Part { EXACT_RESULT, SKETCH_RESULT, GROUPS, STATISTICS }
+
+  private final long maxWeight;
+  private long ttlNanos = Long.MAX_VALUE;
+  private Function<QuerySpec, Query<HasGField>> source = spec -> spec.getEntityType().query(spec);
+
+  /** The entries from the least to the most recently used. */
+  private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private long weight;
+
+  private long hits;
+  private long misses;
+  private long evictions;
+  private long expirations;
+
+  private QueryCache(long maxWeight) {
+    this.maxWeight = maxWeight;
+  }
+
+  /**
+   * Creates an empty cache of results whose entries never expire.
+   *
+   * @param maxWeight the maximum total weight of the entries, in approximate bytes
+   * @return the cache
+   */
+  public static QueryCache withMaxWeight(long maxWeight) {
+    if (maxWeight <= 0) {
+      throw new IllegalArgumentException("maxWeight must be positive: " + maxWeight);
+    }
+    return new QueryCache(maxWeight);
+  }
+
+  /**
+   * Makes the entries expire when the time passes after they were computed.
+   *
+   * @param ttl the time to live of an entry
+   * @return this cache
+   */
+  public QueryCache expireAfterWrite(Duration ttl) {
+    if (ttl.isNegative() || ttl.isZero()) {
+      throw new IllegalArgumentException("ttl must be positive: " + ttl);
+    }
+    this.ttlNanos = ttl.toNanos();
+    return this;
+  }
+
+  /**
+   * Sets how a missing result is computed: by {@link EntityType#query(QuerySpec)} by default.
+   * The source must give the same result for equal descriptions, e.g. read the same dataset.
+   *
+   * @param source the function to build the query of a description
+   * @return this cache
+   */
+  public QueryCache source(Function<QuerySpec, Query<HasGField>> source) {
+    this.source = Objects.requireNonNull(source, "source");
+    return this;
+  }
+
+  /**
+   * Returns the result of the query of the description, computing it if needed.
+   * A request without exact quantiles is also answered by a cached exact result.
+   *
+   * @param spec the description of the query
+   * @param exactQuantiles whether the quantiles must be exact
+   * @return the result; closing it does nothing
+   */
+  @SuppressWarnings("unchecked")
+  public Query.Result<HasGField> getResult(QuerySpec spec, boolean exactQuantiles) {
+    Object cached = exactQuantiles
+        ? lookup(spec, Part.EXACT_RESULT)
+        : lookup(spec, Part.EXACT_RESULT, Part.SKETCH_RESULT);
+    if (cached != null) {
+      return (Query.Result<HasGField>) cached;
+    }
+    return load(spec, exactQuantiles);
+  }
+
+  /**
+   * Returns the counts by field V of the query of the description, computing the query
+   * without exact quantiles if neither the counts nor a result are cached.
+   *
+   * @param spec the description of the query
+   * @return the unmodifiable counts by field V
+   */
+  @SuppressWarnings("unchecked")
+  public Map<String, Long> getGroups(QuerySpec spec) {
+    Object cached = lookup(spec, Part.GROUPS);
+    return cached != null
+        ? (Map<String, Long>) cached
+        : Collections.unmodifiableMap(load(spec, false).getGroups());
+  }
+
+  /**
+   * Returns the statistics of field G of the query of the description, computing the query
+   * without exact quantiles if neither the statistics nor a result are cached.
+   *
+   * @param spec the description of the query
+   * @return the statistics of field G
+   */
+  public StatisticsCollector.StatisticsData getStatistics(QuerySpec spec) {
+    Object cached = lookup(spec, Part.STATISTICS);
+    return cached != null
+        ? (StatisticsCollector.StatisticsData) cached
+        : load(spec, false).getStatistics();
+  }
+
+  /**
+   * Removes all entries; the statistics of the cache are kept.
+   */
+  public synchronized void invalidateAll() {
+    entries.clear();
+    weight = 0;
+  }
+
+  /**
+   * Returns the number of entries, counting every cached part.
+   *
+   * @return the number of entries
+   */
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  /**
+   * Returns the total weight of the entries.
+   *
+   * @return the weight, in approximate bytes
+   */
+  public synchronized long weight() {
+    return weight;
+  }
+
+  /**
+   * Returns the statistics of the cache since it was created.
+   *
+   * @return a snapshot of the statistics
+   */
+  public synchronized Stats getStats() {
+    return new Stats(hits, misses, evictions, expirations);
+  }
+
+  /** Returns the first cached part found, counting a hit or a miss. */
+  private synchronized Object lookup(QuerySpec spec, Part... parts) {
+    long now = System.nanoTime();
+    for (Part part : parts) {
+      Key key = new Key(spec, part);
+      Entry entry = entries.get(key);
+      if (entry == null) {
+        continue;
+      }
+      if (now - entry.writtenAt >= ttlNanos) {
+        entries.remove(key);
+        weight -= entry.weight;
+        expirations++;
+        continue;
+      }
+      hits++;
+      HITS.increment();
+      return entry.value;
+    }
+    misses++;
+    MISSES.increment();
+    return null;
+  }
+
+  /** Runs the query and caches the result with its parts. */
+  private Query.Result<HasGField> load(QuerySpec spec, boolean exactQuantiles) {
+    Query<HasGField> query = source.apply(spec);
+    if (exactQuantiles) {
+      query.exactQuantiles();
+    }
+    Query.Result<HasGField> result = query.run();
+    Map<String, Long> groups = result.getGroups() == null
+        ? null : Collections.unmodifiableMap(result.getGroups());
+    double[] sorted = result.getSortedGValues();
+    long resultWeight = ENTRY_WEIGHT + STATISTICS_WEIGHT
+        + (groups == null ? 0 : GROUP_WEIGHT * groups.size())
+        + (sorted == null ? SKETCH_WEIGHT : (long) Double.BYTES * sorted.length);
+    synchronized (this) {
+      put(new Key(spec, exactQuantiles ? Part.EXACT_RESULT : Part.SKETCH_RESULT), result,
+          resultWeight);
+      if (groups != null) {
+        put(new Key(spec, Part.GROUPS), groups, ENTRY_WEIGHT + GROUP_WEIGHT * groups.size());
+      }
+      put(new Key(spec, Part.STATISTICS), result.getStatistics(),
+          ENTRY_WEIGHT + STATISTICS_WEIGHT);
+    }
+    return result;
+  }
+
+  private void put(Key key, Object value, long valueWeight) {
+    Entry previous = entries.put(key, new Entry(value, valueWeight, System.nanoTime()));
+    if (previous != null) {
+      weight -= previous.weight;
+    }
+    weight += valueWeight;
+    // найдавніше використані записи стоять першими; запис, важчий за весь кеш, теж витісняється
+    Iterator<Entry> oldest = entries.values().iterator();
+    while (weight > maxWeight && oldest.hasNext()) {
+      weight -= oldest.next().weight;
+      oldest.remove();
+      evictions++;
+      EVICTIONS.increment();
+    }
+  }
+
+  /** A cached part of the results of one description. */
+  private static final class Key {
+
+    private final QuerySpec spec;
+    private final Part part;
+
+    Key(QuerySpec spec, Part part) {
+      this.spec = spec;
+      this.part = part;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) o;
+      return part == other.part && spec.equals(other.spec);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * spec.hashCode() + part.hashCode();
+    }
+  }
+
+  private static final class Entry {
+
+    private final Object value;
+    private final long weight;
+    private final long writtenAt;
+
+    Entry(Object value, long weight, long writtenAt) {
+      this.value = value;
+      this.weight = weight;
+      this.writtenAt = writtenAt;
+    }
+  }
+
+  /** The number of hits, misses, evictions and expirations of a cache. */
+  public static final class Stats {
+
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final long expirations;
+
+    Stats(long hits, long misses, long evictions, long expirations) {
+      this.hits = hits;
+      this.misses = misses;
+      this.evictions = evictions;
+      this.expirations = expirations;
+    }
+
+    /**
+     * Returns the number of requests answered from the cache.
+     *
+     * @return the number of requests answered from the cache
+     */
+    public long getHits() {
+      return hits;
+    }
+
+    /**
+     * Returns the number of requests that had to run a query.
+     *
+     * @return the number of requests that had to run a query
+     */
+    public long getMisses() {
+      return misses;
+    }
+
+    /**
+     * Returns the number of entries removed to stay within the maximum weight.
+     *
+     * @return the number of entries removed to stay within the maximum weight
+     */
+    public long getEvictions() {
+      return evictions;
+    }
+
+    /**
+     * Returns the number of entries removed because they expired.
+     *
+     * @return the number of entries removed because they expired
+     */
+    public long getExpirations() {
+      return expirations;
+    }
+
+    /**
+     * Returns the share of requests answered from the cache.
+     *
+     * @return the share of requests answered from the cache, 0 if there were none
+     */
+    public double getHitRate() {
+      long requests = hits + misses;
+      return requests == 0 ? 0 : (double) hits / requests;
+    }
+
+    @Override
+    public String toString() {
+      return String.format(java.util.Locale.ROOT,
+          "Hits: %d, Misses: %d, Hit rate: %.2f, Evictions: %d, Expirations: %d",
+          hits, misses, getHitRate(), evictions, expirations);
+    }
+  }
+}
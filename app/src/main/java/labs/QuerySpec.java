@@ -0,0 +1,145 @@
+package labs;
+
+import java.util.Objects;
+
+/**
+ * The full description of one analysis run: which entities are generated, with which seed,
+ * and how they are filtered. Two equal descriptions always produce the same result.
+ */
+public final class QuerySpec {
+
+  /** The limit used by the interactive program. */
+  public static final long DEFAULT_LIMIT = 500;
+
+  private final EntityType entityType;
+  private final String fieldValueToFilter;
+  private final long skipN;
+  private final long limit;
+  private final double minB;
+  private final double maxB;
+  private final long seed;
+
+  /**
+   * Constructs a new {@code QuerySpec}.
+   *
+   * @param entityType the type of generated entities
+   * @param fieldValueToFilter the value of field A to keep
+   * @param skipN the number of matching entities to skip
+   * @param limit the maximum number of matching entities to consider after the skip
+   * @param minB the minimum value of field B
+   * @param maxB the maximum value of field B
+   * @param seed the seed of the generated data
+   */
+  public QuerySpec(EntityType entityType, String fieldValueToFilter, long skipN, long limit,
+      double minB, double maxB, long seed) {
+    this.entityType = Objects.requireNonNull(entityType, "entityType");
+    this.fieldValueToFilter = Objects.requireNonNull(fieldValueToFilter, "fieldValueToFilter");
+    this.skipN = skipN;
+    this.limit = limit;
+    this.minB = minB;
+    this.maxB = maxB;
+    this.seed = seed;
+  }
+
+  /**
+   * Returns the type of generated entities.
+   *
+   * @return the entity type
+   */
+  public EntityType getEntityType() {
+    return entityType;
+  }
+
+  /**
+   * Returns the value of field A to keep.
+   *
+   * @return the filter value
+   */
+  public String getFieldValueToFilter() {
+    return fieldValueToFilter;
+  }
+
+  /**
+   * Returns the number of matching entities to skip.
+   *
+   * @return the number of skipped entities
+   */
+  public long getSkipN() {
+    return skipN;
+  }
+
+  /**
+   * Returns the maximum number of matching entities to consider after the skip.
+   *
+   * @return the limit
+   */
+  public long getLimit() {
+    return limit;
+  }
+
+  /**
+   * Returns the minimum value of field B.
+   *
+   * @return the minimum of field B
+   */
+  public double getMinB() {
+    return minB;
+  }
+
+  /**
+   * Returns the maximum value of field B.
+   *
+   * @return the maximum of field B
+   */
+  public double getMaxB() {
+    return maxB;
+  }
+
+  /**
+   * Returns the seed of the generated data.
+   *
+   * @return the seed
+   */
+  public long getSeed() {
+    return seed;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof QuerySpec)) {
+      return false;
+    }
+    QuerySpec other = (QuerySpec) o;
+    return entityType == other.entityType
+        && fieldValueToFilter.equals(other.fieldValueToFilter)
+        && skipN == other.skipN
+        && limit == other.limit
+        && Double.compare(minB, other.minB) == 0
+        && Double.compare(maxB, other.maxB) == 0
+        && seed == other.seed;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(entityType, fieldValueToFilter, skipN, limit, minB, maxB, seed);
+  }
+
+  /**
+   * Returns the description in the {@code key=value} form accepted by {@link BatchRunner}.
+   *
+   * @return a string representation of the description
+   */
+  @Override
+  public String toString() {
+    return "entity=" + entityType
+        + " filter=" + fieldValueToFilter
+        + " skip=" + skipN
+        + " limit=" + limit
+        + " minB=" + minB
+        + " maxB=" + maxB
+        + " seed=" + seed;
+  }
+}
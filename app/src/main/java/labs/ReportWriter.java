@@ -0,0 +1,165 @@
+package labs;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Writes the report of a query: the groups by field V, the statistics and quartiles
+ * of field G, the outlier split and a histogram, instead of the whole list of values,
+ * and, if the query kept them, the top objects of every group and the most frequent values.
+ */
+public class ReportWriter {
+
+  /** The length of the longest histogram bar. */
+  private static final int BAR_WIDTH = 50;
+
+  /** The number of the most frequent values to list. */
+  private static final int HEAVY_HITTERS = 10;
+
+  private final Writer writer;
+
+  /**
+   * Constructs a new {@code ReportWriter}.
+   *
+   * @param writer the destination of the report; should be buffered
+   */
+  public ReportWriter(Writer writer) {
+    this.writer = writer;
+  }
+
+  /**
+   * Writes the report.
+   *
+   * @param spec the description of the run
+   * @param result the result of a query with grouping and aggregation of field G
+   * @param fullValues whether to also list every G value, which needs exact quantiles
+   * @param bins the number of histogram bins
+   * @throws IOException if writing fails
+   */
+  public void write(QuerySpec spec, Query.Result<?> result, boolean fullValues, int bins)
+      throws IOException {
+    writer.write("# " + spec + "\n");
+
+    writer.write("\nГрупування результатів за Полем В:\n");
+    for (Map.Entry<String, Long> group : result.getGroups().entrySet()) {
+      writer.write(group.getKey() + ": " + group.getValue() + "\n");
+    }
+
+    writer.write("\nДослідження значень поля Г:\n");
+    StatisticsCollector.StatisticsData statistics = result.getStatistics();
+    writer.write(statistics + "\n");
+    if (statistics.getCount() == 0) {
+      return;
+    }
+    writer.write(format("Q1: %.2f, Median: %.2f, Q3: %.2f%n",
+        result.getPercentile(25), result.getPercentile(50), result.getPercentile(75)));
+    writer.write(result.getOutlierSplit() + "\n");
+
+    writeHistogram(result, bins);
+    writeTopK(result);
+    writeHeavyHitters(result);
+
+    double[] sortedValues = result.getSortedGValues();
+    OffHeapDoubleColumn column = result.getGColumn();
+    if (fullValues && sortedValues != null) {
+      writer.write("\nЗначення поля Г:\n");
+      for (double value : sortedValues) {
+        writer.write(Double.toString(value));
+        writer.write('\n');
+      }
+    } else if (fullValues && column != null) {
+      writer.write("\nЗначення поля Г:\n");
+      for (long i = 0; i < column.size(); i++) {
+        writer.write(Double.toString(column.get(i)));
+        writer.write('\n');
+      }
+    }
+    writer.flush();
+  }
+
+  /**
+   * Writes a histogram of field G with equal-width bins between its minimum and maximum.
+   * The counts are exact when the G values are kept, and estimated from the sketch otherwise.
+   */
+  private void writeHistogram(Query.Result<?> result, int bins) throws IOException {
+    StatisticsCollector.StatisticsData statistics = result.getStatistics();
+    double min = statistics.getMin();
+    double max = statistics.getMax();
+    double width = (max - min) / bins;
+    long[] counts = new long[bins];
+
+    double[] sortedValues = result.getSortedGValues();
+    OffHeapDoubleColumn column = result.getGColumn();
+    if (width == 0) {
+      counts[0] = statistics.getCount();
+    } else if (sortedValues != null) {
+      for (double value : sortedValues) {
+        counts[Math.min((int) ((value - min) / width), bins - 1)]++;
+      }
+    } else if (column != null) {
+      long previous = 0;
+      for (int i = 0; i < bins; i++) {
+        long below = i == bins - 1 ? column.size() : column.countBelow(min + (i + 1) * width);
+        counts[i] = below - previous;
+        previous = below;
+      }
+    } else {
+      QuantileCollector.QuantileSketch sketch = result.getSketch();
+      double previousRank = 0;
+      for (int i = 0; i < bins; i++) {
+        double rank = i == bins - 1 ? 1 : sketch.getRank(min + (i + 1) * width);
+        counts[i] = Math.round((rank - previousRank) * statistics.getCount());
+        previousRank = rank;
+      }
+    }
+
+    long largest = 1;
+    for (long count : counts) {
+      largest = Math.max(largest, count);
+    }
+    writer.write("\nГістограма поля Г:\n");
+    for (int i = 0; i < bins; i++) {
+      int bar = (int) (counts[i] * BAR_WIDTH / largest);
+      writer.write(format("[%12.2f, %12.2f) %-" + BAR_WIDTH + "s %d%n",
+          min + i * width, min + (i + 1) * width, "#".repeat(bar), counts[i]));
+    }
+  }
+
+  /** Writes the objects with the largest G values of every group, if the query kept them. */
+  private void writeTopK(Query.Result<?> result) throws IOException {
+    Map<String, ? extends TopKCollector.TopK<?>> tops = result.getTopK();
+    if (tops == null) {
+      return;
+    }
+    writer.write("\nНайбільші значення поля Г у групах за Полем В:\n");
+    Map<String, ? extends TopKCollector.TopK<?>> sorted = new TreeMap<>(tops);
+    for (Map.Entry<String, ? extends TopKCollector.TopK<?>> group : sorted.entrySet()) {
+      writer.write(group.getKey() + ":\n");
+      double[] values = group.getValue().getValues();
+      List<?> items = group.getValue().getItems();
+      for (int i = 0; i < values.length; i++) {
+        writer.write(format("%12.2f  %s%n", values[i], items.get(i)));
+      }
+    }
+  }
+
+  /** Writes the most frequent values of the tracked field, if the query tracked one. */
+  private void writeHeavyHitters(Query.Result<?> result) throws IOException {
+    HeavyHitterCollector.HeavyHitters hitters = result.getHeavyHitters();
+    if (hitters == null) {
+      return;
+    }
+    writer.write("\nНайчастіші значення (з " + hitters.getTotal() + "):\n");
+    for (HeavyHitterCollector.HeavyHitter hitter : hitters.getTop(HEAVY_HITTERS)) {
+      writer.write(hitter + "\n");
+    }
+  }
+
+  private static String format(String pattern, Object... args) {
+    return String.format(Locale.ROOT, pattern, args);
+  }
+}
@@ -0,0 +1,286 @@
+package labs;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * A compressed set of row numbers, for the indexes of a {@link DatasetIndex}. The rows are
+ * split by their high 16 bits into containers of up to 65536 rows; a container keeps its low
+ * 16 bits as a sorted array while it holds at most {@value #ARRAY_MAX} rows, and as a bitmap
+ * of 1024 words otherwise. So a rare value of a field costs two bytes per row, a frequent one
+ * at most one bit per row, and the intersection of two sets works container by container.
+ *
+ * <p>The number of rows before a row ({@link #rank}) and the row of a given number
+ * ({@link #select}) are found from the sizes of the containers, without walking the rows,
+ * which answers skipping and limiting over the matches of a filter.
+ *
+ * <p>A bitmap is filled by the index that owns it, in ascending order of the rows; after that
+ * it is read-only and can be read by many threads.
+ */
+public final class RowBitmap {
+
+  /** The largest number of rows a container keeps as an array. */
+  static final int ARRAY_MAX = 4096;
+
+  /** The number of words of a bitmap container. */
+  private static final int WORDS = 1 << 10;
+
+  private char[] keys = new char[4];
+  private char[][] arrays = new char[4][];
+  private long[][] bitmaps = new long[4][];
+  private int[] cardinalities = new int[4];
+  private int size;
+  private long cardinality;
+  private int last = -1;
+
+  /**
+   * Adds a row larger than all the rows added before.
+   *
+   * @param row the row number
+   * @throws IllegalArgumentException if the row is negative or not larger than the last one
+   */
+  void add(int row) {
+    if (row <= last) {
+      throw new IllegalArgumentException("Rows must be added in ascending order: " + row
+          + " after " + last);
+    }
+    last = row;
+    char key = (char) (row >>> 16);
+    char low = (char) row;
+    if (size == 0 || keys[size - 1] != key) {
+      if (size == keys.length) {
+        grow();
+      }
+      keys[size] = key;
+      arrays[size] = new char[8];
+      size++;
+    }
+    int i = size - 1;
+    int count = cardinalities[i];
+    if (arrays[i] != null) {
+      if (count < ARRAY_MAX) {
+        if (count == arrays[i].length) {
+          arrays[i] = Arrays.copyOf(arrays[i], Math.min(count * 2, ARRAY_MAX));
+        }
+        arrays[i][count] = low;
+      } else {
+        bitmaps[i] = toBitmap(arrays[i], count);
+        arrays[i] = null;
+        bitmaps[i][low >>> 6] |= 1L << low;
+      }
+    } else {
+      bitmaps[i][low >>> 6] |= 1L << low;
+    }
+    cardinalities[i]++;
+    cardinality++;
+  }
+
+  /**
+   * Returns the number of rows.
+   *
+   * @return the number of rows
+   */
+  public long cardinality() {
+    return cardinality;
+  }
+
+  /**
+   * Tests whether the set holds a row.
+   *
+   * @param row the row number
+   * @return whether the row was added
+   */
+  public boolean contains(int row) {
+    int i = Arrays.binarySearch(keys, 0, size, (char) (row >>> 16));
+    return i >= 0 && containsLow(i, (char) row);
+  }
+
+  /**
+   * Returns the number of rows smaller than a row.
+   *
+   * @param row the row number
+   * @return the number of rows of the set before it
+   */
+  public long rank(int row) {
+    char key = (char) (row >>> 16);
+    char low = (char) row;
+    long rank = 0;
+    for (int i = 0; i < size && keys[i] <= key; i++) {
+      if (keys[i] < key) {
+        rank += cardinalities[i];
+      } else if (arrays[i] != null) {
+        int position = Arrays.binarySearch(arrays[i], 0, cardinalities[i], low);
+        rank += position >= 0 ? position : -position - 1;
+      } else {
+        long[] words = bitmaps[i];
+        for (int w = 0; w < low >>> 6; w++) {
+          rank += Long.bitCount(words[w]);
+        }
+        rank += Long.bitCount(words[low >>> 6] & ((1L << low) - 1));
+      }
+    }
+    return rank;
+  }
+
+  /**
+   * Returns the row with the given number in ascending order.
+   *
+   * @param rank the number of the row, from 0
+   * @return the row, the smallest one for 0
+   * @throws IndexOutOfBoundsException if the set holds no more than {@code rank} rows
+   */
+  public int select(long rank) {
+    if (rank < 0 || rank >= cardinality) {
+      throw new IndexOutOfBoundsException("Rank " + rank + " of " + cardinality + " rows");
+    }
+    int i = 0;
+    while (rank >= cardinalities[i]) {
+      rank -= cardinalities[i++];
+    }
+    int high = keys[i] << 16;
+    if (arrays[i] != null) {
+      return high | arrays[i][(int) rank];
+    }
+    long[] words = bitmaps[i];
+    int w = 0;
+    int remaining = (int) rank;
+    while (remaining >= Long.bitCount(words[w])) {
+      remaining -= Long.bitCount(words[w++]);
+    }
+    long word = words[w];
+    for (int k = 0; k < remaining; k++) {
+      word &= word - 1;
+    }
+    return high | (w << 6) | Long.numberOfTrailingZeros(word);
+  }
+
+  /**
+   * Returns the rows of a range in ascending order.
+   *
+   * @param from the smallest row to return
+   * @param to the row after the largest row to return
+   * @return a new array of the rows of the set in {@code [from, to)}
+   */
+  public int[] toArray(int from, int to) {
+    if (from >= to) {
+      return new int[0];
+    }
+    int[] rows = new int[(int) (rank(to) - rank(from))];
+    int n = 0;
+    for (int i = 0; i < size && n < rows.length; i++) {
+      int high = keys[i] << 16;
+      if (high + 0xFFFF < from) {
+        continue;
+      }
+      if (arrays[i] != null) {
+        char[] array = arrays[i];
+        for (int k = 0; k < cardinalities[i] && n < rows.length; k++) {
+          int row = high | array[k];
+          if (row >= from) {
+            rows[n++] = row;
+          }
+        }
+      } else {
+        long[] words = bitmaps[i];
+        for (int w = 0; w < WORDS && n < rows.length; w++) {
+          for (long word = words[w]; word != 0 && n < rows.length; word &= word - 1) {
+            int row = high | (w << 6) | Long.numberOfTrailingZeros(word);
+            if (row >= from) {
+              rows[n++] = row;
+            }
+          }
+        }
+      }
+    }
+    return rows;
+  }
+
+  /**
+   * Returns the rows that are in both sets.
+   *
+   * @param other another set
+   * @return a new set, the intersection
+   */
+  public RowBitmap and(RowBitmap other) {
+    RowBitmap result = new RowBitmap();
+    int i = 0;
+    int j = 0;
+    while (i < size && j < other.size) {
+      if (keys[i] < other.keys[j]) {
+        i++;
+      } else if (keys[i] > other.keys[j]) {
+        j++;
+      } else {
+        int high = keys[i] << 16;
+        if (arrays[i] != null || other.arrays[j] != null) {
+          // масив перевіряється проти іншого контейнера, результат не більший за масив
+          boolean mine = arrays[i] != null
+              && (other.arrays[j] == null || cardinalities[i] <= other.cardinalities[j]);
+          RowBitmap small = mine ? this : other;
+          RowBitmap large = mine ? other : this;
+          int s = mine ? i : j;
+          int l = mine ? j : i;
+          for (int k = 0; k < small.cardinalities[s]; k++) {
+            char low = small.arrays[s][k];
+            if (large.containsLow(l, low)) {
+              result.add(high | low);
+            }
+          }
+        } else {
+          long[] a = bitmaps[i];
+          long[] b = other.bitmaps[j];
+          for (int w = 0; w < WORDS; w++) {
+            for (long word = a[w] & b[w]; word != 0; word &= word - 1) {
+              result.add(high | (w << 6) | Long.numberOfTrailingZeros(word));
+            }
+          }
+        }
+        i++;
+        j++;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns an estimate of the memory the set takes.
+   *
+   * @return the size of the containers in bytes
+   */
+  public long sizeInBytes() {
+    long bytes = keys.length * 2L + cardinalities.length * 4L;
+    for (int i = 0; i < size; i++) {
+      bytes += arrays[i] != null ? arrays[i].length * 2L : WORDS * 8L;
+    }
+    return bytes;
+  }
+
+  @Override
+  public String toString() {
+    return String.format(Locale.ROOT, "RowBitmap{rows=%d, containers=%d, bytes=%d}",
+        cardinality, size, sizeInBytes());
+  }
+
+  private boolean containsLow(int i, char low) {
+    if (arrays[i] != null) {
+      return Arrays.binarySearch(arrays[i], 0, cardinalities[i], low) >= 0;
+    }
+    return (bitmaps[i][low >>> 6] & (1L << low)) != 0;
+  }
+
+  private void grow() {
+    int capacity = keys.length * 2;
+    keys = Arrays.copyOf(keys, capacity);
+    arrays = Arrays.copyOf(arrays, capacity);
+    bitmaps = Arrays.copyOf(bitmaps, capacity);
+    cardinalities = Arrays.copyOf(cardinalities, capacity);
+  }
+
+  private static long[] toBitmap(char[] array, int count) {
+    long[] words = new long[WORDS];
+    for (int k = 0; k < count; k++) {
+      words[array[k] >>> 6] |= 1L << array[k];
+    }
+    return words;
+  }
+}
@@ -0,0 +1,238 @@
+package labs;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the query of {@link Main} in several local worker processes. The coordinator starts
+ * {@link ShardWorker} processes with the class path of this JVM, and they connect back to it
+ * over the loopback interface. Every worker generates the same entities from the seed, or
+ * reads the same dataset file, so a shard is just a range of indices.
+ *
+ * <p>Skipping and limiting count the entities that pass the filter on field A, which
+ * a range of indices does not know in advance. So a query runs in two phases:
+ *
+ * <ol>
+ *   <li>the workers count the matches in consecutive blocks of indices, in rounds of one block
+ *       each and with blocks growing twice every round, until the blocks hold
+ *       {@code skip + limit} matches or the dataset ends;</li>
+ *   <li>from the counts the coordinator knows which matches of every block fall into the
+ *       window of the query, and the workers compute the {@link ShardPartial} of those
+ *       matches: the counts by field V, the statistics and the quantiles of field G.</li>
+ * </ol>
+ *
+ * <p>The coordinator merges the partials into the same result {@link Query#run()} returns.
+ * The first phase only draws the keys of the entities, so its cost is small next to the
+ * second one, which generates the entities in the window.
+ */
+public class ShardCoordinator implements AutoCloseable {
+
+  private static final Metrics.Stage COUNT = Metrics.stage("shard.count");
+  private static final Metrics.Stage AGGREGATE = Metrics.stage("shard.aggregate");
+
+  /** The number of indices in a block of the first round. */
+  static final long INITIAL_BLOCK = 1 << 14;
+
+  /** The largest number of indices in a block. */
+  static final long MAX_BLOCK = 1 << 22;
+
+  /** How long to wait for the workers to connect. */
+  private static final int CONNECT_TIMEOUT_MILLIS = 60_000;
+
+  private final List<Process> processes = new ArrayList<>();
+  private final List<Socket> sockets = new ArrayList<>();
+  private final List<DataInputStream> inputs = new ArrayList<>();
+  private final List<DataOutputStream> outputs = new ArrayList<>();
+
+  /**
+   * Starts the workers and waits for them to connect.
+   *
+   * @param workers the number of worker processes
+   * @param jvmOptions the options of the worker JVMs, for example {@code -Xmx512m}
+   * @throws IOException if a worker cannot be started or does not connect in time
+   * @throws IllegalArgumentException if the number of workers is not positive
+   */
+  public ShardCoordinator(int workers, List<String> jvmOptions) throws IOException {
+    if (workers <= 0) {
+      throw new IllegalArgumentException("workers must be positive: " + workers);
+    }
+    try (ServerSocket server = new ServerSocket(0, workers, InetAddress.getLoopbackAddress())) {
+      server.setSoTimeout(CONNECT_TIMEOUT_MILLIS);
+      List<String> command = new ArrayList<>();
+      command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+      command.addAll(jvmOptions);
+      command.add("-cp");
+      command.add(System.getProperty("java.class.path"));
+      command.add(ShardWorker.class.getName());
+      command.add(String.valueOf(server.getLocalPort()));
+      for (int i = 0; i < workers; i++) {
+        processes.add(new ProcessBuilder(command)
+            .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+            .redirectError(ProcessBuilder.Redirect.INHERIT)
+            .start());
+      }
+      for (int i = 0; i < workers; i++) {
+        Socket socket = server.accept();
+        sockets.add(socket);
+        socket.setTcpNoDelay(true);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        if (in.readInt() != ShardProtocol.MAGIC || in.readInt() != ShardProtocol.VERSION) {
+          throw new IOException("Not a worker of this version: " + socket);
+        }
+        inputs.add(in);
+        outputs.add(new DataOutputStream(new BufferedOutputStream(socket.getOutputStream())));
+      }
+    } catch (IOException | RuntimeException e) {
+      close();
+      throw e;
+    }
+  }
+
+  /**
+   * Returns the number of workers.
+   *
+   * @return the number of workers
+   */
+  public int getWorkers() {
+    return outputs.size();
+  }
+
+  /**
+   * Runs the query of the description in the workers.
+   *
+   * @param spec the description of the run
+   * @param exactQuantiles whether the workers send all the G values instead of sketches
+   * @param dataset the dataset file to analyze, or {@code null} for generated data
+   * @return the result, as {@link Query#run()} returns it, without the objects
+   * @throws IOException if a worker fails
+   */
+  public Query.Result<HasGField> run(QuerySpec spec, boolean exactQuantiles, Path dataset)
+      throws IOException {
+    String path = dataset == null ? "" : dataset.toAbsolutePath().toString();
+    long size = Long.MAX_VALUE;
+    for (DataOutputStream out : outputs) {
+      out.writeByte(ShardProtocol.QUERY);
+      ShardProtocol.writeSpec(out, spec);
+      out.writeBoolean(exactQuantiles);
+      out.writeUTF(path);
+      out.flush();
+    }
+    for (DataInputStream in : inputs) {
+      size = in.readLong();
+    }
+
+    long wanted = spec.getSkipN() + spec.getLimit();
+    if (wanted < 0) {
+      wanted = Long.MAX_VALUE;
+    }
+    List<long[]> blocks = count(wanted, size);
+    List<long[]> tasks = new ArrayList<>();
+    long before = 0;
+    for (long[] block : blocks) {
+      // block = {from, to, matches}; вікно запиту в нумерації збігів цього блоку
+      long lo = Math.max(0, spec.getSkipN() - before);
+      long hi = Math.min(block[2], wanted - before);
+      if (lo < hi) {
+        tasks.add(new long[] {block[0], block[1], lo, hi - lo});
+      }
+      before += block[2];
+    }
+    return aggregate(tasks, exactQuantiles).toResult();
+  }
+
+  /** The first phase: counts the matches of blocks until they hold the wanted number. */
+  private List<long[]> count(long wanted, long size) throws IOException {
+    List<long[]> blocks = new ArrayList<>();
+    try (Metrics.Span span = COUNT.start()) {
+      long next = 0;
+      long total = 0;
+      long block = INITIAL_BLOCK;
+      while (total < wanted && next < size) {
+        int sent = 0;
+        for (; sent < outputs.size() && next < size; sent++) {
+          long to = Math.min(size, next + block);
+          DataOutputStream out = outputs.get(sent);
+          out.writeByte(ShardProtocol.COUNT);
+          out.writeLong(next);
+          out.writeLong(to);
+          out.flush();
+          blocks.add(new long[] {next, to, 0});
+          next = to;
+        }
+        for (int i = 0; i < sent; i++) {
+          long matches = inputs.get(i).readLong();
+          blocks.get(blocks.size() - sent + i)[2] = matches;
+          total += matches;
+        }
+        block = Math.min(block * 2, MAX_BLOCK);
+      }
+      span.items(blocks.size());
+    }
+    return blocks;
+  }
+
+  /** The second phase: computes and merges the partials of the tasks. */
+  private ShardPartial aggregate(List<long[]> tasks, boolean exactQuantiles) throws IOException {
+    ShardPartial merged = new ShardPartial(exactQuantiles);
+    try (Metrics.Span span = AGGREGATE.start()) {
+      span.items(tasks.size());
+      for (int first = 0; first < tasks.size(); first += outputs.size()) {
+        int sent = Math.min(outputs.size(), tasks.size() - first);
+        for (int i = 0; i < sent; i++) {
+          long[] task = tasks.get(first + i);
+          DataOutputStream out = outputs.get(i);
+          out.writeByte(ShardProtocol.AGGREGATE);
+          for (long value : task) {
+            out.writeLong(value);
+          }
+          out.flush();
+        }
+        for (int i = 0; i < sent; i++) {
+          merged.merge(ShardPartial.readFrom(inputs.get(i)));
+        }
+      }
+    }
+    return merged;
+  }
+
+  /** Stops the workers and closes the connections. */
+  @Override
+  public void close() {
+    for (DataOutputStream out : outputs) {
+      try {
+        out.writeByte(ShardProtocol.STOP);
+        out.flush();
+      } catch (IOException e) {
+        // обробник уже завершився, його процес буде зупинено нижче
+      }
+    }
+    for (Socket socket : sockets) {
+      try {
+        socket.close();
+      } catch (IOException e) {
+        // з'єднання більше не потрібне
+      }
+    }
+    for (Process process : processes) {
+      try {
+        if (!process.waitFor(5, TimeUnit.SECONDS)) {
+          process.destroyForcibly();
+        }
+      } catch (InterruptedException e) {
+        process.destroyForcibly();
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+}
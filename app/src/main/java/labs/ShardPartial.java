@@ -0,0 +1,168 @@
+package labs;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The part of a query result computed over one shard: the counts by field V, the statistics
+ * of field G, and either all the G values, for exact quantiles, or a quantile sketch.
+ * Partials of different shards merge into the result of the whole query; they travel between
+ * processes in the binary form of {@link #writeTo}.
+ */
+final class ShardPartial {
+
+  private static final byte VALUES = 0;
+  private static final byte SKETCH = 1;
+
+  private final Map<String, long[]> counts = new HashMap<>();
+  private final StatisticsCollector.StatisticsData statistics;
+  private final QuantileCollector.QuantileSketch sketch;
+  private double[] values;
+  private int valueCount;
+
+  /**
+   * Constructs an empty partial.
+   *
+   * @param exactQuantiles whether to keep all the G values instead of a sketch
+   */
+  ShardPartial(boolean exactQuantiles) {
+    this(new StatisticsCollector.StatisticsData(),
+        exactQuantiles ? null : new QuantileCollector.QuantileSketch(QuantileCollector.DEFAULT_K),
+        exactQuantiles ? new double[16] : null);
+  }
+
+  private ShardPartial(StatisticsCollector.StatisticsData statistics,
+      QuantileCollector.QuantileSketch sketch, double[] values) {
+    this.statistics = statistics;
+    this.sketch = sketch;
+    this.values = values;
+  }
+
+  /**
+   * Adds one entity that passed the query.
+   *
+   * @param v the value of field V
+   * @param g the value of field G
+   */
+  void accept(String v, double g) {
+    counts.computeIfAbsent(v, key -> new long[1])[0]++;
+    statistics.accept(g);
+    if (sketch != null) {
+      sketch.accept(g);
+    } else {
+      if (valueCount == values.length) {
+        values = Arrays.copyOf(values, valueCount * 2);
+      }
+      values[valueCount++] = g;
+    }
+  }
+
+  /**
+   * Adds another partial of the same kind to this one.
+   *
+   * @param other the partial of another shard
+   * @return this partial
+   */
+  ShardPartial merge(ShardPartial other) {
+    if ((sketch == null) != (other.sketch == null)) {
+      throw new IllegalArgumentException("Cannot merge exact values with a sketch");
+    }
+    for (Map.Entry<String, long[]> entry : other.counts.entrySet()) {
+      counts.computeIfAbsent(entry.getKey(), key -> new long[1])[0] += entry.getValue()[0];
+    }
+    statistics.combine(other.statistics);
+    if (sketch != null) {
+      sketch.merge(other.sketch);
+    } else {
+      if (valueCount + other.valueCount > values.length) {
+        values = Arrays.copyOf(values, Math.max(values.length * 2, valueCount + other.valueCount));
+      }
+      System.arraycopy(other.values, 0, values, valueCount, other.valueCount);
+      valueCount += other.valueCount;
+    }
+    return this;
+  }
+
+  /**
+   * Builds the result of the query from the merged partials of all the shards,
+   * like {@link Query#run()} does over one stream.
+   *
+   * @return the result, with sorted G values for exact quantiles
+   */
+  Query.Result<HasGField> toResult() {
+    Map<String, Long> groups = new HashMap<>();
+    for (Map.Entry<String, long[]> entry : counts.entrySet()) {
+      groups.put(entry.getKey(), entry.getValue()[0]);
+    }
+    double[] sorted = null;
+    if (values != null) {
+      sorted = Arrays.copyOf(values, valueCount);
+      Arrays.sort(sorted);
+    }
+    return new Query.Result<>(null, groups, statistics, sketch, sorted, null);
+  }
+
+  /**
+   * Writes the partial: the counts with their values of field V, the statistics, then
+   * the G values or the sketch.
+   *
+   * @param out the output
+   * @throws IOException if the output fails
+   */
+  void writeTo(DataOutput out) throws IOException {
+    out.writeInt(counts.size());
+    for (Map.Entry<String, long[]> entry : counts.entrySet()) {
+      out.writeUTF(entry.getKey());
+      out.writeLong(entry.getValue()[0]);
+    }
+    statistics.writeTo(out);
+    if (sketch != null) {
+      out.writeByte(SKETCH);
+      sketch.writeTo(out);
+    } else {
+      out.writeByte(VALUES);
+      out.writeInt(valueCount);
+      for (int i = 0; i < valueCount; i++) {
+        out.writeDouble(values[i]);
+      }
+    }
+  }
+
+  /**
+   * Reads a partial written by {@link #writeTo}.
+   *
+   * @param in the input
+   * @return the partial
+   * @throws IOException if the input fails or holds an unknown kind of quantiles
+   */
+  static ShardPartial readFrom(DataInput in) throws IOException {
+    int groups = in.readInt();
+    Map<String, long[]> counts = new HashMap<>();
+    for (int i = 0; i < groups; i++) {
+      counts.put(in.readUTF(), new long[] {in.readLong()});
+    }
+    StatisticsCollector.StatisticsData statistics =
+        StatisticsCollector.StatisticsData.readFrom(in);
+    byte kind = in.readByte();
+    ShardPartial partial;
+    if (kind == SKETCH) {
+      partial = new ShardPartial(statistics, QuantileCollector.QuantileSketch.readFrom(in), null);
+    } else if (kind == VALUES) {
+      int count = in.readInt();
+      double[] values = new double[Math.max(count, 16)];
+      for (int i = 0; i < count; i++) {
+        values[i] = in.readDouble();
+      }
+      partial = new ShardPartial(statistics, null, values);
+      partial.valueCount = count;
+    } else {
+      throw new IOException("Unknown kind of quantiles: " + kind);
+    }
+    partial.counts.putAll(counts);
+    return partial;
+  }
+}
@@ -0,0 +1,71 @@
+package labs;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * The messages between a {@link ShardCoordinator} and its {@link ShardWorker} processes,
+ * sent over a local socket in the big-endian form of {@link DataOutput}.
+ *
+ * <pre>
+ * worker hello  int MAGIC, int VERSION
+ * QUERY         QuerySpec, boolean exactQuantiles, UTF dataset path or ""
+ *               reply: long number of indices, {@code Long.MAX_VALUE} for generated data,
+ *               0 if the generator never produces the value of field A
+ * COUNT         long from, long to
+ *               reply: long number of entities in [from, to) whose field A matches
+ * AGGREGATE     long from, long to, long skip, long limit
+ *               reply: the {@link ShardPartial} of the matches skip .. skip + limit - 1
+ * STOP          no reply; the worker exits
+ * </pre>
+ */
+final class ShardProtocol {
+
+  /** "LABW" in ASCII: the first bytes a worker sends. */
+  static final int MAGIC = 0x4C414257;
+
+  /** The version of the protocol. */
+  static final int VERSION = 1;
+
+  static final byte QUERY = 1;
+  static final byte COUNT = 2;
+  static final byte AGGREGATE = 3;
+  static final byte STOP = 4;
+
+  private ShardProtocol() {
+  }
+
+  /**
+   * Writes the description of a query.
+   *
+   * @param out the output
+   * @param spec the description
+   * @throws IOException if the output fails
+   */
+  static void writeSpec(DataOutput out, QuerySpec spec) throws IOException {
+    out.writeByte(spec.getEntityType().ordinal());
+    out.writeUTF(spec.getFieldValueToFilter());
+    out.writeLong(spec.getSkipN());
+    out.writeLong(spec.getLimit());
+    out.writeDouble(spec.getMinB());
+    out.writeDouble(spec.getMaxB());
+    out.writeLong(spec.getSeed());
+  }
+
+  /**
+   * Reads the description of a query written by {@link #writeSpec}.
+   *
+   * @param in the input
+   * @return the description
+   * @throws IOException if the input fails or names an unknown entity type
+   */
+  static QuerySpec readSpec(DataInput in) throws IOException {
+    int type = in.readUnsignedByte();
+    if (type >= EntityType.values().length) {
+      throw new IOException("Unknown entity type: " + type);
+    }
+    return new QuerySpec(EntityType.values()[type], in.readUTF(), in.readLong(), in.readLong(),
+        in.readDouble(), in.readDouble(), in.readLong());
+  }
+}
@@ -0,0 +1,137 @@
+package labs;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.file.Paths;
+import java.util.function.Function;
+import java.util.function.IntPredicate;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * A worker process of a {@link ShardCoordinator}. It connects to the coordinator on the
+ * loopback interface, then answers its requests one by one: counts the entities whose field A
+ * matches in a range of indices, or computes the {@link ShardPartial} of some of them.
+ * The entities are generated from the seed of the query, or read from a dataset file,
+ * so every worker sees the same data and needs only the bounds of its shard.
+ */
+public final class ShardWorker {
+
+  private final DataInputStream in;
+  private final DataOutputStream out;
+
+  private QuerySpec spec;
+  private boolean exactQuantiles;
+  private IntPredicate filterA;
+  private DatasetReader dataset;
+  private EntityCursor<HasGField> cursor;
+
+  private ShardWorker(DataInputStream in, DataOutputStream out) {
+    this.in = in;
+    this.out = out;
+  }
+
+  /**
+   * Runs a worker.
+   *
+   * @param args the port the coordinator listens on
+   */
+  public static void main(String[] args) {
+    if (args.length != 1) {
+      System.err.println("Usage: ShardWorker <port>");
+      System.exit(2);
+    }
+    try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), Integer.parseInt(args[0]))) {
+      socket.setTcpNoDelay(true);
+      DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+      DataOutputStream out =
+          new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+      new ShardWorker(in, out).serve();
+    } catch (IOException e) {
+      System.err.println("Помилка обробника: " + e.getMessage());
+      System.exit(1);
+    }
+  }
+
+  private void serve() throws IOException {
+    out.writeInt(ShardProtocol.MAGIC);
+    out.writeInt(ShardProtocol.VERSION);
+    out.flush();
+    try {
+      while (true) {
+        byte request = in.readByte();
+        switch (request) {
+          case ShardProtocol.QUERY:
+            out.writeLong(prepare());
+            break;
+          case ShardProtocol.COUNT:
+            out.writeLong(count(in.readLong(), in.readLong()));
+            break;
+          case ShardProtocol.AGGREGATE:
+            aggregate(in.readLong(), in.readLong(), in.readLong(), in.readLong()).writeTo(out);
+            break;
+          case ShardProtocol.STOP:
+            return;
+          default:
+            throw new IOException("Unknown request: " + request);
+        }
+        out.flush();
+      }
+    } finally {
+      if (dataset != null) {
+        dataset.close();
+      }
+    }
+  }
+
+  /** Reads a query and opens its data; returns the number of indices. */
+  private long prepare() throws IOException {
+    spec = ShardProtocol.readSpec(in);
+    exactQuantiles = in.readBoolean();
+    String path = in.readUTF();
+    if (dataset != null) {
+      dataset.close();
+      dataset = null;
+    }
+    String value = spec.getFieldValueToFilter();
+    if (path.isEmpty()) {
+      int code = spec.getEntityType().getADictionary().codeOf(value);
+      filterA = c -> c == code;
+      cursor = spec.getEntityType().generator(spec.getSeed()).cursor(0, 0);
+      // невідоме значення поля А не згенерується, тож збігів шукати ніде
+      return code < 0 ? 0 : Long.MAX_VALUE;
+    }
+    dataset = new DatasetReader(Paths.get(path));
+    if (dataset.getEntityType() != spec.getEntityType()) {
+      throw new IOException("The dataset holds " + dataset.getEntityType());
+    }
+    int code = dataset.codeOf(value);
+    filterA = c -> c == code;
+    cursor = dataset.cursor();
+    return dataset.size();
+  }
+
+  private long count(long from, long to) {
+    cursor.reset(from, to);
+    long passed = 0;
+    while (cursor.next()) {
+      if (filterA.test(cursor.aCode())) {
+        passed++;
+      }
+    }
+    return passed;
+  }
+
+  private ShardPartial aggregate(long from, long to, long skipN, long limit) {
+    ShardPartial partial = new ShardPartial(exactQuantiles);
+    Function<HasGField, String> fieldV = spec.getEntityType().getSchema().getFieldV();
+    ToDoubleFunction<HasGField> fieldG = spec.getEntityType().getSchema().getFieldG();
+    cursor.reset(from, to).select(filterA, skipN, limit, spec.getMinB(), spec.getMaxB(),
+        item -> partial.accept(fieldV.apply(item), fieldG.applyAsDouble(item)));
+    return partial;
+  }
+}
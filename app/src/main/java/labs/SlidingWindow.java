@@ -0,0 +1,561 @@
+package labs;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.function.Consumer;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Watches an endless stream of objects and keeps the statistics of field G over the latest
+ * ones: a window of the last {@code size} objects or of the objects of the last time period,
+ * sliding with every object or tumbling from one period to the next. The mean and standard
+ * deviation are updated as objects enter and leave the window, and the quartiles come from
+ * an order-statistic tree, so each object costs {@code O(log w)} for a window of {@code w}.
+ *
+ * <p>Each object is checked against the IQR rule of {@link Main#splitOutliers} over the
+ * window before it, and reported as an {@link OutlierEvent} if it falls outside. Windows are
+ * not thread-safe; feed one from a single thread.
+ *
+ * @param <T> the type of watched objects
+ */
+public class SlidingWindow<T> {
+
+  /** The number of objects the window needs before it reports outliers, by default. */
+  public static final int DEFAULT_MIN_SAMPLES = 20;
+
+  private final ToDoubleFunction<T> fieldG;
+
+  /** The maximum number of objects, or 0 for a time window. */
+  private final int size;
+
+  /** The length of a time window, in milliseconds, or 0 for a count window. */
+  private final long periodMillis;
+
+  private boolean tumbling;
+  private int minSamples = DEFAULT_MIN_SAMPLES;
+  private Consumer<? super OutlierEvent<T>> outlierListener;
+  private Consumer<? super WindowSummary> windowListener;
+
+  /** The values and timestamps of the objects in the window, oldest first, in a ring. */
+  private double[] values = new double[16];
+  private long[] timestamps = new long[16];
+  private int head;
+  private int count;
+
+  /** The number of objects seen; also tells equal values apart in the tree. */
+  private long sequence;
+
+  private final OrderStatisticTree sorted = new OrderStatisticTree();
+  private double mean;
+  private double m2;
+  private long removedSinceRebuild;
+
+  private long windowStart = Long.MIN_VALUE;
+  private long outliers;
+
+  private SlidingWindow(ToDoubleFunction<T> fieldG, int size, long periodMillis) {
+    this.fieldG = fieldG;
+    this.size = size;
+    this.periodMillis = periodMillis;
+  }
+
+  /**
+   * Creates a window over the last {@code size} objects.
+   *
+   * @param size the number of objects in the window
+   * @param fieldG the function to extract field G
+   * @param <T> the type of watched objects
+   * @return a new sliding window
+   */
+  public static <T> SlidingWindow<T> ofCount(int size, ToDoubleFunction<T> fieldG) {
+    if (size <= 0) {
+      throw new IllegalArgumentException("size must be positive: " + size);
+    }
+    return new SlidingWindow<>(fieldG, size, 0);
+  }
+
+  /**
+   * Creates a window over the objects of the last period: those with a timestamp greater
+   * than that of the newest object minus the period.
+   *
+   * @param period the length of the window
+   * @param fieldG the function to extract field G
+   * @param <T> the type of watched objects
+   * @return a new sliding window
+   */
+  public static <T> SlidingWindow<T> ofTime(Duration period, ToDoubleFunction<T> fieldG) {
+    if (period.toMillis() <= 0) {
+      throw new IllegalArgumentException("period must be at least 1 ms: " + period);
+    }
+    return new SlidingWindow<>(fieldG, 0, period.toMillis());
+  }
+
+  /**
+   * Makes the window tumble: it is emptied when it is full, or when its period ends,
+   * and the summary of the finished window goes to the window listener.
+   *
+   * @return this window
+   */
+  public SlidingWindow<T> tumbling() {
+    this.tumbling = true;
+    return this;
+  }
+
+  /**
+   * Sets how many objects the window must hold before objects are checked for outliers.
+   *
+   * @param minSamples the minimum number of objects, at least 1
+   * @return this window
+   */
+  public SlidingWindow<T> minSamples(int minSamples) {
+    if (minSamples <= 0) {
+      throw new IllegalArgumentException("minSamples must be positive: " + minSamples);
+    }
+    this.minSamples = minSamples;
+    return this;
+  }
+
+  /**
+   * Sets the receiver of outlier events.
+   *
+   * @param listener receives an event for each outlier
+   * @return this window
+   */
+  public SlidingWindow<T> onOutlier(Consumer<? super OutlierEvent<T>> listener) {
+    this.outlierListener = listener;
+    return this;
+  }
+
+  /**
+   * Sets the receiver of the summaries of finished tumbling windows.
+   *
+   * @param listener receives the summary of each finished window
+   * @return this window
+   */
+  public SlidingWindow<T> onWindow(Consumer<? super WindowSummary> listener) {
+    this.windowListener = listener;
+    return this;
+  }
+
+  /**
+   * Adds an object that arrives now, by the system clock.
+   *
+   * @param item the object
+   * @return whether the object is an outlier
+   */
+  public boolean accept(T item) {
+    return accept(item, System.currentTimeMillis());
+  }
+
+  /**
+   * Adds an object with its own timestamp. The timestamps must not decrease.
+   *
+   * @param item the object
+   * @param timestamp the time of the object, in milliseconds
+   * @return whether the object is an outlier
+   * @throws IllegalArgumentException if the timestamp is older than the previous one
+   */
+  public boolean accept(T item, long timestamp) {
+    if (count > 0 && timestamp < timestamps[(head + count - 1) % values.length]) {
+      throw new IllegalArgumentException("Timestamps must not decrease: " + timestamp);
+    }
+    if (periodMillis > 0) {
+      advanceTime(timestamp);
+    }
+
+    double value = fieldG.applyAsDouble(item);
+    boolean outlier = false;
+    if (count >= minSamples) {
+      double lower = getLowerOutlierBound();
+      double upper = getUpperOutlierBound();
+      if (value < lower || value > upper) {
+        outlier = true;
+        outliers++;
+        if (outlierListener != null) {
+          outlierListener.accept(new OutlierEvent<>(item, value, timestamp, lower, upper,
+              count));
+        }
+      }
+    }
+
+    add(value, timestamp);
+    if (size > 0 && count > size) {
+      removeOldest();
+    }
+    if (size > 0 && tumbling && count == size) {
+      finishWindow(timestamp);
+    }
+    return outlier;
+  }
+
+  private void advanceTime(long timestamp) {
+    if (tumbling) {
+      if (windowStart == Long.MIN_VALUE) {
+        windowStart = timestamp;
+      } else if (timestamp - windowStart >= periodMillis) {
+        finishWindow(windowStart + periodMillis);
+        windowStart += (timestamp - windowStart) / periodMillis * periodMillis;
+      }
+    } else {
+      while (count > 0 && timestamps[head] <= timestamp - periodMillis) {
+        removeOldest();
+      }
+    }
+  }
+
+  private void add(double value, long timestamp) {
+    if (count == values.length) {
+      double[] newValues = new double[count * 2];
+      long[] newTimestamps = new long[count * 2];
+      for (int i = 0; i < count; i++) {
+        newValues[i] = values[(head + i) % count];
+        newTimestamps[i] = timestamps[(head + i) % count];
+      }
+      values = newValues;
+      timestamps = newTimestamps;
+      head = 0;
+    }
+    int tail = (head + count) % values.length;
+    values[tail] = value;
+    timestamps[tail] = timestamp;
+    count++;
+    sorted.insert(value, sequence + count - 1);
+
+    double delta = value - mean;
+    mean += delta / count;
+    m2 += delta * (value - mean);
+  }
+
+  private void removeOldest() {
+    double value = values[head];
+    sorted.remove(value, sequence);
+    head = (head + 1) % values.length;
+    count--;
+    sequence++;
+
+    if (count == 0) {
+      mean = 0;
+      m2 = 0;
+    } else {
+      double delta = value - mean;
+      mean -= delta / count;
+      m2 = Math.max(m2 - delta * (value - mean), 0);
+    }
+    // вилучення накопичують похибку округлення, тому час від часу перераховуємо точно
+    if (++removedSinceRebuild >= Math.max(count, 1 << 16)) {
+      rebuildMoments();
+    }
+  }
+
+  private void rebuildMoments() {
+    double sum = 0;
+    for (int i = 0; i < count; i++) {
+      sum += values[(head + i) % values.length];
+    }
+    mean = count == 0 ? 0 : sum / count;
+    m2 = 0;
+    for (int i = 0; i < count; i++) {
+      double delta = values[(head + i) % values.length] - mean;
+      m2 += delta * delta;
+    }
+    removedSinceRebuild = 0;
+  }
+
+  private void finishWindow(long end) {
+    if (windowListener != null && count > 0) {
+      windowListener.accept(snapshot(end));
+    }
+    sequence += count;
+    head = 0;
+    count = 0;
+    mean = 0;
+    m2 = 0;
+    outliers = 0;
+    removedSinceRebuild = 0;
+    sorted.clear();
+  }
+
+  /**
+   * Returns the number of objects in the window.
+   *
+   * @return the number of objects
+   */
+  public int getCount() {
+    return count;
+  }
+
+  /**
+   * Returns the mean of field G over the window.
+   *
+   * @return the mean, or 0 for an empty window
+   */
+  public double getMean() {
+    return mean;
+  }
+
+  /**
+   * Returns the population standard deviation of field G over the window,
+   * as {@link StatisticsCollector.StatisticsData#getStandardDeviation()} does.
+   *
+   * @return the standard deviation, or 0 for an empty window
+   */
+  public double getStandardDeviation() {
+    return count == 0 ? 0 : Math.sqrt(m2 / count);
+  }
+
+  /**
+   * Returns the specified percentile of field G over the window, with the rule of
+   * {@link Main#getPercentile(double[], double)}.
+   *
+   * @param percentile the desired percentile (e.g., 25 for Q1)
+   * @return the percentile value
+   * @throws IllegalStateException if the window is empty
+   */
+  public double getPercentile(double percentile) {
+    if (count == 0) {
+      throw new IllegalStateException("The window is empty");
+    }
+    int rank = (int) Math.ceil(percentile / 100.0 * count) - 1;
+    return sorted.select(Math.min(Math.max(rank, 0), count - 1));
+  }
+
+  /**
+   * Returns the lower bound of regular values, {@code Q1 - 1.5 IQR}.
+   *
+   * @return the lower outlier bound
+   */
+  public double getLowerOutlierBound() {
+    double q1 = getPercentile(25);
+    return q1 - 1.5 * (getPercentile(75) - q1);
+  }
+
+  /**
+   * Returns the upper bound of regular values, {@code Q3 + 1.5 IQR}.
+   *
+   * @return the upper outlier bound
+   */
+  public double getUpperOutlierBound() {
+    double q3 = getPercentile(75);
+    return q3 + 1.5 * (q3 - getPercentile(25));
+  }
+
+  /**
+   * Describes the current window.
+   *
+   * @return the summary of the window
+   */
+  public WindowSummary snapshot() {
+    long end = count == 0 ? 0 : timestamps[(head + count - 1) % values.length];
+    return snapshot(end);
+  }
+
+  private WindowSummary snapshot(long end) {
+    long start = count == 0 ? 0 : timestamps[head];
+    if (count == 0) {
+      return new WindowSummary(start, end, 0, 0, 0, Double.NaN, Double.NaN, Double.NaN, 0);
+    }
+    return new WindowSummary(start, end, count, mean, getStandardDeviation(),
+        getPercentile(25), getPercentile(50), getPercentile(75), outliers);
+  }
+
+  /**
+   * An object that fell outside of the IQR bounds of the window before it.
+   *
+   * @param <T> the type of watched objects
+   */
+  public static final class OutlierEvent<T> {
+
+    private final T item;
+    private final double value;
+    private final long timestamp;
+    private final double lowerBound;
+    private final double upperBound;
+    private final int windowCount;
+
+    OutlierEvent(T item, double value, long timestamp, double lowerBound, double upperBound,
+        int windowCount) {
+      this.item = item;
+      this.value = value;
+      this.timestamp = timestamp;
+      this.lowerBound = lowerBound;
+      this.upperBound = upperBound;
+      this.windowCount = windowCount;
+    }
+
+    /**
+     * Returns the outlier object.
+     *
+     * @return the outlier object
+     */
+    public T getItem() {
+      return item;
+    }
+
+    /**
+     * Returns the value of field G of the object.
+     *
+     * @return the value of field G of the object
+     */
+    public double getValue() {
+      return value;
+    }
+
+    /**
+     * Returns the timestamp of the object.
+     *
+     * @return the timestamp of the object, in milliseconds
+     */
+    public long getTimestamp() {
+      return timestamp;
+    }
+
+    /**
+     * Returns the lower bound of regular values in the window.
+     *
+     * @return the lower bound of regular values in the window
+     */
+    public double getLowerBound() {
+      return lowerBound;
+    }
+
+    /**
+     * Returns the upper bound of regular values in the window.
+     *
+     * @return the upper bound of regular values in the window
+     */
+    public double getUpperBound() {
+      return upperBound;
+    }
+
+    /**
+     * Returns the number of objects in the window the object was checked against.
+     *
+     * @return the number of objects in the window the object was checked against
+     */
+    public int getWindowCount() {
+      return windowCount;
+    }
+
+    @Override
+    public String toString() {
+      return "Outlier " + value + " outside [" + lowerBound + ", " + upperBound + "] at "
+          + timestamp + ": " + item;
+    }
+  }
+
+  /** The statistics of field G over one window. */
+  public static final class WindowSummary {
+
+    private final long start;
+    private final long end;
+    private final int count;
+    private final double mean;
+    private final double standardDeviation;
+    private final double q1;
+    private final double median;
+    private final double q3;
+    private final long outliers;
+
+    WindowSummary(long start, long end, int count, double mean, double standardDeviation,
+        double q1, double median, double q3, long outliers) {
+      this.start = start;
+      this.end = end;
+      this.count = count;
+      this.mean = mean;
+      this.standardDeviation = standardDeviation;
+      this.q1 = q1;
+      this.median = median;
+      this.q3 = q3;
+      this.outliers = outliers;
+    }
+
+    /**
+     * Returns the timestamp of the oldest object in the window.
+     *
+     * @return the timestamp of the oldest object in the window
+     */
+    public long getStart() {
+      return start;
+    }
+
+    /**
+     * Returns the end of the window.
+     *
+     * @return the end of the window: the newest timestamp, or the end of its period
+     */
+    public long getEnd() {
+      return end;
+    }
+
+    /**
+     * Returns the number of objects in the window.
+     *
+     * @return the number of objects in the window
+     */
+    public int getCount() {
+      return count;
+    }
+
+    /**
+     * Returns the mean of field G.
+     *
+     * @return the mean of field G
+     */
+    public double getMean() {
+      return mean;
+    }
+
+    /**
+     * Returns the population standard deviation of field G.
+     *
+     * @return the population standard deviation of field G
+     */
+    public double getStandardDeviation() {
+      return standardDeviation;
+    }
+
+    /**
+     * Returns the first quartile of field G.
+     *
+     * @return the first quartile of field G
+     */
+    public double getQ1() {
+      return q1;
+    }
+
+    /**
+     * Returns the median of field G.
+     *
+     * @return the median of field G
+     */
+    public double getMedian() {
+      return median;
+    }
+
+    /**
+     * Returns the third quartile of field G.
+     *
+     * @return the third quartile of field G
+     */
+    public double getQ3() {
+      return q3;
+    }
+
+    /**
+     * Returns the number of outliers reported while the window was filled.
+     *
+     * @return the number of outliers reported while the window was filled
+     */
+    public long getOutliers() {
+      return outliers;
+    }
+
+    @Override
+    public String toString() {
+      return String.format(Locale.ROOT,
+          "[%d, %d] Count: %d, Avg: %.2f, Std Dev: %.2f, Q1: %.2f, Median: %.2f, Q3: %.2f,"
+              + " Outliers: %d",
+          start, end, count, mean, standardDeviation, q1, median, q3, outliers);
+    }
+  }
+}
@@ -0,0 +1,408 @@
+package labs;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Collector;
+import java.util.stream.DoubleStream;
+
+/**
+ * Provides a custom collector for collecting statistical data from a stream of Double values,
+ * and primitive entry points that collect the same data without boxing.
+ */
+public class StatisticsCollector {
+
+  /**
+   * Returns a Collector that accumulates statistics such as minimum, maximum,
+   * average, and standard deviation from a stream of Double values.
+   *
+   * @return a custom collector for statistical data
+   */
+  public static Collector<Double, ?, StatisticsData> getStatisticsCollector() {
+    return getStatisticsCollector(Double::doubleValue);
+  }
+
+  /**
+   * Returns a Collector that accumulates statistics of a numeric field of the stream elements.
+   * The field is read as a primitive, so no value is boxed.
+   *
+   * @param field the function that extracts the value from an element
+   * @param <T> the type of the stream elements
+   * @return a custom collector for statistical data
+   */
+  public static <T> Collector<T, ?, StatisticsData> getStatisticsCollector(
+      ToDoubleFunction<? super T> field) {
+    return Collector.of(
+        StatisticsData::new,                                   // Supplier
+        (data, item) -> data.accept(field.applyAsDouble(item)), // Accumulator
+        StatisticsData::combine,                               // Combiner
+        Collector.Characteristics.IDENTITY_FINISH              // Characteristics
+    );
+  }
+
+  /**
+   * Returns a CONCURRENT Collector of the statistics of a numeric field. A parallel stream
+   * feeds all its threads into one container of striped accumulators instead of building
+   * a container per split and combining them.
+   *
+   * @param field the function that extracts the value from an element
+   * @param <T> the type of the stream elements
+   * @return a concurrent collector for statistical data
+   */
+  public static <T> Collector<T, ?, StatisticsData> getConcurrentStatisticsCollector(
+      ToDoubleFunction<? super T> field) {
+    return new ConcurrentStatisticsCollector<>(field);
+  }
+
+  /**
+   * Collects the statistics of a primitive stream, which may be parallel.
+   *
+   * @param values the values
+   * @return the statistical data of the values
+   */
+  public static StatisticsData of(DoubleStream values) {
+    return values.collect(StatisticsData::new, StatisticsData::accept, StatisticsData::combine);
+  }
+
+  /**
+   * Collects the statistics of an array of values with {@link ColumnKernels}.
+   *
+   * @param values the values
+   * @return the statistical data of the values
+   */
+  public static StatisticsData of(double[] values) {
+    return ColumnKernels.statistics(values);
+  }
+
+  /**
+   * Stores statistical data: count, minimum, maximum, and the mean with the central moments
+   * up to the fourth, updated with Welford's method and merged with Chan's formulas,
+   * which stay accurate for large values where the sum of squares loses precision.
+   */
+  public static class StatisticsData {
+
+    private long count;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+    private double mean;
+
+    /** Sums of the 2nd, 3rd and 4th powers of the deviations from the mean. */
+    private double m2;
+    private double m3;
+    private double m4;
+
+    /**
+     * Accepts a new value for accumulation of statistics.
+     *
+     * @param value the value to be added to the statistics
+     */
+    public void accept(double value) {
+      long n1 = count;
+      count++;
+      double n = count;
+      double delta = value - mean;
+      double deltaN = delta / n;
+      double deltaN2 = deltaN * deltaN;
+      double term1 = delta * deltaN * n1;
+      mean += deltaN;
+      m4 += term1 * deltaN2 * (n * n - 3 * n + 3) + 6 * deltaN2 * m2 - 4 * deltaN * m3;
+      m3 += term1 * deltaN * (n - 2) - 3 * deltaN * m2;
+      m2 += term1;
+      min = Math.min(min, value);
+      max = Math.max(max, value);
+    }
+
+    /**
+     * Combines this StatisticsData instance with another StatisticsData instance.
+     *
+     * @param other the other StatisticsData to combine with
+     * @return the combined StatisticsData instance
+     */
+    public StatisticsData combine(StatisticsData other) {
+      if (other.count == 0) {
+        return this;
+      }
+      if (count == 0) {
+        copyFrom(other);
+        return this;
+      }
+      double na = count;
+      double nb = other.count;
+      double n = na + nb;
+      double delta = other.mean - mean;
+      double delta2 = delta * delta;
+
+      double combinedM2 = m2 + other.m2 + delta2 * na * nb / n;
+      double combinedM3 = m3 + other.m3
+          + delta2 * delta * na * nb * (na - nb) / (n * n)
+          + 3 * delta * (na * other.m2 - nb * m2) / n;
+      double combinedM4 = m4 + other.m4
+          + delta2 * delta2 * na * nb * (na * na - na * nb + nb * nb) / (n * n * n)
+          + 6 * delta2 * (na * na * other.m2 + nb * nb * m2) / (n * n)
+          + 4 * delta * (na * other.m3 - nb * m3) / n;
+
+      mean += delta * nb / n;
+      m2 = combinedM2;
+      m3 = combinedM3;
+      m4 = combinedM4;
+      count += other.count;
+      min = Math.min(min, other.min);
+      max = Math.max(max, other.max);
+      return this;
+    }
+
+    /**
+     * Creates statistics from moments computed elsewhere, for example by {@link ColumnKernels}.
+     *
+     * @param count the number of values
+     * @param min the minimum
+     * @param max the maximum
+     * @param mean the mean
+     * @param m2 the sum of the squared deviations from the mean
+     * @param m3 the sum of the cubed deviations
+     * @param m4 the sum of the fourth powers of the deviations
+     * @return the statistics, ready to be combined with others
+     */
+    static StatisticsData of(long count, double min, double max, double mean, double m2,
+        double m3, double m4) {
+      StatisticsData data = new StatisticsData();
+      if (count == 0) {
+        return data;
+      }
+      data.count = count;
+      data.min = min;
+      data.max = max;
+      data.mean = mean;
+      data.m2 = m2;
+      data.m3 = m3;
+      data.m4 = m4;
+      return data;
+    }
+
+    /**
+     * Writes the accumulated moments in a binary form, for {@link #readFrom}.
+     *
+     * @param out the output
+     * @throws IOException if the output fails
+     */
+    void writeTo(DataOutput out) throws IOException {
+      out.writeLong(count);
+      out.writeDouble(min);
+      out.writeDouble(max);
+      out.writeDouble(mean);
+      out.writeDouble(m2);
+      out.writeDouble(m3);
+      out.writeDouble(m4);
+    }
+
+    /**
+     * Reads statistics written by {@link #writeTo}.
+     *
+     * @param in the input
+     * @return the statistics, ready to be combined with others
+     * @throws IOException if the input fails
+     */
+    static StatisticsData readFrom(DataInput in) throws IOException {
+      StatisticsData data = new StatisticsData();
+      data.count = in.readLong();
+      data.min = in.readDouble();
+      data.max = in.readDouble();
+      data.mean = in.readDouble();
+      data.m2 = in.readDouble();
+      data.m3 = in.readDouble();
+      data.m4 = in.readDouble();
+      return data;
+    }
+
+    private void copyFrom(StatisticsData other) {
+      count = other.count;
+      min = other.min;
+      max = other.max;
+      mean = other.mean;
+      m2 = other.m2;
+      m3 = other.m3;
+      m4 = other.m4;
+    }
+
+    /**
+     * Returns the number of collected values.
+     *
+     * @return the count
+     */
+    public long getCount() {
+      return count;
+    }
+
+    /**
+     * Returns the minimum of the collected values.
+     *
+     * @return the minimum, or positive infinity if there are no values
+     */
+    public double getMin() {
+      return min;
+    }
+
+    /**
+     * Returns the maximum of the collected values.
+     *
+     * @return the maximum, or negative infinity if there are no values
+     */
+    public double getMax() {
+      return max;
+    }
+
+    /**
+     * Returns the average of the collected values.
+     *
+     * @return the average, or zero if there are no values
+     */
+    public double getAverage() {
+      return mean;
+    }
+
+    /**
+     * Returns the sum of the collected values.
+     *
+     * @return the sum
+     */
+    public double getSum() {
+      return mean * count;
+    }
+
+    /**
+     * Calculates the population variance of the collected values.
+     *
+     * @return the variance
+     */
+    public double getVariance() {
+      return m2 / count;
+    }
+
+    /**
+     * Calculates the standard deviation based on the collected data.
+     *
+     * @return the standard deviation of the collected values
+     */
+    public double getStandardDeviation() {
+      return Math.sqrt(getVariance());
+    }
+
+    /**
+     * Calculates the skewness of the collected values.
+     *
+     * @return the skewness, zero for a symmetric distribution
+     */
+    public double getSkewness() {
+      return Math.sqrt(count) * m3 / Math.pow(m2, 1.5);
+    }
+
+    /**
+     * Calculates the excess kurtosis of the collected values.
+     *
+     * @return the excess kurtosis, zero for a normal distribution
+     */
+    public double getKurtosis() {
+      return count * m4 / (m2 * m2) - 3;
+    }
+
+    /**
+     * Returns a string representation of the statistical data including
+     * count, minimum, maximum, average, standard deviation, skewness and kurtosis.
+     *
+     * @return a formatted string of statistical results
+     */
+    @Override
+    public String toString() {
+      return String.format(
+          "Count: %d, Min: %.2f, Max: %.2f, Avg: %.2f, Std Dev: %.2f, Skewness: %.2f, Kurtosis: %.2f",
+          count,
+          min,
+          max,
+          mean,
+          getStandardDeviation(),
+          getSkewness(),
+          getKurtosis());
+    }
+  }
+
+  /**
+   * A collector whose single container spreads the incoming values over a few
+   * {@link StatisticsData} stripes, chosen by the accumulating thread, so that threads
+   * rarely wait for each other. The stripes are combined once at the end.
+   *
+   * @param <T> the type of the stream elements
+   */
+  private static final class ConcurrentStatisticsCollector<T>
+      implements Collector<T, StatisticsData[], StatisticsData> {
+
+    private static final int STRIPES =
+        Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1) * 2;
+
+    private final ToDoubleFunction<? super T> field;
+
+    ConcurrentStatisticsCollector(ToDoubleFunction<? super T> field) {
+      this.field = field;
+    }
+
+    @Override
+    public Supplier<StatisticsData[]> supplier() {
+      return () -> {
+        StatisticsData[] stripes = new StatisticsData[STRIPES];
+        Arrays.setAll(stripes, i -> new StatisticsData());
+        return stripes;
+      };
+    }
+
+    @Override
+    public BiConsumer<StatisticsData[], T> accumulator() {
+      return (stripes, item) -> {
+        double value = field.applyAsDouble(item);
+        StatisticsData stripe = stripes[stripeIndex()];
+        synchronized (stripe) {
+          stripe.accept(value);
+        }
+      };
+    }
+
+    @Override
+    public BinaryOperator<StatisticsData[]> combiner() {
+      return (left, right) -> {
+        for (int i = 0; i < left.length; i++) {
+          left[i].combine(right[i]);
+        }
+        return left;
+      };
+    }
+
+    @Override
+    public Function<StatisticsData[], StatisticsData> finisher() {
+      return stripes -> {
+        StatisticsData result = new StatisticsData();
+        for (StatisticsData stripe : stripes) {
+          synchronized (stripe) {
+            result.combine(stripe);
+          }
+        }
+        return result;
+      };
+    }
+
+    @Override
+    public Set<Characteristics> characteristics() {
+      return EnumSet.of(Characteristics.CONCURRENT, Characteristics.UNORDERED);
+    }
+
+    private static int stripeIndex() {
+      long id = Thread.currentThread().getId();
+      return (int) ((id * 0x9e3779b97f4a7c15L) >>> 32) & (STRIPES - 1);
+    }
+  }
+}
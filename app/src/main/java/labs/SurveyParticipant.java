@@ -0,0 +1,157 @@
+package labs;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
+
+/**
+ * Represents a participant in a survey with attributes such as city, age,
+ * name, and monthly income. Implements the HasGField interface to provide
+ * access to a specific field for statistical calculations.
+ */
+class SurveyParticipant implements HasGField {
+
+  /** The names a random participant can have. */
+  static final String[] NAMES = {"John", "Anna", "Michael", "Olena", "Viktor"};
+
+  /** The cities a random participant can live in. */
+  static final String[] CITIES = {"Kyiv", "Lviv", "Odesa", "Dnipro"};
+
+  /**
+   * Codes of the cities; the cities of random participants get the codes of their index.
+   * It holds only these cities, so any other city has the code -1.
+   */
+  static final CategoryDictionary CITY_DICTIONARY = new CategoryDictionary(CITIES);
+
+  private String city;
+  private int cityCode;
+  private int age;
+  private String name;
+  private double monthlyIncome;
+
+  /**
+   * Constructs a SurveyParticipant with the specified attributes.
+   *
+   * @param city          the city of the participant
+   * @param age           the age of the participant
+   * @param name          the name of the participant
+   * @param monthlyIncome  the monthly income of the participant
+   */
+  public SurveyParticipant(String city, int age, String name, double monthlyIncome) {
+    this(city, CITY_DICTIONARY.codeOf(city), age, name, monthlyIncome);
+  }
+
+  /**
+   * Constructs a SurveyParticipant whose city code is already known.
+   *
+   * @param city          the city of the participant
+   * @param cityCode      the code of the city in {@link #CITY_DICTIONARY}, or -1
+   * @param age           the age of the participant
+   * @param name          the name of the participant
+   * @param monthlyIncome  the monthly income of the participant
+   */
+  SurveyParticipant(String city, int cityCode, int age, String name, double monthlyIncome) {
+    this.city = city;
+    this.cityCode = cityCode;
+    this.age = age;
+    this.name = name;
+    this.monthlyIncome = monthlyIncome;
+  }
+
+  /**
+   * Returns the value of the monthly income, which is used as the G field.
+   *
+   * @return the monthly income of the participant
+   */
+  @Override
+  public double getGField() {
+    return this.monthlyIncome; // або інше поле, яке треба використовувати
+  }
+
+  /**
+   * Returns the age of the participant.
+   *
+   * @return the age of the participant
+   */
+  public int getAge() {
+    return age;
+  }
+
+  /**
+   * Returns the name of the participant.
+   *
+   * @return the name of the participant
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Returns a string representation of the SurveyParticipant.
+   *
+   * @return a formatted string with the participant's details
+   */
+  @Override
+  public String toString() {
+    return "SurveyParticipant{" +
+        "city='" + city + '\'' +
+        ", age=" + age +
+        ", name='" + name + '\'' +
+        ", monthlyIncome=" + monthlyIncome +
+        '}';
+  }
+
+  /**
+   * Returns the city of the participant.
+   *
+   * @return the city of the participant
+   */
+  public String getCity() {
+    return city;
+  }
+
+  /**
+   * Returns the code of the city in {@link #CITY_DICTIONARY}.
+   *
+   * @return the code of the city, or -1 for a city outside the dictionary
+   */
+  public int getCityCode() {
+    return cityCode;
+  }
+
+  /**
+   * Generates a random SurveyParticipant with random attributes.
+   *
+   * @return a randomly generated SurveyParticipant
+   */
+  public static SurveyParticipant generateRandomPerson() {
+    return generateRandomPerson(ThreadLocalRandom.current());
+  }
+
+  /**
+   * Generates a random SurveyParticipant drawing all values from the given generator.
+   *
+   * @param random the source of random values
+   * @return a randomly generated SurveyParticipant
+   */
+  public static SurveyParticipant generateRandomPerson(RandomGenerator random) {
+    String name = NAMES[random.nextInt(NAMES.length)];
+    int cityCode = random.nextInt(CITIES.length);
+    int age = 18 + random.nextInt(50); // Вік від 18 до 68
+    double income = 20000 + random.nextDouble() * 80000; // Дохід від 20k до 100k
+
+    return new SurveyParticipant(CITIES[cityCode], cityCode, age, name, income);
+  }
+
+  /**
+   * Draws only the city and age of a random participant, drawn from the same
+   * random values, right after the name, as in {@link #generateRandomPerson(RandomGenerator)}.
+   *
+   * @param random the source of random values
+   * @param keys receives the code of the city and the age
+   */
+  static void drawKeys(RandomGenerator random, EntityGenerator.Keys keys) {
+    random.nextInt(NAMES.length); // ім'я тут не потрібне
+    keys.aCode = random.nextInt(CITIES.length);
+    keys.b = 18 + random.nextInt(50);
+  }
+}
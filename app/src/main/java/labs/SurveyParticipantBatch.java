@@ -0,0 +1,37 @@
+package labs;
+
+/**
+ * {@link SurveyParticipant} records in columns. Participants are filtered and grouped by
+ * city (fields A and V), bounded by age (field B) and analyzed by monthly income (field G);
+ * the name goes to the extra column.
+ */
+class SurveyParticipantBatch extends EntityBatch<SurveyParticipant> {
+
+  /**
+   * Constructs an empty batch with the default capacity.
+   */
+  public SurveyParticipantBatch() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Constructs an empty batch.
+   *
+   * @param capacity the number of records to allocate space for
+   */
+  public SurveyParticipantBatch(int capacity) {
+    super(capacity, new CategoryDictionary(SurveyParticipant.CITIES),
+        new CategoryDictionary(SurveyParticipant.NAMES));
+  }
+
+  @Override
+  public void add(SurveyParticipant item) {
+    append(item.getCity(), item.getCityCode(), item.getAge(), item.getName(), item.getGField());
+  }
+
+  @Override
+  public SurveyParticipant get(int row) {
+    return new SurveyParticipant(getA(row), getEntityCode(row), getB(row), getExtra(row),
+        getG(row));
+  }
+}
@@ -0,0 +1,732 @@
+package labs;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Streams the entities stored in a CSV or JSON-lines file, for example as the source of a
+ * {@link Gatherer}. Fields A, B, G and the extra field are found by the names of
+ * {@link EntityType#getColumnNames()}: in the header line of a CSV file, or as the keys of
+ * the flat JSON object on each line; other columns and keys are ignored.
+ *
+ * <p>The file is read in chunks into a buffer of bounded size and parsed in place: numbers
+ * are parsed from the bytes, and categorical values are looked up by their bytes, so no
+ * string is built for a line unless a value is quoted with escapes or not seen before.
+ * The stream splits by regions of the file; each region starts at the first record that
+ * begins inside it, so a parallel stream processes different chunks on different cores.
+ * Records are separated by line breaks; a quoted CSV value cannot contain one.
+ */
+public final class TextDatasetSource {
+
+  /** The formats of text files. */
+  public enum Format {
+    CSV,
+    JSON_LINES;
+
+    /**
+     * Returns the format of a file by its extension: {@code .jsonl} or {@code .json}
+     * for JSON lines, anything else for CSV.
+     *
+     * @param path the file
+     * @return the format of the file
+     */
+    public static Format of(Path path) {
+      String name = path.getFileName().toString().toLowerCase();
+      return name.endsWith(".jsonl") || name.endsWith(".json") ? JSON_LINES : CSV;
+    }
+  }
+
+  /** The initial size of the buffer of each region. */
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  /** The smallest region, in bytes, a stream is split into. */
+  private static final long MIN_SPLIT = 1 << 20;
+
+  /** The roles of the fields, in the order of {@link EntityType#getColumnNames()}. */
+  private static final int A = 0;
+  private static final int B = 1;
+  private static final int EXTRA = 2;
+  private static final int G = 3;
+  private static final int IGNORED = -1;
+
+  private static final double[] POWERS_OF_TEN = {
+      1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+      1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+  private final FileChannel channel;
+  private final long fileSize;
+  private final EntityType entityType;
+  private final Format format;
+
+  /** The role of each CSV column. */
+  private int[] csvRoles;
+
+  /** The JSON keys of the fields, by role; {@code null} if there is no extra field. */
+  private final byte[][] jsonKeys = new byte[4][];
+
+  private TextDatasetSource(Path path, EntityType entityType, Format format) throws IOException {
+    this.channel = FileChannel.open(path, StandardOpenOption.READ);
+    this.fileSize = channel.size();
+    this.entityType = entityType;
+    this.format = format;
+    String[] names = entityType.getColumnNames();
+    for (int role = A; role <= G; role++) {
+      jsonKeys[role] = names[role] == null ? null : names[role].getBytes(StandardCharsets.UTF_8);
+    }
+    if (format == Format.CSV) {
+      try {
+        readHeader(path, names);
+      } catch (IOException | RuntimeException e) {
+        channel.close();
+        throw e;
+      }
+    }
+  }
+
+  /**
+   * Opens a file in the format given by its extension.
+   *
+   * @param path the CSV or JSON-lines file
+   * @param entityType the type of the stored entities
+   * @param <T> the class of the entities of the type
+   * @return an ordered stream of the stored entities; closing it closes the file
+   * @throws IOException if the file cannot be opened or its header misses a column
+   */
+  public static <T extends HasGField> Stream<T> open(Path path, EntityType entityType)
+      throws IOException {
+    return open(path, entityType, Format.of(path));
+  }
+
+  /**
+   * Opens a CSV file with a header line.
+   *
+   * @param path the CSV file
+   * @param entityType the type of the stored entities
+   * @param <T> the class of the entities of the type
+   * @return an ordered stream of the stored entities; closing it closes the file
+   * @throws IOException if the file cannot be opened or its header misses a column
+   */
+  public static <T extends HasGField> Stream<T> csv(Path path, EntityType entityType)
+      throws IOException {
+    return open(path, entityType, Format.CSV);
+  }
+
+  /**
+   * Opens a JSON-lines file: one flat JSON object per line.
+   *
+   * @param path the JSON-lines file
+   * @param entityType the type of the stored entities
+   * @param <T> the class of the entities of the type
+   * @return an ordered stream of the stored entities; closing it closes the file
+   * @throws IOException if the file cannot be opened
+   */
+  public static <T extends HasGField> Stream<T> jsonLines(Path path, EntityType entityType)
+      throws IOException {
+    return open(path, entityType, Format.JSON_LINES);
+  }
+
+  private static <T extends HasGField> Stream<T> open(Path path, EntityType entityType,
+      Format format) throws IOException {
+    TextDatasetSource source = new TextDatasetSource(path, entityType, format);
+    return StreamSupport.stream(source.new RegionSpliterator<T>(0, source.fileSize), false)
+        .onClose(source::close);
+  }
+
+  private void close() {
+    try {
+      channel.close();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /** Finds the CSV column of each field by the header line. */
+  private void readHeader(Path path, String[] names) throws IOException {
+    LineReader reader = new LineReader(0);
+    if (!reader.nextLine()) {
+      throw new IOException("Missing CSV header: " + path);
+    }
+    String header = new String(reader.buffer, reader.lineStart,
+        reader.lineEnd - reader.lineStart, StandardCharsets.UTF_8);
+    if (header.startsWith("\uFEFF")) {
+      header = header.substring(1);
+    }
+    String[] columns = header.split(",", -1);
+    csvRoles = new int[columns.length];
+    Arrays.fill(csvRoles, IGNORED);
+    for (int role = A; role <= G; role++) {
+      boolean found = names[role] == null;
+      for (int column = 0; column < columns.length; column++) {
+        if (unquote(columns[column].trim()).equals(names[role])) {
+          csvRoles[column] = role;
+          found = true;
+        }
+      }
+      if (!found && role != EXTRA) {
+        throw new IOException("Missing CSV column " + names[role] + ": " + path);
+      }
+    }
+  }
+
+  private static String unquote(String value) {
+    if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+      return value.substring(1, value.length() - 1).replace("\"\"", "\"");
+    }
+    return value;
+  }
+
+  /** Reads the lines of the file from a position through a buffer that grows for long lines. */
+  private final class LineReader {
+
+    byte[] buffer = new byte[BUFFER_SIZE];
+
+    /** The position in the file of the first byte of the buffer. */
+    long bufferOffset;
+    int position;
+    int limit;
+    boolean endOfFile;
+
+    /** The bounds of the last line in the buffer, without the line break. */
+    int lineStart;
+    int lineEnd;
+
+    /** The position in the file of the last line. */
+    long lineOffset;
+
+    LineReader(long from) {
+      this.bufferOffset = from;
+    }
+
+    boolean nextLine() throws IOException {
+      int searchFrom = position;
+      while (true) {
+        for (int i = searchFrom; i < limit; i++) {
+          if (buffer[i] == '\n') {
+            setLine(i);
+            position = i + 1;
+            return true;
+          }
+        }
+        if (endOfFile) {
+          if (position == limit) {
+            return false;
+          }
+          setLine(limit);
+          position = limit;
+          return true;
+        }
+        searchFrom = limit - position;
+        fill();
+      }
+    }
+
+    private void setLine(int end) {
+      lineStart = position;
+      lineEnd = end > position && buffer[end - 1] == '\r' ? end - 1 : end;
+      lineOffset = bufferOffset + position;
+    }
+
+    /** Moves the unread bytes to the start of the buffer and reads more after them. */
+    private void fill() throws IOException {
+      int unread = limit - position;
+      if (position == 0 && limit == buffer.length) {
+        buffer = Arrays.copyOf(buffer, buffer.length * 2);
+      } else {
+        System.arraycopy(buffer, position, buffer, 0, unread);
+        bufferOffset += position;
+        position = 0;
+        limit = unread;
+      }
+      int read = channel.read(ByteBuffer.wrap(buffer, limit, buffer.length - limit),
+          bufferOffset + limit);
+      if (read < 0) {
+        endOfFile = true;
+      } else {
+        limit += read;
+      }
+    }
+  }
+
+  /**
+   * Maps the bytes of categorical values to strings and, for field A, to codes of
+   * the dictionary of the entity type, -1 for a value outside it. Each region has its own
+   * cache, and the dictionary is only read, so a file may hold any number of values.
+   */
+  private static final class ValueCache {
+
+    private final CategoryDictionary dictionary;
+    private byte[][] keys = new byte[16][];
+    private String[] values = new String[16];
+    private int[] codes = new int[16];
+    private int size;
+
+    /** The string and code of the last looked-up value. */
+    String value;
+    int code;
+
+    ValueCache(CategoryDictionary dictionary) {
+      this.dictionary = dictionary;
+    }
+
+    void lookup(byte[] bytes, int from, int to) {
+      int length = to - from;
+      for (int i = 0; i < size; i++) {
+        byte[] key = keys[i];
+        if (key.length == length && Arrays.equals(key, 0, length, bytes, from, to)) {
+          value = values[i];
+          code = codes[i];
+          return;
+        }
+      }
+      remember(Arrays.copyOfRange(bytes, from, to),
+          new String(bytes, from, length, StandardCharsets.UTF_8));
+    }
+
+    void lookup(String text) {
+      byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+      lookup(bytes, 0, bytes.length);
+    }
+
+    private void remember(byte[] key, String text) {
+      value = text;
+      code = dictionary == null ? -1 : dictionary.codeOf(text);
+      if (size == CategoryDictionary.MAX_SIZE) {
+        return;
+      }
+      if (size == keys.length) {
+        keys = Arrays.copyOf(keys, size * 2);
+        values = Arrays.copyOf(values, size * 2);
+        codes = Arrays.copyOf(codes, size * 2);
+      }
+      keys[size] = key;
+      values[size] = text;
+      codes[size] = code;
+      size++;
+    }
+  }
+
+  /**
+   * Parses the records that begin in a region of the file. The region is split in halves
+   * before it is read; the boundaries are adjusted to the records when reading starts.
+   */
+  private final class RegionSpliterator<T extends HasGField> implements Spliterator<T> {
+
+    private long from;
+    private final long to;
+    private LineReader reader;
+    private final ValueCache aValues = new ValueCache(entityType.getADictionary());
+    private final ValueCache extraValues = new ValueCache(null);
+
+    /** The fields of the record being parsed. */
+    private String a;
+    private int aCode;
+    private int b;
+    private String extra;
+    private double g;
+    private int seen;
+
+    RegionSpliterator(long from, long to) {
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+      try {
+        if (reader == null) {
+          start();
+        }
+        while (reader.nextLine()) {
+          if (reader.lineOffset >= to) {
+            return false;
+          }
+          if (parse()) {
+            action.accept(build());
+            return true;
+          }
+        }
+        return false;
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    /** Skips to the first record that begins in the region, and the CSV header. */
+    private void start() throws IOException {
+      if (from == 0) {
+        reader = new LineReader(0);
+        if (format == Format.CSV) {
+          reader.nextLine();
+        }
+      } else {
+        reader = new LineReader(from - 1);
+        reader.nextLine();
+      }
+    }
+
+    @SuppressWarnings("unchecked")
+    private T build() {
+      return (T) entityType.decode(a, aCode, b, extra, g);
+    }
+
+    /** Parses the current line; returns {@code false} for a blank line. */
+    private boolean parse() {
+      int start = reader.lineStart;
+      int end = reader.lineEnd;
+      while (start < end && isSpace(reader.buffer[start])) {
+        start++;
+      }
+      if (start == end) {
+        return false;
+      }
+      extra = null;
+      seen = 0;
+      if (format == Format.CSV) {
+        parseCsv(reader.buffer, start, end);
+      } else {
+        parseJson(reader.buffer, start, end);
+      }
+      int required = (1 << A) | (1 << B) | (1 << G);
+      if ((seen & required) != required) {
+        throw malformed("missing field");
+      }
+      return true;
+    }
+
+    private void parseCsv(byte[] bytes, int start, int end) {
+      int column = 0;
+      int fieldStart = start;
+      while (fieldStart <= end) {
+        int fieldEnd;
+        String quoted = null;
+        if (fieldStart < end && bytes[fieldStart] == '"') {
+          StringBuilder value = new StringBuilder();
+          int i = fieldStart + 1;
+          int chunk = i;
+          while (true) {
+            if (i >= end) {
+              throw malformed("unterminated quote");
+            }
+            if (bytes[i] == '"') {
+              value.append(new String(bytes, chunk, i - chunk, StandardCharsets.UTF_8));
+              if (i + 1 < end && bytes[i + 1] == '"') {
+                value.append('"');
+                i += 2;
+                chunk = i;
+                continue;
+              }
+              i++;
+              break;
+            }
+            i++;
+          }
+          quoted = value.toString();
+          fieldEnd = i;
+          while (fieldEnd < end && bytes[fieldEnd] != ',') {
+            fieldEnd++;
+          }
+        } else {
+          fieldEnd = fieldStart;
+          while (fieldEnd < end && bytes[fieldEnd] != ',') {
+            fieldEnd++;
+          }
+        }
+        int role = column < csvRoles.length ? csvRoles[column] : IGNORED;
+        if (role != IGNORED) {
+          if (quoted != null) {
+            accept(role, quoted);
+          } else {
+            accept(role, bytes, trimStart(bytes, fieldStart, fieldEnd),
+                trimEnd(bytes, fieldStart, fieldEnd));
+          }
+        }
+        column++;
+        fieldStart = fieldEnd + 1;
+      }
+    }
+
+    private void parseJson(byte[] bytes, int start, int end) {
+      int i = skipSpaces(bytes, start, end);
+      if (i >= end || bytes[i] != '{') {
+        throw malformed("expected {");
+      }
+      i = skipSpaces(bytes, i + 1, end);
+      if (i < end && bytes[i] == '}') {
+        return;
+      }
+      while (true) {
+        if (i >= end || bytes[i] != '"') {
+          throw malformed("expected a key");
+        }
+        int keyStart = i + 1;
+        int keyEnd = closingQuote(bytes, keyStart, end);
+        int role = roleOfKey(bytes, keyStart, keyEnd);
+        i = skipSpaces(bytes, keyEnd + 1, end);
+        if (i >= end || bytes[i] != ':') {
+          throw malformed("expected :");
+        }
+        i = skipSpaces(bytes, i + 1, end);
+        if (i < end && bytes[i] == '"') {
+          int valueStart = i + 1;
+          int valueEnd = closingQuote(bytes, valueStart, end);
+          if (role != IGNORED) {
+            if (indexOf(bytes, valueStart, valueEnd, (byte) '\\') >= 0) {
+              accept(role, unescape(bytes, valueStart, valueEnd));
+            } else {
+              accept(role, bytes, valueStart, valueEnd);
+            }
+          }
+          i = valueEnd + 1;
+        } else {
+          int valueStart = i;
+          while (i < end && bytes[i] != ',' && bytes[i] != '}' && !isSpace(bytes[i])) {
+            i++;
+          }
+          if (role != IGNORED && !isNull(bytes, valueStart, i)) {
+            accept(role, bytes, valueStart, i);
+          }
+        }
+        i = skipSpaces(bytes, i, end);
+        if (i < end && bytes[i] == ',') {
+          i = skipSpaces(bytes, i + 1, end);
+        } else if (i < end && bytes[i] == '}') {
+          return;
+        } else {
+          throw malformed("expected , or }");
+        }
+      }
+    }
+
+    private int roleOfKey(byte[] bytes, int from, int to) {
+      for (int role = A; role <= G; role++) {
+        byte[] key = jsonKeys[role];
+        if (key != null && Arrays.equals(key, 0, key.length, bytes, from, to)) {
+          return role;
+        }
+      }
+      return IGNORED;
+    }
+
+    private int closingQuote(byte[] bytes, int from, int end) {
+      for (int i = from; i < end; i++) {
+        if (bytes[i] == '\\') {
+          i++;
+        } else if (bytes[i] == '"') {
+          return i;
+        }
+      }
+      throw malformed("unterminated string");
+    }
+
+    private String unescape(byte[] bytes, int from, int to) {
+      String raw = new String(bytes, from, to - from, StandardCharsets.UTF_8);
+      StringBuilder value = new StringBuilder(raw.length());
+      for (int i = 0; i < raw.length(); i++) {
+        char c = raw.charAt(i);
+        if (c != '\\' || i + 1 == raw.length()) {
+          value.append(c);
+          continue;
+        }
+        char escaped = raw.charAt(++i);
+        switch (escaped) {
+          case 'n':
+            value.append('\n');
+            break;
+          case 't':
+            value.append('\t');
+            break;
+          case 'r':
+            value.append('\r');
+            break;
+          case 'b':
+            value.append('\b');
+            break;
+          case 'f':
+            value.append('\f');
+            break;
+          case 'u':
+            if (i + 4 >= raw.length()) {
+              throw malformed("invalid escape");
+            }
+            value.append((char) Integer.parseInt(raw.substring(i + 1, i + 5), 16));
+            i += 4;
+            break;
+          default:
+            value.append(escaped);
+        }
+      }
+      return value.toString();
+    }
+
+    private void accept(int role, byte[] bytes, int from, int to) {
+      switch (role) {
+        case A:
+          aValues.lookup(bytes, from, to);
+          a = aValues.value;
+          aCode = aValues.code;
+          break;
+        case B:
+          b = parseInt(bytes, from, to);
+          break;
+        case EXTRA:
+          extraValues.lookup(bytes, from, to);
+          extra = extraValues.value;
+          break;
+        default:
+          g = parseDouble(bytes, from, to);
+      }
+      seen |= 1 << role;
+    }
+
+    private void accept(int role, String value) {
+      switch (role) {
+        case A:
+          aValues.lookup(value);
+          a = aValues.value;
+          aCode = aValues.code;
+          break;
+        case EXTRA:
+          extraValues.lookup(value);
+          extra = extraValues.value;
+          break;
+        default:
+          byte[] bytes = value.trim().getBytes(StandardCharsets.UTF_8);
+          accept(role, bytes, 0, bytes.length);
+      }
+      seen |= 1 << role;
+    }
+
+    private int parseInt(byte[] bytes, int from, int to) {
+      boolean negative = from < to && bytes[from] == '-';
+      int i = negative || from < to && bytes[from] == '+' ? from + 1 : from;
+      if (i == to || to - i > 10) {
+        throw malformed("invalid integer");
+      }
+      long value = 0;
+      for (; i < to; i++) {
+        int digit = bytes[i] - '0';
+        if (digit < 0 || digit > 9) {
+          throw malformed("invalid integer");
+        }
+        value = value * 10 + digit;
+      }
+      value = negative ? -value : value;
+      if (value != (int) value) {
+        throw malformed("integer out of range");
+      }
+      return (int) value;
+    }
+
+    /**
+     * Parses a plain decimal of up to 15 significant digits exactly from the bytes;
+     * anything else, such as an exponent, goes through {@link Double#parseDouble}.
+     */
+    private double parseDouble(byte[] bytes, int from, int to) {
+      boolean negative = from < to && bytes[from] == '-';
+      int i = negative || from < to && bytes[from] == '+' ? from + 1 : from;
+      long mantissa = 0;
+      int digits = 0;
+      boolean anyDigit = false;
+      int fractionDigits = -1;
+      boolean plain = i < to;
+      for (; i < to && plain; i++) {
+        byte c = bytes[i];
+        if (c >= '0' && c <= '9') {
+          mantissa = mantissa * 10 + (c - '0');
+          anyDigit = true;
+          if (mantissa != 0) {
+            digits++;
+          }
+          if (fractionDigits >= 0) {
+            fractionDigits++;
+          }
+        } else if (c == '.' && fractionDigits < 0) {
+          fractionDigits = 0;
+        } else {
+          plain = false;
+        }
+      }
+      if (plain && anyDigit && digits <= 15 && fractionDigits < POWERS_OF_TEN.length) {
+        double value = fractionDigits > 0 ? mantissa / POWERS_OF_TEN[fractionDigits] : mantissa;
+        return negative ? -value : value;
+      }
+      try {
+        return Double.parseDouble(new String(bytes, from, to - from, StandardCharsets.ISO_8859_1));
+      } catch (NumberFormatException e) {
+        throw malformed("invalid number");
+      }
+    }
+
+    private IllegalArgumentException malformed(String reason) {
+      return new IllegalArgumentException(
+          "Malformed record at byte " + reader.lineOffset + ": " + reason);
+    }
+
+    @Override
+    public Spliterator<T> trySplit() {
+      long mid = from + (to - from) / 2;
+      if (reader != null || mid - from < MIN_SPLIT) {
+        return null;
+      }
+      Spliterator<T> prefix = new RegionSpliterator<>(from, mid);
+      from = mid;
+      return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+      return to - from;
+    }
+
+    @Override
+    public int characteristics() {
+      return ORDERED | NONNULL | IMMUTABLE;
+    }
+  }
+
+  private static boolean isSpace(byte c) {
+    return c == ' ' || c == '\t' || c == '\r';
+  }
+
+  private static int skipSpaces(byte[] bytes, int from, int to) {
+    while (from < to && isSpace(bytes[from])) {
+      from++;
+    }
+    return from;
+  }
+
+  private static int trimStart(byte[] bytes, int from, int to) {
+    return skipSpaces(bytes, from, to);
+  }
+
+  private static int trimEnd(byte[] bytes, int from, int to) {
+    while (to > from && isSpace(bytes[to - 1])) {
+      to--;
+    }
+    return to;
+  }
+
+  private static int indexOf(byte[] bytes, int from, int to, byte value) {
+    for (int i = from; i < to; i++) {
+      if (bytes[i] == value) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static boolean isNull(byte[] bytes, int from, int to) {
+    return to - from == 4 && bytes[from] == 'n' && bytes[from + 1] == 'u'
+        && bytes[from + 2] == 'l' && bytes[from + 3] == 'l';
+  }
+}
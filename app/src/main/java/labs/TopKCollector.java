@@ -0,0 +1,286 @@
+package labs;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Collector;
+
+/**
+ * Provides collectors that keep the {@code k} objects with the largest value of a field,
+ * overall or in every group, in bounded heaps: memory is {@code O(groups × k)} instead of
+ * collecting and sorting all the objects. The collectors work on parallel streams;
+ * the heaps of different segments are merged.
+ */
+public class TopKCollector {
+
+  /**
+   * Returns a Collector that keeps the {@code k} objects with the largest values.
+   *
+   * @param value the function to extract the value, for example field G
+   * @param k the number of objects to keep
+   * @param <T> the type of objects
+   * @return a custom collector for the top objects
+   * @throws IllegalArgumentException if {@code k} is not positive
+   */
+  public static <T> Collector<T, ?, TopK<T>> getTopKCollector(ToDoubleFunction<? super T> value,
+      int k) {
+    checkK(k);
+    return Collector.of(
+        () -> new TopK<T>(k),
+        (top, item) -> top.accept(item, value.applyAsDouble(item)),
+        TopK::merge,
+        Collector.Characteristics.UNORDERED,
+        Collector.Characteristics.IDENTITY_FINISH
+    );
+  }
+
+  /**
+   * Returns a Collector that keeps, for every group, the {@code k} objects with the largest
+   * values, for example the most expensive cars of every brand.
+   *
+   * @param group the function to extract the group, for example field V
+   * @param value the function to extract the value, for example field G
+   * @param k the number of objects to keep in every group
+   * @param <T> the type of objects
+   * @return a custom collector for the top objects by group
+   * @throws IllegalArgumentException if {@code k} is not positive
+   */
+  public static <T> Collector<T, ?, Map<String, TopK<T>>> getGroupedTopKCollector(
+      Function<? super T, String> group, ToDoubleFunction<? super T> value, int k) {
+    checkK(k);
+    return Collector.of(
+        HashMap::new,
+        (Map<String, TopK<T>> tops, T item) -> top(tops, group.apply(item), k)
+            .accept(item, value.applyAsDouble(item)),
+        TopKCollector::mergeGroups,
+        Collector.Characteristics.UNORDERED,
+        Collector.Characteristics.IDENTITY_FINISH
+    );
+  }
+
+  /**
+   * Merges the top objects of the groups of another segment into the first map.
+   *
+   * @param tops the top objects by group to merge into
+   * @param other the top objects by group of another segment
+   * @param <T> the type of objects
+   * @return the first map
+   */
+  static <T> Map<String, TopK<T>> mergeGroups(Map<String, TopK<T>> tops,
+      Map<String, TopK<T>> other) {
+    for (Map.Entry<String, TopK<T>> entry : other.entrySet()) {
+      tops.merge(entry.getKey(), entry.getValue(), TopK::merge);
+    }
+    return tops;
+  }
+
+  /**
+   * Returns the top of the group, adding an empty one if there is none; unlike
+   * {@code computeIfAbsent} with a capturing lambda, it allocates nothing for a known group.
+   */
+  static <T> TopK<T> top(Map<String, TopK<T>> tops, String group, int k) {
+    TopK<T> top = tops.get(group);
+    if (top == null) {
+      top = new TopK<>(k);
+      tops.put(group, top);
+    }
+    return top;
+  }
+
+  private static void checkK(int k) {
+    if (k <= 0) {
+      throw new IllegalArgumentException("k must be positive: " + k);
+    }
+  }
+
+  /**
+   * The {@code k} objects with the largest values seen so far. They are kept in a min-heap
+   * of at most {@code k} entries, so a new object replaces the smallest one only if its value
+   * is larger, in {@code O(log k)}.
+   *
+   * @param <T> the type of objects
+   */
+  public static class TopK<T> {
+
+    private final int k;
+    private double[] values;
+    private Object[] items;
+    private int size;
+    private long count;
+
+    /**
+     * Constructs an empty top.
+     *
+     * @param k the number of objects to keep
+     */
+    public TopK(int k) {
+      checkK(k);
+      this.k = k;
+      int capacity = Math.min(k, 16);
+      this.values = new double[capacity];
+      this.items = new Object[capacity];
+    }
+
+    /**
+     * Offers an object.
+     *
+     * @param item the object
+     * @param value its value
+     */
+    public void accept(T item, double value) {
+      count++;
+      if (size < k) {
+        if (size == values.length) {
+          int capacity = Math.min(k, size * 2);
+          values = Arrays.copyOf(values, capacity);
+          items = Arrays.copyOf(items, capacity);
+        }
+        values[size] = value;
+        items[size] = item;
+        siftUp(size++);
+      } else if (value > values[0]) {
+        values[0] = value;
+        items[0] = item;
+        siftDown(0);
+      }
+    }
+
+    /**
+     * Adds the objects of another top to this one.
+     *
+     * @param other the top of another part of the stream
+     * @return this top
+     */
+    @SuppressWarnings("unchecked")
+    public TopK<T> merge(TopK<T> other) {
+      long seen = count + other.count;
+      for (int i = 0; i < other.size; i++) {
+        accept((T) other.items[i], other.values[i]);
+      }
+      count = seen;
+      return this;
+    }
+
+    /**
+     * Returns the number of objects to keep.
+     *
+     * @return the number of objects to keep
+     */
+    public int getK() {
+      return k;
+    }
+
+    /**
+     * Returns the number of objects offered to this top and to the merged ones.
+     *
+     * @return the number of objects offered to this top and to the merged ones
+     */
+    public long getCount() {
+      return count;
+    }
+
+    /**
+     * Returns the number of objects kept.
+     *
+     * @return the number of objects kept, at most {@code k}
+     */
+    public int size() {
+      return size;
+    }
+
+    /**
+     * Returns the smallest value kept, which a new object must exceed to get in
+     * once the top is full.
+     *
+     * @return the smallest value kept, or {@code -Infinity} if the top is not full
+     */
+    public double getThreshold() {
+      return size < k ? Double.NEGATIVE_INFINITY : values[0];
+    }
+
+    /**
+     * Returns the kept objects from the largest value to the smallest.
+     *
+     * @return a new list of the kept objects
+     */
+    @SuppressWarnings("unchecked")
+    public List<T> getItems() {
+      List<T> sorted = new ArrayList<>(size);
+      for (int i : descendingOrder()) {
+        sorted.add((T) items[i]);
+      }
+      return sorted;
+    }
+
+    /**
+     * Returns the kept values from the largest to the smallest.
+     *
+     * @return a new array of the kept values
+     */
+    public double[] getValues() {
+      int[] order = descendingOrder();
+      double[] sorted = new double[order.length];
+      for (int i = 0; i < order.length; i++) {
+        sorted[i] = values[order[i]];
+      }
+      return sorted;
+    }
+
+    private int[] descendingOrder() {
+      Integer[] order = new Integer[size];
+      for (int i = 0; i < size; i++) {
+        order[i] = i;
+      }
+      Arrays.sort(order, (a, b) -> Double.compare(values[b], values[a]));
+      return Arrays.stream(order).mapToInt(Integer::intValue).toArray();
+    }
+
+    private void siftUp(int i) {
+      while (i > 0) {
+        int parent = (i - 1) >>> 1;
+        if (values[parent] <= values[i]) {
+          return;
+        }
+        swap(i, parent);
+        i = parent;
+      }
+    }
+
+    private void siftDown(int i) {
+      while (true) {
+        int smallest = i;
+        int left = 2 * i + 1;
+        int right = left + 1;
+        if (left < size && values[left] < values[smallest]) {
+          smallest = left;
+        }
+        if (right < size && values[right] < values[smallest]) {
+          smallest = right;
+        }
+        if (smallest == i) {
+          return;
+        }
+        swap(i, smallest);
+        i = smallest;
+      }
+    }
+
+    private void swap(int i, int j) {
+      double value = values[i];
+      values[i] = values[j];
+      values[j] = value;
+      Object item = items[i];
+      items[i] = items[j];
+      items[j] = item;
+    }
+
+    @Override
+    public String toString() {
+      return Arrays.toString(getValues());
+    }
+  }
+}
@@ -0,0 +1,156 @@
+package labs;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The kernels of {@link ColumnKernels} on the Vector API, with the widest vectors the CPU
+ * has: 16 ints or 8 doubles per instruction with AVX-512. Selected rows come from the gather
+ * loads of the API. The class is loaded only if the module {@code jdk.incubator.vector}
+ * is present; nothing else refers to it.
+ */
+final class VectorKernels implements ColumnKernels.Kernels {
+
+  private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+  private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+
+  /** The lane numbers {@code 0, 1, 2, ...}, the indices of a dense vector. */
+  private static final IntVector IOTA = IntVector.zero(INTS).addIndex(1);
+
+  /** The bit of every lane, {@code 1, 2, 4, ...}; an int vector has at most 16 lanes. */
+  private static final IntVector LANE_BITS =
+      IntVector.broadcast(INTS, 1).lanewise(VectorOperators.LSHL, IOTA);
+
+  /** The mask bits of a vector whose lanes all passed. */
+  private static final long ALL_LANES = -1L >>> (64 - INTS.length());
+
+  @Override
+  public int selectInRange(int[] values, int[] rows, int count, int lo, int hi, int[] out) {
+    // окремі цикли для щільного стовпця і вибраних рядків, без перевірки в кожній ітерації
+    int n = 0;
+    int i = 0;
+    int bound = INTS.loopBound(count);
+    if (rows == null) {
+      for (; i < bound; i += INTS.length()) {
+        IntVector v = IntVector.fromArray(INTS, values, i);
+        long bits = bits(inRange(v, lo, hi));
+        if (bits == ALL_LANES) {
+          IOTA.add(i).intoArray(out, n);
+          n += INTS.length();
+        } else {
+          // у JDK 17 немає compress, тож рядки збігів беруться з бітів маски
+          for (; bits != 0; bits &= bits - 1) {
+            out[n++] = i + Long.numberOfTrailingZeros(bits);
+          }
+        }
+      }
+    } else {
+      for (; i < bound; i += INTS.length()) {
+        IntVector v = IntVector.fromArray(INTS, values, 0, rows, i);
+        long bits = bits(inRange(v, lo, hi));
+        if (bits == ALL_LANES) {
+          System.arraycopy(rows, i, out, n, INTS.length());
+          n += INTS.length();
+        } else {
+          for (; bits != 0; bits &= bits - 1) {
+            out[n++] = rows[i + Long.numberOfTrailingZeros(bits)];
+          }
+        }
+      }
+    }
+    for (; i < count; i++) {
+      int row = rows == null ? i : rows[i];
+      int value = values[row];
+      if (value >= lo && value <= hi) {
+        out[n++] = row;
+      }
+    }
+    return n;
+  }
+
+  /**
+   * Returns the bits of the lanes of a mask. {@code VectorMask.toLong} is not compiled to one
+   * instruction in JDK 17 and allocates an array; a blend with the lane bits and an OR
+   * reduction are.
+   */
+  private static long bits(VectorMask<Integer> mask) {
+    return IntVector.zero(INTS).blend(LANE_BITS, mask).reduceLanes(VectorOperators.OR)
+        & 0xFFFFFFFFL;
+  }
+
+  private static VectorMask<Integer> inRange(IntVector v, int lo, int hi) {
+    // lo <= v <= hi рівносильне беззнаковому v - lo <= hi - lo: одне порівняння замість двох
+    return v.sub(lo).compare(VectorOperators.UNSIGNED_LE, hi - lo);
+  }
+
+  @Override
+  public StatisticsCollector.StatisticsData statistics(double[] values, int[] rows, int count) {
+    int bound = DOUBLES.loopBound(count);
+    DoubleVector sums = DoubleVector.zero(DOUBLES);
+    DoubleVector mins = DoubleVector.broadcast(DOUBLES, Double.POSITIVE_INFINITY);
+    DoubleVector maxs = DoubleVector.broadcast(DOUBLES, Double.NEGATIVE_INFINITY);
+    for (int i = 0; i < bound; i += DOUBLES.length()) {
+      DoubleVector v = load(values, rows, i);
+      sums = sums.add(v);
+      mins = mins.min(v);
+      maxs = maxs.max(v);
+    }
+    double sum = sums.reduceLanes(VectorOperators.ADD);
+    double min = mins.reduceLanes(VectorOperators.MIN);
+    double max = maxs.reduceLanes(VectorOperators.MAX);
+    for (int i = bound; i < count; i++) {
+      double value = values[rows == null ? i : rows[i]];
+      sum += value;
+      min = Math.min(min, value);
+      max = Math.max(max, value);
+    }
+    double mean = count == 0 ? 0 : sum / count;
+
+    DoubleVector m2s = DoubleVector.zero(DOUBLES);
+    DoubleVector m3s = DoubleVector.zero(DOUBLES);
+    DoubleVector m4s = DoubleVector.zero(DOUBLES);
+    for (int i = 0; i < bound; i += DOUBLES.length()) {
+      DoubleVector d = load(values, rows, i).sub(mean);
+      DoubleVector d2 = d.mul(d);
+      m2s = m2s.add(d2);
+      m3s = d2.fma(d, m3s);
+      m4s = d2.fma(d2, m4s);
+    }
+    double m2 = m2s.reduceLanes(VectorOperators.ADD);
+    double m3 = m3s.reduceLanes(VectorOperators.ADD);
+    double m4 = m4s.reduceLanes(VectorOperators.ADD);
+    for (int i = bound; i < count; i++) {
+      double d = values[rows == null ? i : rows[i]] - mean;
+      double d2 = d * d;
+      m2 += d2;
+      m3 += d2 * d;
+      m4 += d2 * d2;
+    }
+    return StatisticsCollector.StatisticsData.of(count, min, max, mean, m2, m3, m4);
+  }
+
+  @Override
+  public long countOutside(double[] values, double lower, double upper) {
+    long outside = 0;
+    int i = 0;
+    for (int bound = DOUBLES.loopBound(values.length); i < bound; i += DOUBLES.length()) {
+      DoubleVector v = DoubleVector.fromArray(DOUBLES, values, i);
+      outside += v.compare(VectorOperators.LT, lower)
+          .or(v.compare(VectorOperators.GT, upper))
+          .trueCount();
+    }
+    for (; i < values.length; i++) {
+      outside += values[i] < lower || values[i] > upper ? 1 : 0;
+    }
+    return outside;
+  }
+
+  private static DoubleVector load(double[] values, int[] rows, int i) {
+    return rows == null
+        ? DoubleVector.fromArray(DOUBLES, values, i)
+        : DoubleVector.fromArray(DOUBLES, values, 0, rows, i);
+  }
+}
@@ -0,0 +1,85 @@
+package labs;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Compares the kernels in use, the vector ones in the tests, with the scalar loops, on lengths
+ * that leave a tail after the last full vector.
+ */
+class ColumnKernelsTest {
+
+  /** Every length up to several vectors of AVX-512, and a few long odd ones. */
+  private static final int[] LENGTHS = IntStream.concat(IntStream.rangeClosed(0, 70),
+      IntStream.of(1000, 4097, 65_539)).toArray();
+
+  @Test
+  void runsOnVectorApi() {
+    // тести запускаються з модулем jdk.incubator.vector
+    assertTrue(ColumnKernels.isVectorized());
+  }
+
+  @Test
+  void selectInRangeMatchesScalar() {
+    Random random = new Random(25);
+    for (int length : LENGTHS) {
+      int[] values = random.ints(length, -50, 50).toArray();
+      // вибрані рядки з пропусками, як після фільтра за полем А
+      int[] rows = IntStream.range(0, length).filter(i -> random.nextInt(3) > 0).toArray();
+      for (double[] range : new double[][] {{-10, 10}, {-0.5, 0.5}, {-100, 100}, {20, 10},
+          {Double.NEGATIVE_INFINITY, 0}, {7.5, Double.POSITIVE_INFINITY}}) {
+        assertArrayEquals(ColumnKernels.selectInRange(ColumnKernels.SCALAR, values, length,
+            range[0], range[1]), ColumnKernels.selectInRange(ColumnKernels.kernels(), values,
+            length, range[0], range[1]), "length " + length);
+        assertArrayEquals(ColumnKernels.selectInRange(ColumnKernels.SCALAR, values, rows,
+            range[0], range[1]), ColumnKernels.selectInRange(ColumnKernels.kernels(), values,
+            rows, range[0], range[1]), "length " + length);
+      }
+    }
+  }
+
+  @Test
+  void statisticsMatchScalar() {
+    Random random = new Random(26);
+    for (int length : LENGTHS) {
+      double[] values = random.doubles(length).map(v -> 1e6 + v * v * 1000).toArray();
+      int[] rows = IntStream.range(0, length).filter(i -> random.nextBoolean()).toArray();
+      assertSameStatistics(ColumnKernels.SCALAR.statistics(values, null, length),
+          ColumnKernels.kernels().statistics(values, null, length));
+      assertSameStatistics(ColumnKernels.SCALAR.statistics(values, rows, rows.length),
+          ColumnKernels.kernels().statistics(values, rows, rows.length));
+    }
+  }
+
+  @Test
+  void countOutsideMatchesScalar() {
+    Random random = new Random(27);
+    for (int length : LENGTHS) {
+      double[] values = random.doubles(length).map(v -> v * 100).toArray();
+      for (double[] range : new double[][] {{10, 90}, {50, 50}, {-1, 101}, {60, 40}}) {
+        assertEquals(ColumnKernels.SCALAR.countOutside(values, range[0], range[1]),
+            ColumnKernels.kernels().countOutside(values, range[0], range[1]),
+            "length " + length);
+      }
+    }
+  }
+
+  /** The sums are added in another order, so the moments agree up to rounding. */
+  private static void assertSameStatistics(StatisticsCollector.StatisticsData expected,
+      StatisticsCollector.StatisticsData actual) {
+    assertEquals(expected.getCount(), actual.getCount());
+    assertEquals(expected.getMin(), actual.getMin());
+    assertEquals(expected.getMax(), actual.getMax());
+    assertEquals(expected.getAverage(), actual.getAverage(), 1e-6);
+    assertEquals(expected.getStandardDeviation(), actual.getStandardDeviation(), 1e-6);
+    if (expected.getCount() > 2 && expected.getStandardDeviation() > 0) {
+      assertEquals(expected.getSkewness(), actual.getSkewness(), 1e-6);
+      assertEquals(expected.getKurtosis(), actual.getKurtosis(), 1e-6);
+    }
+  }
+}
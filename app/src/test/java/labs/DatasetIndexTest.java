@@ -0,0 +1,104 @@
+package labs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Compares the plans of a {@link DatasetIndex} with full scans of the dataset. */
+class DatasetIndexTest {
+
+  private static final int SIZE = 200_000;
+
+  @TempDir
+  static Path directory;
+
+  private static DatasetReader dataset;
+  private static DatasetIndex index;
+
+  @BeforeAll
+  static void writeDataset() throws IOException {
+    Path file = directory.resolve("cars.bin");
+    try (DatasetWriter writer = new DatasetWriter(file, EntityType.CAR)) {
+      writer.writeAll(EntityType.CAR.generator(3).stream(SIZE));
+    }
+    dataset = new DatasetReader(file);
+    index = new DatasetIndex(dataset);
+  }
+
+  @AfterAll
+  static void closeDataset() throws IOException {
+    dataset.close();
+  }
+
+  @Test
+  void planSelectsWhatScanSelects() {
+    long[][] windows = {{0, 10}, {0, Long.MAX_VALUE}, {1000, 5000}, {39_000, 5000},
+        {SIZE, 10}};
+    double[][] ranges = {{0, 14}, {3, 3}, {2.5, 9.5}, {-5, 1}, {20, 30}, {9, 2}};
+    for (String brand : Car.BRANDS) {
+      for (long[] window : windows) {
+        for (double[] range : ranges) {
+          QuerySpec spec = new QuerySpec(EntityType.CAR, brand, window[0], window[1],
+              range[0], range[1], 0);
+          assertEquals(scan(spec), strings(index.plan(spec).stream()), spec.toString());
+        }
+      }
+    }
+  }
+
+  @Test
+  void planCountsAllMatchesOfFieldA() {
+    for (String brand : Car.BRANDS) {
+      QuerySpec spec = new QuerySpec(EntityType.CAR, brand, 0, 1, 0, 14, 0);
+      long matches = dataset.<HasGField>stream()
+          .filter(item -> ((Car) item).getBrand().equals(brand))
+          .count();
+      assertEquals(matches, index.plan(spec).getMatches());
+      assertEquals(matches, index.rowsWithA(brand).cardinality());
+    }
+  }
+
+  @Test
+  void countsValuesOfFieldB() {
+    for (int b = -1; b <= 15; b++) {
+      int value = b;
+      long expected = dataset.<HasGField>stream().filter(item -> ((Car) item)
+          .getMonthsSinceProduction() == value).count();
+      assertEquals(expected, index.countB(b, b));
+    }
+    assertEquals(SIZE, index.countB(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY));
+  }
+
+  @Test
+  void intersectsFieldAWithExtraField() {
+    QuerySpec spec = new QuerySpec(EntityType.CAR, "BMW", 10, 100, 0, 14, 0);
+    List<String> expected = dataset.<HasGField>stream()
+        .map(item -> (Car) item)
+        .filter(car -> car.getBrand().equals("BMW") && car.getCarClass().equals("C"))
+        .skip(10)
+        .limit(100)
+        .map(Object::toString)
+        .collect(Collectors.toList());
+    List<String> planned = strings(index.plan(spec, "C").stream());
+    assertEquals(expected, planned);
+    assertNotEquals(strings(index.plan(spec).stream()), planned);
+  }
+
+  private static List<String> scan(QuerySpec spec) {
+    return strings(EntityType.CAR.query(spec, dataset).collectItems().run().getItems()
+        .stream());
+  }
+
+  private static List<String> strings(Stream<?> items) {
+    return items.map(Object::toString).collect(Collectors.toList());
+  }
+}
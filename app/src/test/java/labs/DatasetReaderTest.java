@@ -0,0 +1,137 @@
+package labs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+/** Writes generated entities to a dataset file and reads them back. */
+class DatasetReaderTest {
+
+  private static final int SIZE = 20_000;
+
+  @TempDir
+  Path directory;
+
+  @ParameterizedTest
+  @EnumSource(EntityType.class)
+  void readsBackWhatWasWritten(EntityType entityType) throws IOException {
+    List<HasGField> written = entityType.generator(7).stream(SIZE).collect(Collectors.toList());
+    Path file = directory.resolve(entityType.name() + ".bin");
+    try (DatasetWriter writer = new DatasetWriter(file, entityType)) {
+      writer.writeAll(written.stream());
+      assertEquals(SIZE, writer.getRecordCount());
+    }
+
+    try (DatasetReader reader = new DatasetReader(file)) {
+      assertEquals(entityType, reader.getEntityType());
+      assertEquals(SIZE, reader.size());
+      for (int i = 0; i < SIZE; i++) {
+        HasGField read = reader.get(i);
+        assertEquals(written.get(i).toString(), read.toString());
+        assertEquals(written.get(i).getGField(), reader.getG(i));
+      }
+      assertEquals(strings(written), strings(reader.<HasGField>stream()
+          .collect(Collectors.toList())));
+    }
+  }
+
+  @ParameterizedTest
+  @EnumSource(EntityType.class)
+  void writesBatchesLikeEntities(EntityType entityType) throws IOException {
+    Path byEntity = directory.resolve("entities.bin");
+    Path byBatch = directory.resolve("batches.bin");
+    try (DatasetWriter writer = new DatasetWriter(byEntity, entityType)) {
+      writer.writeAll(entityType.generator(11).stream(SIZE));
+    }
+    try (DatasetWriter writer = new DatasetWriter(byBatch, entityType)) {
+      EntityBatch<?> batch = entityType.newBatch(4096);
+      for (long first = 0; first < SIZE; first += 4096) {
+        batch.clear();
+        addAll(batch, entityType.generator(11).stream(SIZE).skip(first).limit(4096));
+        writer.write(batch);
+      }
+    }
+
+    try (DatasetReader entities = new DatasetReader(byEntity);
+        DatasetReader batches = new DatasetReader(byBatch)) {
+      assertEquals(strings(entities.<HasGField>stream().collect(Collectors.toList())),
+          strings(batches.<HasGField>stream().collect(Collectors.toList())));
+    }
+  }
+
+  @Test
+  void keepsValuesOutsideTheEntityDictionary() throws IOException {
+    List<Car> cars = new ArrayList<>();
+    for (int i = 0; i < 5000; i++) {
+      cars.add(new Car(i % 3 == 0 ? "BMW" : "Brand" + i % 250, i % 15, "A", i));
+    }
+    Path file = directory.resolve("brands.bin");
+    try (DatasetWriter writer = new DatasetWriter(file, EntityType.CAR)) {
+      writer.writeAll(cars.stream());
+    }
+
+    try (DatasetReader reader = new DatasetReader(file)) {
+      assertEquals(Car.BRAND_DICTIONARY.codeOf("BMW"), reader.codeOf("BMW"));
+      assertEquals(-1, reader.codeOf("Lada"));
+      int code = reader.codeOf("Brand7");
+      assertTrue(code >= CategoryDictionary.MAX_SIZE && code < DatasetReader.A_CODE_LIMIT);
+      for (int i = 0; i < cars.size(); i++) {
+        Car car = reader.get(i);
+        assertEquals(cars.get(i).toString(), car.toString());
+        assertEquals(cars.get(i).getBrandCode(), car.getBrandCode());
+      }
+      QuerySpec spec = new QuerySpec(EntityType.CAR, "Brand7", 2, 100, 0, 14, 0);
+      List<String> expected = cars.stream()
+          .filter(car -> car.getBrand().equals("Brand7"))
+          .skip(2)
+          .map(Object::toString)
+          .collect(Collectors.toList());
+      assertEquals(expected, strings(EntityType.CAR.query(spec, reader).collectItems().run()
+          .getItems()));
+      assertEquals(expected, strings(EntityType.CAR.query(spec, new DatasetIndex(reader))
+          .collectItems().run().getItems()));
+    }
+    assertEquals(Car.BRANDS.length, Car.BRAND_DICTIONARY.size());
+  }
+
+  @Test
+  void rejectsCorruptDictionaries() throws IOException {
+    Path file = directory.resolve("corrupt.bin");
+    try (DatasetWriter writer = new DatasetWriter(file, EntityType.CREATURE)) {
+      writer.writeAll(EntityType.CREATURE.generator(1).stream(100));
+    }
+    long dictionaryOffset = DatasetFormat.HEADER_SIZE + 100L * DatasetFormat.RECORD_SIZE;
+    byte[] bytes = Files.readAllBytes(file);
+
+    ByteBuffer.wrap(bytes).order(DatasetFormat.BYTE_ORDER)
+        .putInt((int) dictionaryOffset, 1000);
+    Files.write(file, bytes);
+    assertThrows(IOException.class, () -> new DatasetReader(file));
+
+    Files.write(file, Arrays.copyOf(bytes, (int) dictionaryOffset + 6));
+    assertThrows(IOException.class, () -> new DatasetReader(file));
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T extends HasGField> void addAll(EntityBatch<T> batch, Stream<?> items) {
+    batch.addAll((Stream<? extends T>) items);
+  }
+
+  private static List<String> strings(List<? extends HasGField> items) {
+    return items.stream().map(Object::toString).collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,60 @@
+package labs;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+/** Checks that entities and batches with new values leave the entity dictionaries alone. */
+class EntityBatchTest {
+
+  @Test
+  void newValuesStayInTheirBatch() {
+    for (int round = 0; round < 3; round++) {
+      int first = round * 200;
+      List<Car> cars = IntStream.range(first, first + 200)
+          .mapToObj(i -> new Car("Brand" + i, i % 15, "A", i))
+          .collect(Collectors.toList());
+      CarBatch batch = new CarBatch();
+      batch.addAll(cars.stream());
+      for (int row = 0; row < cars.size(); row++) {
+        assertEquals(-1, cars.get(row).getBrandCode());
+        assertEquals(cars.get(row).toString(), batch.get(row).toString());
+      }
+      assertArrayEquals(new int[] {7}, batch.selectByA("Brand" + (first + 7), 0, 10));
+    }
+    assertEquals(Car.BRANDS.length, Car.BRAND_DICTIONARY.size());
+  }
+
+  @Test
+  void knownValuesKeepTheirCodes() {
+    CarBatch batch = new CarBatch();
+    batch.add(new Car("Lada", 1, "B", 100));
+    batch.add(new Car("BMW", 2, "C", 200));
+    assertEquals(Car.BRAND_DICTIONARY.codeOf("BMW"), new Car("BMW", 2, "C", 200).getBrandCode());
+    EntityCursor<Car> cursor = batch.cursor();
+    assertTrue(cursor.next());
+    assertTrue(cursor.aCode() >= Car.BRANDS.length);
+    assertTrue(cursor.next());
+    assertEquals(Car.BRAND_DICTIONARY.codeOf("BMW"), cursor.aCode());
+  }
+
+  @Test
+  void unknownValuesMatchNoCode() {
+    List<Car> cars = List.of(new Car("Lada", 1, "B", 100), new Car("Volga", 2, "C", 200),
+        new Car("BMW", 3, "D", 300));
+    assertTrue(new Gatherer<>(cars.stream(), "Lada", 0)
+        .gather(10, Car::getBrandCode, Car.BRAND_DICTIONARY).isEmpty());
+    assertEquals(1, new Gatherer<>(cars.stream(), "Lada", 0).gather(10, Car::getBrand).size());
+    assertEquals(1, Query.from(cars.stream())
+        .filterA(Car::getBrandCode, Car.BRAND_DICTIONARY, "BMW").collectItems().run()
+        .getItems().size());
+    assertTrue(Query.from(cars.stream())
+        .filterA(Car::getBrandCode, Car.BRAND_DICTIONARY, "Lada").collectItems().run()
+        .getItems().isEmpty());
+  }
+}
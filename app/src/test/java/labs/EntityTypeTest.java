@@ -0,0 +1,52 @@
+package labs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+/** Runs the queries of {@link Main} over generated entities. */
+class EntityTypeTest {
+
+  @Test
+  void pipelineMatchesGenerator() {
+    for (EntityType entityType : EntityType.values()) {
+      QuerySpec spec = new QuerySpec(entityType, entityType.getADictionary().decode(1), 1000,
+          20_000, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, 17);
+      Query.Result<HasGField> expected = entityType.query(spec).exactQuantiles().run();
+      Query.Result<HasGField> actual = entityType.pipelinedQuery(spec, 3).exactQuantiles().run();
+      assertEquals(expected.getGroups(), actual.getGroups());
+      assertEquals(20_000, expected.getStatistics().getCount());
+      assertEquals(expected.getStatistics().getSum(), actual.getStatistics().getSum());
+    }
+  }
+
+  @Test
+  void pipelineSkipsAndFiltersLikeGenerator() {
+    for (EntityType entityType : EntityType.values()) {
+      // пропуск довший за кілька пакетів, а діапазон Б відкидає більшість збігів
+      for (QuerySpec spec : new QuerySpec[] {
+          new QuerySpec(entityType, entityType.getADictionary().decode(2), 30_000, 50_000, 3, 9,
+              5),
+          new QuerySpec(entityType, entityType.getADictionary().decode(0), 0, 7, 0, 1000, 6),
+          new QuerySpec(entityType, entityType.getADictionary().decode(0), 10, 0, 0, 1000, 6)}) {
+        Query.Result<HasGField> expected = entityType.query(spec).exactQuantiles().run();
+        Query.Result<HasGField> actual = entityType.pipelinedQuery(spec, 3).exactQuantiles()
+            .run();
+        assertEquals(expected.getGroups(), actual.getGroups());
+        assertEquals(expected.getStatistics().getCount(), actual.getStatistics().getCount());
+        assertEquals(expected.getStatistics().getSum(), actual.getStatistics().getSum());
+      }
+    }
+  }
+
+  @Test
+  @Timeout(value = 10, unit = TimeUnit.SECONDS)
+  void unknownValueMatchesNothing() {
+    QuerySpec spec = new QuerySpec(EntityType.CAR, "bmw", 0, 10, 0, 14, 1);
+    assertTrue(EntityType.CAR.query(spec).run().getGroups().isEmpty());
+    assertTrue(EntityType.CAR.pipelinedQuery(spec, 2).run().getGroups().isEmpty());
+  }
+}
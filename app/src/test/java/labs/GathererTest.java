@@ -0,0 +1,38 @@
+package labs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+/** Gathers cars from a shared generator supplier on several threads. */
+class GathererTest {
+
+  @Test
+  void parallelGatherKeepsLimitOfMatches() {
+    List<Car> cars = new Gatherer<>(EntityGenerator.cars(3).supplier(), "BMW", 5000)
+        .gatherParallel(20_000, Car::getBrandCode, Car.BRAND_DICTIONARY);
+    assertEquals(20_000, cars.size());
+    Set<Car> distinct = Collections.newSetFromMap(new IdentityHashMap<>());
+    distinct.addAll(cars);
+    assertEquals(cars.size(), distinct.size());
+    assertTrue(cars.stream().allMatch(car -> car.getBrand().equals("BMW")));
+    assertEquals(20_000, new Gatherer<>(EntityGenerator.cars(3).supplier(), "BMW", 0)
+        .gatherParallel(20_000, Car::getBrand).size());
+  }
+
+  @Test
+  @Timeout(value = 10, unit = TimeUnit.SECONDS)
+  void unknownValueGathersNothing() {
+    assertTrue(new Gatherer<>(EntityGenerator.cars(3).supplier(), "bmw", 0)
+        .gatherParallel(10, Car::getBrandCode, Car.BRAND_DICTIONARY).isEmpty());
+    assertTrue(new Gatherer<>(EntityGenerator.cars(3).stream(), "bmw", 0)
+        .gather(10, Car::getBrandCode, Car.BRAND_DICTIONARY).isEmpty());
+  }
+}
@@ -0,0 +1,142 @@
+package labs;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+/** Compares {@link GroupAggregator} with a map of the same groups. */
+class GroupAggregatorTest {
+
+  private static final double[] B_BOUNDS = {0, 10, 25, 50, 100};
+
+  private static final CategoryDictionary FIRST = dictionary("brand", 20);
+  private static final CategoryDictionary SECOND = dictionary("class", 10);
+  private static final CategoryDictionary THIRD = dictionary("color", 5);
+
+  @Test
+  void mergedPartsMatchNaiveGroups() {
+    List<Row> rows = rows(new Random(17), 200_000);
+    GroupAggregator merged = table();
+    // частини різного розміру, як у потоків паралельного конвеєра
+    int from = 0;
+    for (int part = 0; from < rows.size(); part++) {
+      int to = Math.min(rows.size(), from + 1000 * (1 << part));
+      GroupAggregator table = table();
+      rows.subList(from, to).forEach(row -> row.addTo(table));
+      merged.merge(table);
+      from = to;
+    }
+    merged.merge(table());
+    assertGroups(rows, merged);
+  }
+
+  @Test
+  void parallelCollectorMatchesNaiveGroups() {
+    List<Row> rows = rows(new Random(18), 200_000);
+    GroupAggregator table = rows.parallelStream().collect(GroupAggregator.collector(
+        row -> GroupAggregator.key(row.first, row.second, row.third), row -> row.b,
+        row -> row.g, B_BOUNDS, FIRST, SECOND, THIRD));
+    assertGroups(rows, table);
+  }
+
+  private static void assertGroups(List<Row> rows, GroupAggregator table) {
+    Map<String, Naive> expected = new TreeMap<>();
+    for (Row row : rows) {
+      expected.computeIfAbsent(String.format("%02d %02d %02d", row.first, row.second,
+          row.third), key -> new Naive(row)).accept(row);
+    }
+    assertEquals(expected.size(), table.size());
+    List<GroupAggregator.Group> groups = table.groups();
+    List<Naive> naive = new ArrayList<>(expected.values());
+    for (int i = 0; i < groups.size(); i++) {
+      GroupAggregator.Group group = groups.get(i);
+      Naive expectedGroup = naive.get(i);
+      assertEquals(FIRST.decode(expectedGroup.first) + " × "
+          + SECOND.decode(expectedGroup.second) + " × " + THIRD.decode(expectedGroup.third),
+          group.getLabel());
+      assertEquals(expectedGroup.count, group.getCount());
+      assertEquals(expectedGroup.sum, group.getSum(), 1e-6);
+      assertEquals(expectedGroup.min, group.getMin());
+      assertEquals(expectedGroup.max, group.getMax());
+      assertArrayEquals(expectedGroup.rangeCounts, group.getRangeCounts());
+    }
+  }
+
+  private static GroupAggregator table() {
+    return new GroupAggregator(B_BOUNDS, FIRST, SECOND, THIRD);
+  }
+
+  private static CategoryDictionary dictionary(String prefix, int size) {
+    return new CategoryDictionary(IntStream.range(0, size).mapToObj(i -> prefix + i)
+        .toArray(String[]::new));
+  }
+
+  /** Rows of 1000 possible groups, with values of B below, inside and above the ranges. */
+  private static List<Row> rows(Random random, int n) {
+    List<Row> rows = new ArrayList<>(n);
+    for (int i = 0; i < n; i++) {
+      rows.add(new Row(random.nextInt(20), random.nextInt(10), random.nextInt(5),
+          random.nextInt(110) - 5, random.nextGaussian() * 100));
+    }
+    return rows;
+  }
+
+  private static final class Row {
+
+    final int first;
+    final int second;
+    final int third;
+    final int b;
+    final double g;
+
+    Row(int first, int second, int third, int b, double g) {
+      this.first = first;
+      this.second = second;
+      this.third = third;
+      this.b = b;
+      this.g = g;
+    }
+
+    void addTo(GroupAggregator table) {
+      table.accept(GroupAggregator.key(first, second, third), b, g);
+    }
+  }
+
+  /** One group, counted the obvious way. */
+  private static final class Naive {
+
+    final int first;
+    final int second;
+    final int third;
+    long count;
+    double sum;
+    double min = Double.POSITIVE_INFINITY;
+    double max = Double.NEGATIVE_INFINITY;
+    final long[] rangeCounts = new long[B_BOUNDS.length - 1];
+
+    Naive(Row row) {
+      first = row.first;
+      second = row.second;
+      third = row.third;
+    }
+
+    void accept(Row row) {
+      count++;
+      sum += row.g;
+      min = Math.min(min, row.g);
+      max = Math.max(max, row.g);
+      for (int range = 0; range < rangeCounts.length; range++) {
+        if (row.b >= B_BOUNDS[range] && row.b < B_BOUNDS[range + 1]) {
+          rangeCounts[range]++;
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,80 @@
+package labs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+/** Checks the bounds of the heavy hitters against the exact counts of the values. */
+class HeavyHitterCollectorTest {
+
+  private static final int CAPACITY = 32;
+
+  @Test
+  void mergedSummariesBoundTrueCounts() {
+    List<String> values = values(new Random(23), 300_000);
+    HeavyHitterCollector.HeavyHitters merged = new HeavyHitterCollector.HeavyHitters(CAPACITY);
+    // частини різного розміру, щоб злиття бачило різні набори лічильників
+    int from = 0;
+    for (int part = 0; from < values.size(); part++) {
+      int to = Math.min(values.size(), from + 1000 * (1 << part));
+      HeavyHitterCollector.HeavyHitters hitters =
+          new HeavyHitterCollector.HeavyHitters(CAPACITY);
+      values.subList(from, to).forEach(hitters::accept);
+      merged.merge(hitters);
+      from = to;
+    }
+    assertBounds(values, merged);
+  }
+
+  @Test
+  void parallelCollectorBoundsTrueCounts() {
+    List<String> values = values(new Random(24), 300_000);
+    HeavyHitterCollector.HeavyHitters hitters = values.parallelStream().collect(
+        HeavyHitterCollector.getHeavyHitterCollector(value -> value, CAPACITY));
+    assertBounds(values, hitters);
+  }
+
+  private static void assertBounds(List<String> values,
+      HeavyHitterCollector.HeavyHitters hitters) {
+    Map<String, Long> counts = values.stream()
+        .collect(Collectors.groupingBy(value -> value, Collectors.counting()));
+    assertEquals(values.size(), hitters.getTotal());
+    for (Map.Entry<String, Long> entry : counts.entrySet()) {
+      assertTrue(hitters.estimate(entry.getKey()) >= entry.getValue(), entry.getKey());
+    }
+    Set<String> reported = new HashSet<>();
+    for (HeavyHitterCollector.HeavyHitter hitter : hitters.getTop(CAPACITY)) {
+      long count = counts.getOrDefault(hitter.getValue(), 0L);
+      assertTrue(hitter.getLowerBound() <= count, hitter.toString());
+      assertTrue(count <= hitter.getCount(), hitter.toString());
+      reported.add(hitter.getValue());
+    }
+    // кожне значення частіше за n / m гарантовано серед кандидатів
+    for (Map.Entry<String, Long> entry : counts.entrySet()) {
+      if (entry.getValue() > values.size() / CAPACITY) {
+        assertTrue(reported.contains(entry.getKey()), entry.getKey());
+      }
+    }
+  }
+
+  /** A few frequent values over a long tail of rare ones, the tail shifting along the stream. */
+  private static List<String> values(Random random, int n) {
+    List<String> values = new ArrayList<>(n);
+    Map<Integer, String> names = new HashMap<>();
+    for (int i = 0; i < n; i++) {
+      int value = random.nextInt(3) == 0 ? random.nextInt(8)
+          : 8 + random.nextInt(2000) + i / 1000;
+      values.add(names.computeIfAbsent(value, v -> "value" + v));
+    }
+    return values;
+  }
+}
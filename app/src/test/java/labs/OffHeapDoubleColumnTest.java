@@ -0,0 +1,76 @@
+package labs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.DoubleBuffer;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.Test;
+
+/** Compares an {@link OffHeapDoubleColumn} with a sorted heap array. */
+class OffHeapDoubleColumnTest {
+
+  @Test
+  void sortsLikeArraysSort() {
+    // тести запускаються з модулем jdk.incubator.foreign
+    assertTrue(OffHeapDoubleColumn.isForeign());
+    sortsLikeArraysSort(OffHeapDoubleColumn::new);
+  }
+
+  @Test
+  void sortsLikeArraysSortInDirectBuffers() {
+    sortsLikeArraysSort(() -> new OffHeapDoubleColumn(OffHeapDoubleColumn.DIRECT));
+  }
+
+  private static void sortsLikeArraysSort(Supplier<OffHeapDoubleColumn> columns) {
+    Random random = new Random(4);
+    // більше за один шматок, щоб сортування перетинало їхні межі
+    int n = OffHeapDoubleColumn.CHUNK_SIZE * 2 + 12_345;
+    double[] values = new double[n];
+    try (OffHeapDoubleColumn column = columns.get()) {
+      for (int i = 0; i < n; i++) {
+        values[i] = random.nextInt(1000) + random.nextGaussian();
+        column.append(values[i]);
+      }
+      Arrays.sort(values);
+      column.sort();
+      assertEquals(n, column.size());
+      for (int i = 0; i < n; i++) {
+        assertEquals(values[i], column.get(i), "index " + i);
+      }
+      for (double p : new double[] {0.001, 5, 25, 50, 75, 99, 100}) {
+        assertEquals(Main.getPercentile(values, p), column.getPercentile(p));
+      }
+      assertEquals(Main.splitOutliers(values), column.splitOutliers());
+      assertEquals(Arrays.stream(values).filter(v -> v < 500).count(), column.countBelow(500));
+      StatisticsCollector.StatisticsData expected = StatisticsCollector.of(values);
+      StatisticsCollector.StatisticsData actual = column.statistics();
+      assertEquals(expected.getCount(), actual.getCount());
+      assertEquals(expected.getMin(), actual.getMin());
+      assertEquals(expected.getMax(), actual.getMax());
+      assertEquals(expected.getAverage(), actual.getAverage(), 1e-9);
+    }
+  }
+
+  @Test
+  void rejectsUseAfterClose() {
+    OffHeapDoubleColumn column = new OffHeapDoubleColumn();
+    column.append(1);
+    column.close();
+    column.close();
+    assertThrows(IllegalStateException.class, () -> column.append(2));
+  }
+
+  @Test
+  void freesForeignMemoryOnClose() {
+    OffHeapDoubleColumn.Arena arena = new ForeignArena();
+    DoubleBuffer chunk = arena.allocate(OffHeapDoubleColumn.CHUNK_SIZE);
+    chunk.put(0, 1);
+    arena.close();
+    // пам'ять уже звільнена, тож буфер більше не читається
+    assertThrows(IllegalStateException.class, () -> chunk.get(0));
+  }
+}
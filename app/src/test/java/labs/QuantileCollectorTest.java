@@ -0,0 +1,69 @@
+package labs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/** Checks the rank error of the KLL sketch, alone and merged from parts. */
+class QuantileCollectorTest {
+
+  private static final int SIZE = 1_000_000;
+
+  /** The allowed rank error, several times the expected one for the default k. */
+  private static final double RANK_ERROR = 0.02;
+
+  @Test
+  void estimatesRanksOfOneSketch() {
+    double[] values = new Random(6).doubles(SIZE).map(v -> v * v * 1000).toArray();
+    QuantileCollector.QuantileSketch sketch = QuantileCollector.sketch(Arrays.stream(values));
+    assertRanks(values, sketch);
+  }
+
+  @Test
+  void mergedSketchesEstimateRanksOfAllValues() {
+    Random random = new Random(9);
+    double[] values = new double[SIZE];
+    QuantileCollector.QuantileSketch merged = new QuantileCollector.QuantileSketch(
+        QuantileCollector.DEFAULT_K);
+    // частини різного розміру та з різними розподілами, як у шардів
+    int from = 0;
+    for (int part = 0; from < SIZE; part++) {
+      int to = Math.min(SIZE, from + 1000 * (1 << part));
+      QuantileCollector.QuantileSketch sketch = new QuantileCollector.QuantileSketch(
+          QuantileCollector.DEFAULT_K);
+      for (int i = from; i < to; i++) {
+        values[i] = part % 2 == 0 ? random.nextGaussian() * 10 : random.nextDouble() * 50;
+        sketch.accept(values[i]);
+      }
+      merged = merged.merge(sketch);
+      from = to;
+    }
+    assertRanks(values, merged);
+  }
+
+  private static void assertRanks(double[] values, QuantileCollector.QuantileSketch sketch) {
+    double[] sorted = values.clone();
+    Arrays.sort(sorted);
+    assertEquals(values.length, sketch.getCount());
+    assertEquals(sorted[0], sketch.getMin());
+    assertEquals(sorted[sorted.length - 1], sketch.getMax());
+    for (double p = 1; p < 100; p += 7) {
+      double estimate = sketch.getPercentile(p);
+      double rank = rank(sorted, estimate);
+      assertTrue(Math.abs(rank - p / 100) <= RANK_ERROR, "p" + p + " has rank " + rank);
+      assertEquals(rank, sketch.getRank(estimate), RANK_ERROR);
+    }
+  }
+
+  /** The fraction of the sorted values less than the value. */
+  private static double rank(double[] sorted, double value) {
+    int i = Arrays.binarySearch(sorted, value);
+    while (i > 0 && sorted[i - 1] == value) {
+      i--;
+    }
+    return (double) (i >= 0 ? i : -i - 1) / sorted.length;
+  }
+}
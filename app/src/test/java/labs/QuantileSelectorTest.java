@@ -0,0 +1,74 @@
+package labs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/** Compares the selected quantiles with the ones of the sorted array. */
+class QuantileSelectorTest {
+
+  private static final double[] PERCENTILES = {0, 1, 12.5, 25, 50, 75, 90, 99.9, 100};
+
+  @Test
+  void selectsRanksOfSortedArray() {
+    Random random = new Random(1);
+    for (int n : new int[] {1, 2, 31, 32, 33, 1000, 100_001}) {
+      double[] values = values(random, n);
+      double[] sorted = values.clone();
+      Arrays.sort(sorted);
+      for (QuantileSelector.Interpolation mode : QuantileSelector.Interpolation.values()) {
+        double[] actual = QuantileSelector.percentiles(values.clone(), mode, PERCENTILES);
+        for (int i = 0; i < PERCENTILES.length; i++) {
+          assertEquals(expected(sorted, mode, PERCENTILES[i]), actual[i],
+              mode + " p" + PERCENTILES[i] + " n=" + n);
+        }
+      }
+    }
+  }
+
+  @Test
+  void nearestRankMatchesMain() {
+    double[] values = values(new Random(2), 50_000);
+    double[] sorted = values.clone();
+    Arrays.sort(sorted);
+    // Main не має нульового перцентиля: індекс ceil(0) - 1 виходить за масив
+    for (double p : Arrays.copyOfRange(PERCENTILES, 1, PERCENTILES.length)) {
+      assertEquals(Main.getPercentile(sorted, p), QuantileSelector.percentile(values.clone(),
+          p, QuantileSelector.Interpolation.NEAREST_RANK));
+    }
+    assertEquals(Main.splitOutliers(sorted.clone()), QuantileSelector.splitOutliers(values));
+  }
+
+  /** Repeated values, so that many ranks hold equal values. */
+  private static double[] values(Random random, int n) {
+    double[] values = new double[n];
+    for (int i = 0; i < n; i++) {
+      values[i] = random.nextInt(n / 3 + 1) + (random.nextBoolean() ? 0.5 : 0);
+    }
+    return values;
+  }
+
+  private static double expected(double[] sorted, QuantileSelector.Interpolation mode,
+      double p) {
+    int n = sorted.length;
+    double h = (n - 1) * p / 100.0;
+    double low = sorted[(int) Math.floor(h)];
+    double high = sorted[(int) Math.ceil(h)];
+    switch (mode) {
+      case NEAREST_RANK:
+        return sorted[(int) Math.min(Math.max(Math.ceil(p / 100.0 * n) - 1, 0), n - 1)];
+      case LOWER:
+        return low;
+      case HIGHER:
+        return high;
+      case NEAREST:
+        return sorted[(int) Math.rint(h)];
+      case LINEAR:
+        return low + (h - Math.floor(h)) * (high - low);
+      default:
+        return (low + high) / 2;
+    }
+  }
+}
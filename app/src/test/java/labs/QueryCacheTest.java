@@ -0,0 +1,87 @@
+package labs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+/** Counts the queries a {@link QueryCache} runs for repeated, evicted and expired entries. */
+class QueryCacheTest {
+
+  private final AtomicInteger runs = new AtomicInteger();
+
+  @Test
+  void answersRepeatedQueriesAndPartsFromCache() {
+    QueryCache cache = counting(QueryCache.withMaxWeight(64 << 20));
+    QuerySpec spec = spec(1);
+    Query.Result<HasGField> exact = cache.getResult(spec, true);
+    assertSame(exact, cache.getResult(spec, true));
+    // точний результат відповідає і на запит без точних квантилів
+    assertSame(exact, cache.getResult(spec, false));
+    assertEquals(exact.getGroups(), cache.getGroups(spec));
+    assertSame(exact.getStatistics(), cache.getStatistics(spec));
+    assertEquals(1, runs.get());
+    assertEquals(4, cache.getStats().getHits());
+    assertEquals(1, cache.getStats().getMisses());
+
+    QuerySpec other = spec(2);
+    cache.getStatistics(other);
+    cache.getResult(other, false);
+    // результат зі скетчем не відповідає на запит точних квантилів
+    cache.getResult(other, true);
+    assertEquals(3, runs.get());
+    // частини обох описів і обидва результати другого
+    assertEquals(7, cache.size());
+  }
+
+  @Test
+  void evictsLeastRecentlyUsedEntries() {
+    QueryCache sizing = QueryCache.withMaxWeight(Long.MAX_VALUE);
+    sizing.getResult(spec(1), true);
+    sizing.getResult(spec(2), true);
+    long maxWeight = sizing.weight();
+
+    QueryCache cache = counting(QueryCache.withMaxWeight(maxWeight));
+    cache.getResult(spec(1), true);
+    cache.getResult(spec(2), true);
+    assertEquals(0, cache.getStats().getEvictions());
+    cache.getResult(spec(1), true);
+    cache.getResult(spec(3), true);
+    assertTrue(cache.getStats().getEvictions() > 0);
+    assertTrue(cache.weight() <= maxWeight);
+    assertEquals(3, runs.get());
+
+    cache.getResult(spec(1), true);
+    assertEquals(3, runs.get());
+    cache.getResult(spec(2), true);
+    assertEquals(4, runs.get());
+  }
+
+  @Test
+  void expiresEntriesAfterWrite() throws InterruptedException {
+    QueryCache cache = counting(QueryCache.withMaxWeight(64 << 20)
+        .expireAfterWrite(Duration.ofMillis(50)));
+    QuerySpec spec = spec(1);
+    cache.getResult(spec, true);
+    Thread.sleep(100);
+    cache.getResult(spec, true);
+    assertEquals(2, runs.get());
+    assertEquals(1, cache.getStats().getExpirations());
+    assertEquals(0, cache.getStats().getHits());
+  }
+
+  private QueryCache counting(QueryCache cache) {
+    return cache.source(spec -> {
+      runs.incrementAndGet();
+      return spec.getEntityType().query(spec);
+    });
+  }
+
+  private static QuerySpec spec(long seed) {
+    return new QuerySpec(EntityType.CAR, "BMW", 0, 5000, Double.NEGATIVE_INFINITY,
+        Double.POSITIVE_INFINITY, seed);
+  }
+}
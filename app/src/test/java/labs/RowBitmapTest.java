@@ -0,0 +1,85 @@
+package labs;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Random;
+import java.util.TreeSet;
+import org.junit.jupiter.api.Test;
+
+/** Compares {@link RowBitmap} with a sorted set of the same rows. */
+class RowBitmapTest {
+
+  @Test
+  void answersLikeSortedSet() {
+    Random random = new Random(5);
+    // рідкі рядки дають масиви, густі — бітові контейнери
+    for (double density : new double[] {0.001, 0.05, 0.5}) {
+      TreeSet<Integer> expected = new TreeSet<>();
+      RowBitmap bitmap = new RowBitmap();
+      for (int row = 0; row < 300_000; row++) {
+        if (random.nextDouble() < density) {
+          expected.add(row);
+          bitmap.add(row);
+        }
+      }
+      assertEquals(expected.size(), bitmap.cardinality());
+      int[] rows = expected.stream().mapToInt(Integer::intValue).toArray();
+      assertArrayEquals(rows, bitmap.toArray(0, Integer.MAX_VALUE));
+      for (int k = 0; k < rows.length; k += 97) {
+        assertEquals(rows[k], bitmap.select(k));
+        assertEquals(k, bitmap.rank(rows[k]));
+      }
+      for (int row = 0; row < 300_000; row += 1009) {
+        assertEquals(expected.contains(row), bitmap.contains(row));
+        assertEquals(expected.headSet(row).size(), bitmap.rank(row));
+      }
+      assertArrayEquals(expected.subSet(70_000, 140_000).stream().mapToInt(Integer::intValue)
+          .toArray(), bitmap.toArray(70_000, 140_000));
+    }
+  }
+
+  @Test
+  void intersectsAllKindsOfContainers() {
+    Random random = new Random(8);
+    RowBitmap sparse = new RowBitmap();
+    RowBitmap dense = new RowBitmap();
+    RowBitmap denser = new RowBitmap();
+    TreeSet<Integer> sparseRows = new TreeSet<>();
+    TreeSet<Integer> denseRows = new TreeSet<>();
+    TreeSet<Integer> denserRows = new TreeSet<>();
+    for (int row = 0; row < 200_000; row++) {
+      if (random.nextInt(100) == 0) {
+        sparse.add(row);
+        sparseRows.add(row);
+      }
+      if (random.nextInt(3) == 0) {
+        dense.add(row);
+        denseRows.add(row);
+      }
+      if (random.nextInt(2) == 0) {
+        denser.add(row);
+        denserRows.add(row);
+      }
+    }
+    assertAnd(sparseRows, denseRows, sparse.and(dense));
+    assertAnd(denseRows, sparseRows, dense.and(sparse));
+    assertAnd(denseRows, denserRows, dense.and(denser));
+  }
+
+  @Test
+  void rejectsRowsOutOfOrder() {
+    RowBitmap bitmap = new RowBitmap();
+    bitmap.add(10);
+    assertThrows(IllegalArgumentException.class, () -> bitmap.add(10));
+    assertThrows(IndexOutOfBoundsException.class, () -> bitmap.select(1));
+  }
+
+  private static void assertAnd(TreeSet<Integer> a, TreeSet<Integer> b, RowBitmap result) {
+    TreeSet<Integer> expected = new TreeSet<>(a);
+    expected.retainAll(b);
+    assertArrayEquals(expected.stream().mapToInt(Integer::intValue).toArray(),
+        result.toArray(0, Integer.MAX_VALUE));
+  }
+}
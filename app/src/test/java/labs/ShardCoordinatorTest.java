@@ -0,0 +1,93 @@
+package labs;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Runs the same queries locally and in two worker processes. */
+class ShardCoordinatorTest {
+
+  private static ShardCoordinator coordinator;
+
+  @TempDir
+  static Path directory;
+
+  @BeforeAll
+  static void startWorkers() throws IOException {
+    coordinator = new ShardCoordinator(2, List.of("-Xmx256m"));
+  }
+
+  @AfterAll
+  static void stopWorkers() {
+    coordinator.close();
+  }
+
+  @Test
+  void generatedDataMatchesLocalRun() throws IOException {
+    assertEquals(2, coordinator.getWorkers());
+    for (QuerySpec spec : List.of(
+        new QuerySpec(EntityType.CAR, "BMW", 0, 50_000, 3, 9, 42),
+        new QuerySpec(EntityType.SURVEY, "Kyiv", 100_000, 10_000, 20, 40, 7),
+        new QuerySpec(EntityType.CREATURE, "Dragon", 5, 0, 0, 1000, 1))) {
+      Query.Result<HasGField> local = spec.getEntityType().query(spec).exactQuantiles().run();
+      assertSameResult(local, coordinator.run(spec, true, null));
+    }
+  }
+
+  @Test
+  void datasetMatchesLocalRun() throws IOException {
+    Path file = directory.resolve("clothing.bin");
+    try (DatasetWriter writer = new DatasetWriter(file, EntityType.CLOTHING)) {
+      writer.writeAll(EntityType.CLOTHING.generator(5).stream(300_000));
+    }
+    QuerySpec spec = new QuerySpec(EntityType.CLOTHING, "Kyiv",
+        1000, 40_000, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, 0);
+    try (DatasetReader dataset = new DatasetReader(file)) {
+      Query.Result<HasGField> local = spec.getEntityType().query(spec, dataset)
+          .exactQuantiles().run();
+      assertSameResult(local, coordinator.run(spec, true, file));
+    }
+  }
+
+  @Test
+  void sketchesCountAllValues() throws IOException {
+    QuerySpec spec = new QuerySpec(EntityType.CAR, "Audi", 0, 200_000, 0, 14, 3);
+    Query.Result<HasGField> local = spec.getEntityType().query(spec).run();
+    Query.Result<HasGField> sharded = coordinator.run(spec, false, null);
+    assertEquals(local.getGroups(), sharded.getGroups());
+    assertEquals(local.getSketch().getCount(), sharded.getSketch().getCount());
+    assertEquals(local.getSketch().getMin(), sharded.getSketch().getMin());
+    assertEquals(local.getSketch().getMax(), sharded.getSketch().getMax());
+  }
+
+  @Test
+  @Timeout(value = 10, unit = TimeUnit.SECONDS)
+  void unknownValueMatchesNothing() throws IOException {
+    QuerySpec spec = new QuerySpec(EntityType.CAR, "bmw", 0, 10, 0, 14, 1);
+    Query.Result<HasGField> result = coordinator.run(spec, true, null);
+    assertTrue(result.getGroups().isEmpty());
+    assertEquals(0, result.getStatistics().getCount());
+  }
+
+  private static void assertSameResult(Query.Result<HasGField> expected,
+      Query.Result<HasGField> actual) {
+    assertEquals(expected.getGroups(), actual.getGroups());
+    StatisticsCollector.StatisticsData a = expected.getStatistics();
+    StatisticsCollector.StatisticsData b = actual.getStatistics();
+    assertEquals(a.getCount(), b.getCount());
+    assertEquals(a.getMin(), b.getMin());
+    assertEquals(a.getMax(), b.getMax());
+    assertEquals(a.getAverage(), b.getAverage(), 1e-9 * Math.abs(a.getAverage()) + 1e-12);
+    assertArrayEquals(expected.getSortedGValues(), actual.getSortedGValues());
+  }
+}
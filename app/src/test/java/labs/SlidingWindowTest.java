@@ -0,0 +1,169 @@
+package labs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/** Compares {@link SlidingWindow} with a deque of the same values, sorted on every check. */
+class SlidingWindowTest {
+
+  private static final double[] PERCENTILES = {1, 25, 50, 75, 99, 100};
+
+  @Test
+  void countWindowMatchesLastValues() {
+    Random random = new Random(15);
+    int size = 50;
+    SlidingWindow<Double> window = SlidingWindow.ofCount(size, Double::doubleValue);
+    ArrayDeque<Double> last = new ArrayDeque<>();
+    long outliers = 0;
+    // більше за 65536 вилучень, щоб моменти хоч раз перераховувались точно
+    for (int i = 0; i < 100_000; i++) {
+      double value = value(random);
+      boolean expected = isOutlier(last, value, SlidingWindow.DEFAULT_MIN_SAMPLES);
+      assertEquals(expected, window.accept(value, i), "value " + i);
+      outliers += expected ? 1 : 0;
+      last.addLast(value);
+      if (last.size() > size) {
+        last.removeFirst();
+      }
+      assertSameWindow(last, window);
+    }
+    assertTrue(outliers > 0);
+  }
+
+  @Test
+  void timeWindowEvictsOldValues() {
+    Random random = new Random(16);
+    long period = 50;
+    SlidingWindow<Double> window = SlidingWindow.ofTime(Duration.ofMillis(period),
+        Double::doubleValue).minSamples(5);
+    ArrayDeque<double[]> last = new ArrayDeque<>();
+    long timestamp = 0;
+    for (int i = 0; i < 20_000; i++) {
+      // часом довга пауза, після якої вікно порожніє
+      timestamp += random.nextInt(100) == 0 ? 2 * period : random.nextInt(6);
+      while (!last.isEmpty() && last.peekFirst()[1] <= timestamp - period) {
+        last.removeFirst();
+      }
+      double value = value(random);
+      ArrayDeque<Double> values = new ArrayDeque<>();
+      last.forEach(entry -> values.addLast(entry[0]));
+      assertEquals(isOutlier(values, value, 5), window.accept(value, timestamp), "value " + i);
+      last.addLast(new double[] {value, timestamp});
+      values.addLast(value);
+      assertSameWindow(values, window);
+    }
+  }
+
+  @Test
+  void tumblingCountWindowSummarizesFullWindows() {
+    List<SlidingWindow.WindowSummary> summaries = new ArrayList<>();
+    SlidingWindow<Double> window = SlidingWindow.ofCount(10, Double::doubleValue)
+        .tumbling().onWindow(summaries::add);
+    Random random = new Random(17);
+    double[] values = new double[35];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = value(random);
+      window.accept(values[i], 100 + i);
+    }
+    assertEquals(3, summaries.size());
+    for (int w = 0; w < summaries.size(); w++) {
+      assertSummary(Arrays.copyOfRange(values, w * 10, w * 10 + 10), summaries.get(w));
+      assertEquals(100 + w * 10, summaries.get(w).getStart());
+      assertEquals(100 + w * 10 + 9, summaries.get(w).getEnd());
+    }
+    assertEquals(5, window.getCount());
+  }
+
+  @Test
+  void tumblingTimeWindowSummarizesPeriods() {
+    List<SlidingWindow.WindowSummary> summaries = new ArrayList<>();
+    long period = 100;
+    SlidingWindow<Double> window = SlidingWindow.ofTime(Duration.ofMillis(period),
+        Double::doubleValue).tumbling().onWindow(summaries::add);
+    Random random = new Random(18);
+    long start = 1000;
+    List<List<Double>> periods = new ArrayList<>();
+    List<Long> firstTimestamps = new ArrayList<>();
+    long timestamp = start;
+    for (int i = 0; i < 2000; i++) {
+      // пропущені періоди не дають порожніх підсумків
+      timestamp += random.nextInt(50) == 0 ? 3 * period : random.nextInt(8);
+      int index = (int) ((timestamp - start) / period);
+      while (periods.size() <= index) {
+        periods.add(new ArrayList<>());
+        firstTimestamps.add(timestamp);
+      }
+      if (periods.get(index).isEmpty()) {
+        firstTimestamps.set(index, timestamp);
+      }
+      double value = value(random);
+      periods.get(index).add(value);
+      window.accept(value, timestamp);
+    }
+    int w = 0;
+    // останній період ще не закінчився
+    for (int index = 0; index < periods.size() - 1; index++) {
+      if (periods.get(index).isEmpty()) {
+        continue;
+      }
+      SlidingWindow.WindowSummary summary = summaries.get(w++);
+      assertSummary(periods.get(index).stream().mapToDouble(Double::doubleValue).toArray(),
+          summary);
+      assertEquals(firstTimestamps.get(index), summary.getStart());
+      assertEquals(start + (index + 1) * period, summary.getEnd());
+    }
+    assertEquals(w, summaries.size());
+    assertEquals(periods.get(periods.size() - 1).size(), window.getCount());
+  }
+
+  /** Small integers, so that many values are equal, and rare spikes, the outliers. */
+  private static double value(Random random) {
+    return random.nextInt(50) == 0 ? 1000 + random.nextInt(100) : random.nextInt(40);
+  }
+
+  private static boolean isOutlier(ArrayDeque<Double> window, double value, int minSamples) {
+    if (window.size() < minSamples) {
+      return false;
+    }
+    double[] sorted = sorted(window);
+    double q1 = Main.getPercentile(sorted, 25);
+    double q3 = Main.getPercentile(sorted, 75);
+    double iqr = q3 - q1;
+    return value < q1 - 1.5 * iqr || value > q3 + 1.5 * iqr;
+  }
+
+  private static void assertSameWindow(ArrayDeque<Double> last, SlidingWindow<Double> window) {
+    double[] sorted = sorted(last);
+    assertEquals(sorted.length, window.getCount());
+    for (double p : PERCENTILES) {
+      assertEquals(Main.getPercentile(sorted, p), window.getPercentile(p));
+    }
+    StatisticsCollector.StatisticsData expected = StatisticsCollector.of(sorted);
+    assertEquals(expected.getAverage(), window.getMean(), 1e-6);
+    assertEquals(expected.getStandardDeviation(), window.getStandardDeviation(), 1e-6);
+  }
+
+  private static void assertSummary(double[] values, SlidingWindow.WindowSummary summary) {
+    double[] sorted = values.clone();
+    Arrays.sort(sorted);
+    assertEquals(sorted.length, summary.getCount());
+    assertEquals(Arrays.stream(sorted).average().orElseThrow(), summary.getMean(), 1e-9);
+    assertEquals(Main.getPercentile(sorted, 25), summary.getQ1());
+    assertEquals(Main.getPercentile(sorted, 50), summary.getMedian());
+    assertEquals(Main.getPercentile(sorted, 75), summary.getQ3());
+  }
+
+  private static double[] sorted(ArrayDeque<Double> values) {
+    double[] sorted = values.stream().mapToDouble(Double::doubleValue).toArray();
+    Arrays.sort(sorted);
+    return sorted;
+  }
+}
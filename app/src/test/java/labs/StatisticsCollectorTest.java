@@ -0,0 +1,76 @@
+package labs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/** Compares combined statistics with the ones of a single pass and of a two-pass reference. */
+class StatisticsCollectorTest {
+
+  @Test
+  void combinedPartsMatchSinglePass() {
+    // великий зсув: сума квадратів тут втратила б точність, а моменти Велфорда ні
+    double[] values = new Random(6).doubles(500_000).map(v -> 1e9 + Math.pow(v, 3) * 100)
+        .toArray();
+    StatisticsCollector.StatisticsData single = new StatisticsCollector.StatisticsData();
+    Arrays.stream(values).forEach(single::accept);
+    StatisticsCollector.StatisticsData combined = new StatisticsCollector.StatisticsData();
+    // частини різного розміру, зокрема порожня й з одного значення
+    int from = 0;
+    for (int part = 0; from < values.length; part++) {
+      int to = Math.min(values.length, from + (part == 0 ? 0 : part == 1 ? 1 : 1 << part));
+      StatisticsCollector.StatisticsData data = new StatisticsCollector.StatisticsData();
+      Arrays.stream(values, from, to).forEach(data::accept);
+      combined.combine(data);
+      from = to;
+    }
+    assertSameStatistics(reference(values), single);
+    assertSameStatistics(single, combined);
+  }
+
+  @Test
+  void collectorsMatchSinglePass() {
+    double[] values = new Random(7).doubles(1_000_000).map(v -> -v * v * 5000).toArray();
+    StatisticsCollector.StatisticsData single = new StatisticsCollector.StatisticsData();
+    Arrays.stream(values).forEach(single::accept);
+    assertSameStatistics(single, Arrays.stream(values).boxed().parallel()
+        .collect(StatisticsCollector.getStatisticsCollector()));
+    assertSameStatistics(single, Arrays.stream(values).boxed().parallel()
+        .collect(StatisticsCollector.getConcurrentStatisticsCollector(Double::doubleValue)));
+    assertSameStatistics(single, StatisticsCollector.of(Arrays.stream(values).parallel()));
+    assertSameStatistics(single, StatisticsCollector.of(values));
+  }
+
+  /** The moments from the exact mean, in a second pass. */
+  private static StatisticsCollector.StatisticsData reference(double[] values) {
+    double mean = Arrays.stream(values).map(v -> v - values[0]).sum() / values.length
+        + values[0];
+    double m2 = 0;
+    double m3 = 0;
+    double m4 = 0;
+    for (double value : values) {
+      double d = value - mean;
+      m2 += d * d;
+      m3 += d * d * d;
+      m4 += d * d * d * d;
+    }
+    return StatisticsCollector.StatisticsData.of(values.length,
+        Arrays.stream(values).min().orElseThrow(), Arrays.stream(values).max().orElseThrow(),
+        mean, m2, m3, m4);
+  }
+
+  private static void assertSameStatistics(StatisticsCollector.StatisticsData expected,
+      StatisticsCollector.StatisticsData actual) {
+    assertEquals(expected.getCount(), actual.getCount());
+    assertEquals(expected.getMin(), actual.getMin());
+    assertEquals(expected.getMax(), actual.getMax());
+    assertEquals(expected.getAverage(), actual.getAverage(),
+        1e-12 * Math.abs(expected.getAverage()));
+    assertEquals(expected.getStandardDeviation(), actual.getStandardDeviation(),
+        1e-9 * expected.getStandardDeviation());
+    assertEquals(expected.getSkewness(), actual.getSkewness(), 1e-6);
+    assertEquals(expected.getKurtosis(), actual.getKurtosis(), 1e-6);
+  }
+}
@@ -0,0 +1,97 @@
+package labs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Reads CSV and JSON-lines files with more values of field A than a dictionary holds. */
+class TextDatasetSourceTest {
+
+  /** Enough lines for several regions of {@code MIN_SPLIT} bytes. */
+  private static final int SIZE = 120_000;
+
+  @TempDir
+  Path directory;
+
+  @Test
+  void parallelStreamReadsTheSameCars() throws IOException {
+    List<Car> cars = cars();
+    Path csv = directory.resolve("cars.csv");
+    try (Writer writer = Files.newBufferedWriter(csv, StandardCharsets.UTF_8)) {
+      writer.write("brand,monthsSinceProduction,carClass,price\n");
+      for (Car car : cars) {
+        writer.write(String.format(Locale.ROOT, "%s,%d,%s,%s%n", car.getBrand(),
+            car.getMonthsSinceProduction(), car.getCarClass(), car.getGField()));
+      }
+    }
+    Path jsonLines = directory.resolve("cars.jsonl");
+    try (Writer writer = Files.newBufferedWriter(jsonLines, StandardCharsets.UTF_8)) {
+      for (Car car : cars) {
+        writer.write(String.format(Locale.ROOT, "{\"price\": %s, \"brand\": \"%s\", "
+            + "\"carClass\": \"%s\", \"monthsSinceProduction\": %d}%n", car.getGField(),
+            car.getBrand(), car.getCarClass(), car.getMonthsSinceProduction()));
+      }
+    }
+
+    List<String> expected = strings(cars.stream());
+    for (Path file : List.of(csv, jsonLines)) {
+      try (Stream<Car> sequential = TextDatasetSource.open(file, EntityType.CAR)) {
+        assertEquals(expected, strings(sequential), file.toString());
+      }
+      try (Stream<Car> parallel = TextDatasetSource.open(file, EntityType.CAR)) {
+        assertEquals(expected, strings(parallel.parallel()), file.toString());
+      }
+      try (Stream<Car> codes = TextDatasetSource.open(file, EntityType.CAR)) {
+        assertEquals(cars.stream().map(Car::getBrandCode).collect(Collectors.toList()),
+            codes.map(Car::getBrandCode).collect(Collectors.toList()));
+      }
+    }
+    assertEquals(Car.BRANDS.length, Car.BRAND_DICTIONARY.size());
+  }
+
+  @Test
+  void batchModeReadsTextDataset() throws IOException {
+    Path csv = directory.resolve("cars.csv");
+    List<Car> cars = cars();
+    try (Writer writer = Files.newBufferedWriter(csv, StandardCharsets.UTF_8)) {
+      writer.write("brand,monthsSinceProduction,carClass,price\n");
+      for (Car car : cars) {
+        writer.write(String.format(Locale.ROOT, "%s,%d,%s,%s%n", car.getBrand(),
+            car.getMonthsSinceProduction(), car.getCarClass(), car.getGField()));
+      }
+    }
+    Path report = directory.resolve("report.txt");
+    assertEquals(0, BatchRunner.run(new String[] {"dataset=" + csv, "entity=car",
+        "filter=Brand399", "skip=10", "limit=100", "output=" + report}));
+    long expected = cars.stream().filter(car -> car.getBrand().equals("Brand399")).skip(10)
+        .limit(100).count();
+    assertTrue(Files.readString(report).contains("Brand399: " + expected));
+    assertEquals(2, BatchRunner.run(new String[] {"dataset=" + csv, "filter=BMW"}));
+  }
+
+  /** Cars of 400 brands, of which five are in the dictionary. */
+  private static List<Car> cars() {
+    List<Car> cars = new ArrayList<>();
+    for (int i = 0; i < SIZE; i++) {
+      String brand = i % 2 == 0 ? Car.BRANDS[i % Car.BRANDS.length] : "Brand" + i % 400;
+      cars.add(new Car(brand, i % 15, Car.CATEGORIES[i % 5], 10_000 + i * 0.25));
+    }
+    return cars;
+  }
+
+  private static List<String> strings(Stream<?> items) {
+    return items.map(Object::toString).collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,41 @@
+package labs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+/** Compares the top objects of every group with the ones found by sorting the group. */
+class TopKCollectorTest {
+
+  @Test
+  void groupedTopMatchesSortedGroups() {
+    Random random = new Random(25);
+    List<double[]> items = new ArrayList<>();
+    for (int i = 0; i < 100_000; i++) {
+      items.add(new double[] {random.nextInt(20), random.nextGaussian()});
+    }
+    int k = 7;
+    Map<String, TopKCollector.TopK<double[]>> tops = items.parallelStream().collect(
+        TopKCollector.getGroupedTopKCollector(item -> "group" + (int) item[0],
+            item -> item[1], k));
+    Map<String, List<double[]>> groups = items.stream()
+        .collect(Collectors.groupingBy(item -> "group" + (int) item[0]));
+    assertEquals(groups.keySet(), tops.keySet());
+    for (Map.Entry<String, List<double[]>> group : groups.entrySet()) {
+      TopKCollector.TopK<double[]> top = tops.get(group.getKey());
+      List<double[]> expected = group.getValue().stream()
+          .sorted(Comparator.comparingDouble((double[] item) -> item[1]).reversed())
+          .limit(k)
+          .collect(Collectors.toList());
+      assertEquals(group.getValue().size(), top.getCount());
+      assertEquals(expected, top.getItems());
+      assertEquals(expected.get(k - 1)[1], top.getThreshold());
+    }
+  }
+}
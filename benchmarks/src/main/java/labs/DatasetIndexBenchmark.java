@@ -0,0 +1,99 @@
+package labs;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures a selective query over a dataset file, the filter on field A with one value
+ * of field B, answered by a full scan of {@link DatasetReader#select} and by the
+ * {@link DatasetIndex} planner, varying the number of skipped objects and the limit.
+ * The dataset is written to a temporary file once per trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DatasetIndexBenchmark {
+
+  @Param({"SURVEY", "CLOTHING", "CAR", "CREATURE"})
+  public EntityKind entity;
+
+  @Param({"1000000", "10000000"})
+  public int datasetSize;
+
+  @Param({"0", "100000"})
+  public int skipN;
+
+  @Param({"1000", "1000000"})
+  public int limit;
+
+  private Path file;
+  private DatasetReader dataset;
+  private DatasetIndex index;
+  private QuerySpec spec;
+  private int code;
+
+  /**
+   * Writes the dataset and builds its index once per trial.
+   *
+   * @throws IOException if the temporary file cannot be written
+   */
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    EntityType entityType = EntityType.valueOf(entity.name());
+    file = Files.createTempFile("labs-index", ".bin");
+    try (DatasetWriter writer = new DatasetWriter(file, entityType)) {
+      writer.writeAll(entityType.generator(42).stream(datasetSize));
+    }
+    dataset = new DatasetReader(file);
+    index = new DatasetIndex(dataset);
+    // одне значення поля Б із середини набору даних
+    int b = dataset.getB(datasetSize / 2);
+    spec = new QuerySpec(entityType, entity.defaultFilterValue, skipN, limit, b, b, 42);
+    code = dataset.codeOf(entity.defaultFilterValue);
+  }
+
+  /**
+   * Deletes the dataset file.
+   *
+   * @throws IOException if the file cannot be deleted
+   */
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    dataset.close();
+    Files.deleteIfExists(file);
+  }
+
+  @Benchmark
+  public double scanSelect() {
+    return dataset.<HasGField>select(c -> c == code, spec.getSkipN(), spec.getLimit(),
+        spec.getMinB(), spec.getMaxB()).mapToDouble(HasGField::getGField).sum();
+  }
+
+  @Benchmark
+  public double indexedSelect() {
+    return index.plan(spec).<HasGField>stream().mapToDouble(HasGField::getGField).sum();
+  }
+
+  @Benchmark
+  public DatasetIndex buildIndex() {
+    return new DatasetIndex(dataset);
+  }
+}
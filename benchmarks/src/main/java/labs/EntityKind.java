@@ -0,0 +1,93 @@
+package labs;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.LongFunction;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Describes, for each entity type of the application, how to generate an object
+ * and which getters play the roles of fields A, B and V in {@link Main}.
+ * Used by the benchmarks to run the same stage for all four entity types.
+ */
+public enum EntityKind {
+
+  SURVEY(SurveyParticipant::generateRandomPerson, "Kyiv",
+      SurveyParticipant::getCity, SurveyParticipant::getAge, SurveyParticipant::getCity,
+      SurveyParticipantBatch::new, SurveyParticipant::getCityCode, SurveyParticipant.CITY_DICTIONARY,
+      EntityGenerator::participants),
+
+  CLOTHING(ClothingItem::generateRandomClothingItem, "Kyiv",
+      ClothingItem::getCity, ClothingItem::getMonthsSinceProduction, ClothingItem::getCity,
+      ClothingItemBatch::new, ClothingItem::getCityCode, ClothingItem.CITY_DICTIONARY,
+      EntityGenerator::clothingItems),
+
+  CAR(Car::generateRandomCar, "BMW",
+      Car::getBrand, Car::getMonthsSinceProduction, Car::getBrand,
+      CarBatch::new, Car::getBrandCode, Car.BRAND_DICTIONARY,
+      EntityGenerator::cars),
+
+  CREATURE(MythicalCreature::generateRandomCreature, "Dragon",
+      MythicalCreature::getType, MythicalCreature::getYearsSinceFirstAppearance,
+      MythicalCreature::getType, MythicalCreatureBatch::new,
+      MythicalCreature::getTypeCode, MythicalCreature.TYPE_DICTIONARY,
+      EntityGenerator::creatures);
+
+  /** Generator of random objects of this type. */
+  final Supplier<Object> generator;
+
+  /** A typical value of field A used for filtering. */
+  final String defaultFilterValue;
+
+  /** Extractor of field A. */
+  final Gatherer.FieldExtractor<Object> fieldA;
+
+  /** Extractor of field B. */
+  final ToDoubleFunction<Object> fieldB;
+
+  /** Extractor of field V. */
+  final Function<Object, String> fieldV;
+
+  /** Extractor of the code of field A. */
+  final Gatherer.OrdinalFieldExtractor<Object> fieldACode;
+
+  /** The dictionary of the codes of field A. */
+  final CategoryDictionary aDictionary;
+
+  /** Creator of a seeded generator of this type. */
+  final LongFunction<EntityGenerator<Object>> seededGenerator;
+
+  /** Creator of an empty columnar batch of the given capacity. */
+  private final IntFunction<EntityBatch<?>> batchFactory;
+
+  @SuppressWarnings("unchecked")
+  <T> EntityKind(Supplier<T> generator, String defaultFilterValue,
+      Gatherer.FieldExtractor<T> fieldA, ToDoubleFunction<T> fieldB, Function<T, String> fieldV,
+      IntFunction<EntityBatch<?>> batchFactory, Gatherer.OrdinalFieldExtractor<T> fieldACode,
+      CategoryDictionary aDictionary, LongFunction<EntityGenerator<T>> seededGenerator) {
+    this.generator = (Supplier<Object>) generator;
+    this.defaultFilterValue = defaultFilterValue;
+    this.fieldA = (Gatherer.FieldExtractor<Object>) fieldA;
+    this.fieldB = (ToDoubleFunction<Object>) fieldB;
+    this.fieldV = (Function<Object, String>) (Function<?, String>) fieldV;
+    this.batchFactory = batchFactory;
+    this.fieldACode = (Gatherer.OrdinalFieldExtractor<Object>) fieldACode;
+    this.aDictionary = aDictionary;
+    this.seededGenerator = seed -> (EntityGenerator<Object>) seededGenerator.apply(seed);
+  }
+
+  /**
+   * Stores the objects in a new columnar batch.
+   *
+   * @param items the objects of this type
+   * @return a batch holding the objects
+   */
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  EntityBatch<?> toBatch(List<Object> items) {
+    EntityBatch batch = batchFactory.apply(items.size());
+    batch.addAll(items.stream());
+    return batch;
+  }
+}
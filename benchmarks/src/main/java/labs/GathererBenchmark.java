@@ -0,0 +1,121 @@
+package labs;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link Gatherer#gather} over a freshly generated stream and
+ * {@link Gatherer#gatherParallel(int, Gatherer.FieldExtractor)}, both by the String value
+ * and by the dictionary code of field A, filtering on a cursor, and the late materialization of
+ * {@link EntityGenerator#select} against eager generation, for every entity type,
+ * varying the number of skipped objects and the limit.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GathererBenchmark {
+
+  @Param({"SURVEY", "CLOTHING", "CAR", "CREATURE"})
+  public EntityKind entity;
+
+  @Param({"0", "1000", "100000"})
+  public int skipN;
+
+  @Param({"500", "100000"})
+  public int limit;
+
+  /**
+   * Gathers {@code limit} objects after skipping {@code skipN} matching ones.
+   *
+   * @return the gathered objects
+   */
+  @Benchmark
+  public List<Object> gather() {
+    Gatherer<Object> gatherer =
+        new Gatherer<>(Stream.generate(entity.generator), entity.defaultFilterValue, skipN);
+    return gatherer.gather(limit, entity.fieldA);
+  }
+
+  /**
+   * Gathers the same objects as {@link #gather()} with the parallel unordered engine.
+   *
+   * @return the gathered objects
+   */
+  @Benchmark
+  public List<Object> gatherParallel() {
+    Gatherer<Object> gatherer =
+        new Gatherer<>(entity.generator, entity.defaultFilterValue, skipN);
+    return gatherer.gatherParallel(limit, entity.fieldA);
+  }
+
+  /**
+   * Gathers the same objects as {@link #gather()}, comparing codes of field A instead of Strings.
+   *
+   * @return the gathered objects
+   */
+  @Benchmark
+  public List<Object> gatherByCode() {
+    Gatherer<Object> gatherer =
+        new Gatherer<>(Stream.generate(entity.generator), entity.defaultFilterValue, skipN);
+    return gatherer.gather(limit, entity.fieldACode, entity.aDictionary);
+  }
+
+  /**
+   * Gathers like {@link #gatherByCode()}, but filters on an {@link EntityCursor} over
+   * the generator, so only the gathered objects are built and allocated.
+   *
+   * @return the gathered objects
+   */
+  @Benchmark
+  public List<Object> gatherByCursor() {
+    Gatherer<Object> gatherer = new Gatherer<>(
+        entity.seededGenerator.apply(42).cursor(0, Long.MAX_VALUE),
+        entity.defaultFilterValue, skipN);
+    return gatherer.gather(limit, entity.aDictionary);
+  }
+
+  /**
+   * Eager generation: every candidate is built before the filters on A and B.
+   *
+   * @return the number of objects that passed
+   */
+  @Benchmark
+  public long eagerSelect() {
+    return Query.from(entity.seededGenerator.apply(42).stream())
+        .filterA(entity.fieldACode, entity.aDictionary, entity.defaultFilterValue)
+        .skip(skipN)
+        .limit(limit)
+        .filterB(entity.fieldB, 0, 10)
+        .collectItems()
+        .run()
+        .getItems()
+        .size();
+  }
+
+  /**
+   * Late materialization: only fields A and B are drawn until a candidate passes.
+   *
+   * @return the number of objects that passed
+   */
+  @Benchmark
+  public long lateSelect() {
+    int code = entity.aDictionary.codeOf(entity.defaultFilterValue);
+    return entity.seededGenerator.apply(42)
+        .select(c -> c == code, skipN, limit, 0, 10)
+        .count();
+  }
+}
@@ -0,0 +1,364 @@
+package labs;
+
+import java.util.Arrays;
+import java.util.DoubleSummaryStatistics;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Collectors;
+import java.util.stream.DoubleStream;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the analysis stages of {@link Main} on an already gathered dataset:
+ * filtering by field B, grouping by field V, sorting the G values with the Q1/Q3 lookup,
+ * the {@link StatisticsCollector}, the top objects of every group and the whole IQR outlier
+ * split. The {@code columnar*} benchmarks run the same steps on an {@link EntityBatch}.
+ * The {@code scalar*Kernel} and {@code vector*Kernel} benchmarks run the loops of
+ * {@link ColumnKernels} on the columns as scalar loops and with the Vector API; the fork adds
+ * the module {@code jdk.incubator.vector}, without which both run the scalar loops.
+ *
+ * <p>A dataset of 1e8 objects needs a large heap, e.g. {@code -jvmArgsAppend -Xmx16g}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class PipelineBenchmark {
+
+  @Param({"SURVEY", "CLOTHING", "CAR", "CREATURE"})
+  public EntityKind entity;
+
+  @Param({"1000", "100000", "10000000", "100000000"})
+  public int datasetSize;
+
+  /** The number of top objects of every group. */
+  private static final int TOP_K = 10;
+
+  /** The generated objects. */
+  private List<Object> dataset;
+
+  /** The dataset stored column by column. */
+  private EntityBatch<?> batch;
+
+  /** All rows of the batch. */
+  private int[] allRows;
+
+  /** The accessor of field G generated by the schema of the entity type. */
+  private ToDoubleFunction<Object> schemaFieldG;
+
+  /** The G values of the dataset, in generation order. */
+  private double[] gValues;
+
+  /** The G values of the dataset, already sorted. */
+  private List<Double> sortedGValues;
+
+  /** Bounds of field B that keep roughly a half of the objects. */
+  private double minB;
+  private double maxB;
+
+  /** The ranges of field B counted by the {@link GroupAggregator} benchmarks. */
+  private double[] bBounds;
+
+  /** The B values of the dataset as a column, in generation order. */
+  private int[] bColumn;
+
+  /** The IQR bounds of the G values. */
+  private double lowerG;
+  private double upperG;
+
+  /**
+   * Generates the dataset once per trial.
+   */
+  @Setup(Level.Trial)
+  public void setUp() {
+    dataset = Stream.generate(entity.generator).limit(datasetSize).collect(Collectors.toList());
+    sortedGValues = dataset.stream()
+        .map(item -> ((HasGField) item).getGField())
+        .sorted()
+        .collect(Collectors.toList());
+    List<Double> bValues = dataset.stream()
+        .map(item -> entity.fieldB.applyAsDouble(item))
+        .sorted()
+        .collect(Collectors.toList());
+    minB = Main.getPercentile(bValues, 25);
+    maxB = Main.getPercentile(bValues, 75);
+    bBounds = DoubleStream.of(bValues.get(0), minB, maxB, bValues.get(bValues.size() - 1) + 1)
+        .distinct()
+        .toArray();
+    batch = entity.toBatch(dataset);
+    allRows = batch.allRows();
+    gValues = batch.gValues(allRows);
+    bColumn = dataset.stream().mapToInt(item -> (int) entity.fieldB.applyAsDouble(item)).toArray();
+    double q1 = Main.getPercentile(sortedGValues, 25);
+    double q3 = Main.getPercentile(sortedGValues, 75);
+    lowerG = q1 - 1.5 * (q3 - q1);
+    upperG = q3 + 1.5 * (q3 - q1);
+    schemaFieldG = schemaFieldG(EntityType.valueOf(entity.name()).getSchema());
+  }
+
+  @SuppressWarnings("unchecked")
+  private static ToDoubleFunction<Object> schemaFieldG(EntitySchema<?> schema) {
+    return (ToDoubleFunction<Object>) schema.getFieldG();
+  }
+
+  @Benchmark
+  public List<Object> filterByParameterB() {
+    return Main.filterByParameterB(dataset, entity.fieldB, minB, maxB);
+  }
+
+  @Benchmark
+  public Map<String, Long> groupByFieldV() {
+    return Main.groupByFieldV(dataset, entity.fieldV);
+  }
+
+  @Benchmark
+  public List<Double> sortGValues() {
+    return dataset.stream()
+        .map(item -> ((HasGField) item).getGField())
+        .sorted()
+        .collect(Collectors.toList());
+  }
+
+  @Benchmark
+  public double getPercentile() {
+    return Main.getPercentile(sortedGValues, 75) - Main.getPercentile(sortedGValues, 25);
+  }
+
+  @Benchmark
+  public StatisticsCollector.StatisticsData statisticsCollector() {
+    return dataset.stream()
+        .map(item -> ((HasGField) item).getGField())
+        .collect(StatisticsCollector.getStatisticsCollector());
+  }
+
+  @Benchmark
+  public StatisticsCollector.StatisticsData primitiveStatisticsCollector() {
+    return dataset.stream()
+        .collect(StatisticsCollector.getStatisticsCollector(item -> ((HasGField) item).getGField()));
+  }
+
+  /**
+   * The statistics of field G read through the accessor generated by the {@link EntitySchema}
+   * of the entity type, instead of the interface call to {@link HasGField#getGField()}.
+   *
+   * @return the statistics of field G
+   */
+  @Benchmark
+  public StatisticsCollector.StatisticsData schemaStatisticsCollector() {
+    return dataset.stream().collect(StatisticsCollector.getStatisticsCollector(schemaFieldG));
+  }
+
+  @Benchmark
+  public StatisticsCollector.StatisticsData concurrentStatisticsCollector() {
+    return dataset.parallelStream()
+        .collect(StatisticsCollector.getConcurrentStatisticsCollector(
+            item -> ((HasGField) item).getGField()));
+  }
+
+  /**
+   * The ten objects with the largest G values of every group by field V,
+   * by grouping all the objects and sorting every group.
+   *
+   * @return the top objects by group
+   */
+  @Benchmark
+  public Map<String, List<Object>> sortTopKByGroup() {
+    return dataset.stream()
+        .collect(Collectors.groupingBy(entity.fieldV, Collectors.collectingAndThen(
+            Collectors.toList(),
+            group -> group.stream()
+                .sorted((a, b) -> Double.compare(
+                    ((HasGField) b).getGField(), ((HasGField) a).getGField()))
+                .limit(TOP_K)
+                .collect(Collectors.toList()))));
+  }
+
+  /**
+   * The same top objects as {@link #sortTopKByGroup()} from bounded heaps,
+   * merged across the segments of a parallel stream.
+   *
+   * @return the top objects by group
+   */
+  @Benchmark
+  public Map<String, TopKCollector.TopK<Object>> heapTopKByGroup() {
+    return dataset.parallelStream()
+        .collect(TopKCollector.getGroupedTopKCollector(entity.fieldV,
+            item -> ((HasGField) item).getGField(), TOP_K));
+  }
+
+  /**
+   * The most frequent values of field V from a Space-Saving summary and a Count-Min sketch.
+   *
+   * @return the summary of the frequent values
+   */
+  @Benchmark
+  public HeavyHitterCollector.HeavyHitters heavyHitters() {
+    return dataset.parallelStream()
+        .collect(HeavyHitterCollector.getHeavyHitterCollector(entity.fieldV));
+  }
+
+  /**
+   * The full analysis of field G as done in {@link Main#main}.
+   *
+   * @return the counts of regular values and outliers
+   */
+  @Benchmark
+  public Map<String, Long> iqrPipeline() {
+    List<Double> gValues = sortGValues();
+    double q1 = Main.getPercentile(gValues, 25);
+    double q3 = Main.getPercentile(gValues, 75);
+    double iqr = q3 - q1;
+    double lowerBound = q1 - 1.5 * iqr;
+    double upperBound = q3 + 1.5 * iqr;
+    return gValues.stream()
+        .collect(Collectors.groupingBy(
+            value -> (value < lowerBound || value > upperBound) ? "outliers" : "data",
+            Collectors.counting()
+        ));
+  }
+
+  /**
+   * Q1 and Q3 of a primitive copy of the G values, found by sorting it.
+   *
+   * @return the quartiles
+   */
+  @Benchmark
+  public double[] sortQuartiles() {
+    double[] sorted = gValues.clone();
+    Arrays.sort(sorted);
+    return new double[] {Main.getPercentile(sorted, 25), Main.getPercentile(sorted, 75)};
+  }
+
+  /**
+   * Q1 and Q3 of a primitive copy of the G values, found by {@link QuantileSelector}.
+   *
+   * @return the quartiles
+   */
+  @Benchmark
+  public double[] selectQuartiles() {
+    return QuantileSelector.percentiles(gValues.clone(),
+        QuantileSelector.Interpolation.NEAREST_RANK, 25, 75);
+  }
+
+  @Benchmark
+  public int[] columnarFilterByParameterB() {
+    return batch.selectByB(allRows, minB, maxB);
+  }
+
+  @Benchmark
+  public int[] scalarFilterByParameterBKernel() {
+    return ColumnKernels.selectInRange(ColumnKernels.SCALAR, bColumn, bColumn.length, minB, maxB);
+  }
+
+  @Benchmark
+  public int[] vectorFilterByParameterBKernel() {
+    return ColumnKernels.selectInRange(ColumnKernels.kernels(), bColumn, bColumn.length, minB,
+        maxB);
+  }
+
+  @Benchmark
+  public StatisticsCollector.StatisticsData scalarStatisticsKernel() {
+    return ColumnKernels.SCALAR.statistics(gValues, null, gValues.length);
+  }
+
+  @Benchmark
+  public StatisticsCollector.StatisticsData vectorStatisticsKernel() {
+    return ColumnKernels.kernels().statistics(gValues, null, gValues.length);
+  }
+
+  @Benchmark
+  public long scalarOutlierCountKernel() {
+    return ColumnKernels.SCALAR.countOutside(gValues, lowerG, upperG);
+  }
+
+  @Benchmark
+  public long vectorOutlierCountKernel() {
+    return ColumnKernels.kernels().countOutside(gValues, lowerG, upperG);
+  }
+
+  @Benchmark
+  public Map<String, Long> columnarGroupByFieldV() {
+    return batch.countByV(allRows);
+  }
+
+  /**
+   * Count, sum, min, max and average of field G per value of V with boxed collectors,
+   * the baseline for the {@link GroupAggregator} benchmarks.
+   *
+   * @return the statistics of each group
+   */
+  @Benchmark
+  public Map<String, DoubleSummaryStatistics> multiAggregateGroupingBy() {
+    return dataset.stream().collect(Collectors.groupingBy(entity.fieldV,
+        Collectors.summarizingDouble(item -> ((HasGField) item).getGField())));
+  }
+
+  @Benchmark
+  public GroupAggregator columnarMultiAggregate() {
+    return batch.aggregate(allRows, bBounds, false);
+  }
+
+  /**
+   * The aggregates grouped by field A and the extra field, e.g. brand × car class.
+   *
+   * @return the table of groups
+   */
+  @Benchmark
+  public GroupAggregator columnarCompositeAggregate() {
+    return batch.aggregate(allRows, bBounds, true);
+  }
+
+  @Benchmark
+  public GroupAggregator columnarCompositeAggregateParallel() {
+    return batch.aggregateParallel(allRows, bBounds, true, 1 << 16);
+  }
+
+  @Benchmark
+  public Map<String, Long> columnarIqrPipeline() {
+    return batch.splitOutliers(allRows);
+  }
+
+  /**
+   * The IQR outlier split with the quartiles taken from a {@link QuantileCollector} sketch.
+   *
+   * @return the counts of regular values and outliers
+   */
+  @Benchmark
+  public Map<String, Long> sketchIqrPipeline() {
+    return QuantileCollector.splitOutliers(
+        () -> dataset.stream().mapToDouble(item -> ((HasGField) item).getGField()));
+  }
+
+  /**
+   * Filtering by B, grouping by V and the exact IQR split fused into one {@link Query} pass.
+   *
+   * @return the result of the query
+   */
+  @Benchmark
+  public Query.Result<Object> fusedQuery() {
+    Query.Result<Object> result = Query.from(dataset.stream())
+        .filterB(entity.fieldB, minB, maxB)
+        .groupBy(entity.fieldV)
+        .aggregate(item -> ((HasGField) item).getGField())
+        .exactQuantiles()
+        .run();
+    result.getOutlierSplit();
+    return result;
+  }
+}